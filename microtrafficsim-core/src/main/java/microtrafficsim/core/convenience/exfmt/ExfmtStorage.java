@@ -11,6 +11,7 @@ import microtrafficsim.core.exfmt.extractor.simulation.RouteContainerExtractor;
 import microtrafficsim.core.exfmt.extractor.simulation.SimulationConfigExtractor;
 import microtrafficsim.core.exfmt.extractor.streetgraph.StreetGraphExtractor;
 import microtrafficsim.core.exfmt.injector.simulation.ProjectedAreasInjector;
+import microtrafficsim.core.exfmt.injector.streetgraph.GraphInjector;
 import microtrafficsim.core.exfmt.injector.simulation.RouteContainerInjector;
 import microtrafficsim.core.exfmt.injector.simulation.SimulationConfigInjector;
 import microtrafficsim.core.logic.streetgraph.Graph;
@@ -21,6 +22,8 @@ import microtrafficsim.core.map.tiles.QuadTreeTiledMapSegment;
 import microtrafficsim.core.map.tiles.TilingScheme;
 import microtrafficsim.core.parser.OSMParser;
 import microtrafficsim.core.serialization.ExchangeFormatSerializer;
+import microtrafficsim.core.serialization.binary.BinaryMapWriter;
+import microtrafficsim.core.serialization.binary.MappedMap;
 import microtrafficsim.core.simulation.configs.SimulationConfig;
 import microtrafficsim.core.simulation.utils.RouteContainer;
 import microtrafficsim.core.vis.map.projections.Projection;
@@ -50,7 +53,9 @@ public class ExfmtStorage {
 
     public ExfmtStorage() {
         serializer = ExchangeFormatSerializer.create();
+        serializer.setChunked(true);
         exfmt = ExchangeFormat.getDefault();
+        exfmt.getConfig().set(new GraphInjector.Config(true));
 
         mapLoadingHasBeenSet = false;
     }
@@ -118,6 +123,10 @@ public class ExfmtStorage {
                 }
 
                 return new Tuple<>(manipulator.extract(StreetGraph.class), provider);
+            } else if (MTSFileChooser.Filters.MAP_BINARY.accept(file)) {
+                MappedMap map = MappedMap.open(file);
+                StreetGraph graph = map.createStreetGraph(exfmt.getConfig().get(StreetGraphExtractor.Config.class));
+                return new Tuple<>(graph, map.getSegment());
             }
         } catch (InterruptedException e) {
             throw e;
@@ -137,6 +146,24 @@ public class ExfmtStorage {
             throw new IOException("You have to setup some map loading attributes, e.g. the parser.");
 
         try {
+            if (MTSFileChooser.Filters.MAP_BINARY.accept(file)) {
+                QuadTreeTiledMapSegment segment;
+                if (provider instanceof QuadTreeTiledMapSegment) {
+                    segment = (QuadTreeTiledMapSegment) provider;
+                } else if (provider instanceof SegmentFeatureProvider) {
+                    QuadTreeTiledMapSegmentExtractor.Config cfg
+                            = exfmt.getConfig().get(QuadTreeTiledMapSegmentExtractor.Config.class);
+                    segment = new QuadTreeTiledMapSegment.Generator()
+                            .generate((SegmentFeatureProvider) provider, cfg.scheme, cfg.level);
+                } else {
+                    logger.error("The binary map format requires a segment feature provider.");
+                    return false;
+                }
+
+                new BinaryMapWriter().write(file, graph, segment);
+                return true;
+            }
+
             serializer.write(file, exfmt.manipulator()
                     .inject(provider)
                     .inject(graph)
@@ -95,6 +95,7 @@ public class MTSFileChooser extends JFileChooser {
 
         public static final String MAP_OSM_XML_POSTFIX = "osm";
         public static final String MAP_EXFMT_POSTFIX   = "mtsmap";
+        public static final String MAP_BINARY_POSTFIX  = "mtsbmap";
         public static final String SCENARIO_POSTFIX    = "mtssim";
         public static final String CONFIG_POSTFIX      = "mtscfg";
         public static final String AREA_POSTFIX        = "mtsarea";
@@ -138,6 +139,23 @@ public class MTSFileChooser extends JFileChooser {
             }
         };
 
+        public static final FileFilter MAP_BINARY = new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                if (file.isDirectory()) return true;
+
+                switch (extension(file)) {
+                    case MAP_BINARY_POSTFIX: return true;
+                    default:                 return false;
+                }
+            }
+
+            @Override
+            public String getDescription() {
+                return "MTS Binary Map Files (*." + MAP_BINARY_POSTFIX + ")";
+            }
+        };
+
         public static final FileFilter MAP_ALL = new FileFilter() {
             @Override
             public boolean accept(File file) {
@@ -145,6 +163,7 @@ public class MTSFileChooser extends JFileChooser {
 
                 switch (extension(file)) {
                     case MAP_EXFMT_POSTFIX:    return true;
+                    case MAP_BINARY_POSTFIX:   return true;
                     case MAP_OSM_XML_POSTFIX:  return true;
                     default:                   return false;
                 }
@@ -152,7 +171,8 @@ public class MTSFileChooser extends JFileChooser {
 
             @Override
             public String getDescription() {
-                return "All Map Files (*." + MAP_EXFMT_POSTFIX + " *." + MAP_OSM_XML_POSTFIX + ")";
+                return "All Map Files (*." + MAP_EXFMT_POSTFIX + " *." + MAP_BINARY_POSTFIX
+                        + " *." + MAP_OSM_XML_POSTFIX + ")";
             }
         };
 
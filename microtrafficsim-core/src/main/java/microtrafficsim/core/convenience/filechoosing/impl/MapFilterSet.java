@@ -10,10 +10,12 @@ public class MapFilterSet extends MTSFileChooser.FilterSet {
         super();
 
         getSaveFilters().add(MTSFileChooser.Filters.MAP_EXFMT);
+        getSaveFilters().add(MTSFileChooser.Filters.MAP_BINARY);
         addAllSaveFilters = true;
 
         getOpenFilters().add(MTSFileChooser.Filters.MAP_ALL);
         getOpenFilters().add(MTSFileChooser.Filters.MAP_EXFMT);
+        getOpenFilters().add(MTSFileChooser.Filters.MAP_BINARY);
         getOpenFilters().add(MTSFileChooser.Filters.MAP_OSM_XML);
         addAllOpenFilters = true;
 
@@ -1,6 +1,7 @@
 package microtrafficsim.core.convenience.mapviewer;
 
 import com.jogamp.newt.event.KeyEvent;
+import microtrafficsim.core.logic.streetgraph.GraphGUID;
 import microtrafficsim.core.map.MapProvider;
 import microtrafficsim.core.map.SegmentFeatureProvider;
 import microtrafficsim.core.map.TileFeatureProvider;
@@ -20,8 +21,13 @@ import microtrafficsim.core.vis.map.tiles.layers.FeatureTileLayerGenerator;
 import microtrafficsim.core.vis.map.tiles.layers.FeatureTileLayerSource;
 import microtrafficsim.core.vis.map.tiles.layers.LayeredTileMap;
 import microtrafficsim.core.vis.map.tiles.layers.TileLayerProvider;
+import microtrafficsim.core.vis.map.tiles.mesh.TileMeshStore;
 import microtrafficsim.core.vis.tilebased.TileBasedVisualization;
+import microtrafficsim.utils.logging.EasyMarkableLogger;
+import org.slf4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
 
 
@@ -29,6 +35,7 @@ import java.util.Collection;
  * @author Maximilian Luz, Dominic Parga Cacheiro
  */
 public class TileBasedMapViewer extends BasicMapViewer {
+    private static final Logger logger = new EasyMarkableLogger(TileBasedMapViewer.class);
 
     public static final int DEFAULT_TILEGRID_LEVEL = 12;
 
@@ -36,6 +43,8 @@ public class TileBasedMapViewer extends BasicMapViewer {
     private TileBasedVisualization visualization;
     private TileFeatureProvider map;
     private TileLayerProvider layerProvider;
+    private FeatureTileLayerGenerator layerGenerator;
+    private TileMeshStore meshStore;
 
     private TilingScheme preferredTilingScheme;
     private int preferredTileGridLevel;
@@ -183,6 +192,55 @@ public class TileBasedMapViewer extends BasicMapViewer {
         return preferredTilingScheme;
     }
 
+    /**
+     * Sets the store from which pre-baked tile meshes should be loaded. The store must have been baked for the
+     * current map and style, meshes not contained in it are generated on demand. The viewer takes ownership of the
+     * store, i.e. closes it when it is replaced.
+     *
+     * @param store the store to load pre-baked meshes from, or {@code null} to disable it.
+     */
+    public void setTileMeshStore(TileMeshStore store) {
+        TileMeshStore old = this.meshStore;
+        this.meshStore = store;
+
+        if (layerGenerator != null)
+            layerGenerator.setMeshStore(store);
+
+        if (old != null && old != store) {
+            try {
+                old.close();
+            } catch (IOException e) {
+                logger.warn("failed to close tile-mesh store", e);
+            }
+        }
+    }
+
+    /**
+     * Uses the pre-baked tile meshes for the given graph and the style of this viewer, if they have been baked into
+     * the given root directory.
+     *
+     * @param root              the root directory containing the tile-mesh stores.
+     * @param guid              the GUID of the graph of the current map.
+     * @param drivingOnTheRight the driving-side of the current map.
+     * @return {@code true} if a matching store has been found.
+     * @see TileMeshStore#getDirectory(File, GraphGUID, MapStyleSheet, boolean)
+     */
+    public boolean setTileMeshStore(File root, GraphGUID guid, boolean drivingOnTheRight) {
+        File directory = TileMeshStore.getDirectory(root, guid, style, drivingOnTheRight);
+
+        if (directory.isDirectory()) {
+            setTileMeshStore(new TileMeshStore(directory));
+            return true;
+        } else {
+            setTileMeshStore(null);
+            return false;
+        }
+    }
+
+    public TileMeshStore getTileMeshStore() {
+        return meshStore;
+    }
+
     /**
      * Creates a {@code TileLayerProvider} from the given layer definitions.
      * The {@code TileLayerProvider} is used to provide map-layers and their
@@ -198,8 +256,9 @@ public class TileBasedMapViewer extends BasicMapViewer {
         LayeredTileMap provider = new LayeredTileMap(preferredTilingScheme);
 
         /* add a generator to support feature layers */
-        FeatureTileLayerGenerator generator = new FeatureTileLayerGenerator();
-        provider.putGenerator(FeatureTileLayerSource.class, generator);
+        layerGenerator = new FeatureTileLayerGenerator();
+        layerGenerator.setMeshStore(meshStore);
+        provider.putGenerator(FeatureTileLayerSource.class, layerGenerator);
 
         /* add the leyer definitions */
         layers.forEach(provider::addLayer);
@@ -25,7 +25,8 @@ public interface VisualizationVehicleEntity {
     void setEntity(VehicleEntity entity);
 
     /**
-     * Updates the position of the vehicle.
+     * Updates the position of the vehicle. Implementations may only record the current lane and cell of the vehicle
+     * here and compute the actual position once it is requested.
      */
     void updatePosition();
 
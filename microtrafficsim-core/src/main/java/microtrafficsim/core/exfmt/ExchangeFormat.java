@@ -14,6 +14,7 @@ import microtrafficsim.core.exfmt.extractor.simulation.RouteContainerExtractor;
 import microtrafficsim.core.exfmt.extractor.simulation.SimulationConfigExtractor;
 import microtrafficsim.core.exfmt.extractor.simulation.UnprojectedAreasExtractor;
 import microtrafficsim.core.exfmt.extractor.streetgraph.StreetGraphExtractor;
+import microtrafficsim.core.exfmt.injector.map.MappedTiledMapSegmentInjector;
 import microtrafficsim.core.exfmt.injector.map.QuadTreeTiledMapSegmentInjector;
 import microtrafficsim.core.exfmt.injector.map.SegmentFeatureProviderInjector;
 import microtrafficsim.core.exfmt.injector.map.features.FeatureInjector;
@@ -40,6 +41,7 @@ import microtrafficsim.core.map.features.Polygon;
 import microtrafficsim.core.map.features.Street;
 import microtrafficsim.core.map.tiles.QuadTreeTiledMapSegment;
 import microtrafficsim.core.map.tiles.TileFeatureGrid;
+import microtrafficsim.core.serialization.binary.MappedTiledMapSegment;
 import microtrafficsim.core.simulation.configs.SimulationConfig;
 import microtrafficsim.core.simulation.utils.RouteContainer;
 import microtrafficsim.core.simulation.utils.SortedRouteContainer;
@@ -94,6 +96,7 @@ public class ExchangeFormat {
 
             format.injector(QuadTreeTiledMapSegment.class, new QuadTreeTiledMapSegmentInjector());
             format.extractor(QuadTreeTiledMapSegment.class, new QuadTreeTiledMapSegmentExtractor());
+            format.injector(MappedTiledMapSegment.class, new MappedTiledMapSegmentInjector());
 
             // street-graph
             format.injector(Node.class, new NodeInjector());
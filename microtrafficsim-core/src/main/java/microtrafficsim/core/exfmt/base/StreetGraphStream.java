@@ -0,0 +1,343 @@
+package microtrafficsim.core.exfmt.base;
+
+import microtrafficsim.core.exfmt.Container;
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.logic.streets.information.Orientation;
+import microtrafficsim.core.map.Bounds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Compact, column-based representation of a street-graph, used to stream graphs to and from the serializer without
+ * creating an entity (and components) for each node and edge.
+ * <p>
+ * When written, this entry only references the source graph; nodes, edges, and connectors are written directly from
+ * the graph in batches (see {@link microtrafficsim.core.serialization.kryo.impl.exfmt.StreetGraphStreamSerializer
+ * StreetGraphStreamSerializer}). When read, the data is stored in the primitive columns of this entry, from which the
+ * graph can be constructed.
+ * </p>
+ *
+ * @author agent
+ */
+public class StreetGraphStream extends Container.Entry {
+    private Graph source;
+    private Bounds bounds;
+
+    public final Nodes nodes = new Nodes();
+    public final Edges edges = new Edges();
+    public final Connectors connectors = new Connectors();
+
+
+    /**
+     * Creates a new, empty {@code StreetGraphStream}, to be filled via its columns.
+     *
+     * @param bounds the bounds of the graph.
+     */
+    public StreetGraphStream(Bounds bounds) {
+        this.source = null;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Creates a new {@code StreetGraphStream} for the given graph.
+     *
+     * @param source the graph to stream.
+     */
+    public StreetGraphStream(Graph source) {
+        this.source = source;
+        this.bounds = source.getBounds();
+    }
+
+
+    /**
+     * Returns the graph referenced by this entry.
+     *
+     * @return the graph referenced by this entry, or {@code null} if this entry has been read from a stream.
+     */
+    public Graph getSource() {
+        return source;
+    }
+
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+
+    /**
+     * Splits this stream into partial streams, each containing at most {@code size} nodes, edges or connectors (and
+     * nothing else). The partial streams are returned in order, so {@link #append(StreetGraphStream) appending} them
+     * to an empty stream restores the columns of this stream. If this stream references a graph, the columns are
+     * created from the graph.
+     *
+     * @param size the maximum number of records per partial stream.
+     * @return the partial streams of this stream, in order.
+     */
+    public List<StreetGraphStream> split(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Size must be positive");
+
+        ArrayList<StreetGraphStream> parts = new ArrayList<>();
+        if (source != null) {
+            splitNodes(source, size, parts);
+            splitEdges(source, size, parts);
+            splitConnectors(source, size, parts);
+        } else {
+            for (int begin = 0; begin < nodes.count; begin += size) {
+                StreetGraphStream part = part();
+                part.nodes.append(nodes, begin, Math.min(begin + size, nodes.count));
+                parts.add(part);
+            }
+            for (int begin = 0; begin < edges.count; begin += size) {
+                StreetGraphStream part = part();
+                part.edges.append(edges, begin, Math.min(begin + size, edges.count));
+                parts.add(part);
+            }
+            for (int begin = 0; begin < connectors.count; begin += size) {
+                StreetGraphStream part = part();
+                part.connectors.append(connectors, begin, Math.min(begin + size, connectors.count));
+                parts.add(part);
+            }
+        }
+
+        return parts;
+    }
+
+    /**
+     * Appends the columns of the given stream to the columns of this stream.
+     *
+     * @param other the stream to append, must not reference a graph.
+     */
+    public void append(StreetGraphStream other) {
+        nodes.append(other.nodes, 0, other.nodes.count);
+        edges.append(other.edges, 0, other.edges.count);
+        connectors.append(other.connectors, 0, other.connectors.count);
+    }
+
+    private StreetGraphStream part() {
+        return new StreetGraphStream(bounds);
+    }
+
+    private void splitNodes(Graph graph, int size, List<StreetGraphStream> parts) {
+        StreetGraphStream part = null;
+
+        for (Node node : graph.getNodes()) {
+            if (part == null) {
+                part = part();
+                part.nodes.ensureCapacity(size);
+            }
+
+            int i = part.nodes.count++;
+            part.nodes.id[i]  = node.getId();
+            part.nodes.lat[i] = node.getCoordinate().lat;
+            part.nodes.lon[i] = node.getCoordinate().lon;
+
+            if (part.nodes.count == size) {
+                parts.add(part);
+                part = null;
+            }
+        }
+
+        if (part != null)
+            parts.add(part);
+    }
+
+    private void splitEdges(Graph graph, int size, List<StreetGraphStream> parts) {
+        StreetGraphStream part = null;
+
+        for (DirectedEdge edge : graph.getEdges()) {
+            if (part == null) {
+                part = part();
+                part.edges.ensureCapacity(size);
+            }
+
+            int i = part.edges.count++;
+            part.edges.id[i]                 = edge.getId();
+            part.edges.origin[i]             = edge.getOrigin().getId();
+            part.edges.destination[i]        = edge.getDestination().getId();
+            part.edges.forward[i]            = isForward(edge);
+            part.edges.length[i]             = edge.getLengthInMeter();
+            part.edges.directions[i * 4]     = edge.getOriginDirection().x;
+            part.edges.directions[i * 4 + 1] = edge.getOriginDirection().y;
+            part.edges.directions[i * 4 + 2] = edge.getDestinationDirection().x;
+            part.edges.directions[i * 4 + 3] = edge.getDestinationDirection().y;
+            part.edges.type[i]               = edge.getStreetType().getBits();
+            part.edges.lanes[i]              = edge.getNumberOfLanes();
+            part.edges.velocity[i]           = edge.getRawMaxVelocity();
+
+            if (part.edges.count == size) {
+                parts.add(part);
+                part = null;
+            }
+        }
+
+        if (part != null)
+            parts.add(part);
+    }
+
+    private void splitConnectors(Graph graph, int size, List<StreetGraphStream> parts) {
+        StreetGraphStream part = null;
+
+        for (Node node : graph.getNodes()) {
+            for (Map.Entry<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> connector
+                    : node.getConnectors().entrySet()) {
+                DirectedEdge.Lane from = connector.getKey();
+
+                for (DirectedEdge.Lane to : connector.getValue().values()) {
+                    if (part == null) {
+                        part = part();
+                        part.connectors.ensureCapacity(size);
+                    }
+
+                    int i = part.connectors.count++;
+                    part.connectors.node[i]        = node.getId();
+                    part.connectors.fromEdge[i]    = from.getEdge().getId();
+                    part.connectors.fromForward[i] = isForward(from.getEdge());
+                    part.connectors.fromLane[i]    = from.getIndex();
+                    part.connectors.toEdge[i]      = to.getEdge().getId();
+                    part.connectors.toForward[i]   = isForward(to.getEdge());
+                    part.connectors.toLane[i]      = to.getIndex();
+
+                    if (part.connectors.count == size) {
+                        parts.add(part);
+                        part = null;
+                    }
+                }
+            }
+        }
+
+        if (part != null)
+            parts.add(part);
+    }
+
+    /**
+     * Returns whether the given edge is the forward edge of its street.
+     *
+     * @param edge the edge to check.
+     * @return {@code true} if the given edge is the forward edge of its street.
+     */
+    public static boolean isForward(DirectedEdge edge) {
+        if (edge.getEntity() != null)
+            return edge.getEntity().getForwardEdge() == edge;
+        else
+            return edge.getOrientation() == Orientation.FORWARD;
+    }
+
+
+    /**
+     * Node columns.
+     */
+    public static class Nodes {
+        public int      count = 0;
+        public long[]   id    = new long[0];
+        public double[] lat   = new double[0];
+        public double[] lon   = new double[0];
+
+        public void ensureCapacity(int capacity) {
+            if (capacity <= id.length) return;
+
+            capacity = Math.max(capacity, id.length * 2);
+            id  = Arrays.copyOf(id, capacity);
+            lat = Arrays.copyOf(lat, capacity);
+            lon = Arrays.copyOf(lon, capacity);
+        }
+
+        void append(Nodes other, int begin, int end) {
+            ensureCapacity(count + end - begin);
+            System.arraycopy(other.id, begin, id, count, end - begin);
+            System.arraycopy(other.lat, begin, lat, count, end - begin);
+            System.arraycopy(other.lon, begin, lon, count, end - begin);
+            count += end - begin;
+        }
+    }
+
+    /**
+     * Directed-edge columns. Forward and backward edges of the same street share the same id.
+     */
+    public static class Edges {
+        public int       count       = 0;
+        public long[]    id          = new long[0];
+        public long[]    origin      = new long[0];
+        public long[]    destination = new long[0];
+        public boolean[] forward     = new boolean[0];
+        public double[]  length      = new double[0];
+        public double[]  directions  = new double[0];     // origin x, y; destination x, y
+        public int[]     type        = new int[0];
+        public int[]     lanes       = new int[0];
+        public float[]   velocity    = new float[0];
+
+        public void ensureCapacity(int capacity) {
+            if (capacity <= id.length) return;
+
+            capacity    = Math.max(capacity, id.length * 2);
+            id          = Arrays.copyOf(id, capacity);
+            origin      = Arrays.copyOf(origin, capacity);
+            destination = Arrays.copyOf(destination, capacity);
+            forward     = Arrays.copyOf(forward, capacity);
+            length      = Arrays.copyOf(length, capacity);
+            directions  = Arrays.copyOf(directions, capacity * 4);
+            type        = Arrays.copyOf(type, capacity);
+            lanes       = Arrays.copyOf(lanes, capacity);
+            velocity    = Arrays.copyOf(velocity, capacity);
+        }
+
+        void append(Edges other, int begin, int end) {
+            ensureCapacity(count + end - begin);
+            System.arraycopy(other.id, begin, id, count, end - begin);
+            System.arraycopy(other.origin, begin, origin, count, end - begin);
+            System.arraycopy(other.destination, begin, destination, count, end - begin);
+            System.arraycopy(other.forward, begin, forward, count, end - begin);
+            System.arraycopy(other.length, begin, length, count, end - begin);
+            System.arraycopy(other.directions, begin * 4, directions, count * 4, (end - begin) * 4);
+            System.arraycopy(other.type, begin, type, count, end - begin);
+            System.arraycopy(other.lanes, begin, lanes, count, end - begin);
+            System.arraycopy(other.velocity, begin, velocity, count, end - begin);
+            count += end - begin;
+        }
+    }
+
+    /**
+     * Lane-connector columns.
+     */
+    public static class Connectors {
+        public int       count       = 0;
+        public long[]    node        = new long[0];
+        public long[]    fromEdge    = new long[0];
+        public boolean[] fromForward = new boolean[0];
+        public int[]     fromLane    = new int[0];
+        public long[]    toEdge      = new long[0];
+        public boolean[] toForward   = new boolean[0];
+        public int[]     toLane      = new int[0];
+
+        public void ensureCapacity(int capacity) {
+            if (capacity <= node.length) return;
+
+            capacity    = Math.max(capacity, node.length * 2);
+            node        = Arrays.copyOf(node, capacity);
+            fromEdge    = Arrays.copyOf(fromEdge, capacity);
+            fromForward = Arrays.copyOf(fromForward, capacity);
+            fromLane    = Arrays.copyOf(fromLane, capacity);
+            toEdge      = Arrays.copyOf(toEdge, capacity);
+            toForward   = Arrays.copyOf(toForward, capacity);
+            toLane      = Arrays.copyOf(toLane, capacity);
+        }
+
+        void append(Connectors other, int begin, int end) {
+            ensureCapacity(count + end - begin);
+            System.arraycopy(other.node, begin, node, count, end - begin);
+            System.arraycopy(other.fromEdge, begin, fromEdge, count, end - begin);
+            System.arraycopy(other.fromForward, begin, fromForward, count, end - begin);
+            System.arraycopy(other.fromLane, begin, fromLane, count, end - begin);
+            System.arraycopy(other.toEdge, begin, toEdge, count, end - begin);
+            System.arraycopy(other.toForward, begin, toForward, count, end - begin);
+            System.arraycopy(other.toLane, begin, toLane, count, end - begin);
+            count += end - begin;
+        }
+    }
+}
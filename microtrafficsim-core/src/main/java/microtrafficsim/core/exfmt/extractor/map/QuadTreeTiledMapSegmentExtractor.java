@@ -19,6 +19,7 @@ import microtrafficsim.core.map.FeaturePrimitive;
 import microtrafficsim.core.map.MapProperties;
 import microtrafficsim.core.map.Mappable;
 import microtrafficsim.core.map.tiles.FeatureGrid;
+import microtrafficsim.core.map.tiles.LevelOfDetail;
 import microtrafficsim.core.map.tiles.QuadTreeTiledMapSegment;
 import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
 import microtrafficsim.core.map.tiles.TilingScheme;
@@ -30,6 +31,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
@@ -77,7 +79,14 @@ public class QuadTreeTiledMapSegmentExtractor implements ExchangeFormat.Extracto
         }
 
         MapProperties properties = src.get(MapInfo.class, MapInfo::getDefault).getProperties();
-        return new QuadTreeTiledMapSegment(properties, grid.scheme, entities.getBounds(), grid.level, featureset);
+        QuadTreeTiledMapSegment segment = new QuadTreeTiledMapSegment(properties, grid.scheme, entities.getBounds(),
+                grid.level, featureset);
+
+        if (config.lod != null)
+            segment.setLevelOfDetail(LevelOfDetail.generate(featureset, grid.scheme, grid.level.zoom, config.lod,
+                    ForkJoinPool.commonPool()));
+
+        return segment;
     }
 
 
@@ -145,6 +154,7 @@ public class QuadTreeTiledMapSegmentExtractor implements ExchangeFormat.Extracto
         public TilingScheme scheme;
         public int level;
         public GridMatcher matcher;
+        public LevelOfDetail.Config lod;
 
         public static Config getDefault() {
             return getDefault(new QuadTreeTilingScheme(new MercatorProjection()), 12);
@@ -155,6 +165,7 @@ public class QuadTreeTiledMapSegmentExtractor implements ExchangeFormat.Extracto
             cfg.scheme = scheme;
             cfg.level = level;
             cfg.matcher = GridMatcher.CLOSEST;
+            cfg.lod = LevelOfDetail.Config.getDefault();
 
             return cfg;
         }
@@ -4,6 +4,7 @@ import microtrafficsim.core.entities.street.StreetEntity;
 import microtrafficsim.core.exfmt.Container;
 import microtrafficsim.core.exfmt.ExchangeFormat;
 import microtrafficsim.core.exfmt.base.GeometryEntitySet;
+import microtrafficsim.core.exfmt.base.StreetGraphStream;
 import microtrafficsim.core.exfmt.context.StreetFeatureMap;
 import microtrafficsim.core.exfmt.ecs.FeatureManager;
 import microtrafficsim.core.exfmt.ecs.components.GraphEdgeComponent;
@@ -16,12 +17,15 @@ import microtrafficsim.core.logic.nodes.Node;
 import microtrafficsim.core.logic.streetgraph.StreetGraph;
 import microtrafficsim.core.logic.streets.DirectedEdge;
 import microtrafficsim.core.logic.streets.information.Orientation;
+import microtrafficsim.core.map.Coordinate;
+import microtrafficsim.core.map.StreetType;
 import microtrafficsim.core.map.features.Street;
 import microtrafficsim.core.simulation.configs.CrossingLogicConfig;
 import microtrafficsim.core.simulation.configs.SimulationConfig;
 import microtrafficsim.math.Vec2d;
 
 import java.util.HashMap;
+import java.util.Map;
 
 
 // NOTE: The order of StreetGraph and feature extraction is important: First map features, then graph if no headless
@@ -35,12 +39,16 @@ public class StreetGraphExtractor implements ExchangeFormat.Extractor<StreetGrap
     @Override
     public StreetGraph extract(ExchangeFormat fmt, ExchangeFormat.Context ctx, Container src) throws Exception {
         GeometryEntitySet ecs = src.get(GeometryEntitySet.class);
-        if (ecs == null) throw new NotAvailableException();
+        StreetGraphStream stream = src.get(StreetGraphStream.class);
+        if (ecs == null && stream == null) throw new NotAvailableException();
 
         Config cfg = fmt.getConfig().get(Config.class);
         if (cfg == null)
             throw new ExchangeFormatException("No Config for StreetGraphExtractor available");
 
+        if (stream != null)
+            return extractStream(fmt, ctx, src, ecs, stream, cfg);
+
         // set up graph
         StreetGraph graph = new StreetGraph(ecs.getBounds());
         HashMap<Long, Node> nodes = extractNodes(ecs, cfg);
@@ -199,6 +207,97 @@ public class StreetGraphExtractor implements ExchangeFormat.Extractor<StreetGrap
         }
     }
 
+    private StreetGraph extractStream(ExchangeFormat fmt, ExchangeFormat.Context ctx, Container src,
+                                      GeometryEntitySet ecs, StreetGraphStream stream, Config cfg) {
+        StreetGraph graph = new StreetGraph(stream.getBounds());
+
+        // nodes
+        StreetGraphStream.Nodes sn = stream.nodes;
+        HashMap<Long, Node> nodes = new HashMap<>();
+        for (int i = 0; i < sn.count; i++) {
+            Node node = new Node(sn.id[i], new Coordinate(sn.lat[i], sn.lon[i]), cfg.crossingLogic);
+            nodes.put(sn.id[i], node);
+            graph.addNode(node);
+        }
+
+        // edges, forward edge at index zero, backward edge at index one
+        StreetGraphStream.Edges se = stream.edges;
+        HashMap<Long, DirectedEdge[]> edges = new HashMap<>();
+        for (int i = 0; i < se.count; i++) {
+            Node origin = nodes.get(se.origin[i]);
+            Node destination = nodes.get(se.destination[i]);
+
+            DirectedEdge edge = new DirectedEdge(
+                    se.id[i],
+                    se.length[i],
+                    new Vec2d(se.directions[i * 4], se.directions[i * 4 + 1]),
+                    new Vec2d(se.directions[i * 4 + 2], se.directions[i * 4 + 3]),
+                    se.forward[i] ? Orientation.FORWARD : Orientation.BACKWARD,
+                    origin, destination,
+                    new StreetType(se.type[i]),
+                    se.lanes[i],
+                    se.velocity[i],
+                    cfg.metersPerCell, cfg.priorityFn
+            );
+
+            graph.addEdge(edge);
+            origin.addLeavingEdge(edge);
+            destination.addIncomingEdge(edge);
+
+            edges.computeIfAbsent(se.id[i], k -> new DirectedEdge[2])[se.forward[i] ? 0 : 1] = edge;
+        }
+
+        // entities
+        StreetFeatureMap geoms = ctx.get(StreetFeatureMap.class);
+        FeatureManager fmgr = fmt.getConfig().get(FeatureManager.class);
+        for (Map.Entry<Long, DirectedEdge[]> entry : edges.entrySet()) {
+            Street geom = null;
+            if (geoms != null)
+                geom = geoms.get(entry.getKey());
+
+            if (geom == null && ecs != null && fmgr != null) {
+                LineEntity entity = ecs.getLines().get(entry.getKey());
+                if (entity != null)
+                    geom = fmgr.getExtractor(Street.class).extract(fmt, ctx, src, ecs, entity);
+            }
+
+            DirectedEdge forward = entry.getValue()[0];
+            DirectedEdge backward = entry.getValue()[1];
+
+            StreetEntity entity = new StreetEntity(forward, backward, geom);
+            if (forward != null)
+                forward.setEntity(entity);
+            if (backward != null)
+                backward.setEntity(entity);
+            if (geom != null)
+                geom.setEntity(entity);
+        }
+
+        // connectors
+        StreetGraphStream.Connectors sc = stream.connectors;
+        for (int i = 0; i < sc.count; i++) {
+            Node node = nodes.get(sc.node[i]);
+            DirectedEdge[] from = edges.get(sc.fromEdge[i]);
+            DirectedEdge[] to = edges.get(sc.toEdge[i]);
+            if (node == null || from == null || to == null) continue;
+
+            DirectedEdge fromEdge = from[sc.fromForward[i] ? 0 : 1];
+            DirectedEdge toEdge = to[sc.toForward[i] ? 0 : 1];
+            if (fromEdge == null || toEdge == null) continue;
+
+            node.addConnector(fromEdge.getLane(sc.fromLane[i]), toEdge.getLane(sc.toLane[i]));
+        }
+
+        // finish graph
+        graph.setSeed(cfg.seed);
+        for (Node node : graph.getNodes()) {
+            node.updateCrossingIndices();
+        }
+        graph.updateGraphGUID();
+
+        return graph;
+    }
+
     private DirectedEdge getEdgeByIds(StreetEntity entity, long orig, long dest) {
         DirectedEdge fwd = (DirectedEdge) entity.getForwardEdge();
         if (fwd != null)
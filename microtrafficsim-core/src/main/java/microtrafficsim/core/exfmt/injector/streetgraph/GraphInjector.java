@@ -3,6 +3,9 @@ package microtrafficsim.core.exfmt.injector.streetgraph;
 import microtrafficsim.core.exfmt.Container;
 import microtrafficsim.core.exfmt.ExchangeFormat;
 import microtrafficsim.core.exfmt.base.GeometryEntitySet;
+import microtrafficsim.core.exfmt.base.StreetGraphStream;
+import microtrafficsim.core.exfmt.ecs.components.StreetComponent;
+import microtrafficsim.core.exfmt.ecs.entities.LineEntity;
 import microtrafficsim.core.logic.nodes.Node;
 import microtrafficsim.core.logic.streetgraph.Graph;
 import microtrafficsim.core.logic.streets.DirectedEdge;
@@ -29,6 +32,12 @@ public class GraphInjector implements ExchangeFormat.Injector<Graph> {
         GeometryEntitySet entities = dst.get(GeometryEntitySet.class, GeometryEntitySet::new);
         entities.updateBounds(src.getBounds());
 
+        Config cfg = fmt.getConfig().get(Config.class);
+        if (cfg != null && cfg.streaming) {
+            injectStreaming(fmt, ctx, dst, entities, src);
+            return;
+        }
+
         for (Node node : src.getNodes()) {
             fmt.inject(ctx, dst, node);
         }
@@ -37,4 +46,38 @@ public class GraphInjector implements ExchangeFormat.Injector<Graph> {
             fmt.inject(ctx, dst, edge);
         }
     }
+
+    /**
+     * Injects the given graph as {@link StreetGraphStream}, i.e. without creating entities for nodes and edges. Only
+     * street geometries not already contained in the given entity-set are injected as entities.
+     */
+    private void injectStreaming(ExchangeFormat fmt, ExchangeFormat.Context ctx, Container dst,
+                                 GeometryEntitySet entities, Graph src) throws Exception {
+        for (DirectedEdge edge : src.getEdges()) {
+            if (edge.getEntity() == null || edge.getEntity().getGeometry() == null)
+                continue;
+
+            LineEntity entity = entities.getLines().get(edge.getId());
+            if (entity == null || entity.get(StreetComponent.class) == null)
+                fmt.inject(ctx, dst, edge.getEntity().getGeometry());
+        }
+
+        dst.set(new StreetGraphStream(src));
+    }
+
+
+    public static class Config extends microtrafficsim.core.exfmt.Config.Entry {
+
+        /**
+         * If {@code true}, the graph is injected as {@link StreetGraphStream} and serialized directly from the graph,
+         * otherwise an entity is created for each node and edge.
+         */
+        public boolean streaming = false;
+
+        public Config() {}
+
+        public Config(boolean streaming) {
+            this.streaming = streaming;
+        }
+    }
 }
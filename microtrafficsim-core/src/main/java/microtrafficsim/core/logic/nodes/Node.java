@@ -1,5 +1,6 @@
 package microtrafficsim.core.logic.nodes;
 
+import microtrafficsim.core.logic.streetgraph.GraphState;
 import microtrafficsim.core.logic.streets.DirectedEdge;
 import microtrafficsim.core.logic.vehicles.VehicleState;
 import microtrafficsim.core.logic.vehicles.driver.Driver;
@@ -11,9 +12,7 @@ import microtrafficsim.core.simulation.configs.SimulationConfig;
 import microtrafficsim.math.Geometry;
 import microtrafficsim.math.MathUtils;
 import microtrafficsim.math.Vec2d;
-import microtrafficsim.math.random.Seeded;
-import microtrafficsim.math.random.distributions.impl.Random;
-import microtrafficsim.utils.Resettable;
+import microtrafficsim.math.random.distributions.impl.CounterRandom;
 import microtrafficsim.utils.collections.Tuple;
 import microtrafficsim.utils.functional.Procedure2;
 import microtrafficsim.utils.strings.builder.LevelStringBuilder;
@@ -24,23 +23,23 @@ import java.util.*;
 /**
  * This class represents one crossing point of two or more {@link DirectedEdge}s.
  * <p>
+ * A node only contains the topology of the crossing (its edges, lane connectors and crossing indices), which is not
+ * changed while simulating and can therefore be shared by concurrent simulations. The registered vehicles and their
+ * priorities are stored per simulation in a {@link CrossingState}, which is held by the {@link GraphState} given to
+ * the crossing logic methods.
+ * <p>
  * {@code ShortestPathNode} serves functionality for shortest path calculations.
  *
  * @author Jan-Oliver Schmidt, Dominic Parga Cacheiro
  */
-public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded, Comparable<Node> {
+public class Node implements ShortestPathNode<DirectedEdge>, Comparable<Node> {
 
     private final long          id;
     private Coordinate          coordinate;
     private CrossingLogicConfig config;
-    private final Random        random;
+    private int                 index;
 
     // crossing logic
-    private HashSet<Vehicle>               registerLog;
-    private PriorityQueue<Vehicle>         newRegisteredVehicles;
-    private TreeMap<Vehicle, Set<Vehicle>> assessedVehicles;
-    private TreeSet<Vehicle>               maxPrioVehicles;
-    private boolean                        anyChangeSinceUpdate;
     private TreeMap<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> connectors;
 
     // edges
@@ -57,14 +56,7 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
         this.id         = id;
         this.coordinate = coordinate;
         this.config     = config;
-
-        // crossing logic
-        random                = new Random();  // set below for determinism
-        registerLog           = new HashSet<>();
-        assessedVehicles      = new TreeMap<>(Comparator.comparingLong(Vehicle::getId));
-        maxPrioVehicles       = new TreeSet<>(Comparator.comparingLong(Vehicle::getId));
-        newRegisteredVehicles = new PriorityQueue<>(Comparator.comparingLong(Vehicle::getId));
-        anyChangeSinceUpdate  = false;
+        this.index      = -1;
 
         // edges
         connectors = new TreeMap<>();
@@ -142,6 +134,21 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
         return config;
     }
 
+    /**
+     * @return the index of this node in its graph, used to address its state in a {@link GraphState}; {@code -1} if
+     * this node has not been added to a graph yet
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Should only be called by the graph this node is added to.
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
     public TreeMap<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> getConnectors() {
         return connectors;
     }
@@ -169,7 +176,7 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
      * @return an {@code int > 0} if v1 has priority over v2; an {@code int < 0} if v2 has priority over v1; an {@code int = 0} if v1 and v2
      * have equal priorities
      */
-    private int compare(Vehicle v1, Vehicle v2) {
+    private int compare(CrossingState state, Vehicle v1, Vehicle v2) {
         // main rules:
         // (1) two not-spawned vehicles are compared by their IDs. The smaller id wins.
         // (2) spawned vehicles before not spawned vehicles
@@ -208,14 +215,14 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
         if (IndicesCalculator.areIndicesCrossing(origin1, destination1, origin2, destination2, supremum)) {
             // compare priorities of origins
             byte cmp = (byte) (v1.getLane().getEdge().getPriorityLevel() - v2.getLane().getEdge().getPriorityLevel());
-            boolean edgePriorityEnabled = config.edgePriorityEnabled;
+            boolean edgePriorityEnabled = state.config.edgePriorityEnabled;
             if (cmp == 0 || !edgePriorityEnabled) {
                 // compare priorities of destinations
                 cmp = (byte) (v1.getDriver().peekRoute().getPriorityLevel()
                         - v2.getDriver().peekRoute().getPriorityLevel());
                 if (cmp == 0 || !edgePriorityEnabled) {
                     // compare right before left (or left before right)
-                    if (config.priorityToTheRightEnabled) {
+                    if (state.config.priorityToTheRightEnabled) {
                         byte leftmostMatchingIdx = IndicesCalculator.leftmostIndexInMatching(
                                 origin1, destination1, origin2, destination2, supremum);
                         if (leftmostMatchingIdx == origin1)
@@ -225,7 +232,7 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
                         assert false : "Crossing logic returns 0 where it should not be 0.";
                     } else {
                         // random out of {-1, 1}
-                        return random.nextInt(2) * 2 - 1;
+                        return state.random.nextInt(2) * 2 - 1;
                     }
                 }
             }
@@ -237,18 +244,26 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
     /**
      * If any vehicle has unregistered since the last call of {@code update}, all vehicles are compared to each other
      * for getting the highest priority. This needs O(n^2) comparisons due to the Gauss sum.
+     *
+     * @param state      the state of the simulation this node is updated in
      */
-    public void update() {
+    public void update(GraphState state) {
+        CrossingState crossing = state.getCrossingState(this);
+        if (crossing == null)
+            return;     // no vehicle has ever been registered => nothing to update
+
+        TreeMap<Vehicle, Set<Vehicle>> assessedVehicles = crossing.assessedVehicles;
+        TreeSet<Vehicle> maxPrioVehicles = crossing.maxPrioVehicles;
 
         /* add new registered vehicles */
-        while (!newRegisteredVehicles.isEmpty()) { // invariant: all vehicles in this set are new at this point
-            Vehicle newVehicle = newRegisteredVehicles.poll();
+        while (!crossing.newRegisteredVehicles.isEmpty()) { // invariant: all vehicles in this set are new at this point
+            Vehicle newVehicle = crossing.newRegisteredVehicles.poll();
             Set<Vehicle> defeatedVehicles = new TreeSet<>(Comparator.comparingLong(Vehicle::getId));
 
             // calculate priority counter
             newVehicle.getDriver().resetPriorityCounter();
             for (Vehicle assessedVehicle : assessedVehicles.keySet()) {
-                int cmp = compare(newVehicle, assessedVehicle);
+                int cmp = compare(crossing, newVehicle, assessedVehicle);
 
                 if (cmp > 0) {
                     newVehicle.getDriver().incPriorityCounter();
@@ -295,9 +310,9 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
                     // because then, a vehicle is taken into account although it has no space at the next road
 
                     // (1)
-                    if (!anyChangeSinceUpdate) {
+                    if (!crossing.anyChangeSinceUpdate) {
                         // (3), different order than above for better performance
-                        if (config.friendlyStandingInJamEnabled) {
+                        if (crossing.config.friendlyStandingInJamEnabled) {
                             DirectedEdge.Lane leavingLane;
                             if (vehicle.getState() == VehicleState.SPAWNED) {
                                 leavingLane = getLeavingLane(vehicle.getLane(), driver.peekRoute());
@@ -305,7 +320,7 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
                                 leavingLane = vehicle.getDriver().peekRoute().getLane(0);
                             }
                             // (2), different order than above for better performance
-                            if (!(leavingLane.getMaxInsertionIndex() >= 0)) {
+                            if (!(leavingLane.getMaxInsertionIndex(state) >= 0)) {
                                 continue;
                             }
                         }
@@ -328,10 +343,11 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
                 // XOR
                 // case #2: deadlock OR tooManyVehicles
                 // => choose random vehicle
-                boolean tooManyVehicles = config.onlyOneVehicleEnabled && maxPrioVehicles.size() > 1;
+                boolean tooManyVehicles = crossing.config.onlyOneVehicleEnabled && maxPrioVehicles.size() > 1;
                 if (!allOthersBeaten || tooManyVehicles) {
                     Iterator<Vehicle> bla = maxPrioVehicles.iterator();
-                    for (int i = 0; i < random.nextInt(maxPrioVehicles.size()); i++)
+                    int skipped = crossing.random.nextInt(maxPrioVehicles.size());
+                    for (int i = 0; i < skipped; i++)
                         bla.next();
                     Vehicle prioritizedVehicle = bla.next();
                     maxPrioVehicles.clear();
@@ -340,27 +356,31 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
             }
         }
 
-        anyChangeSinceUpdate = false;
+        crossing.anyChangeSinceUpdate = false;
     }
 
     /**
      * Registers the given vehicle at this node.
      * <p>
-     * This method is synchronized because the assertion works with the information whether a vehicle is registered or
-     * not {@literal ->} access should be after registration has finished.
+     * This method is synchronized (on the crossing state) because the assertion works with the information whether a
+     * vehicle is registered or not {@literal ->} access should be after registration has finished.
      *
+     * @param state      the state of the simulation the vehicle is part of
      * @param newVehicle This vehicle gets registered in this node.
      * @return true, if the given vehicle is getting registered; false otherwise (e.g. if it is already registered)
      */
-    public synchronized boolean registerVehicle(Vehicle newVehicle) {
-        if (isRegistered(newVehicle))
-            return false;
+    public boolean registerVehicle(GraphState state, Vehicle newVehicle) {
+        CrossingState crossing = state.getOrCreateCrossingState(this);
+        synchronized (crossing) {
+            if (crossing.registerLog.contains(newVehicle))
+                return false;
 
-        newRegisteredVehicles.add(newVehicle);
-        anyChangeSinceUpdate = true;
+            crossing.newRegisteredVehicles.add(newVehicle);
+            crossing.anyChangeSinceUpdate = true;
 
-        registerLog.add(newVehicle);
-        return true;
+            crossing.registerLog.add(newVehicle);
+            return true;
+        }
     }
 
     /**
@@ -369,48 +389,69 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
      * For each vehicle, the priority counter is updated and the other data structures containing the vehicle
      * getting unregistered are updated in O(log n) due to sets.
      *
+     * @param state      the state of the simulation the vehicle is part of
      * @param vehicle This vehicle should being unregistered after this method
      * @return true, if the given vehicle has been registered and is unregistered now; false, if it hasn't been
      * registered at this node
      */
-    public synchronized boolean unregisterVehicle(Vehicle vehicle) {
-        if (!isRegistered(vehicle))
+    public boolean unregisterVehicle(GraphState state, Vehicle vehicle) {
+        CrossingState crossing = state.getCrossingState(this);
+        if (crossing == null)
             return false;
 
-        Set<Vehicle> defeatedVehicles = assessedVehicles.remove(vehicle);
-        if (defeatedVehicles == null) {
-            newRegisteredVehicles.remove(vehicle);
-        } else {
-            for (Vehicle otherVehicle : assessedVehicles.keySet()) {
-                boolean otherWon = assessedVehicles.get(otherVehicle).remove(vehicle);
-
-                if (otherWon)
-                    otherVehicle.getDriver().decPriorityCounter();
-                else
-                    otherVehicle.getDriver().incPriorityCounter();
+        synchronized (crossing) {
+            if (!crossing.registerLog.contains(vehicle))
+                return false;
+
+            Set<Vehicle> defeatedVehicles = crossing.assessedVehicles.remove(vehicle);
+            if (defeatedVehicles == null) {
+                crossing.newRegisteredVehicles.remove(vehicle);
+            } else {
+                for (Map.Entry<Vehicle, Set<Vehicle>> other : crossing.assessedVehicles.entrySet()) {
+                    boolean otherWon = other.getValue().remove(vehicle);
+
+                    if (otherWon)
+                        other.getKey().getDriver().decPriorityCounter();
+                    else
+                        other.getKey().getDriver().incPriorityCounter();
+                }
+                crossing.maxPrioVehicles.remove(vehicle);
+
+                crossing.anyChangeSinceUpdate = true;
             }
-            maxPrioVehicles.remove(vehicle);
 
-            anyChangeSinceUpdate = true;
+            crossing.registerLog.remove(vehicle);
+            return true;
         }
-
-        registerLog.remove(vehicle);
-        return true;
     }
 
     /**
-     * This method is synchronized because its return value depends on {@link #registerVehicle(Vehicle)},
-     * {@link #unregisterVehicle(Vehicle)} and {@link #update()}, which can be called concurrently.
+     * This method is synchronized (on the crossing state) because its return value depends on
+     * {@link #registerVehicle(GraphState, Vehicle)}, {@link #unregisterVehicle(GraphState, Vehicle)} and
+     * {@link #update(GraphState)}, which can be called concurrently.
      *
+     * @param state      the state of the simulation the vehicle is part of
      * @param vehicle This vehicle asks whether it has permission to cross or not
      * @return true if the vehicle has permission to cross, false otherwise
      */
-    public synchronized boolean permissionToCross(Vehicle vehicle) {
-        return maxPrioVehicles.contains(vehicle);
+    public boolean permissionToCross(GraphState state, Vehicle vehicle) {
+        CrossingState crossing = state.getCrossingState(this);
+        if (crossing == null)
+            return false;
+
+        synchronized (crossing) {
+            return crossing.maxPrioVehicles.contains(vehicle);
+        }
     }
 
-    public synchronized boolean isRegistered(Vehicle vehicle) {
-        return registerLog.contains(vehicle);
+    public boolean isRegistered(GraphState state, Vehicle vehicle) {
+        CrossingState crossing = state.getCrossingState(this);
+        if (crossing == null)
+            return false;
+
+        synchronized (crossing) {
+            return crossing.registerLog.contains(vehicle);
+        }
     }
 
     /*
@@ -448,6 +489,36 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
         edge.forEach(lane -> incomingLanes.put(lane, (byte) -1));
     }
 
+    /**
+     * Inverse of {@link #addLeavingEdge(DirectedEdge)}. Connectors of the removed edge's lanes are not removed; use
+     * {@link #clearConnectors()} and {@link #updateCrossingIndices()} to rebuild them after the edges have changed.
+     *
+     * @param edge the leaving edge to remove; nothing happens if it is not leaving this node.
+     */
+    public void removeLeavingEdge(DirectedEdge edge) {
+        if (leaving.remove(edge))
+            edge.forEach(leavingLanes::remove);
+    }
+
+    /**
+     * Inverse of {@link #addIncomingEdge(DirectedEdge)}. Connectors of the removed edge's lanes are not removed; use
+     * {@link #clearConnectors()} and {@link #updateCrossingIndices()} to rebuild them after the edges have changed.
+     *
+     * @param edge the incoming edge to remove; nothing happens if it is not incoming to this node.
+     */
+    public void removeIncomingEdge(DirectedEdge edge) {
+        if (incoming.remove(edge))
+            edge.forEach(incomingLanes::remove);
+    }
+
+    /**
+     * Removes all lane connectors of this node. Used to rebuild the connectors of this node if its adjacent edges
+     * have changed.
+     */
+    public void clearConnectors() {
+        connectors.clear();
+    }
+
     /**
      * This method should be called after all edges are added to this node. It calculates the order of the edges'
      * lanes that is needed for crossing logic calculation.
@@ -553,7 +624,15 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
     }
 
 
-    public synchronized int findOutermostTurningLaneIndex(DirectedEdge incoming, DirectedEdge leaving) {
+    /*
+    |==========|
+    | topology |
+    |==========|
+    */
+    // The following methods only read the topology, which is not changed while simulating, so they are not
+    // synchronized. This allows concurrent simulations to share one node without contention.
+
+    public int findOutermostTurningLaneIndex(DirectedEdge incoming, DirectedEdge leaving) {
         for (DirectedEdge.Lane lane : incoming)
             if (isLaneCorrect(lane, leaving))
                 return lane.getIndex();
@@ -561,11 +640,11 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
         return -1;
     }
 
-    public synchronized boolean isLaneCorrect(DirectedEdge.Lane incomingLane, DirectedEdge leavingEdge) {
+    public boolean isLaneCorrect(DirectedEdge.Lane incomingLane, DirectedEdge leavingEdge) {
         return getLeavingLane(incomingLane, leavingEdge) != null;
     }
 
-    public synchronized DirectedEdge.Lane getLeavingLane(DirectedEdge.Lane incomingLane, DirectedEdge leavingEdge) {
+    public DirectedEdge.Lane getLeavingLane(DirectedEdge.Lane incomingLane, DirectedEdge leavingEdge) {
         TreeMap<DirectedEdge, DirectedEdge.Lane> leaving = connectors.get(incomingLane);
         if (leaving == null)
             return null;
@@ -583,7 +662,7 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
      * @return All leaving edges depending on the incoming edge.
      */
     @Override
-    public synchronized Set<DirectedEdge> getLeavingEdges(DirectedEdge incomingEdge) {
+    public Set<DirectedEdge> getLeavingEdges(DirectedEdge incomingEdge) {
         // TODO: maybe pre-compute leaving edges?
 
         // return everything if incoming edge is null
@@ -600,12 +679,12 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
         return result;
     }
 
-    public synchronized Set<DirectedEdge> getLeavingEdges() {
+    public Set<DirectedEdge> getLeavingEdges() {
         return getLeavingEdges(null);
     }
 
     @Override
-    public synchronized Set<DirectedEdge> getIncomingEdges(DirectedEdge leavingEdge) {
+    public Set<DirectedEdge> getIncomingEdges(DirectedEdge leavingEdge) {
         // TODO: maybe pre-compute incoming edges?
 
         // return everything if leaving edge is null
@@ -626,7 +705,7 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
         return result;
     }
 
-    public synchronized Set<DirectedEdge> getIncomingEdges() {
+    public Set<DirectedEdge> getIncomingEdges() {
         return getIncomingEdges(null);
     }
 
@@ -636,43 +715,113 @@ public class Node implements ShortestPathNode<DirectedEdge>, Resettable, Seeded,
     }
 
 
-    /*
-    |================|
-    | (i) Resettable |
-    |================|
-    */
-    /**
-     * The node empties its crossing sets etc. and resets its {@link Random}
-     */
     @Override
-    public synchronized void reset() {
-        random.reset();
-        assessedVehicles.clear();
-        maxPrioVehicles.clear();
-        newRegisteredVehicles.clear();
-        anyChangeSinceUpdate = false;
+    public int compareTo(Node o) {
+        return key().compareTo(o.key());
     }
 
+    /**
+     * The state of the crossing logic of one node in one simulation, i.e. the registered vehicles, their priorities
+     * and the random generator used for random priorities.
+     */
+    public static class CrossingState {
+        private final Node                           node;
+        private final CrossingLogicConfig            config;
+        private final CounterRandom                  random;
+        private final HashSet<Vehicle>               registerLog;
+        private final PriorityQueue<Vehicle>         newRegisteredVehicles;
+        private final TreeMap<Vehicle, Set<Vehicle>> assessedVehicles;
+        private final TreeSet<Vehicle>               maxPrioVehicles;
+        private boolean                              anyChangeSinceUpdate;
+
+        /**
+         * @param node   the node this state belongs to
+         * @param config the crossing logic config used in the simulation
+         * @param seed   the seed of the random generator of this node in the simulation
+         */
+        public CrossingState(Node node, CrossingLogicConfig config, long seed) {
+            this.node             = node;
+            this.config           = config;
+            random                = new CounterRandom(seed);
+            registerLog           = new HashSet<>();
+            assessedVehicles      = new TreeMap<>(Comparator.comparingLong(Vehicle::getId));
+            maxPrioVehicles       = new TreeSet<>(Comparator.comparingLong(Vehicle::getId));
+            newRegisteredVehicles = new PriorityQueue<>(Comparator.comparingLong(Vehicle::getId));
+            anyChangeSinceUpdate  = false;
+        }
 
-    /*
-    |============|
-    | (i) Seeded |
-    |============|
-    */
-    @Override
-    public void setSeed(long seed) {
-        random.setSeed(seed);
-    }
+        public Node getNode() {
+            return node;
+        }
 
-    @Override
-    public long getSeed() {
-        return random.getSeed();
-    }
+        /*
+        |==========|
+        | snapshot |
+        |==========|
+        */
+        /**
+         * @return the random generator used for random priorities
+         */
+        public CounterRandom getRandom() {
+            return random;
+        }
 
+        /**
+         * @return the vehicles registered since the last update, ordered by id
+         */
+        public synchronized List<Vehicle> getNewRegisteredVehicles() {
+            ArrayList<Vehicle> vehicles = new ArrayList<>(newRegisteredVehicles);
+            vehicles.sort(Comparator.comparingLong(Vehicle::getId));
+            return vehicles;
+        }
 
-    @Override
-    public int compareTo(Node o) {
-        return key().compareTo(o.key());
+        /**
+         * @return a copy of all vehicles registered before the last update, each mapped to the vehicles it has priority
+         * over, ordered by id
+         */
+        public synchronized SortedMap<Vehicle, List<Vehicle>> getAssessedVehicles() {
+            TreeMap<Vehicle, List<Vehicle>> copy = new TreeMap<>(Comparator.comparingLong(Vehicle::getId));
+            for (Map.Entry<Vehicle, Set<Vehicle>> entry : assessedVehicles.entrySet())
+                copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            return copy;
+        }
+
+        /**
+         * @return the vehicles having permission to cross, ordered by id
+         */
+        public synchronized List<Vehicle> getMaxPrioVehicles() {
+            return new ArrayList<>(maxPrioVehicles);
+        }
+
+        public synchronized boolean isAnyChangeSinceUpdate() {
+            return anyChangeSinceUpdate;
+        }
+
+        /**
+         * Replaces this state by the given one, e.g. to restore a snapshot of a simulation. The priority counters are
+         * stored in the drivers, so they have to be restored separately.
+         */
+        public synchronized void restore(Collection<Vehicle> newRegisteredVehicles,
+                                         Map<Vehicle, ? extends Collection<Vehicle>> assessedVehicles,
+                                         Collection<Vehicle> maxPrioVehicles,
+                                         boolean anyChangeSinceUpdate)
+        {
+            registerLog.clear();
+            this.newRegisteredVehicles.clear();
+            this.assessedVehicles.clear();
+            this.maxPrioVehicles.clear();
+
+            this.newRegisteredVehicles.addAll(newRegisteredVehicles);
+            registerLog.addAll(newRegisteredVehicles);
+            for (Map.Entry<Vehicle, ? extends Collection<Vehicle>> entry : assessedVehicles.entrySet()) {
+                Set<Vehicle> defeated = new TreeSet<>(Comparator.comparingLong(Vehicle::getId));
+                defeated.addAll(entry.getValue());
+                this.assessedVehicles.put(entry.getKey(), defeated);
+                registerLog.add(entry.getKey());
+            }
+            this.maxPrioVehicles.addAll(maxPrioVehicles);
+            this.anyChangeSinceUpdate = anyChangeSinceUpdate;
+        }
     }
 
     public static class Key implements Comparable<Key> {
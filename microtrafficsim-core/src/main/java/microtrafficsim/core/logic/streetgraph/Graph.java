@@ -84,7 +84,7 @@ public interface Graph extends Seeded, Resettable, ShortestPathGraph {
 
 
     /**
-     * Add the given {@code Node} to this graph. Consider calling {@link #setSeed(long)} afterwards.
+     * Add the given {@code Node} to this graph and assigns its {@link Node#getIndex() index}.
      * <p>
      * Note: The specified node is expected to be set up completely, i.e. if a new edge has been created and added to
      * either existing or new nodes, the edge indices of have to be updated by calling {@link Node#updateCrossingIndices()}
@@ -98,8 +98,8 @@ public interface Graph extends Seeded, Resettable, ShortestPathGraph {
     void addNode(Node node);
 
     /**
-     * Add the given {@code Edge} to this graph, does not add any {@code Node}s. To add the {@code Node}s of this edge,
-     * call {@link #addNode(Node)}.
+     * Add the given {@code Edge} to this graph and assigns its {@link DirectedEdge#getIndex() index}, does not add
+     * any {@code Node}s. To add the {@code Node}s of this edge, call {@link #addNode(Node)}.
      * <p>
      * Note: The specified edge is expected to be set up completely, i.e. if a new edge has been created and added to
      * either existing or new nodes, the edge indices of have to be updated by calling {@link Node#updateCrossingIndices()}
@@ -112,10 +112,33 @@ public interface Graph extends Seeded, Resettable, ShortestPathGraph {
      */
     void addEdge(DirectedEdge edge);
 
+    /**
+     * Removes the given {@code Node} from this graph, does not remove any {@code Edge}s. To remove the edges of this
+     * node, call {@link #removeEdge(DirectedEdge)}.
+     * <p>
+     * Determinism: Please note that removing a node will break determinism, even if the given seed is the same, thus
+     * resulting in a different scenario cycle.
+     *
+     * @param node the node to remove.
+     * @return {@code true} if this graph contained the given node.
+     */
+    boolean removeNode(Node node);
+
+    /**
+     * Removes the given {@code Edge} from this graph, does not remove it from its {@code Node}s.
+     * <p>
+     * Note: The adjacent nodes are expected to be updated accordingly, i.e. the edge and its connectors have to be
+     * removed from both adjacent nodes and their crossing indices have to be updated by calling
+     * {@link Node#updateCrossingIndices()}.
+     *
+     * @param edge the edge to remove.
+     * @return {@code true} if this graph contained the given edge.
+     */
+    boolean removeEdge(DirectedEdge edge);
+
 
     /**
-     * Sets the seeds of associated nodes based on the given seed. Consider calling {@link #reset()} before
-     * executing this method, as this method does not reset this graph.
+     * Sets the seed of this graph, which is used as default seed by {@link GraphState#GraphState(Graph)}.
      *
      * @param seed the seed, typically used to generate subsequent seeds.
      */
@@ -123,11 +146,11 @@ public interface Graph extends Seeded, Resettable, ShortestPathGraph {
     void setSeed(long seed);
 
     /**
-     * Resets all nodes and edges of this graph.
+     * Resets all edges of this graph. The simulation state (vehicles on lanes and crossing logic of nodes) is not
+     * part of the graph, see {@link GraphState#reset()}.
      */
     @Override
     default void reset() {
-        getNodes().forEach(Node::reset);
         getEdges().forEach(DirectedEdge::reset);
     }
 }
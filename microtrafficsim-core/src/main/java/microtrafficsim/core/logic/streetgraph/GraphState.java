@@ -0,0 +1,232 @@
+package microtrafficsim.core.logic.streetgraph;
+
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.logic.streets.LaneContainer;
+import microtrafficsim.core.logic.streets.NavigableSkipListLaneContainer;
+import microtrafficsim.core.simulation.configs.CrossingLogicConfig;
+import microtrafficsim.core.simulation.core.monitoring.EdgeStatistics;
+import microtrafficsim.math.random.Seeded;
+import microtrafficsim.math.random.distributions.impl.CounterRandom;
+import microtrafficsim.utils.Resettable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * <p>
+ * The mutable state of a graph in one simulation, i.e. the vehicles on the lanes of each edge and the crossing logic
+ * state of each node. The {@link Node}s and {@link DirectedEdge}s of a graph only contain its topology, so multiple
+ * simulations can run concurrently on the same graph, each with its own state.
+ *
+ * <p>
+ * The states are stored in arrays indexed by the {@link Node#getIndex() node index} and
+ * {@link DirectedEdge#getIndex() edge index} assigned by the graph. They are created lazily on the first write access,
+ * so nodes and edges that are never used by the simulation do not need any memory. Resetting this state only clears
+ * these arrays.
+ *
+ * <p>
+ * The random generator of each node is seeded with {@link CounterRandom#hash(long, long) hash(seed, node-id)}, so
+ * it is independent of the order in which the nodes are visited.
+ *
+ * @author agent
+ */
+public class GraphState implements Resettable, Seeded {
+
+    private final CrossingLogicConfig config;
+    private long seed;
+
+    private volatile AtomicReferenceArray<Node.CrossingState> nodes;
+    private volatile AtomicReferenceArray<LaneContainer> edges;
+
+    private volatile EdgeStatistics edgeStatistics;
+
+
+    /**
+     * Creates a new state using the crossing logic config of each node and the seed of the graph.
+     */
+    public GraphState(Graph graph) {
+        this(graph, null, graph.getSeed());
+    }
+
+    /**
+     * @param graph  the graph this state is created for
+     * @param config the crossing logic config used for all nodes; if {@code null}, the config of each node is used
+     * @param seed   the seed used for the random generators of the nodes
+     */
+    public GraphState(Graph graph, CrossingLogicConfig config, long seed) {
+        this.config = config;
+        this.seed   = seed;
+
+        int nNodes = 0;
+        for (Node node : graph.getNodeMap().values())
+            nNodes = Math.max(nNodes, node.getIndex() + 1);
+
+        int nEdges = 0;
+        for (DirectedEdge edge : graph.getEdgeMap().values())
+            nEdges = Math.max(nEdges, edge.getIndex() + 1);
+
+        nodes = new AtomicReferenceArray<>(nNodes);
+        edges = new AtomicReferenceArray<>(nEdges);
+    }
+
+
+    /**
+     * @return the crossing logic state of the given node, or {@code null} if no vehicle has been registered at this
+     * node since the last reset
+     */
+    public Node.CrossingState getCrossingState(Node node) {
+        int index = index(node.getIndex());
+        AtomicReferenceArray<Node.CrossingState> nodes = this.nodes;
+        return index < nodes.length() ? nodes.get(index) : null;
+    }
+
+    /**
+     * @return the crossing logic state of the given node, which is created if not existing
+     */
+    public Node.CrossingState getOrCreateCrossingState(Node node) {
+        int index = index(node.getIndex());
+        if (index >= nodes.length())
+            growNodes(index + 1);
+
+        AtomicReferenceArray<Node.CrossingState> nodes = this.nodes;
+        Node.CrossingState state = nodes.get(index);
+        if (state == null) {
+            CrossingLogicConfig cfg = config != null ? config : node.getCrossingLogicConfig();
+            state = new Node.CrossingState(node, cfg, CounterRandom.hash(seed, node.getId()));
+            if (!nodes.compareAndSet(index, null, state))
+                state = nodes.get(index);
+        }
+
+        return state;
+    }
+
+    /**
+     * @return the lanes of the given edge, or {@code null} if no vehicle has been inserted into this edge since the
+     * last reset
+     */
+    public LaneContainer getLanes(DirectedEdge edge) {
+        int index = index(edge.getIndex());
+        AtomicReferenceArray<LaneContainer> edges = this.edges;
+        return index < edges.length() ? edges.get(index) : null;
+    }
+
+    /**
+     * @return the lanes of the given edge, which are created if not existing
+     */
+    public LaneContainer getOrCreateLanes(DirectedEdge edge) {
+        int index = index(edge.getIndex());
+        if (index >= edges.length())
+            growEdges(index + 1);
+
+        AtomicReferenceArray<LaneContainer> edges = this.edges;
+        LaneContainer lanes = edges.get(index);
+        if (lanes == null) {
+            lanes = new NavigableSkipListLaneContainer(edge.getNumberOfLanes());
+            if (!edges.compareAndSet(index, null, lanes))
+                lanes = edges.get(index);
+        }
+
+        return lanes;
+    }
+
+    /**
+     * @return all nodes having a crossing logic state, i.e. all nodes that have to be updated in a simulation step
+     */
+    public List<Node> getActiveNodes() {
+        AtomicReferenceArray<Node.CrossingState> nodes = this.nodes;
+
+        ArrayList<Node> active = new ArrayList<>();
+        for (int i = 0; i < nodes.length(); i++) {
+            Node.CrossingState state = nodes.get(i);
+            if (state != null)
+                active.add(state.getNode());
+        }
+
+        return active;
+    }
+
+
+    /**
+     * @return the collector updated by moving vehicles, or {@code null} if no statistics are collected
+     */
+    public EdgeStatistics getEdgeStatistics() {
+        return edgeStatistics;
+    }
+
+    /**
+     * @param edgeStatistics the collector updated by moving vehicles; {@code null} to disable collecting
+     */
+    public void setEdgeStatistics(EdgeStatistics edgeStatistics) {
+        this.edgeStatistics = edgeStatistics;
+    }
+
+
+    private static int index(int index) {
+        if (index < 0)
+            throw new IllegalStateException("The given node or edge has not been added to a graph.");
+        return index;
+    }
+
+    /*
+     * The graph only grows if its topology is changed, which is not allowed while simulating. So growing does not
+     * have to be synchronized with concurrent accesses of the arrays.
+     */
+    private synchronized void growNodes(int length) {
+        if (length <= nodes.length())
+            return;
+
+        AtomicReferenceArray<Node.CrossingState> grown = new AtomicReferenceArray<>(Math.max(length, 2 * nodes.length()));
+        for (int i = 0; i < nodes.length(); i++)
+            grown.set(i, nodes.get(i));
+        nodes = grown;
+    }
+
+    private synchronized void growEdges(int length) {
+        if (length <= edges.length())
+            return;
+
+        AtomicReferenceArray<LaneContainer> grown = new AtomicReferenceArray<>(Math.max(length, 2 * edges.length()));
+        for (int i = 0; i < edges.length(); i++)
+            grown.set(i, edges.get(i));
+        edges = grown;
+    }
+
+
+    /*
+    |================|
+    | (i) Resettable |
+    |================|
+    */
+    /**
+     * Removes all vehicles from all lanes and resets the crossing logic of all nodes (including their random
+     * generators).
+     */
+    @Override
+    public synchronized void reset() {
+        nodes = new AtomicReferenceArray<>(nodes.length());
+        edges = new AtomicReferenceArray<>(edges.length());
+    }
+
+
+    /*
+    |============|
+    | (i) Seeded |
+    |============|
+    */
+    /**
+     * Sets the seed used for the random generators of the nodes. Consider calling {@link #reset()} afterwards, as
+     * already existing crossing logic states keep their random generators.
+     */
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+}
@@ -4,7 +4,6 @@ import microtrafficsim.core.logic.nodes.Node;
 import microtrafficsim.core.logic.streets.DirectedEdge;
 import microtrafficsim.core.map.Bounds;
 import microtrafficsim.math.random.distributions.impl.Random;
-import microtrafficsim.utils.id.BasicSeedGenerator;
 import microtrafficsim.utils.strings.builder.LevelStringBuilder;
 
 import java.util.*;
@@ -22,6 +21,8 @@ public class StreetGraph implements Graph {
     private Bounds bounds;
     private TreeMap<Node.Key, Node> nodes;
     private TreeMap<DirectedEdge.Key, DirectedEdge> edges;
+    private ArrayList<Node> nodeIndices;
+    private ArrayList<DirectedEdge> edgeIndices;
     private long seed;
 
     /**
@@ -33,6 +34,8 @@ public class StreetGraph implements Graph {
         this.bounds = bounds;
         this.nodes  = new TreeMap<>();
         this.edges  = new TreeMap<>();
+        this.nodeIndices = new ArrayList<>();
+        this.edgeIndices = new ArrayList<>();
         this.seed   = Random.createSeed();
     }
 
@@ -95,22 +98,60 @@ public class StreetGraph implements Graph {
 
     @Override
     public void addNode(Node node) {
-        nodes.put(node.key(), node);
+        Node old = nodes.put(node.key(), node);
+        if (old != null && old != node)
+            nodeIndices.set(old.getIndex(), null);
+
+        // keep a valid index (e.g. when re-adding a node), otherwise append
+        int index = node.getIndex();
+        if (index < 0 || index >= nodeIndices.size()
+                || (nodeIndices.get(index) != null && nodeIndices.get(index) != node)) {
+            node.setIndex(nodeIndices.size());
+            nodeIndices.add(node);
+        } else {
+            nodeIndices.set(index, node);
+        }
     }
 
     @Override
     public void addEdge(DirectedEdge edge) {
-        edges.put(edge.key(), edge);
+        DirectedEdge old = edges.put(edge.key(), edge);
+        if (old != null && old != edge)
+            edgeIndices.set(old.getIndex(), null);
+
+        int index = edge.getIndex();
+        if (index < 0 || index >= edgeIndices.size()
+                || (edgeIndices.get(index) != null && edgeIndices.get(index) != edge)) {
+            edge.setIndex(edgeIndices.size());
+            edgeIndices.add(edge);
+        } else {
+            edgeIndices.set(index, edge);
+        }
     }
 
+    @Override
+    public boolean removeNode(Node node) {
+        Node removed = nodes.remove(node.key());
+        if (removed == null)
+            return false;
+
+        nodeIndices.set(removed.getIndex(), null);
+        return true;
+    }
 
     @Override
-    public void setSeed(long seed) {
-        BasicSeedGenerator gen = new BasicSeedGenerator(seed);
-        for (Node node : nodes.values()) {
-            node.setSeed(gen.next());
-        }
+    public boolean removeEdge(DirectedEdge edge) {
+        DirectedEdge removed = edges.remove(edge.key());
+        if (removed == null)
+            return false;
+
+        edgeIndices.set(removed.getIndex(), null);
+        return true;
+    }
 
+
+    @Override
+    public void setSeed(long seed) {
         this.seed = seed;
     }
 
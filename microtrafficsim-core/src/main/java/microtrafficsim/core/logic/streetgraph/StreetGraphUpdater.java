@@ -0,0 +1,399 @@
+package microtrafficsim.core.logic.streetgraph;
+
+import microtrafficsim.core.entities.street.LogicStreetEntity;
+import microtrafficsim.core.entities.street.StreetEntity;
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.map.Bounds;
+import microtrafficsim.core.map.Coordinate;
+import microtrafficsim.core.map.features.Street;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.utils.logging.EasyMarkableLogger;
+import org.slf4j.Logger;
+
+import java.util.*;
+
+
+/**
+ * Diff-based updater for street-graphs. Given a live graph and an updated graph (e.g. generated by parsing the same
+ * map with an OpenStreetMap change-set applied, see
+ * {@link microtrafficsim.core.parser.OSMParser#parse(java.io.File, microtrafficsim.osm.parser.base.ChangeSet,
+ * microtrafficsim.core.map.MapProperties) OSMParser.parse(file, changes, properties)}), this class patches the live
+ * graph in place so that it is structurally equal to the updated graph.
+ * <p>
+ * Nodes are matched by their id and coordinate, edges by their (matched) adjacent nodes and their attributes.
+ * Matched nodes and edges of the live graph are kept (i.e. references to them stay valid), only removed and added
+ * nodes and edges are touched. Lane-connectors and crossing-indices are only rebuilt for affected nodes, i.e. nodes
+ * that have been added, nodes with added or removed adjacent edges and nodes with changed connectors.
+ * <p>
+ * All nodes and edges of the patched graph take over the IDs of the updated graph (the parser may renumber ways on
+ * changes), thus the patched graph has the same {@code GraphGUID} as a graph generated from scratch. The
+ * {@code GraphGUID} of the live graph is updated after patching.
+ *
+ * @author agent
+ */
+public class StreetGraphUpdater {
+    private static Logger logger = new EasyMarkableLogger(StreetGraphUpdater.class);
+
+    private SimulationConfig config;
+
+
+    /**
+     * Creates a new {@code StreetGraphUpdater}.
+     *
+     * @param config the simulation-config used to create new edges, should be the config with which both graphs
+     *               have been created.
+     */
+    public StreetGraphUpdater(SimulationConfig config) {
+        this.config = config;
+    }
+
+
+    /**
+     * Patches the given live graph to match the given updated graph. The updated graph should be considered invalid
+     * after this call, as its nodes and edges may have been transferred to the live graph.
+     *
+     * @param live    the graph to patch.
+     * @param updated the graph to which the live graph should be updated.
+     * @return the result describing the applied changes.
+     */
+    public Result update(Graph live, Graph updated) {
+        logger.info("updating StreetGraph");
+        Result result = new Result();
+
+        /* match nodes */
+        HashMap<Node, Node> nodes = new HashMap<>();             // updated -> live
+        for (Node u : updated.getNodeMap().values()) {
+            Node l = live.getNodeMap().get(u.key());
+
+            if (l != null && l.getCoordinate().equals(u.getCoordinate())) {
+                nodes.put(u, l);
+            } else {
+                nodes.put(u, new Node(u.getId(), u.getCoordinate(), u.getCrossingLogicConfig()));
+                result.addedNodes.add(nodes.get(u));
+            }
+        }
+
+        HashSet<Node> retained = new HashSet<>(nodes.values());
+        for (Node l : live.getNodeMap().values())
+            if (!retained.contains(l))
+                result.removedNodes.add(l);
+
+        /* match edges */
+        HashMap<Long, ArrayList<DirectedEdge>> candidates = new HashMap<>();    // origin id -> live edges
+        for (DirectedEdge l : live.getEdgeMap().values())
+            candidates.computeIfAbsent(l.getOrigin().getId(), k -> new ArrayList<>()).add(l);
+
+        HashMap<DirectedEdge, DirectedEdge> edges = new HashMap<>();    // updated -> live
+        HashSet<DirectedEdge> matched = new HashSet<>();
+        HashMap<DirectedEdge, Long> renamed = new HashMap<>();          // matched live edge -> updated id
+
+        for (DirectedEdge u : updated.getEdgeMap().values()) {
+            Node origin      = nodes.get(u.getOrigin());
+            Node destination = nodes.get(u.getDestination());
+
+            DirectedEdge match = null;
+            for (DirectedEdge l : candidates.getOrDefault(origin.getId(), new ArrayList<>())) {
+                if (l.getOrigin() == origin && l.getDestination() == destination && !matched.contains(l)
+                        && isEquivalent(l, u)) {
+                    match = l;
+                    break;
+                }
+            }
+
+            if (match == null) {
+                match = new DirectedEdge(u.getId(), u.getLengthInMeter(), u.getOriginDirection(),
+                        u.getDestinationDirection(), u.getOrientation(), origin, destination, u.getStreetType(),
+                        u.getNumberOfLanes(), u.getRawMaxVelocity(), config.metersPerCell,
+                        config.streetPriorityLevel);
+
+                result.addedEdges.add(match);
+            } else if (match.getId() != u.getId()) {
+                renamed.put(match, u.getId());
+            }
+
+            matched.add(match);
+            edges.put(u, match);
+        }
+
+        for (DirectedEdge l : live.getEdgeMap().values())
+            if (!matched.contains(l))
+                result.removedEdges.add(l);
+
+        /* remove edges and nodes */
+        HashSet<Node> affected = new HashSet<>();
+        for (DirectedEdge l : result.removedEdges) {
+            live.removeEdge(l);
+            l.getOrigin().removeLeavingEdge(l);
+            l.getDestination().removeIncomingEdge(l);
+            affected.add(l.getOrigin());
+            affected.add(l.getDestination());
+        }
+
+        for (Node l : result.removedNodes)
+            live.removeNode(l);
+
+        /* take over the ids of the updated graph (ways may have been renumbered by the parser) */
+        for (DirectedEdge l : renamed.keySet()) {
+            live.removeEdge(l);
+            l.getOrigin().removeLeavingEdge(l);
+            l.getDestination().removeIncomingEdge(l);
+        }
+
+        for (Map.Entry<DirectedEdge, Long> entry : renamed.entrySet()) {
+            DirectedEdge l = entry.getKey();
+            l.setId(entry.getValue());
+
+            live.addEdge(l);
+            l.getOrigin().addLeavingEdge(l);
+            l.getDestination().addIncomingEdge(l);
+            affected.add(l.getOrigin());
+            affected.add(l.getDestination());
+        }
+
+        /* add nodes and edges */
+        for (Node l : result.addedNodes) {
+            live.addNode(l);
+            affected.add(l);
+        }
+
+        for (DirectedEdge l : result.addedEdges) {
+            live.addEdge(l);
+            l.getOrigin().addLeavingEdge(l);
+            l.getDestination().addIncomingEdge(l);
+            affected.add(l.getOrigin());
+            affected.add(l.getDestination());
+        }
+
+        affected.removeAll(result.removedNodes);
+
+        /* rebuild connectors of affected nodes */
+        for (Map.Entry<Node, Node> entry : nodes.entrySet()) {
+            Node u = entry.getKey();
+            Node l = entry.getValue();
+
+            TreeMap<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> connectors = translate(u, edges);
+            if (!affected.contains(l) && isEqual(l.getConnectors(), connectors))
+                continue;
+
+            l.clearConnectors();
+            for (Map.Entry<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> c : connectors.entrySet())
+                for (DirectedEdge.Lane to : c.getValue().values())
+                    l.addConnector(c.getKey(), to);
+
+            l.updateCrossingIndices();
+            result.affectedNodes.add(l);
+        }
+
+        /* link edges to the updated street geometry */
+        HashSet<StreetEntity> entities = new HashSet<>();
+        for (DirectedEdge u : updated.getEdgeMap().values())
+            if (u.getEntity() != null)
+                entities.add(u.getEntity());
+
+        for (StreetEntity entity : entities) {
+            DirectedEdge forward  = edges.get((DirectedEdge) entity.getForwardEdge());
+            DirectedEdge backward = edges.get((DirectedEdge) entity.getBackwardEdge());
+
+            Street geometry = entity.getGeometry();
+            if (geometry == null)
+                geometry = getGeometry(forward, backward);
+
+            StreetEntity relinked = new StreetEntity(forward, backward, geometry);
+            if (forward != null)  forward.setEntity(relinked);
+            if (backward != null) backward.setEntity(relinked);
+            if (geometry != null) geometry.setEntity(relinked);
+        }
+
+        /* finish */
+        live.updateGraphGUID();
+
+        logger.info("finished updating StreetGraph: "
+                + "+" + result.addedNodes.size() + "/-" + result.removedNodes.size() + " nodes, "
+                + "+" + result.addedEdges.size() + "/-" + result.removedEdges.size() + " edges, "
+                + result.affectedNodes.size() + " affected nodes");
+        return result;
+    }
+
+
+    /**
+     * Checks if the given edges are equivalent, ignoring their adjacent nodes and IDs.
+     */
+    private static boolean isEquivalent(DirectedEdge a, DirectedEdge b) {
+        return a.getOrientation() == b.getOrientation()
+                && a.getLengthInMeter() == b.getLengthInMeter()
+                && a.getNumberOfLanes() == b.getNumberOfLanes()
+                && a.getRawMaxVelocity() == b.getRawMaxVelocity()
+                && a.getStreetType().equals(b.getStreetType())
+                && a.getOriginDirection().equals(b.getOriginDirection())
+                && a.getDestinationDirection().equals(b.getDestinationDirection());
+    }
+
+    /**
+     * Translates the connectors of the given node using the given edge-mapping.
+     */
+    private static TreeMap<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>>
+    translate(Node node, Map<DirectedEdge, DirectedEdge> edges) {
+        TreeMap<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> result = new TreeMap<>();
+
+        for (Map.Entry<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> c
+                : node.getConnectors().entrySet()) {
+            DirectedEdge.Lane from = edges.get(c.getKey().getEdge()).getLane(c.getKey().getIndex());
+
+            TreeMap<DirectedEdge, DirectedEdge.Lane> to = new TreeMap<>();
+            for (DirectedEdge.Lane lane : c.getValue().values()) {
+                DirectedEdge edge = edges.get(lane.getEdge());
+                to.put(edge, edge.getLane(lane.getIndex()));
+            }
+
+            result.put(from, to);
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks if the given connectors are equal, i.e. connect the same lanes of the same edge objects.
+     */
+    private static boolean isEqual(TreeMap<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> a,
+                                   TreeMap<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> b) {
+        if (a.size() != b.size())
+            return false;
+
+        Iterator<Map.Entry<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>>> ia = a.entrySet().iterator();
+        Iterator<Map.Entry<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>>> ib = b.entrySet().iterator();
+        while (ia.hasNext()) {
+            Map.Entry<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> ea = ia.next();
+            Map.Entry<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> eb = ib.next();
+
+            if (!isEqual(ea.getKey(), eb.getKey()) || ea.getValue().size() != eb.getValue().size())
+                return false;
+
+            Iterator<DirectedEdge.Lane> la = ea.getValue().values().iterator();
+            Iterator<DirectedEdge.Lane> lb = eb.getValue().values().iterator();
+            while (la.hasNext())
+                if (!isEqual(la.next(), lb.next()))
+                    return false;
+        }
+
+        return true;
+    }
+
+    private static boolean isEqual(DirectedEdge.Lane a, DirectedEdge.Lane b) {
+        return a.getEdge() == b.getEdge() && a.getIndex() == b.getIndex();
+    }
+
+    private static Street getGeometry(DirectedEdge forward, DirectedEdge backward) {
+        for (LogicStreetEntity edge : new LogicStreetEntity[] { forward, backward })
+            if (edge != null && edge.getEntity() != null && edge.getEntity().getGeometry() != null)
+                return edge.getEntity().getGeometry();
+
+        return null;
+    }
+
+
+    /**
+     * The result of a street-graph update.
+     */
+    public static class Result {
+        private ArrayList<Node> addedNodes;
+        private ArrayList<Node> removedNodes;
+        private ArrayList<Node> affectedNodes;
+        private ArrayList<DirectedEdge> addedEdges;
+        private ArrayList<DirectedEdge> removedEdges;
+
+        private Result() {
+            this.addedNodes    = new ArrayList<>();
+            this.removedNodes  = new ArrayList<>();
+            this.affectedNodes = new ArrayList<>();
+            this.addedEdges    = new ArrayList<>();
+            this.removedEdges  = new ArrayList<>();
+        }
+
+        /**
+         * Returns all nodes that have been added to the live graph.
+         *
+         * @return all added nodes.
+         */
+        public List<Node> getAddedNodes() {
+            return Collections.unmodifiableList(addedNodes);
+        }
+
+        /**
+         * Returns all nodes that have been removed from the live graph.
+         *
+         * @return all removed nodes.
+         */
+        public List<Node> getRemovedNodes() {
+            return Collections.unmodifiableList(removedNodes);
+        }
+
+        /**
+         * Returns all nodes of which the connectors and crossing-indices have been rebuilt.
+         *
+         * @return all affected nodes.
+         */
+        public List<Node> getAffectedNodes() {
+            return Collections.unmodifiableList(affectedNodes);
+        }
+
+        /**
+         * Returns all edges that have been added to the live graph.
+         *
+         * @return all added edges.
+         */
+        public List<DirectedEdge> getAddedEdges() {
+            return Collections.unmodifiableList(addedEdges);
+        }
+
+        /**
+         * Returns all edges that have been removed from the live graph.
+         *
+         * @return all removed edges.
+         */
+        public List<DirectedEdge> getRemovedEdges() {
+            return Collections.unmodifiableList(removedEdges);
+        }
+
+        /**
+         * Checks if the live graph has been changed.
+         *
+         * @return {@code true} if any node or edge has been added, removed or otherwise affected.
+         */
+        public boolean hasChanges() {
+            return !(addedNodes.isEmpty() && removedNodes.isEmpty() && affectedNodes.isEmpty()
+                    && addedEdges.isEmpty() && removedEdges.isEmpty());
+        }
+
+        /**
+         * Returns the bounds enclosing all changes, i.e. all affected and removed nodes as well as the geometry
+         * of all added and removed edges.
+         *
+         * @return the bounds enclosing all changes or {@code null} if there are no changes.
+         */
+        public Bounds getBounds() {
+            Bounds bounds = null;
+
+            ArrayList<Coordinate> coords = new ArrayList<>();
+            for (Node node : affectedNodes) coords.add(node.getCoordinate());
+            for (Node node : removedNodes)  coords.add(node.getCoordinate());
+
+            ArrayList<DirectedEdge> edges = new ArrayList<>(addedEdges);
+            edges.addAll(removedEdges);
+            for (DirectedEdge edge : edges) {
+                coords.add(edge.getOrigin().getCoordinate());
+                coords.add(edge.getDestination().getCoordinate());
+
+                if (edge.getEntity() != null && edge.getEntity().getGeometry() != null)
+                    Collections.addAll(coords, edge.getEntity().getGeometry().coordinates);
+            }
+
+            for (Coordinate c : coords) {
+                Bounds b = new Bounds(c.lat, c.lon, c.lat, c.lon);
+                bounds = bounds == null ? b : bounds.join(b);
+            }
+
+            return bounds;
+        }
+    }
+}
@@ -80,6 +80,22 @@ public class UnmodifiableGraph implements Graph {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * @throws UnsupportedOperationException
+     */
+    @Override
+    public boolean removeNode(Node node) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     */
+    @Override
+    public boolean removeEdge(DirectedEdge edge) {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * @throws UnsupportedOperationException
      */
@@ -5,6 +5,7 @@ import java.util.Iterator;
 import microtrafficsim.core.entities.street.LogicStreetEntity;
 import microtrafficsim.core.entities.street.StreetEntity;
 import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streetgraph.GraphState;
 import microtrafficsim.core.logic.streets.information.FullStreetInfo;
 import microtrafficsim.core.logic.streets.information.Orientation;
 import microtrafficsim.core.logic.streets.information.RawStreetInfo;
@@ -22,6 +23,9 @@ import microtrafficsim.utils.strings.builder.LevelStringBuilder;
  * This class is a container for lanes from one node to another. Furthermore, it
  * stores attributes that are important for all lanes, e.g. number of cells, max
  * velocity (yes, max velocity belongs to one directed edge, not to one lane).
+ * <p>
+ * The vehicles on the lanes are not stored in this edge, but in the {@link GraphState} of the simulation, so all
+ * methods accessing them expect the state.
  *
  * @author Jan-Oliver Schmidt, Dominic Parga Cacheiro
  */
@@ -34,7 +38,7 @@ public class DirectedEdge
 {
     private final FullStreetInfo streetInfo;
     private StreetEntity entity;
-    private final LaneContainer lanes;
+    private int index;
 
 
     /**
@@ -67,7 +71,7 @@ public class DirectedEdge
                 maxVelocity,
                 metersPerCell, priorityFn
         ));
-        lanes = new NavigableSkipListLaneContainer(streetInfo.raw.nLanes);
+        index = -1;
     }
 
 
@@ -78,14 +82,34 @@ public class DirectedEdge
         return new Lane(this, laneNo);
     }
 
-    public int getVehicleCount() {
+    public int getVehicleCount(GraphState state) {
         int count = 0;
         for (Lane lane : this) {
-            count += lane.getVehicleCount();
+            count += lane.getVehicleCount(state);
         }
         return count;
     }
 
+    /**
+     * @return the index of this edge in its graph, used to access its lanes in a {@link GraphState}; -1 if this edge
+     * has not been added to a graph
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Should only be called by the graph this edge is added to.
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    private LaneContainer lanes(GraphState state) {
+        LaneContainer lanes = state.getLanes(this);
+        return lanes != null ? lanes : EmptyLaneContainer.INSTANCE;
+    }
+
 
 
     public Key key() {
@@ -114,12 +138,11 @@ public class DirectedEdge
     }
 
     /**
-     * Resets the {@code streetInfo} and all lanes.
+     * Resets the {@code streetInfo}. The lanes are reset by resetting the {@link GraphState}.
      */
     @Override
     public void reset() {
         streetInfo.reset();
-        lanes.clear();
     }
 
 
@@ -145,7 +168,8 @@ public class DirectedEdge
 
 
 
-    public boolean isCriticalZoneEmpty() {
+    public boolean isCriticalZoneEmpty(GraphState state) {
+        LaneContainer lanes = lanes(state);
         for (int laneNo = 0; laneNo < getNumberOfLanes(); laneNo++) {
             lanes.lockLane(laneNo);
             boolean isEmpty = lanes.get(laneNo, getLength() - 1) == null;
@@ -193,6 +217,14 @@ public class DirectedEdge
         return streetInfo.raw.id;
     }
 
+    /**
+     * Changes the id and thus the {@link #key()} of this edge. Should only be called while this edge is neither added
+     * to a graph nor to its nodes, because they store their edges sorted by key.
+     */
+    public void setId(long id) {
+        streetInfo.raw.id = id;
+    }
+
     public Orientation getOrientation() {
         return streetInfo.raw.orientation;
     }
@@ -264,10 +296,11 @@ public class DirectedEdge
             return edge.getLength();
         }
 
-        public int getVehicleCount() {
-            edge.lanes.lockLane(index);
-            int count = edge.lanes.getVehicleCount(index);
-            edge.lanes.unlockLane(index);
+        public int getVehicleCount(GraphState state) {
+            LaneContainer lanes = edge.lanes(state);
+            lanes.lockLane(index);
+            int count = lanes.getVehicleCount(index);
+            lanes.unlockLane(index);
             return count;
         }
 
@@ -276,32 +309,34 @@ public class DirectedEdge
         }
 
 
-        public int getMaxInsertionIndex() {
+        public int getMaxInsertionIndex(GraphState state) {
+            LaneContainer lanes = edge.lanes(state);
             int maxInsertionIndex;
-            edge.lanes.lockLane(index);
+            lanes.lockLane(index);
 
-            if (edge.lanes.isEmpty(index)) {
+            if (lanes.isEmpty(index)) {
                 maxInsertionIndex = edge.getLength() - 1;
             } else {
-                maxInsertionIndex = edge.lanes.getLastVehicle(index).getCellPosition() - 1;
+                maxInsertionIndex = lanes.getLastVehicle(index).getCellPosition() - 1;
             }
 
-            edge.lanes.unlockLane(index);
+            lanes.unlockLane(index);
             return maxInsertionIndex;
         }
 
-        public boolean hasVehicleInFront(Vehicle vehicle) {
-            return getVehicleInFront(vehicle) != null;
+        public boolean hasVehicleInFront(GraphState state, Vehicle vehicle) {
+            return getVehicleInFront(state, vehicle) != null;
         }
 
         /**
          * Uses the given vehicle's position to find the vehicle in front, so the given one is allowed to stand on
          * another lane.
          */
-        public Vehicle getVehicleInFront(Vehicle vehicle) {
-            edge.lanes.lockLane(index);
-            Vehicle front = edge.lanes.getNextOf(index, vehicle.getCellPosition());
-            edge.lanes.unlockLane(index);
+        public Vehicle getVehicleInFront(GraphState state, Vehicle vehicle) {
+            LaneContainer lanes = edge.lanes(state);
+            lanes.lockLane(index);
+            Vehicle front = lanes.getNextOf(index, vehicle.getCellPosition());
+            lanes.unlockLane(index);
             return front;
         }
 
@@ -309,12 +344,13 @@ public class DirectedEdge
          * @return assuming right-before-left, the outer vehicle is the right vehicle. If there is no right vehicle,
          * the vehicle of greatest cell position smaller than the given vehicle's cell position is returned
          */
-        public Vehicle getOuterVehicle(Vehicle vehicle) {
-            edge.lanes.lockLane(index - 1);
-            Vehicle outer = edge.lanes.get(index - 1, vehicle.getCellPosition());
+        public Vehicle getOuterVehicle(GraphState state, Vehicle vehicle) {
+            LaneContainer lanes = edge.lanes(state);
+            lanes.lockLane(index - 1);
+            Vehicle outer = lanes.get(index - 1, vehicle.getCellPosition());
             if (outer == null)
-                outer = edge.lanes.getPrevOf(index - 1, vehicle.getCellPosition());
-            edge.lanes.unlockLane(index - 1);
+                outer = lanes.getPrevOf(index - 1, vehicle.getCellPosition());
+            lanes.unlockLane(index - 1);
             return outer;
         }
 
@@ -322,24 +358,27 @@ public class DirectedEdge
          * @return assuming right-before-left, the inner vehicle is the left vehicle. If there is no left vehicle,
          * the vehicle of greatest cell position smaller than the given vehicle's cell position is returned
          */
-        public Vehicle getInnerVehicle(Vehicle vehicle) {
-            edge.lanes.lockLane(index + 1);
-            Vehicle inner = edge.lanes.get(index + 1, vehicle.getCellPosition());
+        public Vehicle getInnerVehicle(GraphState state, Vehicle vehicle) {
+            LaneContainer lanes = edge.lanes(state);
+            lanes.lockLane(index + 1);
+            Vehicle inner = lanes.get(index + 1, vehicle.getCellPosition());
             if (inner == null)
-                inner = edge.lanes.getPrevOf(index + 1, vehicle.getCellPosition());
-            edge.lanes.unlockLane(index + 1);
+                inner = lanes.getPrevOf(index + 1, vehicle.getCellPosition());
+            lanes.unlockLane(index + 1);
             return inner;
         }
 
-        public Vehicle getSecondInnerVehicle(Vehicle vehicle) {
+        public Vehicle getSecondInnerVehicle(GraphState state, Vehicle vehicle) {
             if (index + 2 >= edge.getNumberOfLanes())
                 return null;
 
-            edge.lanes.lockLane(index + 2);
-            Vehicle inner = edge.lanes.get(index + 2, vehicle.getCellPosition());
+            LaneContainer lanes = edge.lanes(state);
+
+            lanes.lockLane(index + 2);
+            Vehicle inner = lanes.get(index + 2, vehicle.getCellPosition());
             if (inner == null)
-                inner = edge.lanes.getPrevOf(index + 2, vehicle.getCellPosition());
-            edge.lanes.unlockLane(index + 2);
+                inner = lanes.getPrevOf(index + 2, vehicle.getCellPosition());
+            lanes.unlockLane(index + 2);
             return inner;
         }
 
@@ -355,11 +394,13 @@ public class DirectedEdge
          * @return true if contains the outermost vehicles.
          * If traffic rule is right-before-left, the outermost vehicle has no vehicles right to it.
          */
-        public boolean containsOutermostVehicles() {
+        public boolean containsOutermostVehicles(GraphState state) {
+            LaneContainer lanes = edge.lanes(state);
+
             // check whether self is not empty
-            edge.lanes.lockLane(index);
-            boolean isOutermostVehicle = !edge.lanes.isEmpty(index);
-            edge.lanes.unlockLane(index);
+            lanes.lockLane(index);
+            boolean isOutermostVehicle = !lanes.isEmpty(index);
+            lanes.unlockLane(index);
 
             if (!isOutermostVehicle) {
                 return false;
@@ -368,9 +409,9 @@ public class DirectedEdge
 
             // check whether outer lanes are empty
             for (int i = index - 1; i >= 0; i--) {
-                edge.lanes.lockLane(i);
-                isOutermostVehicle = edge.lanes.isEmpty(i);
-                edge.lanes.unlockLane(i);
+                lanes.lockLane(i);
+                isOutermostVehicle = lanes.isEmpty(i);
+                lanes.unlockLane(i);
 
                 if (!isOutermostVehicle) {
                     return false;
@@ -410,10 +451,11 @@ public class DirectedEdge
         /**
          * @return true if an element was removed
          */
-        public boolean insertVehicle(Vehicle vehicle, int cellPosition) {
-            edge.lanes.lockLane(index);
-            Vehicle removed = edge.lanes.set(vehicle, index, cellPosition);
-            edge.lanes.unlockLane(index);
+        public boolean insertVehicle(GraphState state, Vehicle vehicle, int cellPosition) {
+            LaneContainer lanes = state.getOrCreateLanes(edge);
+            lanes.lockLane(index);
+            Vehicle removed = lanes.set(vehicle, index, cellPosition);
+            lanes.unlockLane(index);
             boolean success = removed == null;
 
             BasicStringBuilder builder = new BasicStringBuilder();
@@ -425,24 +467,26 @@ public class DirectedEdge
             return !success;
         }
 
-        public void moveVehicle(Vehicle vehicle, int delta) {
+        public void moveVehicle(GraphState state, Vehicle vehicle, int delta) {
             if (delta != 0) {
-                edge.lanes.lockLane(index);
-                removeVehicle(vehicle);
-                insertVehicle(vehicle, vehicle.getCellPosition() + delta);
-                edge.lanes.unlockLane(index);
+                LaneContainer lanes = state.getOrCreateLanes(edge);
+                lanes.lockLane(index);
+                removeVehicle(state, vehicle);
+                insertVehicle(state, vehicle, vehicle.getCellPosition() + delta);
+                lanes.unlockLane(index);
             }
         }
 
         /**
          * @return true if success (meaning no vehicle has been on the given position)
          */
-        public boolean removeVehicle(Vehicle vehicle) {
+        public boolean removeVehicle(GraphState state, Vehicle vehicle) {
+            LaneContainer lanes = edge.lanes(state);
             boolean success;
 
-            edge.lanes.lockLane(index);
-            Vehicle removedVehicle = edge.lanes.remove(index, vehicle.getCellPosition());
-            edge.lanes.unlockLane(index);
+            lanes.lockLane(index);
+            Vehicle removedVehicle = lanes.remove(index, vehicle.getCellPosition());
+            lanes.unlockLane(index);
             success = removedVehicle == vehicle;
 
             BasicStringBuilder builder = new BasicStringBuilder();
@@ -515,6 +559,67 @@ public class DirectedEdge
         }
     }
 
+    /**
+     * Used for reading the lanes of an edge, whose lanes have not been created in the given {@link GraphState} yet.
+     */
+    private static final class EmptyLaneContainer implements LaneContainer {
+        private static final EmptyLaneContainer INSTANCE = new EmptyLaneContainer();
+
+        @Override
+        public void lockLane(int laneNo) {}
+
+        @Override
+        public void unlockLane(int laneNo) {}
+
+        @Override
+        public boolean isEmpty(int laneNo) {
+            return true;
+        }
+
+        @Override
+        public int getVehicleCount(int laneNo) {
+            return 0;
+        }
+
+        @Override
+        public Vehicle getFirstVehicle(int laneNo) {
+            return null;
+        }
+
+        @Override
+        public Vehicle getLastVehicle(int laneNo) {
+            return null;
+        }
+
+        @Override
+        public Vehicle get(int laneNo, int cellNo) {
+            return null;
+        }
+
+        @Override
+        public Vehicle getPrevOf(int laneNo, int cellNo) {
+            return null;
+        }
+
+        @Override
+        public Vehicle getNextOf(int laneNo, int cellNo) {
+            return null;
+        }
+
+        @Override
+        public Vehicle set(Vehicle vehicle, int laneNo, int cellNo) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Vehicle remove(int laneNo, int cellNo) {
+            return null;
+        }
+
+        @Override
+        public void clear() {}
+    }
+
     public class AscLaneIterator implements Iterator<Lane> {
         int index = 0;
 
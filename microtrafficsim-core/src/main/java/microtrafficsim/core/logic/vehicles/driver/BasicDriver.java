@@ -3,7 +3,7 @@ package microtrafficsim.core.logic.vehicles.driver;
 import microtrafficsim.core.logic.routes.Route;
 import microtrafficsim.core.logic.streets.DirectedEdge;
 import microtrafficsim.core.logic.vehicles.machines.Vehicle;
-import microtrafficsim.math.random.distributions.impl.Random;
+import microtrafficsim.math.random.distributions.impl.CounterRandom;
 import microtrafficsim.utils.logging.EasyMarkableLogger;
 import microtrafficsim.utils.strings.builder.LevelStringBuilder;
 import org.slf4j.Logger;
@@ -18,10 +18,14 @@ import java.util.concurrent.locks.ReentrantLock;
 public class BasicDriver implements Driver {
     public static final Logger logger = new EasyMarkableLogger(BasicDriver.class);
 
+    /* purposes of random numbers, see CounterRandom#seek */
+    private static final long RANDOM_LANE_CHANGE = 1;
+    private static final long RANDOM_DAWDLE      = 2;
+
 
     /* general */
     private final ReentrantLock lock_priorityCounter;
-    private final Random        random;
+    private final CounterRandom random;
 
     /* variable information */
     private Route route;
@@ -40,7 +44,7 @@ public class BasicDriver implements Driver {
     private float laneChangeFactor;
 
     /**
-     * seed         seed for {@link Random}, e.g. used for dawdling
+     * seed         seed for {@link CounterRandom}, e.g. used for dawdling
      * dawdleFactor probability to dawdle (after Nagel-Schreckenberg-model)
      * spawnDelay   after this number of simulation steps, this driver starts travelling
      */
@@ -58,7 +62,7 @@ public class BasicDriver implements Driver {
     public BasicDriver(InitSetup setup) {
         /* general */
         lock_priorityCounter = new ReentrantLock(true);
-        random               = new Random(setup.seed);
+        random               = new CounterRandom(setup.seed);
 
         /* variable information */
         route = null;
@@ -102,6 +106,7 @@ public class BasicDriver implements Driver {
 
     @Override
     public boolean tendToChangeLane() {
+        random.seek(travellingTime, RANDOM_LANE_CHANGE);
         return random.nextFloat() < laneChangeFactor;
     }
 
@@ -110,6 +115,7 @@ public class BasicDriver implements Driver {
         if (tmpV < 1)
             return 0;
         // Dawdling only 5km/h => return tmpV - 5
+        random.seek(travellingTime, RANDOM_DAWDLE);
         if (random.nextFloat() < dawdleFactor)
             return tmpV - 1;
         return tmpV;
@@ -199,6 +205,11 @@ public class BasicDriver implements Driver {
         travellingTime++;
     }
 
+    @Override
+    public void incTravellingTime(int steps) {
+        travellingTime += steps;
+    }
+
     @Override
     public int getPriorityCounter() {
         lock_priorityCounter.lock();
@@ -247,6 +258,16 @@ public class BasicDriver implements Driver {
         lock_priorityCounter.unlock();
     }
 
+    @Override
+    public void restore(int travellingTime, int priorityCounter, int anger, int totalAnger) {
+        this.travellingTime = travellingTime;
+        lock_priorityCounter.lock();
+        this.priorityCounter = priorityCounter;
+        lock_priorityCounter.unlock();
+        this.anger      = anger;
+        this.totalAnger = totalAnger;
+    }
+
 
     /*
     |==========|
@@ -263,6 +284,16 @@ public class BasicDriver implements Driver {
         totalAnger += 1;
     }
 
+    @Override
+    public void becomeMoreAngry(int times) {
+        if (times <= 0)
+            return;
+
+        if (anger < maxAnger)
+            anger = (int) Math.min(maxAnger, (long) anger + times);
+        totalAnger += times;
+    }
+
     /**
      * Decreases the anger by 1 down to a minimum of 0.
      */
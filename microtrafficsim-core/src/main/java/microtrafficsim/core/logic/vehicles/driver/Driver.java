@@ -137,6 +137,14 @@ public interface Driver extends Hulk, Resettable {
 
     void incTravellingTime();
 
+    /**
+     * Has the same effect as calling {@link #incTravellingTime()} the given number of times.
+     */
+    default void incTravellingTime(int steps) {
+        for (int i = 0; i < steps; i++)
+            incTravellingTime();
+    }
+
     int getPriorityCounter();
 
     void resetPriorityCounter();
@@ -145,6 +153,12 @@ public interface Driver extends Hulk, Resettable {
 
     void decPriorityCounter();
 
+    /**
+     * Restores the dynamic information of this driver, e.g. from a snapshot of a simulation. The anger is ignored if
+     * this driver does not support it.
+     */
+    void restore(int travellingTime, int priorityCounter, int anger, int totalAnger);
+
     /*
     |=================|
     | fix information |
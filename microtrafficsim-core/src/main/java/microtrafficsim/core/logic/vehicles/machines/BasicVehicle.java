@@ -6,6 +6,7 @@ import java.util.function.Function;
 import org.slf4j.Logger;
 
 import microtrafficsim.core.entities.vehicle.VehicleEntity;
+import microtrafficsim.core.logic.streetgraph.GraphState;
 import microtrafficsim.core.logic.streets.DirectedEdge;
 import microtrafficsim.core.logic.vehicles.VehicleState;
 import microtrafficsim.core.logic.vehicles.VehicleStateListener;
@@ -26,6 +27,7 @@ public abstract class BasicVehicle implements Vehicle {
     private final LinkedList<VehicleStateListener> stateListeners;
 
     /* variable information */
+    private GraphState graphState;
     private Driver driver;
     private DirectedEdge.Lane lane;
     private int outermostTurningLaneIndex;
@@ -97,7 +99,7 @@ public abstract class BasicVehicle implements Vehicle {
                 strBuilder.appendln("");
                 strBuilder.appendln("-- infos from next node --");
                 strBuilder.appendln(
-                    "permission = " + lane.getEdge().getDestination().permissionToCross(this)
+                    "permission = " + lane.getEdge().getDestination().permissionToCross(graphState, this)
                 );
                 strBuilder.appendln("node.id = " + lane.getEdge().getDestination().getId());
             }
@@ -110,6 +112,16 @@ public abstract class BasicVehicle implements Vehicle {
         this.driver = driver;
     }
 
+    @Override
+    public GraphState getGraphState() {
+        return graphState;
+    }
+
+    @Override
+    public void setGraphState(GraphState graphState) {
+        this.graphState = graphState;
+    }
+
     @Override
     public boolean isLastVelocityZero() {
         return lastVelocityIsZero;
@@ -159,8 +171,8 @@ public abstract class BasicVehicle implements Vehicle {
 
 
     private void leaveCurrentRoad() {
-        lane.getDestination().unregisterVehicle(this);
-        lane.removeVehicle(this);
+        lane.getDestination().unregisterVehicle(graphState, this);
+        lane.removeVehicle(graphState, this);
 
         // -1 * distance to end of road
         cellPosition = cellPosition - lane.getLength();
@@ -173,7 +185,7 @@ public abstract class BasicVehicle implements Vehicle {
     private void enterNextRoad(DirectedEdge.Lane nextLane) {
         lane = nextLane;
         cellPosition = cellPosition + velocity;
-        lane.insertVehicle(this, cellPosition);
+        lane.insertVehicle(graphState, this, cellPosition);
         if (entity.getVisualization() != null)
             entity.getVisualization().updatePosition();
 
@@ -192,7 +204,7 @@ public abstract class BasicVehicle implements Vehicle {
     }
 
     private void drive() {
-        lane.moveVehicle(this, velocity);
+        lane.moveVehicle(graphState, this, velocity);
         cellPosition = cellPosition + velocity;
         if (entity.getVisualization() != null)
             entity.getVisualization().updatePosition();
@@ -224,7 +236,7 @@ public abstract class BasicVehicle implements Vehicle {
     }
 
     private void tendToOvertaking() {
-        Vehicle front = lane.getVehicleInFront(this);
+        Vehicle front = lane.getVehicleInFront(graphState, this);
 
         if (wantsToOvertake(front))
             checkChangeToInnerLane();
@@ -235,7 +247,7 @@ public abstract class BasicVehicle implements Vehicle {
     private void tendToOutermostLane() {
         if (lane.getIndex() > outermostTurningLaneIndex) {
             // check for lane.isOutermost() is not necessary due to outermostTurningLaneIndex
-            Vehicle outerFront = lane.getOuterLane().getVehicleInFront(this);
+            Vehicle outerFront = lane.getOuterLane().getVehicleInFront(graphState, this);
 
             if (!wantsToOvertake(outerFront))
                 checkChangeToOuterLane();
@@ -258,7 +270,7 @@ public abstract class BasicVehicle implements Vehicle {
         if (laneChangeDirection == LaneChangeDirection.NONE)
             return;
 
-        Vehicle outerVehicle = lane.getOuterVehicle(this);
+        Vehicle outerVehicle = lane.getOuterVehicle(graphState, this);
         if (outerVehicle != null) {
             int distance = cellPosition - outerVehicle.getCellPosition();
             assert distance >= 0 : "Something is wrong with the data structure. Distance is " + distance + ", but " +
@@ -283,7 +295,7 @@ public abstract class BasicVehicle implements Vehicle {
             return;
 
         // check for second inner vehicle
-        Vehicle innerVehicle = lane.getSecondInnerVehicle(this);
+        Vehicle innerVehicle = lane.getSecondInnerVehicle(graphState, this);
         if (innerVehicle != null) {
             int distance = cellPosition - innerVehicle.getCellPosition();
             assert distance >= 0 : "Something is wrong with the data structure. Distance is " + distance + ", but " +
@@ -295,7 +307,7 @@ public abstract class BasicVehicle implements Vehicle {
         }
 
         // check for inner vehicle
-        innerVehicle = lane.getInnerVehicle(this);
+        innerVehicle = lane.getInnerVehicle(graphState, this);
         if (innerVehicle != null) {
             int distance = cellPosition - innerVehicle.getCellPosition();
             assert distance >= 0 : "Something is wrong with the data structure. Distance is " + distance + ", but " +
@@ -310,10 +322,10 @@ public abstract class BasicVehicle implements Vehicle {
      * underlying data structure.
      */
     private void changeToOuterLane() {
-        lane.removeVehicle(this);
+        lane.removeVehicle(graphState, this);
         lane = lane.getOuterLane();
         assert lane != null : "Lane after changing to outer lane is null.";
-        lane.insertVehicle(this, cellPosition);
+        lane.insertVehicle(graphState, this, cellPosition);
     }
 
     /**
@@ -322,10 +334,10 @@ public abstract class BasicVehicle implements Vehicle {
      */
     private void changeToInnerLane() {
         int index = lane.getIndex();
-        lane.removeVehicle(this);
+        lane.removeVehicle(graphState, this);
         lane = lane.getInnerLane();
         assert lane != null : "Lane after changing to inner lane is null. Old idx = " + index;
-        lane.insertVehicle(this, cellPosition);
+        lane.insertVehicle(graphState, this, cellPosition);
     }
 
 
@@ -337,7 +349,7 @@ public abstract class BasicVehicle implements Vehicle {
     @Override
     public void registerInGraph() {
         if (!driver.getRoute().isEmpty())
-            driver.getRoute().getOrigin().registerVehicle(this);
+            driver.getRoute().getOrigin().registerVehicle(graphState, this);
     }
 
     /**
@@ -349,14 +361,14 @@ public abstract class BasicVehicle implements Vehicle {
     public void spawn() {
         if (driver.getTravellingTime() >= 0) {
             if (!driver.getRoute().isEmpty()) {
-                if (!driver.getRoute().getOrigin().permissionToCross(this)) {
+                if (!driver.getRoute().getOrigin().permissionToCross(graphState, this)) {
                     velocity = 0;
                 } else {    // allowed to spawn
-                    if (driver.peekRoute().getLane(0).getMaxInsertionIndex() < 0) {
+                    if (driver.peekRoute().getLane(0).getMaxInsertionIndex(graphState) < 0) {
                         velocity = 0;
                     } else {
                         velocity = 1;
-                        driver.getRoute().getOrigin().unregisterVehicle(this);
+                        driver.getRoute().getOrigin().unregisterVehicle(graphState, this);
                         enterNextRoad(driver.popRoute().getLane(0));
                         setState(VehicleState.SPAWNED);
                     }
@@ -371,12 +383,57 @@ public abstract class BasicVehicle implements Vehicle {
         didOneSimulationStep();
     }
 
+    @Override
+    public void waitForSpawning(int steps) {
+        if (steps <= 0)
+            return;
+
+        // same as in didOneSimulationStep() with velocity 0: no anger in the first step if the last velocity was not 0
+        velocity = 0;
+        driver.becomeMoreAngry(isLastVelocityZero() ? steps : steps - 1);
+        setLastVelocityZero(true);
+        driver.incTravellingTime(steps);
+
+        if (entity.getVisualization() != null)
+            entity.getVisualization().setBaseColor(style.getColor(this));
+    }
+
     @Override
     public void despawn() {
         lane = null;
         setState(VehicleState.DESPAWNED);
     }
 
+    @Override
+    public void restore(VehicleState state, DirectedEdge.Lane lane, int cellPosition, int velocity,
+                        boolean lastVelocityIsZero)
+    {
+        this.lane         = lane;
+        this.cellPosition = cellPosition;
+        this.velocity     = velocity;
+        setLastVelocityZero(lastVelocityIsZero);
+        laneChangeDirection = LaneChangeDirection.NONE;
+
+        if (lane != null) {
+            lane.insertVehicle(graphState, this, cellPosition);
+            if (entity.getVisualization() != null)
+                entity.getVisualization().updatePosition();
+
+            // same as after entering the lane, see enterNextRoad(...)
+            if (!driver.getRoute().isEmpty()) {
+                DirectedEdge nextEdge = driver.peekRoute();
+                outermostTurningLaneIndex = lane.getDestination().findOutermostTurningLaneIndex(lane.getEdge(), nextEdge);
+                setLaneIsCorrect(lane.getDestination().isLaneCorrect(lane, nextEdge));
+            } else {
+                outermostTurningLaneIndex = 0;
+                setLaneIsCorrect(true);
+            }
+        }
+
+        if (this.state != state)
+            setState(state);
+    }
+
     @Override
     public VehicleState getState() {
         return state;
@@ -426,7 +483,7 @@ public abstract class BasicVehicle implements Vehicle {
                 changeToInnerLane();
             }
 
-            lane.getDestination().unregisterVehicle(this);
+            lane.getDestination().unregisterVehicle(graphState, this);
             if (!driver.getRoute().isEmpty()) {
                 setLaneIsCorrect(lane.getDestination().isLaneCorrect(lane, driver.peekRoute()));
             }
@@ -446,7 +503,7 @@ public abstract class BasicVehicle implements Vehicle {
 
 
         /* determine case and prepare variables */
-        vehicleInFront = lane.getVehicleInFront(this);
+        vehicleInFront = lane.getVehicleInFront(graphState, this);
 
 
         if (vehicleInFront != null) {
@@ -459,14 +516,14 @@ public abstract class BasicVehicle implements Vehicle {
             // would cross node?
             if (velocity >= distance) {
                 if (!driver.getRoute().isEmpty()) {
-                    if (isLaneCorrect() && lane.getDestination().permissionToCross(this)) {
+                    if (isLaneCorrect() && lane.getDestination().permissionToCross(graphState, this)) {
                         // if next road has vehicles => brake for this
                         // else => brake for end of next road
                             shouldCheckForCorrection = false;
 
                         DirectedEdge.Lane nextLane
                             = lane.getDestination().getLeavingLane(lane, driver.peekRoute());
-                            int maxInsertionIndex = nextLane.getMaxInsertionIndex();
+                            int maxInsertionIndex = nextLane.getMaxInsertionIndex(graphState);
                             if (maxInsertionIndex == nextLane.getLength() - 1)
                                 maxInsertionIndex--;
                             distance += maxInsertionIndex + 1;
@@ -498,7 +555,7 @@ public abstract class BasicVehicle implements Vehicle {
                     // if not: outermost vehicle and critical zone is empty
                     // => deadlock danger if vehicle does not brake!
                     if (
-                        !(lane.containsOutermostVehicles() && lane.getEdge().isCriticalZoneEmpty())
+                        !(lane.containsOutermostVehicles(graphState) && lane.getEdge().isCriticalZoneEmpty(graphState))
                     ) {
                         velocity--;
                     }
@@ -551,9 +608,9 @@ public abstract class BasicVehicle implements Vehicle {
         didOneSimulationStep();
 
         if (shouldRegister())
-            lane.getDestination().registerVehicle(this);
+            lane.getDestination().registerVehicle(graphState, this);
         else
-            lane.getDestination().unregisterVehicle(this);
+            lane.getDestination().unregisterVehicle(graphState, this);
     }
 
     private boolean shouldGetIntoCorrectLane() {
@@ -577,7 +634,7 @@ public abstract class BasicVehicle implements Vehicle {
         if (shouldGetIntoCorrectLane()) {
             // if route is empty => isLaneCorrect is always true but shouldGetIntoCorrectLane() is false
             if (isLaneCorrect()) {
-                if (!lane.hasVehicleInFront(this)) {
+                if (!lane.hasVehicleInFront(graphState, this)) {
                         return true;
                 }
             }
@@ -1,6 +1,8 @@
 package microtrafficsim.core.logic.vehicles.machines;
 
 import microtrafficsim.core.entities.vehicle.LogicVehicleEntity;
+import microtrafficsim.core.logic.streetgraph.GraphState;
+import microtrafficsim.core.logic.streets.DirectedEdge;
 import microtrafficsim.core.logic.vehicles.VehicleState;
 import microtrafficsim.core.logic.vehicles.VehicleStateListener;
 import microtrafficsim.core.logic.vehicles.driver.Driver;
@@ -24,6 +26,14 @@ public interface Vehicle extends LogicVehicleEntity {
 
     void setDriver(Driver driver);
 
+    /**
+     * @return the state of the graph this vehicle is driving on, i.e. the state of the simulation this vehicle is
+     * part of
+     */
+    GraphState getGraphState();
+
+    void setGraphState(GraphState graphState);
+
     public boolean isLastVelocityZero();
 
 
@@ -36,6 +46,15 @@ public interface Vehicle extends LogicVehicleEntity {
 
     void spawn();
 
+    /**
+     * Has the same effect as the given number of calls of {@link #spawn()} without spawning, i.e. while the spawn
+     * delay is not over or while this vehicle is not allowed to enter its first lane. This is used for applying such
+     * steps lazily instead of calling {@link #spawn()} in every step.
+     *
+     * @param steps number of steps this vehicle has been waiting for spawning
+     */
+    void waitForSpawning(int steps);
+
     void despawn();
 
     VehicleState getState();
@@ -44,6 +63,20 @@ public interface Vehicle extends LogicVehicleEntity {
 
     void addStateListener(VehicleStateListener listener);
 
+    /**
+     * Restores the dynamic information of this vehicle, e.g. from a snapshot of a simulation. The route of the driver
+     * has to be restored before, because it determines the lane-related information. If the given lane is not
+     * {@code null}, this vehicle is inserted into it.
+     *
+     * @param state        the state of this vehicle; listeners are informed if it differs from the current one
+     * @param lane         the lane this vehicle is driving on; {@code null} if not spawned
+     * @param cellPosition the cell position on the given lane
+     * @param velocity     the velocity of the last step
+     * @param lastVelocityIsZero see {@link #isLastVelocityZero()}
+     */
+    void restore(VehicleState state, DirectedEdge.Lane lane, int cellPosition, int velocity,
+                 boolean lastVelocityIsZero);
+
 
     /*
     |===========================|
@@ -1,5 +1,9 @@
 package microtrafficsim.core.map;
 
+import microtrafficsim.core.map.features.MultiLine;
+import microtrafficsim.core.map.features.Point;
+import microtrafficsim.core.map.features.Polygon;
+
 
 /**
  * Base-class for all feature primitives.
@@ -17,4 +21,23 @@ public abstract class FeaturePrimitive {
     public FeaturePrimitive(long id) {
         this.id = id;
     }
+
+
+    /**
+     * Returns the coordinates describing the geometry of the given primitive, i.e. the coordinates of a
+     * {@link MultiLine} (including streets), the outline of a {@link Polygon} or the coordinate of a {@link Point}.
+     *
+     * @param primitive the primitive of which the coordinates should be returned.
+     * @return the coordinates of the given primitive or {@code null} if its type is not known.
+     */
+    public static Coordinate[] getCoordinates(FeaturePrimitive primitive) {
+        if (primitive instanceof MultiLine)
+            return ((MultiLine) primitive).coordinates;
+        else if (primitive instanceof Polygon)
+            return ((Polygon) primitive).outline;
+        else if (primitive instanceof Point)
+            return new Coordinate[] { ((Point) primitive).coordinate };
+        else
+            return null;
+    }
 }
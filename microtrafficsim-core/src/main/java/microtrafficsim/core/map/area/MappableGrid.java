@@ -0,0 +1,197 @@
+package microtrafficsim.core.map.area;
+
+import microtrafficsim.core.map.Bounds;
+import microtrafficsim.core.map.Coordinate;
+import microtrafficsim.core.map.Mappable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+
+/**
+ * Static spatial index over the coordinates of {@link Mappable}s, e.g. the nodes of a street graph. The elements are
+ * sorted into a uniform grid over their bounds, stored as a single array ordered by cell. Areas are queried by
+ * checking the elements of all cells overlapping the bounds of the area; the point-in-area tests are executed in
+ * parallel for large numbers of candidates.
+ *
+ * @param <T> the type of the indexed elements.
+ * @author agent
+ */
+public class MappableGrid<T extends Mappable> {
+
+    /** The average number of elements per cell */
+    public static final int DEFAULT_CELL_CAPACITY = 16;
+
+    /** Number of candidates above which the point-in-area tests are executed in parallel */
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private final Bounds bounds;
+    private final int nx;
+    private final int ny;
+    private final double cellsPerLat;
+    private final double cellsPerLon;
+
+    private final int[] offsets;        // cell index -> index of its first element
+    private final Object[] elements;    // sorted by cell
+    private final double[] lats;
+    private final double[] lons;
+
+
+    public MappableGrid(Collection<? extends T> elements) {
+        this(elements, DEFAULT_CELL_CAPACITY);
+    }
+
+    /**
+     * @param elements     the elements to index
+     * @param cellCapacity the average number of elements per cell
+     */
+    public MappableGrid(Collection<? extends T> elements, int cellCapacity) {
+        int n = elements.size();
+
+        /* bounds */
+        bounds = new Bounds(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+        for (T element : elements) {
+            Coordinate c = element.getCoordinate();
+            bounds.minlat = Math.min(bounds.minlat, c.lat);
+            bounds.minlon = Math.min(bounds.minlon, c.lon);
+            bounds.maxlat = Math.max(bounds.maxlat, c.lat);
+            bounds.maxlon = Math.max(bounds.maxlon, c.lon);
+        }
+
+        /* grid resolution, cells are roughly square in degrees */
+        double dlat = n > 0 ? bounds.maxlat - bounds.minlat : 0;
+        double dlon = n > 0 ? bounds.maxlon - bounds.minlon : 0;
+        double cells = Math.max(1.0, (double) n / Math.max(1, cellCapacity));
+        if (dlat > 0 && dlon > 0) {
+            nx = clamp((int) Math.ceil(Math.sqrt(cells * dlon / dlat)));
+            ny = clamp((int) Math.ceil(cells / nx));
+        } else if (dlon > 0) {
+            nx = clamp((int) Math.ceil(cells));
+            ny = 1;
+        } else if (dlat > 0) {
+            nx = 1;
+            ny = clamp((int) Math.ceil(cells));
+        } else {
+            nx = 1;
+            ny = 1;
+        }
+        cellsPerLon = dlon > 0 ? nx / dlon : 0;
+        cellsPerLat = dlat > 0 ? ny / dlat : 0;
+
+        /* sort into cells (counting sort) */
+        int[] cellOf = new int[n];
+        offsets = new int[nx * ny + 1];
+        int i = 0;
+        for (T element : elements) {
+            Coordinate c = element.getCoordinate();
+            cellOf[i] = cell(cellX(c.lon), cellY(c.lat));
+            offsets[cellOf[i] + 1]++;
+            i++;
+        }
+        for (int k = 0; k < nx * ny; k++)
+            offsets[k + 1] += offsets[k];
+
+        this.elements = new Object[n];
+        this.lats     = new double[n];
+        this.lons     = new double[n];
+        int[] next = Arrays.copyOf(offsets, nx * ny);
+        i = 0;
+        for (T element : elements) {
+            int idx = next[cellOf[i++]]++;
+            this.elements[idx] = element;
+            this.lats[idx]     = element.getCoordinate().lat;
+            this.lons[idx]     = element.getCoordinate().lon;
+        }
+    }
+
+
+    public int size() {
+        return elements.length;
+    }
+
+    /**
+     * @return the bounds of all indexed elements
+     */
+    public Bounds getBounds() {
+        return new Bounds(bounds);
+    }
+
+    /**
+     * @return all elements inside the given bounds (inclusive), ordered by cell
+     */
+    public List<T> query(Bounds query) {
+        return query(null, query);
+    }
+
+    /**
+     * @param area  the area the returned elements have to be in
+     * @param query the bounds of the given area (or a superset of them), used for pre-filtering
+     * @return all elements inside the given bounds (inclusive) and contained in the given area, ordered by cell
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> query(Area area, Bounds query) {
+        int[] candidates = candidates(query);
+
+        IntStream stream = Arrays.stream(candidates);
+        if (area != null) {
+            if (candidates.length > PARALLEL_THRESHOLD)
+                stream = stream.parallel();
+            stream = stream.filter(i -> area.contains(((T) elements[i]).getCoordinate()));
+        }
+
+        return stream.mapToObj(i -> (T) elements[i]).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+
+    /**
+     * @return the indices of all elements inside the given bounds (inclusive)
+     */
+    private int[] candidates(Bounds query) {
+        if (elements.length == 0
+                || query.maxlat < bounds.minlat || query.minlat > bounds.maxlat
+                || query.maxlon < bounds.minlon || query.minlon > bounds.maxlon)
+            return new int[0];
+
+        int xmin = cellX(query.minlon);
+        int xmax = cellX(query.maxlon);
+        int ymin = cellY(query.minlat);
+        int ymax = cellY(query.maxlat);
+
+        int count = 0;
+        for (int y = ymin; y <= ymax; y++)
+            count += offsets[cell(xmax, y) + 1] - offsets[cell(xmin, y)];
+
+        int[] result = new int[count];
+        int k = 0;
+        for (int y = ymin; y <= ymax; y++) {
+            for (int i = offsets[cell(xmin, y)]; i < offsets[cell(xmax, y) + 1]; i++) {
+                if (lats[i] >= query.minlat && lats[i] <= query.maxlat
+                        && lons[i] >= query.minlon && lons[i] <= query.maxlon)
+                    result[k++] = i;
+            }
+        }
+
+        return k == count ? result : Arrays.copyOf(result, k);
+    }
+
+    private int cellX(double lon) {
+        return Math.max(0, Math.min(nx - 1, (int) ((lon - bounds.minlon) * cellsPerLon)));
+    }
+
+    private int cellY(double lat) {
+        return Math.max(0, Math.min(ny - 1, (int) ((lat - bounds.minlat) * cellsPerLat)));
+    }
+
+    private int cell(int x, int y) {
+        return y * nx + x;
+    }
+
+    private static int clamp(int cells) {
+        return Math.max(1, Math.min(cells, 1 << 12));
+    }
+}
@@ -1,5 +1,6 @@
 package microtrafficsim.core.map.area.polygons;
 
+import microtrafficsim.core.map.Bounds;
 import microtrafficsim.core.map.Coordinate;
 import microtrafficsim.core.vis.map.projections.Projection;
 import microtrafficsim.core.vis.scenario.areas.Area;
@@ -15,6 +16,7 @@ import microtrafficsim.math.geometry.polygons.Polygon;
 public class BasicPolygonArea implements PolygonArea {
 
     private Coordinate[] coordinates;
+    private Bounds bounds;
 
     /**
      * <p>
@@ -30,6 +32,7 @@ public class BasicPolygonArea implements PolygonArea {
     public BasicPolygonArea(Coordinate[] coordinates) {
         if (coordinates.length < 3) throw new IllegalArgumentException();
         this.coordinates = coordinates;
+        this.bounds = PolygonArea.super.getBounds();
     }
 
     @Override
@@ -37,15 +40,24 @@ public class BasicPolygonArea implements PolygonArea {
         return coordinates;
     }
 
+    @Override
+    public Bounds getBounds() {
+        return new Bounds(bounds);
+    }
+
     /**
      * The point-in-polygon test is calculated using a, for integer values modified,
      * version of the winding number algorithm described in {@code 'A Winding Number and
      * Point-in-Polygon Algorithm'} by David G. Alciatore, Dept. of Mechanical
      * Engineering, Colorado State University.
      * (https://www.engr.colostate.edu/~dga/dga/papers/point_in_polygon.pdf)
+     * Points outside of the bounding rectangle are rejected before.
      */
     @Override
     public boolean contains(Coordinate p) {
+        if (p.lat < bounds.minlat || p.lat > bounds.maxlat || p.lon < bounds.minlon || p.lon > bounds.maxlon)
+            return false;
+
         int windings = 0;    // actually the doubled number of windings
 
         double x1 = coordinates[coordinates.length - 1].lon - p.lon;
@@ -1,5 +1,6 @@
 package microtrafficsim.core.map.area.polygons;
 
+import microtrafficsim.core.map.Bounds;
 import microtrafficsim.core.map.Coordinate;
 import microtrafficsim.core.map.area.Area;
 import microtrafficsim.core.vis.map.projections.Projection;
@@ -21,6 +22,25 @@ public interface PolygonArea extends Area {
      */
     Coordinate[] getCoordinates();
 
+    /**
+     * Returns the bounding rectangle enclosing this area.
+     *
+     * @return the bounds of this area.
+     */
+    default Bounds getBounds() {
+        Coordinate[] coordinates = getCoordinates();
+
+        Bounds bounds = new Bounds(coordinates[0], coordinates[0]);
+        for (Coordinate c : coordinates) {
+            bounds.minlat = Math.min(bounds.minlat, c.lat);
+            bounds.minlon = Math.min(bounds.minlon, c.lon);
+            bounds.maxlat = Math.max(bounds.maxlat, c.lat);
+            bounds.maxlon = Math.max(bounds.maxlon, c.lon);
+        }
+
+        return bounds;
+    }
+
     /**
      * Todo: does only support {@link Polygon#outline}
      */
@@ -18,6 +18,8 @@ public class Street extends MultiLine {
     public final int      numLanesBwd;
     private StreetEntity  entity;
 
+    private volatile double[] offsets;
+
     /**
      * Constructs a new {@code Street}.
      *
@@ -40,6 +42,52 @@ public class Street extends MultiLine {
         this.distances     = distances;
         this.numLanesFwd = numLanesFwd;
         this.numLanesBwd = numLanesBwd;
+        this.offsets       = null;
+    }
+
+    /**
+     * Returns the prefix-sums of the segment distances of this street, i.e. the distance from the first coordinate
+     * to each coordinate of this street. The returned array is computed on the first call and cached afterwards.
+     *
+     * @return the distances from the first coordinate to each coordinate of this street.
+     */
+    public double[] getOffsets() {
+        double[] offsets = this.offsets;
+
+        if (offsets == null) {
+            offsets = new double[distances.length + 1];
+            for (int i = 0; i < distances.length; i++)
+                offsets[i + 1] = offsets[i] + distances[i];
+
+            this.offsets = offsets;
+        }
+
+        return offsets;
+    }
+
+    /**
+     * Returns the index of the segment containing the given position, i.e. the smallest index {@code i} for which the
+     * distance from the first coordinate to coordinate {@code i + 1} is larger than the given position. Positions
+     * outside of this street are clamped to the first or last segment.
+     *
+     * @param pos the position along the street, measured from the first coordinate.
+     * @return the index of the segment containing the given position.
+     */
+    public int getSegment(double pos) {
+        double[] offsets = getOffsets();
+
+        int lo = 0;
+        int hi = distances.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+
+            if (offsets[mid + 1] > pos)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+
+        return lo;
     }
 
     /**
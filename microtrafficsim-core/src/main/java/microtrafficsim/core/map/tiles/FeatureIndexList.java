@@ -0,0 +1,60 @@
+package microtrafficsim.core.map.tiles;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+
+/**
+ * Immutable list view on a subset of a shared feature array. Instead of storing the references of the contained
+ * features directly, this list only stores their indices into the shared array. This allows tiles of a
+ * {@link FeatureGrid} to share a single feature array while each tile only holds a compact {@code int[]}.
+ *
+ * @param <T> the type of the elements in this list.
+ * @author agent
+ */
+public class FeatureIndexList<T> extends AbstractList<T> implements RandomAccess {
+    private final T[]   features;
+    private final int[] indices;
+
+    /**
+     * Constructs a new {@code FeatureIndexList}.
+     *
+     * @param features the (shared) array of features referenced by the given indices.
+     * @param indices  the indices of the features contained in this list.
+     */
+    public FeatureIndexList(T[] features, int[] indices) {
+        this.features = features;
+        this.indices  = indices;
+    }
+
+
+    @Override
+    public T get(int index) {
+        return features[indices[index]];
+    }
+
+    @Override
+    public int size() {
+        return indices.length;
+    }
+
+
+    /**
+     * Returns the index of the element at the given position in the shared feature array.
+     *
+     * @param index the position of the element in this list.
+     * @return the index of the element in the shared feature array.
+     */
+    public int getFeatureIndex(int index) {
+        return indices[index];
+    }
+
+    /**
+     * Returns the shared feature-array referenced by this list.
+     *
+     * @return the shared feature-array referenced by this list.
+     */
+    public T[] getFeatures() {
+        return features;
+    }
+}
@@ -0,0 +1,421 @@
+package microtrafficsim.core.map.tiles;
+
+import microtrafficsim.core.map.Coordinate;
+import microtrafficsim.core.map.FeaturePrimitive;
+import microtrafficsim.core.map.features.MultiLine;
+import microtrafficsim.core.map.features.Polygon;
+import microtrafficsim.core.map.features.Street;
+import microtrafficsim.core.vis.map.projections.Projection;
+import microtrafficsim.math.Rect2d;
+import microtrafficsim.math.Vec2d;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Zoom-dependent simplified geometry for the features of a tiled map-segment.
+ * <p>
+ * The zoom levels below the leaf level of a segment are divided into bands of {@link Config#bandWidth} levels. For
+ * each band, lines and polygons are simplified using the Douglas-Peucker algorithm with a tolerance of
+ * {@link Config#tolerance} pixels at the finest zoom level of the band, and features whose projected extent is
+ * smaller than {@link Config#minFeatureSize} pixels are dropped. Bands are computed progressively, i.e. each band
+ * is simplified from the result of the next finer band. Tiles at or above the leaf level are always served with
+ * full detail.
+ * </p>
+ *
+ * @author agent
+ */
+public class LevelOfDetail {
+
+    /** Number of features below which a simplification task is not split any further. */
+    private static final int FEATURE_SPLIT_THRESHOLD = 1024;
+
+    /** Marker for features dropped in a band. */
+    private static final Object DROPPED = new Object();
+
+    private final int leafs;
+    private final int bandWidth;
+    private final Band[] bands;
+
+
+    private LevelOfDetail(int leafs, int bandWidth, Band[] bands) {
+        this.leafs = leafs;
+        this.bandWidth = bandWidth;
+        this.bands = bands;
+    }
+
+
+    /**
+     * Generates the simplified geometry for all features contained in the given feature-set.
+     *
+     * @param featureset the feature-set for which the simplified geometry should be generated.
+     * @param scheme     the tiling-scheme used for the given feature-set.
+     * @param leafs      the zoom level at which the tiles of the given feature-set are stored.
+     * @param config     the configuration to use.
+     * @param pool       the pool on which the simplification should be executed.
+     * @return the generated level-of-detail data.
+     * @throws InterruptedException if this call has been interrupted.
+     */
+    public static LevelOfDetail generate(Map<String, FeatureGrid<?>> featureset, TilingScheme scheme, int leafs,
+                                         Config config, ForkJoinPool pool) throws InterruptedException {
+        int nbands = (leafs + config.bandWidth - 1) / config.bandWidth;
+
+        // collect all (distinct) simplifiable features
+        Set<FeaturePrimitive> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (FeatureGrid<?> grid : featureset.values()) {
+            if (!MultiLine.class.isAssignableFrom(grid.getType()) && !Polygon.class.isAssignableFrom(grid.getType()))
+                continue;
+
+            for (int y = 0; y < grid.getData().getSizeY(); y++)
+                for (int x = 0; x < grid.getData().getSizeX(); x++)
+                    distinct.addAll(grid.getData().get(x, y));
+        }
+
+        FeaturePrimitive[] features = distinct.toArray(new FeaturePrimitive[distinct.size()]);
+
+        // pixel size for the finest zoom level of each band
+        double[] pixels = new double[nbands];
+        for (int b = 0; b < nbands; b++) {
+            int zoom = Math.max(leafs - 1 - b * config.bandWidth, 0);
+            pixels[b] = (scheme.getBounds(0, 0, zoom).xmax - scheme.getBounds(0, 0, zoom).xmin)
+                    / scheme.getTileSize().x;
+        }
+
+        // simplify
+        Object[][] results = new Object[nbands][features.length];
+        SimplifyTask task = new SimplifyTask(scheme.getProjection(), config, pixels, features, results,
+                0, features.length);
+
+        try {
+            pool.submit(task).get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            else if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            else
+                throw new RuntimeException(e.getCause());
+        }
+
+        // store changed features only
+        Band[] bands = new Band[nbands];
+        for (int b = 0; b < nbands; b++) {
+            IdentityHashMap<Object, Object> replaced = new IdentityHashMap<>();
+            for (int i = 0; i < features.length; i++)
+                if (results[b][i] != features[i])
+                    replaced.put(features[i], results[b][i]);
+
+            bands[b] = new Band(replaced);
+        }
+
+        return new LevelOfDetail(leafs, config.bandWidth, bands);
+    }
+
+
+    /**
+     * Returns the band that should be used to serve tiles of the given zoom level.
+     *
+     * @param zoom the zoom level of the requested tiles.
+     * @return the band for the given zoom level, or {@code null} if the full-detail features should be used.
+     */
+    public Band getBand(int zoom) {
+        if (zoom >= leafs || bands.length == 0) return null;
+        return bands[Math.min((leafs - 1 - zoom) / bandWidth, bands.length - 1)];
+    }
+
+    /**
+     * Returns the number of zoom bands.
+     *
+     * @return the number of zoom bands.
+     */
+    public int getBandCount() {
+        return bands.length;
+    }
+
+
+    /**
+     * Simplifies the given coordinates using the Douglas-Peucker algorithm. The first and last coordinate are always
+     * kept.
+     *
+     * @param xy        the projected coordinates, as interleaved {@code (x, y)} pairs.
+     * @param indices   the indices of the coordinates (in {@code xy}) to consider.
+     * @param tolerance the maximum allowed distance of removed coordinates to the simplified line.
+     * @return the indices of the kept coordinates (in {@code xy}).
+     */
+    public static int[] simplify(double[] xy, int[] indices, double tolerance) {
+        int n = indices.length;
+        if (n <= 2) return indices;
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+
+        double tolsq = tolerance * tolerance;
+
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+
+        while (top > 0) {
+            int e = stack[--top];
+            int s = stack[--top];
+
+            double ax = xy[2 * indices[s]];
+            double ay = xy[2 * indices[s] + 1];
+            double bx = xy[2 * indices[e]];
+            double by = xy[2 * indices[e] + 1];
+
+            double maxd = -1.0;
+            int maxi = -1;
+            for (int i = s + 1; i < e; i++) {
+                double d = distsq(xy[2 * indices[i]], xy[2 * indices[i] + 1], ax, ay, bx, by);
+                if (d > maxd) {
+                    maxd = d;
+                    maxi = i;
+                }
+            }
+
+            if (maxd > tolsq) {
+                keep[maxi] = true;
+                if (maxi - s > 1) { stack[top++] = s; stack[top++] = maxi; }
+                if (e - maxi > 1) { stack[top++] = maxi; stack[top++] = e; }
+            }
+        }
+
+        int count = 0;
+        for (boolean k : keep)
+            if (k) count++;
+
+        if (count == n) return indices;
+
+        int[] result = new int[count];
+        for (int i = 0, j = 0; i < n; i++)
+            if (keep[i]) result[j++] = indices[i];
+
+        return result;
+    }
+
+    /**
+     * Returns the squared distance of point {@code p} to the line-segment from {@code a} to {@code b}.
+     */
+    private static double distsq(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double len = dx * dx + dy * dy;
+
+        double t = 0.0;
+        if (len > 0.0)
+            t = Math.max(0.0, Math.min(1.0, ((px - ax) * dx + (py - ay) * dy) / len));
+
+        double x = ax + t * dx - px;
+        double y = ay + t * dy - py;
+        return x * x + y * y;
+    }
+
+
+    /**
+     * The simplified geometry of a single zoom band.
+     */
+    public static class Band {
+        private final IdentityHashMap<Object, Object> replaced;
+
+        private Band(IdentityHashMap<Object, Object> replaced) {
+            this.replaced = replaced;
+        }
+
+        /**
+         * Returns the simplified variant of the given feature for this band.
+         *
+         * @param feature the (full-detail) feature.
+         * @param <T>     the type of the feature.
+         * @return the simplified feature, the given feature if it has not been changed, or {@code null} if it has
+         * been dropped in this band.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T get(T feature) {
+            Object result = replaced.get(feature);
+            if (result == null) return feature;
+            if (result == DROPPED) return null;
+            return (T) result;
+        }
+
+        /**
+         * Returns the number of features that have been simplified or dropped in this band.
+         *
+         * @return the number of features changed in this band.
+         */
+        public int getChangedCount() {
+            return replaced.size();
+        }
+    }
+
+
+    /**
+     * Configuration for the level-of-detail generation.
+     */
+    public static class Config {
+
+        /** The maximum distance in pixels of removed coordinates to the simplified geometry. */
+        public double tolerance;
+
+        /** The minimum extent in pixels of features to be kept. */
+        public double minFeatureSize;
+
+        /** The number of zoom levels per band. */
+        public int bandWidth;
+
+        /**
+         * Returns the default configuration, using a tolerance of half a pixel, a minimum feature size of half a
+         * pixel and two zoom levels per band.
+         *
+         * @return the default configuration.
+         */
+        public static Config getDefault() {
+            Config config = new Config();
+            config.tolerance = 0.5;
+            config.minFeatureSize = 0.5;
+            config.bandWidth = 2;
+            return config;
+        }
+    }
+
+
+    /**
+     * Task to simplify a range of features for all bands.
+     */
+    private static class SimplifyTask extends RecursiveAction {
+        private static final long serialVersionUID = -4651457453021006422L;
+
+        private final Projection projection;
+        private final Config config;
+        private final double[] pixels;
+        private final FeaturePrimitive[] features;
+        private final Object[][] results;
+        private final int from;
+        private final int to;
+
+        SimplifyTask(Projection projection, Config config, double[] pixels, FeaturePrimitive[] features,
+                     Object[][] results, int from, int to) {
+            this.projection = projection;
+            this.config = config;
+            this.pixels = pixels;
+            this.features = features;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FEATURE_SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SimplifyTask(projection, config, pixels, features, results, from, mid),
+                          new SimplifyTask(projection, config, pixels, features, results, mid, to));
+                return;
+            }
+
+            for (int i = from; i < to; i++)
+                simplify(i);
+        }
+
+        private void simplify(int i) {
+            FeaturePrimitive feature = features[i];
+
+            Coordinate[] coords;
+            if (feature instanceof MultiLine)
+                coords = ((MultiLine) feature).coordinates;
+            else
+                coords = ((Polygon) feature).outline;
+
+            if (coords == null || coords.length == 0) {
+                for (Object[] result : results)
+                    result[i] = feature;
+                return;
+            }
+
+            // project
+            double[] xy = new double[coords.length * 2];
+            Rect2d aabb = new Rect2d(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                                     Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+            for (int k = 0; k < coords.length; k++) {
+                Vec2d v = projection.project(coords[k]);
+                xy[2 * k] = v.x;
+                xy[2 * k + 1] = v.y;
+
+                if (aabb.xmin > v.x) aabb.xmin = v.x;
+                if (aabb.xmax < v.x) aabb.xmax = v.x;
+                if (aabb.ymin > v.y) aabb.ymin = v.y;
+                if (aabb.ymax < v.y) aabb.ymax = v.y;
+            }
+            double extent = Math.max(aabb.xmax - aabb.xmin, aabb.ymax - aabb.ymin);
+
+            int[] indices = new int[coords.length];
+            for (int k = 0; k < indices.length; k++)
+                indices[k] = k;
+
+            // simplify progressively
+            Object previous = feature;
+            for (int b = 0; b < pixels.length; b++) {
+                if (previous == DROPPED || extent < config.minFeatureSize * pixels[b]) {
+                    results[b][i] = previous = DROPPED;
+                    continue;
+                }
+
+                int[] simplified = LevelOfDetail.simplify(xy, indices, config.tolerance * pixels[b]);
+                if (simplified == indices) {
+                    results[b][i] = previous;
+                    continue;
+                }
+
+                indices = simplified;
+                previous = create(feature, coords, indices);
+                results[b][i] = previous;
+            }
+        }
+
+        private Object create(FeaturePrimitive feature, Coordinate[] coords, int[] indices) {
+            if (feature instanceof Polygon && indices.length < 4)
+                return DROPPED;
+
+            Coordinate[] simplified = new Coordinate[indices.length];
+            for (int k = 0; k < indices.length; k++)
+                simplified[k] = coords[indices[k]];
+
+            if (feature instanceof Street) {
+                Street street = (Street) feature;
+                if (street.distances.length != coords.length - 1)
+                    return feature;
+
+                // merge the distances of removed segments
+                double[] distances = new double[indices.length - 1];
+                for (int k = 0; k < distances.length; k++)
+                    for (int s = indices[k]; s < indices[k + 1]; s++)
+                        distances[k] += street.distances[s];
+
+                Street result = new Street(street.id, simplified, street.layer, street.length, distances,
+                        street.numLanesFwd, street.numLanesBwd);
+                result.setEntity(street.getEntity());
+                return result;
+
+            } else if (feature instanceof Polygon) {
+                return new Polygon(feature.id, simplified);
+
+            } else if (feature.getClass() == MultiLine.class) {
+                return new MultiLine(feature.id, simplified);
+
+            } else {
+                return feature;     // unknown sub-type, cannot be copied
+            }
+        }
+    }
+}
@@ -5,13 +5,21 @@ import microtrafficsim.core.map.features.MultiLine;
 import microtrafficsim.core.map.features.Point;
 import microtrafficsim.core.map.features.Polygon;
 import microtrafficsim.core.map.features.Street;
+import microtrafficsim.core.vis.map.projections.Projection;
 import microtrafficsim.math.Rect2d;
+import microtrafficsim.math.Vec2d;
+import microtrafficsim.math.Vec2i;
 import microtrafficsim.utils.collections.Grid;
 import microtrafficsim.utils.logging.EasyMarkableLogger;
 import org.slf4j.Logger;
 
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 
 /**
@@ -27,6 +35,7 @@ public class QuadTreeTiledMapSegment implements TileFeatureProvider, SegmentFeat
     private Bounds       bounds;
     private TileRect     leafs;
     private Map<String, FeatureGrid<?>> featureset;
+    private LevelOfDetail lod;
     private List<SegmentFeatureProvider.FeatureChangeListener> segmentListeners;
     private List<TileFeatureProvider.FeatureChangeListener>    tileListeners;
 
@@ -50,6 +59,7 @@ public class QuadTreeTiledMapSegment implements TileFeatureProvider, SegmentFeat
         this.bounds           = bounds;
         this.leafs            = leafs;
         this.featureset       = featureset;
+        this.lod              = null;
         this.segmentListeners = new ArrayList<>();
         this.tileListeners    = new ArrayList<>();
     }
@@ -82,7 +92,7 @@ public class QuadTreeTiledMapSegment implements TileFeatureProvider, SegmentFeat
 
     @Override
     public <T extends FeaturePrimitive> Feature<T> require(String name) throws InterruptedException {
-        TileFeature<T> feature = getFeature(name, leafs);
+        TileFeature<T> feature = getFeature(name, leafs, leafs.zoom);
         if (feature != null)
             return new Feature<>(feature.getName(), feature.getType(), feature.getData());
         else
@@ -109,12 +119,12 @@ public class QuadTreeTiledMapSegment implements TileFeatureProvider, SegmentFeat
     @Override
     public <T extends FeaturePrimitive> TileFeature<T> require(String name, TileRect bounds)
             throws InterruptedException {
-        return getFeature(name, scheme.getTiles(bounds, leafs.zoom));
+        return getFeature(name, scheme.getTiles(bounds, leafs.zoom), bounds.zoom);
     }
 
     @Override
     public <T extends FeaturePrimitive> TileFeature<T> require(String name, TileId tile) throws InterruptedException {
-        return getFeature(name, scheme.getTiles(tile, leafs.zoom));
+        return getFeature(name, scheme.getTiles(tile, leafs.zoom), tile.z);
     }
 
     @Override
@@ -148,12 +158,33 @@ public class QuadTreeTiledMapSegment implements TileFeatureProvider, SegmentFeat
         return leafs;
     }
 
+    /**
+     * Sets the simplified geometry used to serve tiles below the leaf level. If set to {@code null}, all tiles are
+     * served with full detail.
+     *
+     * @param lod the level-of-detail data for this segment, or {@code null}.
+     */
+    public void setLevelOfDetail(LevelOfDetail lod) {
+        this.lod = lod;
+    }
+
+    /**
+     * Returns the simplified geometry used to serve tiles below the leaf level.
+     *
+     * @return the level-of-detail data for this segment, or {@code null} if all tiles are served with full detail.
+     */
+    public LevelOfDetail getLevelOfDetail() {
+        return lod;
+    }
+
     @SuppressWarnings("unchecked")
-    private <T extends FeaturePrimitive> TileFeature<T> getFeature(String name, TileRect leafs)
+    private <T extends FeaturePrimitive> TileFeature<T> getFeature(String name, TileRect leafs, int zoom)
             throws InterruptedException {
         FeatureGrid<T> tiles = (FeatureGrid<T>) featureset.get(name);
         if (tiles == null) return null;
 
+        LevelOfDetail.Band band = lod != null ? lod.getBand(zoom) : null;
+
         HashSet<T> data = new HashSet<>();
 
         int xl = Math.max(leafs.xmin - this.leafs.xmin, 0);
@@ -165,7 +196,16 @@ public class QuadTreeTiledMapSegment implements TileFeatureProvider, SegmentFeat
         for (int x = xl; x <= xr; x++) {
             for (int y = yl; y <= yr; y++) {
                 if (Thread.interrupted()) throw new InterruptedException();
-                data.addAll(tiles.getData().get(x, y));
+
+                if (band == null) {
+                    data.addAll(tiles.getData().get(x, y));
+                } else {
+                    for (T feature : tiles.getData().get(x, y)) {
+                        T simplified = band.get(feature);
+                        if (simplified != null)
+                            data.add(simplified);
+                    }
+                }
             }
         }
 
@@ -227,11 +267,27 @@ public class QuadTreeTiledMapSegment implements TileFeatureProvider, SegmentFeat
 
     /**
      * Generator to construct a {@code QuadTreeTiledMapSegment} from a map-segment ({@code SegmentFeatureProvider}).
+     * <p>
+     * Tiling is executed on a {@code ForkJoinPool}: all features are tiled concurrently, each level is refined in
+     * parallel over the parent tiles and large parent tiles are further split over their contained features. Each
+     * feature is tested against its (projected) axis-aligned bounding box before the exact {@code TileIntersector}
+     * is called. The generated tiles only store indices into the feature array (see {@link FeatureIndexList}).
+     * </p>
      */
     public static class Generator {
         private static Logger logger = new EasyMarkableLogger(Generator.class);
 
+        /** Number of parent tiles below which a level-refinement task is not split any further. */
+        private static final int TILE_SPLIT_THRESHOLD = 16;
+
+        /** Number of features below which a filter task is not split any further. */
+        private static final int FEATURE_SPLIT_THRESHOLD = 4096;
+
+        private static final int[] EMPTY = new int[0];
+
         private HashMap<Class<? extends FeaturePrimitive>, TileIntersector<? extends FeaturePrimitive>> intersectors;
+        private ForkJoinPool pool;
+        private LevelOfDetail.Config lod;
 
 
         /**
@@ -243,14 +299,29 @@ public class QuadTreeTiledMapSegment implements TileFeatureProvider, SegmentFeat
         }
 
         /**
-         * Constructs a new {@code Generator} and default-initializes it if specified.
+         * Constructs a new {@code Generator} and default-initializes it if specified. The generator created by
+         * this constructor will use the common {@code ForkJoinPool}.
          *
          * @param defaultInit set to {@code true} to default-initialize this generator. Default-initialization will
          *                    automatically add {@code TileIntersector}s for various geometry (see
          *                    {@link TileIntersectors}).
          */
         public Generator(boolean defaultInit) {
+            this(defaultInit, ForkJoinPool.commonPool());
+        }
+
+        /**
+         * Constructs a new {@code Generator} and default-initializes it if specified.
+         *
+         * @param defaultInit set to {@code true} to default-initialize this generator. Default-initialization will
+         *                    automatically add {@code TileIntersector}s for various geometry (see
+         *                    {@link TileIntersectors}).
+         * @param pool        the pool on which the tiling should be executed.
+         */
+        public Generator(boolean defaultInit, ForkJoinPool pool) {
             this.intersectors = new HashMap<>();
+            this.pool = pool;
+            this.lod = LevelOfDetail.Config.getDefault();
 
             if (defaultInit) {
                 intersectors.put(Point.class, (TileIntersector<Point>) TileIntersectors::intersect);
@@ -277,105 +348,656 @@ public class QuadTreeTiledMapSegment implements TileFeatureProvider, SegmentFeat
             gridlevel      = Math.max(scheme.getTile(bounds).z + 1, gridlevel);
             TileRect leafs = scheme.getTiles(bounds, gridlevel);
 
-            Map<String, FeatureGrid<?>> featureset = new HashMap<>();
+            // tile all features concurrently
+            HashMap<String, GridTask<?>> tasks = new HashMap<>();
+            for (Map.Entry<String, Feature<?>> entry : segment.getFeatures().entrySet()) {
+                GridTask<?> task = new GridTask<>(scheme, bounds, entry.getValue(), gridlevel);
+                tasks.put(entry.getKey(), task);
+                pool.execute(task);
+            }
 
-            for (Map.Entry<String, Feature<?>> entry : segment.getFeatures().entrySet())
-                featureset.put(entry.getKey(), createFeatureGrid(scheme, bounds, entry.getValue(), gridlevel));
+            Map<String, FeatureGrid<?>> featureset = join(tasks);
 
             logger.debug("finished tiling process");
-            return new QuadTreeTiledMapSegment(segment.getProperties(), scheme, segment.getBounds(), leafs, featureset);
+            QuadTreeTiledMapSegment tiled = new QuadTreeTiledMapSegment(segment.getProperties(), scheme,
+                    segment.getBounds(), leafs, featureset);
+            simplify(tiled);
+            return tiled;
+        }
+
+        /**
+         * Generates a new {@code QuadTreeTiledMapSegment} for the given updated segment, re-using the tiles of the
+         * given (previously generated) tiled segment. Features of the updated segment are matched against the
+         * features of the existing tiles by their geometry, only tiles touched by added or removed features are
+         * re-tiled. Matched features are replaced by their existing instance.
+         * <p>
+         * If the bounds of the updated segment differ from the bounds of the existing segment, the updated segment is
+         * tiled from scratch.
+         *
+         * @param tiled   the existing tiled segment.
+         * @param updated the updated segment from which the new tiled segment should be created.
+         * @return the generated tiled map-segment.
+         * @throws InterruptedException if this call has been interrupted.
+         */
+        public QuadTreeTiledMapSegment update(QuadTreeTiledMapSegment tiled, SegmentFeatureProvider updated)
+                throws InterruptedException {
+            if (!tiled.getBounds().equals(updated.getBounds()))
+                return generate(updated, tiled.getTilingScheme(), tiled.getLeafTiles().zoom);
+
+            logger.debug("begin incremental tiling process");
+            TilingScheme scheme = tiled.getTilingScheme();
+            Rect2d bounds = scheme.getProjection().project(updated.getBounds());
+
+            HashMap<String, RecursiveTask<? extends FeatureGrid<?>>> tasks = new HashMap<>();
+            for (Map.Entry<String, Feature<?>> entry : updated.getFeatures().entrySet()) {
+                FeatureGrid<?> existing = tiled.getFeatureSet().get(entry.getKey());
+
+                RecursiveTask<? extends FeatureGrid<?>> task;
+                if (existing != null && existing.getType().equals(entry.getValue().getType()))
+                    task = newUpdateTask(scheme, tiled.getLeafTiles(), existing, entry.getValue());
+                else
+                    task = new GridTask<>(scheme, bounds, entry.getValue(), tiled.getLeafTiles().zoom);
+
+                tasks.put(entry.getKey(), task);
+                pool.execute(task);
+            }
+
+            Map<String, FeatureGrid<?>> featureset = join(tasks);
+
+            logger.debug("finished incremental tiling process");
+            QuadTreeTiledMapSegment result = new QuadTreeTiledMapSegment(updated.getProperties(), scheme,
+                    updated.getBounds(), tiled.getLeafTiles(), featureset);
+            simplify(result);
+            return result;
         }
 
         /**
-         * Creates a {@code TileGroup} with the given parameters.
+         * Sets the configuration used to generate the simplified geometry of the tiled segments. If set to
+         * {@code null}, no simplified geometry is generated and all tiles are served with full detail.
          *
-         * @param scheme    the tiling-scheme to be used.
-         * @param bounds    the bounds of the map-segment to be tiled.
-         * @param feature   the feature to be tiled.
-         * @param gridlevel the level at which the tile-grid should be created.
-         * @param <T>       the type of the feature.
-         * @return the created {@code TileGroup}.
+         * @param lod the level-of-detail configuration, or {@code null}.
          */
+        public void setLevelOfDetail(LevelOfDetail.Config lod) {
+            this.lod = lod;
+        }
+
+        /**
+         * Returns the configuration used to generate the simplified geometry of the tiled segments.
+         *
+         * @return the level-of-detail configuration, or {@code null} if no simplified geometry is generated.
+         */
+        public LevelOfDetail.Config getLevelOfDetail() {
+            return lod;
+        }
+
+        private void simplify(QuadTreeTiledMapSegment tiled) throws InterruptedException {
+            if (lod == null) return;
+
+            logger.debug("begin simplification process");
+            tiled.setLevelOfDetail(LevelOfDetail.generate(tiled.getFeatureSet(), tiled.getTilingScheme(),
+                    tiled.getLeafTiles().zoom, lod, pool));
+            logger.debug("finished simplification process");
+        }
+
         @SuppressWarnings("unchecked")
-        private <T extends FeaturePrimitive> FeatureGrid<T>
-        createFeatureGrid(TilingScheme scheme, Rect2d bounds, Feature<T> feature, int gridlevel) {
-            TileIntersector<? super T> intersector = (TileIntersector<? super T>) intersectors.get(feature.getType());
-            TileId root = scheme.getTile(bounds);
-
-            TileRect parentBounds = new TileRect(root.x, root.y, root.x, root.y, root.z);
-            Grid<List<T>> parentGrid = new Grid<>(1, 1);
-            parentGrid.set(0, 0, Arrays.asList(feature.getData()));
-            int px = 1, py = 1;
-
-            for (int z = root.z; z < gridlevel; z++) {
-                TileRect childBounds = scheme.getTiles(bounds, z + 1);
-                int cx = (childBounds.xmax - childBounds.xmin) + 1;
-                int cy = (childBounds.ymax - childBounds.ymin) + 1;
-                Grid<List<T>> childGrid = new Grid<>(cx, cy);
-
-                for (int x = 0; x < px; x++) {
-                    for (int y = 0; y < py; y++) {
-                        TileRect c = scheme.getTiles(x + parentBounds.xmin, y + parentBounds.ymin, z, z + 1);
-
-                        // top left
-                        if (c.xmin >= childBounds.xmin && c.ymin >= childBounds.ymin) {
-                            Rect2d b = scheme.getBounds(c.xmin, c.ymin, z + 1);
-
-                            ArrayList<T> data = new ArrayList();
-                            childGrid.set(c.xmin - childBounds.xmin, c.ymin - childBounds.ymin, data);
-
-                            for (T t : parentGrid.get(x, y))
-                                if (intersector.intersect(t, b, scheme.getProjection()))
-                                    data.add(t);
+        private <T extends FeaturePrimitive> UpdateTask<T> newUpdateTask(TilingScheme scheme, TileRect leafs,
+                                                                         FeatureGrid<?> existing, Feature<T> feature) {
+            return new UpdateTask<>(scheme, leafs, (FeatureGrid<T>) existing, feature);
+        }
+
+        /**
+         * Waits for the given tasks to complete and returns their results. Cancels all tasks if this call has been
+         * interrupted.
+         *
+         * @param tasks the tasks to wait for.
+         * @return the results of the given tasks, mapped by the same keys.
+         * @throws InterruptedException if this call has been interrupted.
+         */
+        private Map<String, FeatureGrid<?>> join(Map<String, ? extends ForkJoinTask<? extends FeatureGrid<?>>> tasks)
+                throws InterruptedException {
+            Map<String, FeatureGrid<?>> featureset = new HashMap<>();
+            try {
+                for (Map.Entry<String, ? extends ForkJoinTask<? extends FeatureGrid<?>>> entry : tasks.entrySet())
+                    featureset.put(entry.getKey(), entry.getValue().get());
+
+            } catch (InterruptedException e) {
+                for (ForkJoinTask<?> task : tasks.values())
+                    task.cancel(true);
+                throw e;
+
+            } catch (ExecutionException e) {
+                for (ForkJoinTask<?> task : tasks.values())
+                    task.cancel(true);
+
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                else if (e.getCause() instanceof Error)
+                    throw (Error) e.getCause();
+                else
+                    throw new RuntimeException(e.getCause());
+            }
+
+            return featureset;
+        }
+
+
+        /**
+         * Calculates the axis aligned bounding boxes of the given features, projected using the given projection.
+         * Bounding boxes are stored as {@code (xmin, ymin, xmax, ymax)} tuples in the returned array. If the
+         * bounding box of a feature cannot be determined, an infinite bounding box is stored.
+         *
+         * @param features   the features for which the bounding boxes should be calculated.
+         * @param projection the projection to use.
+         * @param from       the index of the first feature (inclusive) to process.
+         * @param to         the index of the last feature (exclusive) to process.
+         * @param dst        the array to which the bounding boxes should be written.
+         */
+        private static void computeBounds(FeaturePrimitive[] features, Projection projection, int from, int to,
+                                          double[] dst) {
+            for (int i = from; i < to; i++) {
+                Coordinate[] coords = FeaturePrimitive.getCoordinates(features[i]);
+
+                double xmin = Double.NEGATIVE_INFINITY;
+                double ymin = Double.NEGATIVE_INFINITY;
+                double xmax = Double.POSITIVE_INFINITY;
+                double ymax = Double.POSITIVE_INFINITY;
+
+                if (coords != null && coords.length > 0) {
+                    xmin = ymin = Double.POSITIVE_INFINITY;
+                    xmax = ymax = Double.NEGATIVE_INFINITY;
+
+                    for (Coordinate c : coords) {
+                        Vec2d v = projection.project(c);
+
+                        if (xmin > v.x) xmin = v.x;
+                        if (xmax < v.x) xmax = v.x;
+                        if (ymin > v.y) ymin = v.y;
+                        if (ymax < v.y) ymax = v.y;
+                    }
+                }
+
+                dst[4 * i]     = xmin;
+                dst[4 * i + 1] = ymin;
+                dst[4 * i + 2] = xmax;
+                dst[4 * i + 3] = ymax;
+            }
+        }
+
+
+        /**
+         * Task to create a {@code FeatureGrid} for a single feature.
+         *
+         * @param <T> the type of the feature.
+         */
+        private class GridTask<T extends FeaturePrimitive> extends RecursiveTask<FeatureGrid<T>> {
+            private static final long serialVersionUID = -8968297650464582318L;
+
+            private final TilingScheme scheme;
+            private final Projection projection;
+            private final Rect2d bounds;
+            private final Feature<T> feature;
+            private final int gridlevel;
+
+            private TileIntersector<? super T> intersector;
+            private double[] aabbs;
+
+            GridTask(TilingScheme scheme, Rect2d bounds, Feature<T> feature, int gridlevel) {
+                this.scheme = scheme;
+                this.projection = scheme.getProjection();
+                this.bounds = bounds;
+                this.feature = feature;
+                this.gridlevel = gridlevel;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            protected FeatureGrid<T> compute() {
+                intersector = (TileIntersector<? super T>) intersectors.get(feature.getType());
+
+                T[] data = feature.getData();
+                TileId root = scheme.getTile(bounds);
+
+                // pre-compute bounding boxes
+                aabbs = new double[data.length * 4];
+                new BoundsTask(data, 0, data.length).invoke();
+
+                // create root
+                int[] all = new int[data.length];
+                for (int i = 0; i < all.length; i++)
+                    all[i] = i;
+
+                TileRect parentBounds = new TileRect(root.x, root.y, root.x, root.y, root.z);
+                Grid<int[]> parentGrid = new Grid<>(1, 1);
+                parentGrid.set(0, 0, all);
+
+                // refine level by level
+                for (int z = root.z; z < gridlevel; z++) {
+                    if (isCancelled()) return null;
+
+                    TileRect childBounds = scheme.getTiles(bounds, z + 1);
+                    int cx = (childBounds.xmax - childBounds.xmin) + 1;
+                    int cy = (childBounds.ymax - childBounds.ymin) + 1;
+                    Grid<int[]> childGrid = new Grid<>(cx, cy);
+
+                    int np = parentGrid.getSizeX() * parentGrid.getSizeY();
+                    new RefineTask(parentGrid, parentBounds, childGrid, childBounds, z, 0, np).invoke();
+
+                    parentBounds = childBounds;
+                    parentGrid   = childGrid;
+
+                    logger.debug("tiling: finished level " + (z + 1) + " for feature '" + feature.getName() + "'");
+                }
+
+                // convert to index-lists
+                Grid<List<T>> grid = new Grid<>(parentGrid.getSizeX(), parentGrid.getSizeY());
+                for (int y = 0; y < grid.getSizeY(); y++)
+                    for (int x = 0; x < grid.getSizeX(); x++)
+                        grid.set(x, y, new FeatureIndexList<>(data, parentGrid.get(x, y)));
+
+                return new FeatureGrid<>(feature.getName(), feature.getType(), grid);
+            }
+
+
+            /**
+             * Filters the given indices for intersection with the given (up to four) tiles.
+             *
+             * @param indices the indices of the features to filter.
+             * @param from    the first index (inclusive) in {@code indices} to process.
+             * @param to      the last index (exclusive) in {@code indices} to process.
+             * @param tiles   the tiles to test against, {@code null} entries are skipped.
+             * @return the filtered indices for each tile, in order of the given tiles.
+             */
+            private int[][] filter(int[] indices, int from, int to, Rect2d[] tiles) {
+                T[] data = feature.getData();
+                int[][] result = new int[tiles.length][];
+
+                for (int t = 0; t < tiles.length; t++) {
+                    Rect2d b = tiles[t];
+                    if (b == null) continue;
+
+                    int[] buffer = new int[to - from];
+                    int n = 0;
+
+                    for (int i = from; i < to; i++) {
+                        int k = indices[i];
+
+                        // cheap bounding-box pre-test
+                        if (aabbs[4 * k] > b.xmax || aabbs[4 * k + 2] < b.xmin) continue;
+                        if (aabbs[4 * k + 1] > b.ymax || aabbs[4 * k + 3] < b.ymin) continue;
+
+                        if (intersector.intersect(data[k], b, projection))
+                            buffer[n++] = k;
+                    }
+
+                    result[t] = n == 0 ? EMPTY : Arrays.copyOf(buffer, n);
+                }
+
+                return result;
+            }
+
+
+            /**
+             * Task to compute the projected bounding boxes of the features in parallel.
+             */
+            private class BoundsTask extends RecursiveAction {
+                private static final long serialVersionUID = 2948842638481237984L;
+
+                private final T[] data;
+                private final int from;
+                private final int to;
+
+                BoundsTask(T[] data, int from, int to) {
+                    this.data = data;
+                    this.from = from;
+                    this.to = to;
+                }
+
+                @Override
+                protected void compute() {
+                    if (to - from <= FEATURE_SPLIT_THRESHOLD) {
+                        computeBounds(data, projection, from, to, aabbs);
+                    } else {
+                        int mid = (from + to) >>> 1;
+                        invokeAll(new BoundsTask(data, from, mid), new BoundsTask(data, mid, to));
+                    }
+                }
+            }
+
+            /**
+             * Task to refine a range of parent tiles into their four respective child tiles.
+             */
+            private class RefineTask extends RecursiveAction {
+                private static final long serialVersionUID = -7885408891376269508L;
+
+                private final Grid<int[]> parentGrid;
+                private final TileRect parentBounds;
+                private final Grid<int[]> childGrid;
+                private final TileRect childBounds;
+                private final int z;
+                private final int from;
+                private final int to;
+
+                RefineTask(Grid<int[]> parentGrid, TileRect parentBounds, Grid<int[]> childGrid,
+                           TileRect childBounds, int z, int from, int to) {
+                    this.parentGrid = parentGrid;
+                    this.parentBounds = parentBounds;
+                    this.childGrid = childGrid;
+                    this.childBounds = childBounds;
+                    this.z = z;
+                    this.from = from;
+                    this.to = to;
+                }
+
+                @Override
+                protected void compute() {
+                    if (to - from > TILE_SPLIT_THRESHOLD) {
+                        int mid = (from + to) >>> 1;
+                        invokeAll(new RefineTask(parentGrid, parentBounds, childGrid, childBounds, z, from, mid),
+                                  new RefineTask(parentGrid, parentBounds, childGrid, childBounds, z, mid, to));
+                        return;
+                    }
+
+                    int px = parentGrid.getSizeX();
+                    for (int i = from; i < to; i++) {
+                        if (GridTask.this.isCancelled()) return;
+                        refine(i % px, i / px);
+                    }
+                }
+
+                private void refine(int x, int y) {
+                    TileRect c = scheme.getTiles(x + parentBounds.xmin, y + parentBounds.ymin, z, z + 1);
+
+                    // child tiles: top left, top right, bottom left, bottom right
+                    int[] tx = { c.xmin, c.xmax, c.xmin, c.xmax };
+                    int[] ty = { c.ymin, c.ymin, c.ymax, c.ymax };
+
+                    Rect2d[] tiles = new Rect2d[4];
+                    for (int t = 0; t < 4; t++) {
+                        if (tx[t] >= childBounds.xmin && tx[t] <= childBounds.xmax
+                                && ty[t] >= childBounds.ymin && ty[t] <= childBounds.ymax) {
+                            tiles[t] = scheme.getBounds(tx[t], ty[t], z + 1);
                         }
+                    }
+
+                    int[] parent = parentGrid.get(x, y);
+                    int[][] result;
+                    if (parent.length > FEATURE_SPLIT_THRESHOLD)
+                        result = new FilterTask(parent, 0, parent.length, tiles).invoke();
+                    else
+                        result = filter(parent, 0, parent.length, tiles);
+
+                    for (int t = 0; t < 4; t++) {
+                        if (tiles[t] != null)
+                            childGrid.set(tx[t] - childBounds.xmin, ty[t] - childBounds.ymin, result[t]);
+                    }
+                }
+            }
+
+            /**
+             * Task to filter the features of a single (large) parent tile in parallel. The order of the features is
+             * preserved.
+             */
+            private class FilterTask extends RecursiveTask<int[][]> {
+                private static final long serialVersionUID = -255020267824480491L;
+
+                private final int[] indices;
+                private final int from;
+                private final int to;
+                private final Rect2d[] tiles;
+
+                FilterTask(int[] indices, int from, int to, Rect2d[] tiles) {
+                    this.indices = indices;
+                    this.from = from;
+                    this.to = to;
+                    this.tiles = tiles;
+                }
+
+                @Override
+                protected int[][] compute() {
+                    if (to - from <= FEATURE_SPLIT_THRESHOLD)
+                        return filter(indices, from, to, tiles);
+
+                    int mid = (from + to) >>> 1;
+                    FilterTask left = new FilterTask(indices, from, mid, tiles);
+                    left.fork();
+                    int[][] r = new FilterTask(indices, mid, to, tiles).compute();
+                    int[][] l = left.join();
+
+                    int[][] result = new int[tiles.length][];
+                    for (int t = 0; t < tiles.length; t++) {
+                        if (tiles[t] == null) continue;
+
+                        result[t] = new int[l[t].length + r[t].length];
+                        System.arraycopy(l[t], 0, result[t], 0, l[t].length);
+                        System.arraycopy(r[t], 0, result[t], l[t].length, r[t].length);
+                    }
+
+                    return result;
+                }
+            }
+        }
 
-                        // top right
-                        if (c.xmax <= childBounds.xmax && c.ymin >= childBounds.ymin) {
-                            Rect2d b = scheme.getBounds(c.xmax, c.ymin, z + 1);
 
-                            ArrayList<T> data = new ArrayList();
-                            childGrid.set(c.xmax - childBounds.xmin, c.ymin - childBounds.ymin, data);
+        /**
+         * Task to incrementally update a {@code FeatureGrid} of a single feature.
+         *
+         * @param <T> the type of the feature.
+         */
+        private class UpdateTask<T extends FeaturePrimitive> extends RecursiveTask<FeatureGrid<T>> {
+            private static final long serialVersionUID = -5268777122080282111L;
+
+            private final TilingScheme scheme;
+            private final Projection projection;
+            private final TileRect leafs;
+            private final FeatureGrid<T> existing;
+            private final Feature<T> feature;
+
+            private TileIntersector<? super T> intersector;
+            private T[] data;
+            private double[] aabbs;
+
+            UpdateTask(TilingScheme scheme, TileRect leafs, FeatureGrid<T> existing, Feature<T> feature) {
+                this.scheme = scheme;
+                this.projection = scheme.getProjection();
+                this.leafs = leafs;
+                this.existing = existing;
+                this.feature = feature;
+            }
 
-                            for (T t : parentGrid.get(x, y))
-                                if (intersector.intersect(t, b, scheme.getProjection()))
-                                    data.add(t);
+            @Override
+            @SuppressWarnings("unchecked")
+            protected FeatureGrid<T> compute() {
+                intersector = (TileIntersector<? super T>) intersectors.get(feature.getType());
+                Grid<? extends List<T>> grid = existing.getData();
+
+                // collect existing features by their geometry
+                HashMap<Signature, ArrayDeque<T>> previous = new HashMap<>();
+                Set<T> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (int y = 0; y < grid.getSizeY(); y++) {
+                    for (int x = 0; x < grid.getSizeX(); x++) {
+                        for (T t : grid.get(x, y)) {
+                            if (seen.add(t))
+                                previous.computeIfAbsent(new Signature(t), k -> new ArrayDeque<>()).add(t);
                         }
+                    }
+                }
 
-                        // bottom left
-                        if (c.xmin >= childBounds.xmin && c.ymax <= childBounds.ymax) {
-                            Rect2d b = scheme.getBounds(c.xmin, c.ymax, z + 1);
+                // match updated features, replace them with existing ones if possible
+                data = Arrays.copyOf(feature.getData(), feature.getData().length);
+                ArrayList<T> changed = new ArrayList<>();
+                for (int i = 0; i < data.length; i++) {
+                    ArrayDeque<T> matches = previous.get(new Signature(data[i]));
 
-                            ArrayList<T> data = new ArrayList();
-                            childGrid.set(c.xmin - childBounds.xmin, c.ymax - childBounds.ymin, data);
+                    if (matches != null && !matches.isEmpty())
+                        data[i] = matches.poll();
+                    else
+                        changed.add(data[i]);
+                }
 
-                            for (T t : parentGrid.get(x, y))
-                                if (intersector.intersect(t, b, scheme.getProjection()))
-                                    data.add(t);
+                for (ArrayDeque<T> removed : previous.values())
+                    changed.addAll(removed);
+
+                if (isCancelled()) return null;
+
+                // get tiles affected by the changed features
+                FeaturePrimitive[] dirty = changed.toArray(new FeaturePrimitive[changed.size()]);
+                double[] dirtyBounds = new double[dirty.length * 4];
+                computeBounds(dirty, projection, 0, dirty.length, dirtyBounds);
+
+                ArrayList<Vec2i> tiles = new ArrayList<>();
+                boolean[] marked = new boolean[grid.getSizeX() * grid.getSizeY()];
+                for (int i = 0; i < dirty.length; i++) {
+                    Rect2d b = new Rect2d(dirtyBounds[4 * i], dirtyBounds[4 * i + 1],
+                                          dirtyBounds[4 * i + 2], dirtyBounds[4 * i + 3]);
+
+                    TileRect r;
+                    if (Double.isInfinite(b.xmin) || Double.isInfinite(b.ymin)
+                            || Double.isInfinite(b.xmax) || Double.isInfinite(b.ymax))
+                        r = leafs;
+                    else
+                        r = scheme.getTiles(b, leafs.zoom);
+
+                    for (int y = Math.max(r.ymin, leafs.ymin); y <= Math.min(r.ymax, leafs.ymax); y++) {
+                        for (int x = Math.max(r.xmin, leafs.xmin); x <= Math.min(r.xmax, leafs.xmax); x++) {
+                            int k = (y - leafs.ymin) * grid.getSizeX() + (x - leafs.xmin);
+                            if (!marked[k]) {
+                                marked[k] = true;
+                                tiles.add(new Vec2i(x - leafs.xmin, y - leafs.ymin));
+                            }
                         }
+                    }
+                }
+
+                // remap unaffected tiles onto the new feature array (they do not contain any changed feature)
+                IdentityHashMap<T, Integer> indices = new IdentityHashMap<>(data.length);
+                for (int i = 0; i < data.length; i++)
+                    indices.put(data[i], i);
 
-                        // bottom right
-                        if (c.xmax <= childBounds.xmax && c.ymax <= childBounds.ymax) {
-                            Rect2d b = scheme.getBounds(c.xmax, c.ymax, z + 1);
+                Grid<List<T>> result = new Grid<>(grid.getSizeX(), grid.getSizeY());
+                for (int y = 0; y < grid.getSizeY(); y++) {
+                    for (int x = 0; x < grid.getSizeX(); x++) {
+                        if (marked[y * grid.getSizeX() + x]) continue;
 
-                            ArrayList<T> data = new ArrayList();
-                            childGrid.set(c.xmax - childBounds.xmin, c.ymax - childBounds.ymin, data);
+                        List<T> tile = grid.get(x, y);
+                        int[] remapped = tile.isEmpty() ? EMPTY : new int[tile.size()];
+                        for (int i = 0; i < remapped.length; i++)
+                            remapped[i] = indices.get(tile.get(i));
 
-                            for (T t : parentGrid.get(x, y))
-                                if (intersector.intersect(t, b, scheme.getProjection()))
-                                    data.add(t);
+                        Arrays.sort(remapped);      // keep the order of the feature array, as in GridTask
+                        result.set(x, y, new FeatureIndexList<>(data, remapped));
+                    }
+                }
+
+                // re-tile affected tiles
+                if (!tiles.isEmpty()) {
+                    aabbs = new double[data.length * 4];
+                    computeBounds(data, projection, 0, data.length, aabbs);
+                    new RetileTask(tiles, result, 0, tiles.size()).invoke();
+                }
+
+                logger.debug("tiling: updated " + tiles.size() + " tiles for feature '" + feature.getName() + "'");
+                return new FeatureGrid<>(feature.getName(), feature.getType(), result);
+            }
+
+
+            /**
+             * Task to re-tile a range of leaf tiles from scratch.
+             */
+            private class RetileTask extends RecursiveAction {
+                private static final long serialVersionUID = 1657726171790721952L;
+
+                private final List<Vec2i> tiles;
+                private final Grid<List<T>> result;
+                private final int from;
+                private final int to;
+
+                RetileTask(List<Vec2i> tiles, Grid<List<T>> result, int from, int to) {
+                    this.tiles = tiles;
+                    this.result = result;
+                    this.from = from;
+                    this.to = to;
+                }
+
+                @Override
+                protected void compute() {
+                    if (to - from > 1) {
+                        int mid = (from + to) >>> 1;
+                        invokeAll(new RetileTask(tiles, result, from, mid), new RetileTask(tiles, result, mid, to));
+                        return;
+                    }
+
+                    for (int i = from; i < to; i++) {
+                        if (UpdateTask.this.isCancelled()) return;
+
+                        Vec2i tile = tiles.get(i);
+                        Rect2d b = scheme.getBounds(tile.x + leafs.xmin, tile.y + leafs.ymin, leafs.zoom);
+
+                        int[] buffer = new int[data.length];
+                        int n = 0;
+
+                        for (int k = 0; k < data.length; k++) {
+                            if (aabbs[4 * k] > b.xmax || aabbs[4 * k + 2] < b.xmin) continue;
+                            if (aabbs[4 * k + 1] > b.ymax || aabbs[4 * k + 3] < b.ymin) continue;
+
+                            if (intersector.intersect(data[k], b, projection))
+                                buffer[n++] = k;
                         }
+
+                        result.set(tile.x, tile.y, new FeatureIndexList<>(data, n == 0 ? EMPTY
+                                : Arrays.copyOf(buffer, n)));
                     }
                 }
+            }
+        }
+
+        /**
+         * Geometric signature of a feature, used to match features of an updated segment against existing ones.
+         * Streets are additionally matched by their lanes and their (logic) edges.
+         */
+        private static class Signature {
+            private final FeaturePrimitive feature;
+            private final Coordinate[] coordinates;
+            private final int hash;
+
+            Signature(FeaturePrimitive feature) {
+                this.feature = feature;
+                this.coordinates = FeaturePrimitive.getCoordinates(feature);
+                this.hash = coordinates != null ? Arrays.hashCode(coordinates) : System.identityHashCode(feature);
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                if (!(obj instanceof Signature))
+                    return false;
+
+                Signature other = (Signature) obj;
+                if (coordinates == null || other.coordinates == null)
+                    return feature == other.feature;
+
+                if (feature.getClass() != other.feature.getClass() || !Arrays.equals(coordinates, other.coordinates))
+                    return false;
 
-                px           = cx;
-                py           = cy;
-                parentBounds = childBounds;
-                parentGrid   = childGrid;
+                if (feature instanceof Street) {
+                    Street a = (Street) feature;
+                    Street b = (Street) other.feature;
 
-                logger.debug("tiling: finished level " + (z + 1) + " for feature '" + feature.getName() + "'");
+                    if (a.layer != b.layer || a.numLanesFwd != b.numLanesFwd || a.numLanesBwd != b.numLanesBwd)
+                        return false;
+
+                    if (a.getEntity() == null || b.getEntity() == null)
+                        return a.getEntity() == b.getEntity();
+
+                    return a.getEntity().getForwardEdge() == b.getEntity().getForwardEdge()
+                            && a.getEntity().getBackwardEdge() == b.getEntity().getBackwardEdge();
+                }
+
+                return true;
             }
 
-            return new FeatureGrid<>(feature.getName(), feature.getType(), parentGrid);
+            @Override
+            public int hashCode() {
+                return hash;
+            }
         }
     }
 }
@@ -9,6 +9,7 @@ import microtrafficsim.core.parser.features.MapFeatureDefinition;
 import microtrafficsim.core.parser.features.streetgraph.StreetGraphFeatureDefinition;
 import microtrafficsim.core.parser.processing.OSMProcessor;
 import microtrafficsim.osm.parser.Parser;
+import microtrafficsim.osm.parser.base.ChangeSet;
 import microtrafficsim.osm.parser.base.DataSet;
 import microtrafficsim.osm.parser.ecs.Component;
 import microtrafficsim.osm.parser.ecs.ComponentFactory;
@@ -124,7 +125,24 @@ public class OSMParser {
      * @throws Exception            if any other exception occurred during processing.
      */
     public Result parse(File file, MapProperties properties) throws Exception {
-        parser.parse(file);
+        return parse(file, null, properties);
+    }
+
+    /**
+     * Execute this parser on the given file patched with the given OpenStreetMap changes and return the parsed
+     * result. The given file itself is not modified.
+     *
+     * @param file    the file to parse.
+     * @param changes the changes to apply to the given file, may be {@code null}.
+     * @return the result parsed from the given file with the given changes applied.
+     * @throws XMLStreamException   for mal-formed XML documents.
+     * @throws IOException          if the file cannot be read.
+     * @throws InterruptedException if the parsing thread has been interrupted.
+     * @throws Exception            if any other exception occurred during processing.
+     * @see microtrafficsim.core.logic.streetgraph.StreetGraphUpdater
+     */
+    public Result parse(File file, ChangeSet changes, MapProperties properties) throws Exception {
+        parser.parse(file, changes);
 
         // get feature set
         HashMap<String, Feature<?>> featureset = new HashMap<>();
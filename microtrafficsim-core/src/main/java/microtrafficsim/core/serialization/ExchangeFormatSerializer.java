@@ -5,7 +5,10 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import microtrafficsim.core.exfmt.Container;
+import microtrafficsim.core.exfmt.base.GeometryEntitySet;
+import microtrafficsim.core.exfmt.base.StreetGraphStream;
 import microtrafficsim.core.exfmt.base.TileGridInfo;
+import microtrafficsim.core.exfmt.ecs.Entity;
 import microtrafficsim.core.exfmt.ecs.components.*;
 import microtrafficsim.core.exfmt.ecs.entities.LineEntity;
 import microtrafficsim.core.exfmt.ecs.entities.PointEntity;
@@ -17,6 +20,7 @@ import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
 import microtrafficsim.core.map.tiles.TileRect;
 import microtrafficsim.core.serialization.kryo.impl.*;
 import microtrafficsim.core.serialization.kryo.impl.exfmt.FeatureDescriptorSerializer;
+import microtrafficsim.core.serialization.kryo.impl.exfmt.StreetGraphStreamSerializer;
 import microtrafficsim.core.serialization.kryo.impl.exfmt.TileGridSetSerializer;
 import microtrafficsim.core.serialization.kryo.impl.exfmt.components.*;
 import microtrafficsim.core.serialization.kryo.impl.exfmt.entities.LineEntitySerializer;
@@ -30,36 +34,153 @@ import microtrafficsim.utils.Version;
 import microtrafficsim.utils.collections.Grid;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 
 /**
+ * Serializer for the exchange-format {@code Container}.
+ * <p>
+ * Containers can be written either as a single plain Kryo stream or in chunked mode (see {@link #setChunked(boolean)}).
+ * In chunked mode, the geometry entities and the nodes, edges and connectors of the {@code StreetGraphStream} of the
+ * container are split into batches, each batch is serialized and compressed independently (using the
+ * {@code Deflater} of the JDK) on a worker pool with a separate {@code Kryo} instance per thread. The remaining
+ * container (without the entities and graph records) is stored as separate chunk. Reading detects the mode of a
+ * stream automatically, i.e. plain streams written by previous versions can still be read.
+ * </p>
+ *
  * @author Maximilian Luz
  */
 public class ExchangeFormatSerializer {
     public static final Version VERSION = new Version(0, 1, 0);
 
+    /** Magic number identifying chunked streams, written in big-endian order ("MTSZ"). */
+    private static final int CHUNKED_MAGIC = 0x4D54535A;
+    private static final int CHUNKED_VERSION = 2;
+
+    /** Default number of entities per chunk. */
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private static final byte CHUNK_CONTAINER = 0;
+    private static final byte CHUNK_POINTS    = 1;
+    private static final byte CHUNK_LINES     = 2;
+    private static final byte CHUNK_POLYGONS  = 3;
+    private static final byte CHUNK_GRAPH     = 4;
+
     private final Kryo kryo;
+    private final ThreadLocal<Kryo> workers;
+
+    private boolean chunked;
+    private int chunksize;
+    private int level;
+    private ExecutorService executor;
 
 
     public static ExchangeFormatSerializer create() {
-        return new ExchangeFormatSerializer(createKryo());
+        return new ExchangeFormatSerializer(createKryo(), ExchangeFormatSerializer::createKryo);
     }
 
+    /**
+     * Creates a new serializer using only the given {@code Kryo} instance. Chunks are thus encoded and decoded
+     * sequentially on the calling thread.
+     *
+     * @param kryo the {@code Kryo} instance to use.
+     */
     public ExchangeFormatSerializer(Kryo kryo) {
+        this(kryo, null);
+    }
+
+    /**
+     * Creates a new serializer.
+     *
+     * @param kryo    the {@code Kryo} instance used on the calling thread.
+     * @param factory the factory used to create the {@code Kryo} instances of the worker threads, or {@code null} if
+     *                chunks should be processed sequentially on the calling thread.
+     */
+    public ExchangeFormatSerializer(Kryo kryo, Supplier<Kryo> factory) {
         this.kryo = kryo;
+        this.workers = factory != null ? ThreadLocal.withInitial(factory) : null;
+
+        this.chunked = false;
+        this.chunksize = DEFAULT_CHUNK_SIZE;
+        this.level = Deflater.DEFAULT_COMPRESSION;
+        this.executor = ForkJoinPool.commonPool();
+    }
+
+
+    /**
+     * Sets whether containers should be written in chunked and compressed mode.
+     *
+     * @param chunked {@code true} if containers should be written in chunked mode.
+     */
+    public void setChunked(boolean chunked) {
+        this.chunked = chunked;
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    /**
+     * Sets the number of entities written per chunk.
+     *
+     * @param chunksize the number of entities per chunk.
+     */
+    public void setChunkSize(int chunksize) {
+        if (chunksize <= 0)
+            throw new IllegalArgumentException("Chunk size must be positive");
+
+        this.chunksize = chunksize;
+    }
+
+    public int getChunkSize() {
+        return chunksize;
+    }
+
+    /**
+     * Sets the compression level used for chunks, see {@link Deflater#setLevel(int)}.
+     *
+     * @param level the compression level.
+     */
+    public void setCompressionLevel(int level) {
+        this.level = level;
+    }
+
+    public int getCompressionLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the executor used to encode and decode chunks.
+     *
+     * @param executor the executor to use.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
     }
 
 
     public void write(File file, Container container) throws IOException {
-        try (OutputStream os = new FileOutputStream(file)) {
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
             write(os, container);
         }
     }
 
     public void write(OutputStream os, Container container) throws IOException {
-        Output out = new Output(os);
-        kryo.writeClassAndObject(out, container);
-        out.flush();
+        if (chunked) {
+            writeChunked(os, container);
+        } else {
+            Output out = new Output(os);
+            kryo.writeClassAndObject(out, container);
+            out.flush();
+        }
     }
 
 
@@ -70,10 +191,231 @@ public class ExchangeFormatSerializer {
     }
 
     public Container read(InputStream is) throws IOException {
+        if (!is.markSupported())
+            is = new BufferedInputStream(is);
+
+        is.mark(4);
+        DataInputStream in = new DataInputStream(is);
+        int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            magic = 0;
+        }
+
+        if (magic == CHUNKED_MAGIC)
+            return readChunked(in);
+
+        is.reset();
         return (Container) kryo.readClassAndObject(new Input(is));
     }
 
 
+    private void writeChunked(OutputStream os, Container container) throws IOException {
+        // split off the entities, keep the remaining container as first chunk
+        Container skeleton = new Container();
+        skeleton.getAll().putAll(container.getAll());
+
+        GeometryEntitySet ecs = container.get(GeometryEntitySet.class);
+        if (ecs != null)
+            skeleton.set(new GeometryEntitySet(ecs.getBounds()));
+
+        StreetGraphStream graph = container.get(StreetGraphStream.class);
+        if (graph != null)
+            skeleton.set(new StreetGraphStream(graph.getBounds()));
+
+        ArrayList<Callable<byte[]>> tasks = new ArrayList<>();
+        tasks.add(encoder(CHUNK_CONTAINER, skeleton));
+
+        if (ecs != null) {
+            addEncoders(tasks, CHUNK_POINTS, ecs.getPoints().values());
+            addEncoders(tasks, CHUNK_LINES, ecs.getLines().values());
+            addEncoders(tasks, CHUNK_POLYGONS, ecs.getPolygons().values());
+        }
+
+        if (graph != null) {
+            for (StreetGraphStream part : graph.split(chunksize))
+                tasks.add(encoder(CHUNK_GRAPH, part));
+        }
+
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(CHUNKED_MAGIC);
+        out.writeInt(CHUNKED_VERSION);
+        out.writeInt(tasks.size());
+
+        for (byte[] chunk : execute(tasks)) {
+            out.writeInt(chunk.length);
+            out.write(chunk);
+        }
+        out.flush();
+    }
+
+    private void addEncoders(List<Callable<byte[]>> tasks, byte type, Collection<? extends Entity> entities) {
+        ArrayList<Entity> batch = new ArrayList<>(Math.min(chunksize, entities.size()));
+        for (Entity entity : entities) {
+            batch.add(entity);
+
+            if (batch.size() == chunksize) {
+                tasks.add(encoder(type, batch));
+                batch = new ArrayList<>(chunksize);
+            }
+        }
+
+        if (!batch.isEmpty())
+            tasks.add(encoder(type, batch));
+    }
+
+    private Callable<byte[]> encoder(byte type, Object payload) {
+        return () -> {
+            Kryo kryo = getWorkerKryo();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(level);
+
+            try (DeflaterOutputStream dos = new DeflaterOutputStream(buffer, deflater)) {
+                Output out = new Output(dos);
+                out.writeByte(type);
+                kryo.writeClassAndObject(out, payload);
+                out.flush();
+            } finally {
+                deflater.end();
+            }
+
+            return buffer.toByteArray();
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private Container readChunked(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version < 1 || version > CHUNKED_VERSION)
+            throw new IOException("Unsupported chunked exchange-format version: " + version);
+
+        int count = in.readInt();
+        ArrayList<Callable<Object[]>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] chunk = new byte[in.readInt()];
+            in.readFully(chunk);
+            tasks.add(decoder(chunk));
+        }
+
+        Container container = null;
+        ArrayList<Object[]> entities = new ArrayList<>();
+        for (Object[] chunk : execute(tasks)) {
+            if ((Byte) chunk[0] == CHUNK_CONTAINER)
+                container = (Container) chunk[1];
+            else
+                entities.add(chunk);
+        }
+
+        if (container == null)
+            throw new IOException("Missing container chunk");
+
+        if (!entities.isEmpty()) {
+            GeometryEntitySet ecs = container.get(GeometryEntitySet.class, GeometryEntitySet::new);
+            StreetGraphStream graph = container.get(StreetGraphStream.class);
+
+            for (Object[] chunk : entities) {
+                switch ((Byte) chunk[0]) {
+                case CHUNK_POINTS:
+                    for (PointEntity e : (List<PointEntity>) chunk[1])
+                        ecs.getPoints().put(e.getId(), e);
+                    break;
+
+                case CHUNK_LINES:
+                    for (LineEntity e : (List<LineEntity>) chunk[1])
+                        ecs.getLines().put(e.getId(), e);
+                    break;
+
+                case CHUNK_POLYGONS:
+                    for (PolygonEntity e : (List<PolygonEntity>) chunk[1])
+                        ecs.getPolygons().put(e.getId(), e);
+                    break;
+
+                case CHUNK_GRAPH:
+                    if (graph == null)
+                        throw new IOException("Missing street-graph stream for graph chunk");
+
+                    graph.append((StreetGraphStream) chunk[1]);
+                    break;
+
+                default:
+                    throw new IOException("Invalid chunk type: " + chunk[0]);
+                }
+            }
+        }
+
+        return container;
+    }
+
+    private Callable<Object[]> decoder(byte[] chunk) {
+        return () -> {
+            Kryo kryo = getWorkerKryo();
+            Inflater inflater = new Inflater();
+
+            try (InflaterInputStream iis = new InflaterInputStream(new ByteArrayInputStream(chunk), inflater)) {
+                Input in = new Input(iis);
+                byte type = in.readByte();
+                return new Object[] { type, kryo.readClassAndObject(in) };
+            } finally {
+                inflater.end();
+            }
+        };
+    }
+
+    private Kryo getWorkerKryo() {
+        return workers != null ? workers.get() : kryo;
+    }
+
+    /**
+     * Executes the given tasks and returns their results in order. Tasks are executed on the executor of this
+     * serializer if per-thread {@code Kryo} instances are available, otherwise on the calling thread.
+     */
+    private <T> List<T> execute(List<Callable<T>> tasks) throws IOException {
+        ArrayList<T> results = new ArrayList<>(tasks.size());
+
+        if (workers == null || tasks.size() <= 1) {
+            try {
+                for (Callable<T> task : tasks)
+                    results.add(task.call());
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            return results;
+        }
+
+        ArrayList<Future<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> task : tasks)
+                futures.add(executor.submit(task));
+
+            for (Future<T> future : futures)
+                results.add(future.get());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing chunks");
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            else if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            else if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            else
+                throw new IOException(e.getCause());
+
+        } finally {
+            for (Future<T> future : futures)
+                future.cancel(true);
+        }
+
+        return results;
+    }
+
+
     private static Kryo createKryo() {
         Kryo kryo = new Kryo();
 
@@ -123,6 +465,8 @@ public class ExchangeFormatSerializer {
 
         kryo.register(TypedPolygonArea.class, new TypedPolygonAreaSerializer());
 
+        kryo.register(StreetGraphStream.class, new StreetGraphStreamSerializer());
+
         return kryo;
     }
 }
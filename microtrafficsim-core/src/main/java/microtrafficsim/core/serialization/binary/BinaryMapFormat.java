@@ -0,0 +1,153 @@
+package microtrafficsim.core.serialization.binary;
+
+import microtrafficsim.core.map.FeaturePrimitive;
+import microtrafficsim.core.map.features.MultiLine;
+import microtrafficsim.core.map.features.Point;
+import microtrafficsim.core.map.features.Polygon;
+import microtrafficsim.core.map.features.Street;
+import microtrafficsim.utils.Version;
+
+import java.nio.ByteOrder;
+
+
+/**
+ * Constants and layout-helpers of the random-access binary map format.
+ * <p>
+ * A binary map file starts with a header page, consisting of a magic number, the format version, the page size, and
+ * a section table. Each entry of the section table contains the id of the section as well as its offset and length
+ * in bytes. All sections start at a page-aligned offset and can thus be mapped independently via
+ * {@link java.nio.channels.FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long) FileChannel.map}.
+ * All values are stored in little-endian byte order.
+ * </p><p>
+ * Sections are organized as columns (structure of arrays) to allow direct access via typed buffer views. Each column
+ * starts at an offset aligned to eight bytes, relative to the beginning of its section. The following sections are
+ * defined:
+ * </p>
+ * <ul>
+ * <li>{@link #SECTION_META}: bounds, map-properties, and tiling-scheme.</li>
+ * <li>{@link #SECTION_NODES}: node ids and coordinates as well as the CSR offsets into the edge and connector
+ * sections.</li>
+ * <li>{@link #SECTION_EDGES}: directed edges, sorted by their origin node.</li>
+ * <li>{@link #SECTION_CONNECTORS}: lane connectors, sorted by the node they belong to.</li>
+ * <li>{@link #SECTION_PRIMITIVES}: the shared pool of all feature primitives.</li>
+ * <li>{@link #SECTION_FEATURES}: the feature table, referencing one {@link #SECTION_TILES} section per feature.</li>
+ * <li>{@link #SECTION_TILES}: the leaf tiles of a single feature, stored as CSR lists into the primitive pool.</li>
+ * </ul>
+ *
+ * @author agent
+ */
+public final class BinaryMapFormat {
+    private BinaryMapFormat() {}
+
+    public static final Version VERSION = new Version(1, 0, 0);
+
+    public static final int       MAGIC      = 0x424D544D;      // "MTMB" in little-endian
+    public static final int       PAGE_SIZE  = 4096;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /** Size of the fixed part of the header in bytes. */
+    public static final int HEADER_SIZE = 24;
+    /** Size of a single section-table entry in bytes. */
+    public static final int SECTION_ENTRY_SIZE = 24;
+
+    public static final int SECTION_META       = 1;
+    public static final int SECTION_NODES      = 2;
+    public static final int SECTION_EDGES      = 3;
+    public static final int SECTION_CONNECTORS = 4;
+    public static final int SECTION_PRIMITIVES = 5;
+    public static final int SECTION_FEATURES   = 6;
+    public static final int SECTION_TILES      = 7;
+
+    public static final byte PRIMITIVE_POINT     = 0;
+    public static final byte PRIMITIVE_MULTILINE = 1;
+    public static final byte PRIMITIVE_POLYGON   = 2;
+    public static final byte PRIMITIVE_STREET    = 3;
+
+    public static final byte PROJECTION_MERCATOR     = 0;
+    public static final byte PROJECTION_PLATECARREE  = 1;
+
+
+    /**
+     * Returns the primitive-type id for the given feature type.
+     *
+     * @param type the type of the feature.
+     * @return the primitive-type id for the given type.
+     * @throws IllegalArgumentException if the given type is not supported by this format.
+     */
+    public static byte getPrimitiveType(Class<? extends FeaturePrimitive> type) {
+        if (type == Street.class)    return PRIMITIVE_STREET;
+        if (type == MultiLine.class) return PRIMITIVE_MULTILINE;
+        if (type == Polygon.class)   return PRIMITIVE_POLYGON;
+        if (type == Point.class)     return PRIMITIVE_POINT;
+
+        throw new IllegalArgumentException("Unsupported feature type: " + type.getName());
+    }
+
+    /**
+     * Returns the feature type for the given primitive-type id.
+     *
+     * @param type the primitive-type id.
+     * @return the feature type for the given id.
+     * @throws IllegalArgumentException if the given id is not valid.
+     */
+    public static Class<? extends FeaturePrimitive> getFeatureType(byte type) {
+        switch (type) {
+        case PRIMITIVE_POINT:     return Point.class;
+        case PRIMITIVE_MULTILINE: return MultiLine.class;
+        case PRIMITIVE_POLYGON:   return Polygon.class;
+        case PRIMITIVE_STREET:    return Street.class;
+        default:
+            throw new IllegalArgumentException("Invalid primitive type: " + type);
+        }
+    }
+
+
+    /**
+     * Aligns the given value to the next multiple of eight.
+     *
+     * @param value the value to align.
+     * @return the smallest multiple of eight greater than or equal to the given value.
+     */
+    public static int align8(int value) {
+        return (value + 7) & ~7;
+    }
+
+    /**
+     * Aligns the given offset to the next page boundary.
+     *
+     * @param offset the offset to align.
+     * @return the smallest multiple of {@link #PAGE_SIZE} greater than or equal to the given offset.
+     */
+    public static long alignPage(long offset) {
+        return (offset + PAGE_SIZE - 1) & ~((long) PAGE_SIZE - 1);
+    }
+
+
+    /**
+     * Cursor used to compute the (eight-byte aligned) column offsets inside a section.
+     */
+    static class Layout {
+        private int position;
+
+        Layout(int position) {
+            this.position = align8(position);
+        }
+
+        /**
+         * Returns the offset of the next column and advances this cursor by the given column size.
+         *
+         * @param count    the number of elements in the column.
+         * @param elemsize the size of a single element in bytes.
+         * @return the offset of the column.
+         */
+        int column(int count, int elemsize) {
+            int offset = position;
+            position = align8(position + count * elemsize);
+            return offset;
+        }
+
+        int position() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package microtrafficsim.core.serialization.binary;
+
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.logic.streets.information.Orientation;
+import microtrafficsim.core.map.Bounds;
+import microtrafficsim.core.map.Coordinate;
+import microtrafficsim.core.map.FeaturePrimitive;
+import microtrafficsim.core.map.features.Street;
+import microtrafficsim.core.map.tiles.FeatureGrid;
+import microtrafficsim.core.map.tiles.QuadTreeTiledMapSegment;
+import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.vis.map.projections.MercatorProjection;
+import microtrafficsim.core.vis.map.projections.PlateCarreeProjection;
+import microtrafficsim.core.vis.map.projections.Projection;
+import microtrafficsim.utils.collections.Grid;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static microtrafficsim.core.serialization.binary.BinaryMapFormat.*;
+
+
+/**
+ * Writer for the random-access binary map format (see {@link BinaryMapFormat}).
+ *
+ * @author agent
+ */
+public class BinaryMapWriter {
+
+    private ArrayList<FeaturePrimitive> primitives;
+    private IdentityHashMap<FeaturePrimitive, Integer> primitiveIndices;
+
+
+    /**
+     * Writes the given street-graph and tiled map-segment to the given file.
+     *
+     * @param file    the file to write to.
+     * @param graph   the street-graph to write.
+     * @param segment the tiled map-segment to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(File file, Graph graph, QuadTreeTiledMapSegment segment) throws IOException {
+        primitives = new ArrayList<>();
+        primitiveIndices = new IdentityHashMap<>();
+
+        ArrayList<Node> nodes = new ArrayList<>(graph.getNodes());
+        IdentityHashMap<Node, Integer> nodeIndices = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.size(); i++)
+            nodeIndices.put(nodes.get(i), i);
+
+        ArrayList<DirectedEdge> edges = new ArrayList<>();
+        for (Node node : nodes)
+            edges.addAll(node.getLeavingEdges());
+
+        IdentityHashMap<DirectedEdge, Integer> edgeIndices = new IdentityHashMap<>();
+        for (int i = 0; i < edges.size(); i++)
+            edgeIndices.put(edges.get(i), i);
+
+        // sections (features first to establish the primitive pool order)
+        ArrayList<String> names = new ArrayList<>(new TreeSet<>(segment.getFeatureSet().keySet()));
+        ArrayList<ByteBuffer> tiles = new ArrayList<>();
+        for (String name : names)
+            tiles.add(createTilesSection(segment.getFeatureSet().get(name)));
+
+        ArrayList<ByteBuffer> sections = new ArrayList<>();
+        ArrayList<Integer> ids = new ArrayList<>();
+
+        sections.add(createMetaSection(graph, segment));
+        ids.add(SECTION_META);
+        sections.add(createNodesSection(nodes));
+        ids.add(SECTION_NODES);
+        sections.add(createEdgesSection(edges, nodeIndices, edgeIndices));
+        ids.add(SECTION_EDGES);
+        sections.add(createConnectorsSection(nodes, edgeIndices));
+        ids.add(SECTION_CONNECTORS);
+        sections.add(createPrimitivesSection());
+        ids.add(SECTION_PRIMITIVES);
+        sections.add(createFeaturesSection(segment, names, sections.size() + 1));
+        ids.add(SECTION_FEATURES);
+
+        for (ByteBuffer buffer : tiles) {
+            sections.add(buffer);
+            ids.add(SECTION_TILES);
+        }
+
+        writeFile(file, ids, sections);
+
+        primitives = null;
+        primitiveIndices = null;
+    }
+
+
+    private void writeFile(File file, List<Integer> ids, List<ByteBuffer> sections) throws IOException {
+        ByteBuffer header = allocate(HEADER_SIZE + sections.size() * SECTION_ENTRY_SIZE);
+        header.putInt(MAGIC);
+        header.putShort((short) VERSION.major);
+        header.putShort((short) VERSION.minor);
+        header.putShort((short) VERSION.patch);
+        header.putShort((short) 0);
+        header.putInt(PAGE_SIZE);
+        header.putInt(sections.size());
+        header.putInt(0);
+
+        long offset = alignPage(header.capacity());
+        for (int i = 0; i < sections.size(); i++) {
+            header.putInt(ids.get(i));
+            header.putInt(0);
+            header.putLong(offset);
+            header.putLong(sections.get(i).capacity());
+
+            offset = alignPage(offset + sections.get(i).capacity());
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            header.rewind();
+            writeFully(channel, header, 0);
+
+            offset = alignPage(header.capacity());
+            for (ByteBuffer section : sections) {
+                section.rewind();
+                writeFully(channel, section, offset);
+                offset = alignPage(offset + section.capacity());
+            }
+
+            // pad the last page so that every section can be mapped in full pages
+            if (channel.size() < offset)
+                writeFully(channel, ByteBuffer.allocate(1), offset - 1);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+
+
+    private ByteBuffer createMetaSection(Graph graph, QuadTreeTiledMapSegment segment) {
+        if (!(segment.getTilingScheme() instanceof QuadTreeTilingScheme))
+            throw new IllegalArgumentException("Unsupported tiling scheme: " + segment.getTilingScheme());
+
+        QuadTreeTilingScheme scheme = (QuadTreeTilingScheme) segment.getTilingScheme();
+        Projection projection = scheme.getProjection();
+        Bounds bounds = segment.getBounds();
+        TileRect leafs = segment.getLeafTiles();
+
+        ByteBuffer buffer = allocate(112);
+        buffer.putDouble(0, bounds.minlat);
+        buffer.putDouble(8, bounds.minlon);
+        buffer.putDouble(16, bounds.maxlat);
+        buffer.putDouble(24, bounds.maxlon);
+
+        buffer.put(32, (byte) (segment.getProperties().drivingOnTheRight ? 1 : 0));
+        if (projection instanceof MercatorProjection) {
+            buffer.put(33, PROJECTION_MERCATOR);
+            buffer.putDouble(48, ((MercatorProjection) projection).getScale());
+        } else if (projection instanceof PlateCarreeProjection) {
+            buffer.put(33, PROJECTION_PLATECARREE);
+        } else {
+            throw new IllegalArgumentException("Unsupported projection: " + projection);
+        }
+        buffer.putInt(36, scheme.getMinimumZoomLevel());
+        buffer.putInt(40, scheme.getMaximumZoomLevel());
+
+        buffer.putInt(56, leafs.xmin);
+        buffer.putInt(60, leafs.ymin);
+        buffer.putInt(64, leafs.xmax);
+        buffer.putInt(68, leafs.ymax);
+        buffer.putInt(72, leafs.zoom);
+
+        Bounds gbounds = graph.getBounds();
+        buffer.putDouble(80, gbounds.minlat);
+        buffer.putDouble(88, gbounds.minlon);
+        buffer.putDouble(96, gbounds.maxlat);
+        buffer.putDouble(104, gbounds.maxlon);
+
+        return buffer;
+    }
+
+    private ByteBuffer createNodesSection(List<Node> nodes) {
+        int n = nodes.size();
+
+        Layout layout = new Layout(8);
+        int colId  = layout.column(n, 8);
+        int colLat = layout.column(n, 8);
+        int colLon = layout.column(n, 8);
+        int colEdg = layout.column(n + 1, 4);
+        int colCon = layout.column(n + 1, 4);
+
+        ByteBuffer buffer = allocate(layout.position());
+        buffer.putInt(0, n);
+
+        int edges = 0;
+        int connectors = 0;
+        for (int i = 0; i < n; i++) {
+            Node node = nodes.get(i);
+
+            buffer.putLong(colId + i * 8, node.getId());
+            buffer.putDouble(colLat + i * 8, node.getCoordinate().lat);
+            buffer.putDouble(colLon + i * 8, node.getCoordinate().lon);
+            buffer.putInt(colEdg + i * 4, edges);
+            buffer.putInt(colCon + i * 4, connectors);
+
+            edges += node.getLeavingEdges().size();
+            for (TreeMap<DirectedEdge, DirectedEdge.Lane> connected : node.getConnectors().values())
+                connectors += connected.size();
+        }
+        buffer.putInt(colEdg + n * 4, edges);
+        buffer.putInt(colCon + n * 4, connectors);
+
+        return buffer;
+    }
+
+    private ByteBuffer createEdgesSection(List<DirectedEdge> edges, Map<Node, Integer> nodes,
+                                          Map<DirectedEdge, Integer> indices) {
+        int m = edges.size();
+
+        Layout layout = new Layout(8);
+        int colId  = layout.column(m, 8);
+        int colOrg = layout.column(m, 4);
+        int colDst = layout.column(m, 4);
+        int colLen = layout.column(m, 8);
+        int colLns = layout.column(m, 4);
+        int colVel = layout.column(m, 4);
+        int colTyp = layout.column(m, 4);
+        int colOri = layout.column(m, 1);
+        int colDir = layout.column(m * 4, 8);
+        int colSib = layout.column(m, 4);
+        int colGeo = layout.column(m, 4);
+
+        ByteBuffer buffer = allocate(layout.position());
+        buffer.putInt(0, m);
+
+        for (int i = 0; i < m; i++) {
+            DirectedEdge edge = edges.get(i);
+
+            buffer.putLong(colId + i * 8, edge.getId());
+            buffer.putInt(colOrg + i * 4, nodes.get(edge.getOrigin()));
+            buffer.putInt(colDst + i * 4, nodes.get(edge.getDestination()));
+            buffer.putDouble(colLen + i * 8, edge.getLengthInMeter());
+            buffer.putInt(colLns + i * 4, edge.getNumberOfLanes());
+            buffer.putFloat(colVel + i * 4, edge.getRawMaxVelocity());
+            buffer.putInt(colTyp + i * 4, edge.getStreetType().getBits());
+            buffer.put(colOri + i, (byte) (edge.getOrientation() == Orientation.FORWARD ? 0 : 1));
+
+            buffer.putDouble(colDir + i * 32,      edge.getOriginDirection().x);
+            buffer.putDouble(colDir + i * 32 + 8,  edge.getOriginDirection().y);
+            buffer.putDouble(colDir + i * 32 + 16, edge.getDestinationDirection().x);
+            buffer.putDouble(colDir + i * 32 + 24, edge.getDestinationDirection().y);
+
+            int sibling = -1;
+            int geometry = -1;
+            if (edge.getEntity() != null) {
+                Object other = edge.getEntity().getForwardEdge() == edge
+                        ? edge.getEntity().getBackwardEdge() : edge.getEntity().getForwardEdge();
+
+                Integer index = other != null ? indices.get(other) : null;
+                sibling = index != null ? index : -1;
+
+                if (edge.getEntity().getGeometry() != null)
+                    geometry = addPrimitive(edge.getEntity().getGeometry());
+            }
+
+            buffer.putInt(colSib + i * 4, sibling);
+            buffer.putInt(colGeo + i * 4, geometry);
+        }
+
+        return buffer;
+    }
+
+    private ByteBuffer createConnectorsSection(List<Node> nodes, Map<DirectedEdge, Integer> edges) {
+        ArrayList<int[]> connectors = new ArrayList<>();
+        for (Node node : nodes) {
+            for (Map.Entry<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> entry
+                    : node.getConnectors().entrySet()) {
+                DirectedEdge.Lane from = entry.getKey();
+
+                for (DirectedEdge.Lane to : entry.getValue().values()) {
+                    connectors.add(new int[] {
+                            edges.get(from.getEdge()), from.getIndex(), edges.get(to.getEdge()), to.getIndex()
+                    });
+                }
+            }
+        }
+
+        int c = connectors.size();
+
+        Layout layout = new Layout(8);
+        int colData = layout.column(c * 4, 4);
+
+        ByteBuffer buffer = allocate(layout.position());
+        buffer.putInt(0, c);
+
+        for (int i = 0; i < c; i++)
+            for (int j = 0; j < 4; j++)
+                buffer.putInt(colData + (i * 4 + j) * 4, connectors.get(i)[j]);
+
+        return buffer;
+    }
+
+    private ByteBuffer createPrimitivesSection() {
+        int p = primitives.size();
+
+        int numCoords = 0;
+        int numDists = 0;
+        for (FeaturePrimitive primitive : primitives) {
+            numCoords += getCoordinates(primitive).length;
+            if (primitive instanceof Street)
+                numDists += ((Street) primitive).distances.length;
+        }
+
+        Layout layout = new Layout(16);
+        int colTyp = layout.column(p, 1);
+        int colId  = layout.column(p, 8);
+        int colCrd = layout.column(p + 1, 4);
+        int colDst = layout.column(p + 1, 4);
+        int colLay = layout.column(p, 8);
+        int colLen = layout.column(p, 8);
+        int colFwd = layout.column(p, 4);
+        int colBwd = layout.column(p, 4);
+        int colLat = layout.column(numCoords, 8);
+        int colLon = layout.column(numCoords, 8);
+        int colDis = layout.column(numDists, 8);
+
+        ByteBuffer buffer = allocate(layout.position());
+        buffer.putInt(0, p);
+        buffer.putInt(4, numCoords);
+        buffer.putInt(8, numDists);
+
+        int coords = 0;
+        int dists = 0;
+        for (int i = 0; i < p; i++) {
+            FeaturePrimitive primitive = primitives.get(i);
+
+            buffer.put(colTyp + i, getPrimitiveType(primitive.getClass()));
+            buffer.putLong(colId + i * 8, primitive.id);
+            buffer.putInt(colCrd + i * 4, coords);
+            buffer.putInt(colDst + i * 4, dists);
+
+            for (Coordinate c : getCoordinates(primitive)) {
+                buffer.putDouble(colLat + coords * 8, c.lat);
+                buffer.putDouble(colLon + coords * 8, c.lon);
+                coords++;
+            }
+
+            if (primitive instanceof Street) {
+                Street street = (Street) primitive;
+
+                buffer.putDouble(colLay + i * 8, street.layer);
+                buffer.putDouble(colLen + i * 8, street.length);
+                buffer.putInt(colFwd + i * 4, street.numLanesFwd);
+                buffer.putInt(colBwd + i * 4, street.numLanesBwd);
+
+                for (double d : street.distances)
+                    buffer.putDouble(colDis + (dists++) * 8, d);
+            }
+        }
+        buffer.putInt(colCrd + p * 4, coords);
+        buffer.putInt(colDst + p * 4, dists);
+
+        return buffer;
+    }
+
+    private ByteBuffer createFeaturesSection(QuadTreeTiledMapSegment segment, List<String> names, int firstTiles) {
+        ArrayList<byte[]> encoded = new ArrayList<>();
+        int size = 8;
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += 8 + bytes.length;
+        }
+
+        ByteBuffer buffer = allocate(size);
+        buffer.putInt(names.size());
+        buffer.putInt(0);
+
+        for (int i = 0; i < names.size(); i++) {
+            buffer.putInt(firstTiles + i);
+            buffer.put(getPrimitiveType(segment.getFeatureSet().get(names.get(i)).getType()));
+            buffer.put((byte) 0);
+            buffer.putShort((short) encoded.get(i).length);
+            buffer.put(encoded.get(i));
+        }
+
+        return buffer;
+    }
+
+    private ByteBuffer createTilesSection(FeatureGrid<?> feature) {
+        Grid<? extends List<? extends FeaturePrimitive>> grid = feature.getData();
+        int sx = grid.getSizeX();
+        int sy = grid.getSizeY();
+
+        // collect the primitives of this feature (in the order of their first occurrence)
+        LinkedHashSet<Integer> all = new LinkedHashSet<>();
+        int total = 0;
+        for (int y = 0; y < sy; y++) {
+            for (int x = 0; x < sx; x++) {
+                for (FeaturePrimitive primitive : grid.get(x, y))
+                    all.add(addPrimitive(primitive));
+
+                total += grid.get(x, y).size();
+            }
+        }
+
+        Layout layout = new Layout(16);
+        int colPrm = layout.column(all.size(), 4);
+        int colOff = layout.column(sx * sy + 1, 4);
+        int colIdx = layout.column(total, 4);
+
+        ByteBuffer buffer = allocate(layout.position());
+        buffer.putInt(0, sx);
+        buffer.putInt(4, sy);
+        buffer.putInt(8, all.size());
+        buffer.putInt(12, total);
+
+        int i = 0;
+        for (int index : all)
+            buffer.putInt(colPrm + (i++) * 4, index);
+
+        int offset = 0;
+        for (int y = 0; y < sy; y++) {
+            for (int x = 0; x < sx; x++) {
+                buffer.putInt(colOff + (y * sx + x) * 4, offset);
+
+                for (FeaturePrimitive primitive : grid.get(x, y))
+                    buffer.putInt(colIdx + (offset++) * 4, primitiveIndices.get(primitive));
+            }
+        }
+        buffer.putInt(colOff + sx * sy * 4, offset);
+
+        return buffer;
+    }
+
+
+    private int addPrimitive(FeaturePrimitive primitive) {
+        Integer index = primitiveIndices.get(primitive);
+        if (index == null) {
+            index = primitives.size();
+            primitives.add(primitive);
+            primitiveIndices.put(primitive, index);
+        }
+        return index;
+    }
+
+    private static Coordinate[] getCoordinates(FeaturePrimitive primitive) {
+        Coordinate[] coordinates = FeaturePrimitive.getCoordinates(primitive);
+        if (coordinates == null)
+            throw new IllegalArgumentException("Unsupported feature type: " + primitive.getClass().getName());
+        return coordinates;
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(BYTE_ORDER);
+    }
+}
@@ -0,0 +1,599 @@
+package microtrafficsim.core.serialization.binary;
+
+import microtrafficsim.core.entities.street.StreetEntity;
+import microtrafficsim.core.exfmt.extractor.streetgraph.StreetGraphExtractor;
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streetgraph.StreetGraph;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.logic.streets.information.Orientation;
+import microtrafficsim.core.map.*;
+import microtrafficsim.core.map.features.MultiLine;
+import microtrafficsim.core.map.features.Point;
+import microtrafficsim.core.map.features.Polygon;
+import microtrafficsim.core.map.features.Street;
+import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.vis.map.projections.MercatorProjection;
+import microtrafficsim.core.vis.map.projections.PlateCarreeProjection;
+import microtrafficsim.core.vis.map.projections.Projection;
+import microtrafficsim.math.Vec2d;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static microtrafficsim.core.serialization.binary.BinaryMapFormat.*;
+
+
+/**
+ * Memory-mapped view on a map stored in the random-access binary map format (see {@link BinaryMapFormat}).
+ * <p>
+ * Opening a map only reads the header and the feature table, all other sections are mapped via
+ * {@code FileChannel.map} and paged in by the operating system on access. The graph topology can be queried directly
+ * on the mapped arrays, feature primitives are decoded lazily on first access and cached afterwards. Decoded
+ * primitives are shared between the tiled segment (see {@link #getSegment()}) and street-graphs created via
+ * {@link #createStreetGraph(StreetGraphExtractor.Config)}.
+ * </p>
+ * <p>
+ * The street-graph used by a simulation is deliberately not backed by the mapped file: it is fully materialized by
+ * {@link #createStreetGraph(StreetGraphExtractor.Config)}. Every simulation step updates all nodes and moves the
+ * vehicles along object references (lane connectors, crossing indices, street entities), so a lazily decoded graph
+ * would be decoded completely by the first steps anyway, while paying for the indirection on every access.
+ * Thus memory-mapping saves the parsing and the memory of the tiled feature data, but not the memory of the graph
+ * itself (nor of the street geometry linked to its edges). Tools that only inspect the topology should use the
+ * accessors of this class (e.g. {@link #getLeavingEdgesBegin(int)}) instead, which read the mapped arrays directly.
+ * </p>
+ *
+ * @author agent
+ */
+public class MappedMap {
+
+    private final MapProperties properties;
+    private final Bounds bounds;
+    private final Bounds graphBounds;
+    private final QuadTreeTilingScheme scheme;
+    private final TileRect leafs;
+
+    private final ByteBuffer nodes;
+    private final int numNodes;
+    private final int colNodeId;
+    private final int colNodeLat;
+    private final int colNodeLon;
+    private final int colNodeEdges;
+    private final int colNodeConnectors;
+
+    private final ByteBuffer edges;
+    private final int numEdges;
+    private final int colEdgeId;
+    private final int colEdgeOrigin;
+    private final int colEdgeDestination;
+    private final int colEdgeLength;
+    private final int colEdgeLanes;
+    private final int colEdgeVelocity;
+    private final int colEdgeType;
+    private final int colEdgeOrientation;
+    private final int colEdgeDirections;
+    private final int colEdgeSibling;
+    private final int colEdgeGeometry;
+
+    private final ByteBuffer connectors;
+    private final int colConnectors;
+
+    private final ByteBuffer primitives;
+    private final int numPrimitives;
+    private final int colPrimType;
+    private final int colPrimId;
+    private final int colPrimCoords;
+    private final int colPrimDists;
+    private final int colPrimLayer;
+    private final int colPrimLength;
+    private final int colPrimLanesFwd;
+    private final int colPrimLanesBwd;
+    private final int colPrimLat;
+    private final int colPrimLon;
+    private final int colPrimDistances;
+    private final AtomicReferenceArray<FeaturePrimitive> cache;
+
+    private final LinkedHashMap<String, FeatureBlock> features;
+    private MappedTiledMapSegment segment;
+
+
+    private MappedMap(ByteBuffer meta, ByteBuffer nodes, ByteBuffer edges, ByteBuffer connectors,
+                      ByteBuffer primitives, ByteBuffer features, List<ByteBuffer> tiles) throws IOException {
+        // meta
+        this.bounds = new Bounds(meta.getDouble(0), meta.getDouble(8), meta.getDouble(16), meta.getDouble(24));
+        this.properties = new MapProperties(meta.get(32) != 0);
+
+        Projection projection;
+        switch (meta.get(33)) {
+        case PROJECTION_MERCATOR:    projection = new MercatorProjection(meta.getDouble(48)); break;
+        case PROJECTION_PLATECARREE: projection = new PlateCarreeProjection();                break;
+        default:
+            throw new IOException("Invalid projection type: " + meta.get(33));
+        }
+        this.scheme = new QuadTreeTilingScheme(projection, meta.getInt(36), meta.getInt(40));
+        this.leafs = new TileRect(meta.getInt(56), meta.getInt(60), meta.getInt(64), meta.getInt(68), meta.getInt(72));
+        this.graphBounds = new Bounds(meta.getDouble(80), meta.getDouble(88), meta.getDouble(96), meta.getDouble(104));
+
+        // nodes
+        this.nodes = nodes;
+        this.numNodes = nodes.getInt(0);
+
+        Layout layout = new Layout(8);
+        this.colNodeId         = layout.column(numNodes, 8);
+        this.colNodeLat        = layout.column(numNodes, 8);
+        this.colNodeLon        = layout.column(numNodes, 8);
+        this.colNodeEdges      = layout.column(numNodes + 1, 4);
+        this.colNodeConnectors = layout.column(numNodes + 1, 4);
+
+        // edges
+        this.edges = edges;
+        this.numEdges = edges.getInt(0);
+
+        layout = new Layout(8);
+        this.colEdgeId          = layout.column(numEdges, 8);
+        this.colEdgeOrigin      = layout.column(numEdges, 4);
+        this.colEdgeDestination = layout.column(numEdges, 4);
+        this.colEdgeLength      = layout.column(numEdges, 8);
+        this.colEdgeLanes       = layout.column(numEdges, 4);
+        this.colEdgeVelocity    = layout.column(numEdges, 4);
+        this.colEdgeType        = layout.column(numEdges, 4);
+        this.colEdgeOrientation = layout.column(numEdges, 1);
+        this.colEdgeDirections  = layout.column(numEdges * 4, 8);
+        this.colEdgeSibling     = layout.column(numEdges, 4);
+        this.colEdgeGeometry    = layout.column(numEdges, 4);
+
+        // connectors
+        this.connectors = connectors;
+        this.colConnectors = new Layout(8).column(connectors.getInt(0) * 4, 4);
+
+        // primitives
+        this.primitives = primitives;
+        this.numPrimitives = primitives.getInt(0);
+        int numCoords = primitives.getInt(4);
+        int numDists  = primitives.getInt(8);
+
+        layout = new Layout(16);
+        this.colPrimType      = layout.column(numPrimitives, 1);
+        this.colPrimId        = layout.column(numPrimitives, 8);
+        this.colPrimCoords    = layout.column(numPrimitives + 1, 4);
+        this.colPrimDists     = layout.column(numPrimitives + 1, 4);
+        this.colPrimLayer     = layout.column(numPrimitives, 8);
+        this.colPrimLength    = layout.column(numPrimitives, 8);
+        this.colPrimLanesFwd  = layout.column(numPrimitives, 4);
+        this.colPrimLanesBwd  = layout.column(numPrimitives, 4);
+        this.colPrimLat       = layout.column(numCoords, 8);
+        this.colPrimLon       = layout.column(numCoords, 8);
+        this.colPrimDistances = layout.column(numDists, 8);
+        this.cache = new AtomicReferenceArray<>(numPrimitives);
+
+        // feature table
+        this.features = new LinkedHashMap<>();
+        int count = features.getInt(0);
+        features.position(8);
+        for (int i = 0; i < count; i++) {
+            int section = features.getInt();
+            byte type = features.get();
+            features.get();
+            byte[] name = new byte[features.getShort()];
+            features.get(name);
+
+            if (section < 0 || section >= tiles.size() || tiles.get(section) == null)
+                throw new IOException("Invalid tile section for feature " + i);
+
+            String str = new String(name, StandardCharsets.UTF_8);
+            this.features.put(str, new FeatureBlock(str, getFeatureType(type), tiles.get(section)));
+        }
+    }
+
+
+    /**
+     * Opens the given file as {@code MappedMap}.
+     *
+     * @param file the file to open.
+     * @return the opened map.
+     * @throws IOException if the file cannot be read or is not a valid binary map file.
+     */
+    public static MappedMap open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+            readFully(channel, header, 0);
+
+            if (header.getInt(0) != MAGIC)
+                throw new IOException("Not a binary map file: " + file);
+
+            if (header.getShort(4) != VERSION.major)
+                throw new IOException("Unsupported binary map version: " + header.getShort(4) + "."
+                        + header.getShort(6) + "." + header.getShort(8));
+
+            int count = header.getInt(16);
+            ByteBuffer table = ByteBuffer.allocate(count * SECTION_ENTRY_SIZE).order(BYTE_ORDER);
+            readFully(channel, table, HEADER_SIZE);
+
+            HashMap<Integer, ByteBuffer> sections = new HashMap<>();
+            ArrayList<ByteBuffer> all = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int id      = table.getInt(i * SECTION_ENTRY_SIZE);
+                long offset = table.getLong(i * SECTION_ENTRY_SIZE + 8);
+                long length = table.getLong(i * SECTION_ENTRY_SIZE + 16);
+
+                if (offset + length > channel.size())
+                    throw new IOException("Section " + i + " exceeds file size");
+
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(BYTE_ORDER);
+
+                all.add(id == SECTION_TILES ? buffer : null);
+                if (id != SECTION_TILES)
+                    sections.put(id, buffer);
+            }
+
+            for (int id : new int[] { SECTION_META, SECTION_NODES, SECTION_EDGES, SECTION_CONNECTORS,
+                                      SECTION_PRIMITIVES, SECTION_FEATURES }) {
+                if (!sections.containsKey(id))
+                    throw new IOException("Missing section with id " + id);
+            }
+
+            // mapped buffers stay valid after the channel has been closed
+            return new MappedMap(
+                    sections.get(SECTION_META),
+                    sections.get(SECTION_NODES),
+                    sections.get(SECTION_EDGES),
+                    sections.get(SECTION_CONNECTORS),
+                    sections.get(SECTION_PRIMITIVES),
+                    sections.get(SECTION_FEATURES),
+                    all
+            );
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) throw new IOException("Unexpected end of file");
+            position += n;
+        }
+        buffer.flip();
+    }
+
+
+    public MapProperties getProperties() {
+        return properties;
+    }
+
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    public Bounds getGraphBounds() {
+        return graphBounds;
+    }
+
+    public QuadTreeTilingScheme getTilingScheme() {
+        return scheme;
+    }
+
+    public TileRect getLeafTiles() {
+        return leafs;
+    }
+
+
+    /*
+    |==========|
+    | topology |
+    |==========|
+    */
+    public int getNodeCount() {
+        return numNodes;
+    }
+
+    public long getNodeId(int node) {
+        return nodes.getLong(colNodeId + node * 8);
+    }
+
+    public Coordinate getNodeCoordinate(int node) {
+        return new Coordinate(nodes.getDouble(colNodeLat + node * 8), nodes.getDouble(colNodeLon + node * 8));
+    }
+
+    /**
+     * Returns the index of the first edge leaving the given node. All edges leaving a node are stored consecutively,
+     * i.e. the edges leaving node {@code i} are the edges in {@code [getLeavingEdgesBegin(i), getLeavingEdgesEnd(i))}.
+     *
+     * @param node the index of the node.
+     * @return the index of the first edge leaving the given node.
+     */
+    public int getLeavingEdgesBegin(int node) {
+        return nodes.getInt(colNodeEdges + node * 4);
+    }
+
+    /**
+     * Returns the index after the last edge leaving the given node.
+     *
+     * @param node the index of the node.
+     * @return the index after the last edge leaving the given node.
+     */
+    public int getLeavingEdgesEnd(int node) {
+        return nodes.getInt(colNodeEdges + (node + 1) * 4);
+    }
+
+    public int getEdgeCount() {
+        return numEdges;
+    }
+
+    public long getEdgeId(int edge) {
+        return edges.getLong(colEdgeId + edge * 8);
+    }
+
+    public int getEdgeOrigin(int edge) {
+        return edges.getInt(colEdgeOrigin + edge * 4);
+    }
+
+    public int getEdgeDestination(int edge) {
+        return edges.getInt(colEdgeDestination + edge * 4);
+    }
+
+    public double getEdgeLength(int edge) {
+        return edges.getDouble(colEdgeLength + edge * 8);
+    }
+
+    public int getEdgeLanes(int edge) {
+        return edges.getInt(colEdgeLanes + edge * 4);
+    }
+
+    public float getEdgeMaxVelocity(int edge) {
+        return edges.getFloat(colEdgeVelocity + edge * 4);
+    }
+
+    public StreetType getEdgeStreetType(int edge) {
+        return new StreetType(edges.getInt(colEdgeType + edge * 4));
+    }
+
+    public Orientation getEdgeOrientation(int edge) {
+        return edges.get(colEdgeOrientation + edge) == 0 ? Orientation.FORWARD : Orientation.BACKWARD;
+    }
+
+
+    /*
+    |============|
+    | primitives |
+    |============|
+    */
+    public int getPrimitiveCount() {
+        return numPrimitives;
+    }
+
+    /**
+     * Returns the primitive with the given index, decoding it if it has not been accessed before.
+     *
+     * @param index the index of the primitive.
+     * @return the primitive with the given index.
+     */
+    public FeaturePrimitive getPrimitive(int index) {
+        FeaturePrimitive primitive = cache.get(index);
+        if (primitive != null)
+            return primitive;
+
+        primitive = decode(index);
+        if (cache.compareAndSet(index, null, primitive))
+            return primitive;
+        else
+            return cache.get(index);
+    }
+
+    private FeaturePrimitive decode(int index) {
+        long id = primitives.getLong(colPrimId + index * 8);
+        int cbegin = primitives.getInt(colPrimCoords + index * 4);
+        int cend   = primitives.getInt(colPrimCoords + (index + 1) * 4);
+
+        Coordinate[] coords = new Coordinate[cend - cbegin];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = new Coordinate(primitives.getDouble(colPrimLat + (cbegin + i) * 8),
+                                       primitives.getDouble(colPrimLon + (cbegin + i) * 8));
+        }
+
+        switch (primitives.get(colPrimType + index)) {
+        case PRIMITIVE_POINT:
+            return new Point(id, coords[0]);
+
+        case PRIMITIVE_MULTILINE:
+            return new MultiLine(id, coords);
+
+        case PRIMITIVE_POLYGON:
+            return new Polygon(id, coords);
+
+        case PRIMITIVE_STREET:
+            int dbegin = primitives.getInt(colPrimDists + index * 4);
+            int dend   = primitives.getInt(colPrimDists + (index + 1) * 4);
+
+            double[] distances = new double[dend - dbegin];
+            for (int i = 0; i < distances.length; i++)
+                distances[i] = primitives.getDouble(colPrimDistances + (dbegin + i) * 8);
+
+            return new Street(id, coords,
+                    primitives.getDouble(colPrimLayer + index * 8),
+                    primitives.getDouble(colPrimLength + index * 8),
+                    distances,
+                    primitives.getInt(colPrimLanesFwd + index * 4),
+                    primitives.getInt(colPrimLanesBwd + index * 4));
+
+        default:
+            throw new IllegalStateException("Invalid primitive type: " + primitives.get(colPrimType + index));
+        }
+    }
+
+
+    /*
+    |==========|
+    | features |
+    |==========|
+    */
+    public Set<String> getFeatureNames() {
+        return Collections.unmodifiableSet(features.keySet());
+    }
+
+    /**
+     * Returns the tiled map-segment backed by this map. Tiles are read lazily from the mapped file.
+     *
+     * @return the tiled map-segment backed by this map.
+     */
+    public synchronized MappedTiledMapSegment getSegment() {
+        if (segment == null)
+            segment = new MappedTiledMapSegment(this);
+        return segment;
+    }
+
+    Map<String, FeatureBlock> getFeatureBlocks() {
+        return features;
+    }
+
+
+    /*
+    |=======|
+    | graph |
+    |=======|
+    */
+    /**
+     * Creates a new {@code StreetGraph} from the mapped topology. The {@code StreetEntity} of each edge is linked to
+     * the (shared) street geometry of this map. All nodes, edges and the street geometry of the edges are decoded
+     * by this call, see the documentation of this class.
+     *
+     * @param cfg the configuration used to create the graph.
+     * @return the created street-graph.
+     */
+    public StreetGraph createStreetGraph(StreetGraphExtractor.Config cfg) {
+        StreetGraph graph = new StreetGraph(graphBounds);
+
+        Node[] nodes = new Node[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            nodes[i] = new Node(getNodeId(i), getNodeCoordinate(i), cfg.crossingLogic);
+            graph.addNode(nodes[i]);
+        }
+
+        DirectedEdge[] edges = new DirectedEdge[numEdges];
+        for (int i = 0; i < numEdges; i++) {
+            int d = colEdgeDirections + i * 32;
+
+            edges[i] = new DirectedEdge(
+                    getEdgeId(i),
+                    getEdgeLength(i),
+                    new Vec2d(this.edges.getDouble(d), this.edges.getDouble(d + 8)),
+                    new Vec2d(this.edges.getDouble(d + 16), this.edges.getDouble(d + 24)),
+                    getEdgeOrientation(i),
+                    nodes[getEdgeOrigin(i)], nodes[getEdgeDestination(i)],
+                    getEdgeStreetType(i),
+                    getEdgeLanes(i),
+                    getEdgeMaxVelocity(i),
+                    cfg.metersPerCell, cfg.priorityFn
+            );
+
+            graph.addEdge(edges[i]);
+            edges[i].getOrigin().addLeavingEdge(edges[i]);
+            edges[i].getDestination().addIncomingEdge(edges[i]);
+        }
+
+        // street entities
+        for (int i = 0; i < numEdges; i++) {
+            if (edges[i].getEntity() != null) continue;
+
+            int sibling = this.edges.getInt(colEdgeSibling + i * 4);
+            int geometry = this.edges.getInt(colEdgeGeometry + i * 4);
+
+            DirectedEdge other = sibling >= 0 ? edges[sibling] : null;
+            DirectedEdge forward  = edges[i].getOrientation() == Orientation.FORWARD ? edges[i] : other;
+            DirectedEdge backward = edges[i].getOrientation() == Orientation.FORWARD ? other : edges[i];
+            Street geom = geometry >= 0 ? (Street) getPrimitive(geometry) : null;
+
+            StreetEntity entity = new StreetEntity(forward, backward, geom);
+            if (forward != null)
+                forward.setEntity(entity);
+            if (backward != null)
+                backward.setEntity(entity);
+            if (geom != null)
+                geom.setEntity(entity);
+        }
+
+        // connectors
+        for (int i = 0; i < numNodes; i++) {
+            int begin = this.nodes.getInt(colNodeConnectors + i * 4);
+            int end   = this.nodes.getInt(colNodeConnectors + (i + 1) * 4);
+
+            for (int c = begin; c < end; c++) {
+                int p = colConnectors + c * 16;
+                DirectedEdge from = edges[connectors.getInt(p)];
+                DirectedEdge to   = edges[connectors.getInt(p + 8)];
+
+                nodes[i].addConnector(from.getLane(connectors.getInt(p + 4)), to.getLane(connectors.getInt(p + 12)));
+            }
+        }
+
+        // finish graph
+        graph.setSeed(cfg.seed);
+        for (Node node : nodes)
+            node.updateCrossingIndices();
+        graph.updateGraphGUID();
+
+        return graph;
+    }
+
+
+    /**
+     * Mapped tile-block of a single feature.
+     */
+    class FeatureBlock {
+        final String name;
+        final Class<? extends FeaturePrimitive> type;
+
+        private final ByteBuffer tiles;
+        final int sizeX;
+        final int sizeY;
+        final int numPrimitives;
+
+        private final int colPrimitives;
+        private final int colOffsets;
+        private final int colIndices;
+
+        FeatureBlock(String name, Class<? extends FeaturePrimitive> type, ByteBuffer tiles) {
+            this.name = name;
+            this.type = type;
+            this.tiles = tiles;
+            this.sizeX = tiles.getInt(0);
+            this.sizeY = tiles.getInt(4);
+            this.numPrimitives = tiles.getInt(8);
+
+            Layout layout = new Layout(16);
+            this.colPrimitives = layout.column(numPrimitives, 4);
+            this.colOffsets    = layout.column(sizeX * sizeY + 1, 4);
+            this.colIndices    = layout.column(tiles.getInt(12), 4);
+        }
+
+        /**
+         * Returns the pool-index of the i-th primitive of this feature.
+         */
+        int getPrimitive(int i) {
+            return tiles.getInt(colPrimitives + i * 4);
+        }
+
+        int getTileBegin(int x, int y) {
+            return tiles.getInt(colOffsets + (y * sizeX + x) * 4);
+        }
+
+        int getTileEnd(int x, int y) {
+            return tiles.getInt(colOffsets + (y * sizeX + x + 1) * 4);
+        }
+
+        /**
+         * Returns the pool-index of the i-th primitive of the tile-lists.
+         */
+        int getTilePrimitive(int i) {
+            return tiles.getInt(colIndices + i * 4);
+        }
+
+        FeaturePrimitive get(int index) {
+            return MappedMap.this.getPrimitive(index);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package microtrafficsim.core.serialization.binary;
+
+import microtrafficsim.core.map.*;
+import microtrafficsim.core.map.tiles.FeatureGrid;
+import microtrafficsim.core.map.tiles.TileId;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.map.tiles.TilingScheme;
+import microtrafficsim.math.Rect2d;
+import microtrafficsim.utils.collections.Grid;
+
+import java.lang.reflect.Array;
+import java.util.*;
+
+
+/**
+ * Tiled map-segment backed by a {@link MappedMap}. Behaves like a
+ * {@link microtrafficsim.core.map.tiles.QuadTreeTiledMapSegment QuadTreeTiledMapSegment}, but reads the leaf tiles
+ * directly from the mapped file when they are requested.
+ *
+ * @author agent
+ */
+public class MappedTiledMapSegment implements TileFeatureProvider, SegmentFeatureProvider {
+
+    private MappedMap map;
+    private TileRect  leafs;
+    private List<SegmentFeatureProvider.FeatureChangeListener> segmentListeners;
+    private List<TileFeatureProvider.FeatureChangeListener>    tileListeners;
+
+    /**
+     * Constructs a new {@code MappedTiledMapSegment}.
+     *
+     * @param map the map backing this segment.
+     */
+    MappedTiledMapSegment(MappedMap map) {
+        this.map              = map;
+        this.leafs            = map.getLeafTiles();
+        this.segmentListeners = new ArrayList<>();
+        this.tileListeners    = new ArrayList<>();
+    }
+
+
+    /**
+     * Returns the map backing this segment.
+     *
+     * @return the map backing this segment.
+     */
+    public MappedMap getMap() {
+        return map;
+    }
+
+    @Override
+    public MapProperties getProperties() {
+        return map.getProperties();
+    }
+
+    @Override
+    public TilingScheme getTilingScheme() {
+        return map.getTilingScheme();
+    }
+
+    @Override
+    public Bounds getBounds() {
+        return map.getBounds();
+    }
+
+    @Override
+    public Rect2d getProjectedBounds() {
+        return getTilingScheme().getProjection().project(getBounds());
+    }
+
+    @Override
+    public Class<? extends FeaturePrimitive> getFeatureType(String name) {
+        MappedMap.FeatureBlock block = map.getFeatureBlocks().get(name);
+        return block != null ? block.type : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends FeaturePrimitive> Feature<T> require(String name) throws InterruptedException {
+        MappedMap.FeatureBlock block = map.getFeatureBlocks().get(name);
+        if (block == null) return null;
+
+        T[] data = (T[]) Array.newInstance(block.type, block.numPrimitives);
+        for (int i = 0; i < data.length; i++) {
+            if ((i & 0xFFF) == 0 && Thread.interrupted()) throw new InterruptedException();
+            data[i] = (T) block.get(block.getPrimitive(i));
+        }
+
+        return new Feature<>(name, (Class<T>) block.type, data);
+    }
+
+    @Override
+    public void release(Feature<?> feature) {}
+
+    @Override
+    public Map<String, Feature<?>> getFeatures() throws InterruptedException {
+        Map<String, Feature<?>> features = new HashMap<>();
+
+        for (String str : map.getFeatureNames())
+            features.put(str, require(str));
+
+        return features;
+    }
+
+    @Override
+    public <T extends FeaturePrimitive> TileFeature<T> require(String name, TileRect bounds)
+            throws InterruptedException {
+        return getFeature(name, getTilingScheme().getTiles(bounds, leafs.zoom));
+    }
+
+    @Override
+    public <T extends FeaturePrimitive> TileFeature<T> require(String name, TileId tile) throws InterruptedException {
+        return getFeature(name, getTilingScheme().getTiles(tile, leafs.zoom));
+    }
+
+    @Override
+    public void release(TileFeature<?> feature) {}
+
+    @Override
+    public void releaseAll() {}
+
+    @Override
+    public TileRect getFeatureBounds(String name, TileId tile) {
+        return getFeatureBounds(name, new TileRect(tile.x, tile.y, tile.x, tile.y, tile.z));
+    }
+
+    @Override
+    public TileRect getFeatureBounds(String name, TileRect bounds) {
+        bounds = getTilingScheme().getTiles(bounds, leafs.zoom);
+        return new TileRect(Math.max(bounds.xmin, this.leafs.xmin),
+                            Math.max(bounds.ymin, this.leafs.ymin),
+                            Math.min(bounds.xmax, this.leafs.xmax),
+                            Math.min(bounds.ymax, this.leafs.ymax),
+                            this.leafs.zoom);
+    }
+
+    /**
+     * Returns the TileRectangle describing on which level and in which tiles the data is stored, in respect to the
+     * TilingScheme used.
+     *
+     * @return the TileRectangle describing on which level and in which tiles the data is stored.
+     */
+    public TileRect getLeafTiles() {
+        return leafs;
+    }
+
+    /**
+     * Returns the leaf tiles of all features in the form used by the
+     * {@link microtrafficsim.core.map.tiles.QuadTreeTiledMapSegment QuadTreeTiledMapSegment}, e.g. to store this
+     * segment in another format. All primitives of the segment are decoded by this call, primitives contained in
+     * multiple tiles are shared between them.
+     *
+     * @return the leaf tiles of all features, mapped by the name of the feature.
+     * @throws InterruptedException if the calling thread has been interrupted.
+     */
+    public Map<String, FeatureGrid<?>> getFeatureSet() throws InterruptedException {
+        Map<String, FeatureGrid<?>> featureset = new HashMap<>();
+
+        for (MappedMap.FeatureBlock block : map.getFeatureBlocks().values())
+            featureset.put(block.name, getFeatureGrid(block));
+
+        return featureset;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends FeaturePrimitive> FeatureGrid<T> getFeatureGrid(MappedMap.FeatureBlock block)
+            throws InterruptedException {
+        Grid<List<T>> data = new Grid<>(block.sizeX, block.sizeY);
+
+        for (int y = 0; y < block.sizeY; y++) {
+            for (int x = 0; x < block.sizeX; x++) {
+                if (Thread.interrupted()) throw new InterruptedException();
+
+                int begin = block.getTileBegin(x, y);
+                int end   = block.getTileEnd(x, y);
+
+                ArrayList<T> tile = new ArrayList<>(end - begin);
+                for (int i = begin; i < end; i++)
+                    tile.add((T) block.get(block.getTilePrimitive(i)));
+
+                data.set(x, y, tile);
+            }
+        }
+
+        return new FeatureGrid<>(block.name, (Class<T>) block.type, data);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends FeaturePrimitive> TileFeature<T> getFeature(String name, TileRect leafs)
+            throws InterruptedException {
+        MappedMap.FeatureBlock block = map.getFeatureBlocks().get(name);
+        if (block == null) return null;
+
+        int xl = Math.max(leafs.xmin - this.leafs.xmin, 0);
+        int xr = Math.min(leafs.xmax - this.leafs.xmin, this.leafs.xmax - this.leafs.xmin);
+
+        int yl = Math.max(leafs.ymin - this.leafs.ymin, 0);
+        int yr = Math.min(leafs.ymax - this.leafs.ymin, this.leafs.ymax - this.leafs.ymin);
+
+        BitSet indices = new BitSet();
+        for (int y = yl; y <= yr; y++) {
+            for (int x = xl; x <= xr; x++) {
+                if (Thread.interrupted()) throw new InterruptedException();
+
+                int end = block.getTileEnd(x, y);
+                for (int i = block.getTileBegin(x, y); i < end; i++)
+                    indices.set(block.getTilePrimitive(i));
+            }
+        }
+
+        T[] data = (T[]) Array.newInstance(block.type, indices.cardinality());
+        int n = 0;
+        for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1))
+            data[n++] = (T) block.get(i);
+
+        return new TileFeature<>(name, (Class<T>) block.type,
+                new TileRect(
+                        Math.max(leafs.xmin, this.leafs.xmin),
+                        Math.max(leafs.ymin, this.leafs.ymin),
+                        Math.min(leafs.xmax, this.leafs.xmax),
+                        Math.min(leafs.ymax, this.leafs.ymax),
+                        this.leafs.zoom
+                ), data);
+    }
+
+    @Override
+    public Set<String> getAvailableFeatures() {
+        return map.getFeatureNames();
+    }
+
+    @Override
+    public boolean hasFeature(String name) {
+        return map.getFeatureBlocks().containsKey(name);
+    }
+
+    @Override
+    public boolean hasTile(int x, int y, int z) {
+        TileRect tiles = getTilingScheme().getTiles(getBounds(), z);
+        return !(x < tiles.xmin || x > tiles.xmax) && !(y < tiles.ymin || y > tiles.ymax);
+    }
+
+    @Override
+    public boolean addFeatureChangeListener(SegmentFeatureProvider.FeatureChangeListener listener) {
+        return segmentListeners.add(listener);
+    }
+
+    @Override
+    public boolean removeFeatureChangeListener(SegmentFeatureProvider.FeatureChangeListener listener) {
+        return segmentListeners.remove(listener);
+    }
+
+    @Override
+    public boolean hasFeatureChangeListener(SegmentFeatureProvider.FeatureChangeListener listener) {
+        return segmentListeners.contains(listener);
+    }
+
+    @Override
+    public boolean addFeatureChangeListener(TileFeatureProvider.FeatureChangeListener listener) {
+        return tileListeners.add(listener);
+    }
+
+    @Override
+    public boolean removeFeatureChangeListener(TileFeatureProvider.FeatureChangeListener listener) {
+        return tileListeners.remove(listener);
+    }
+
+    @Override
+    public boolean hasFeatureChangeListener(TileFeatureProvider.FeatureChangeListener listener) {
+        return tileListeners.contains(listener);
+    }
+}
@@ -0,0 +1,267 @@
+package microtrafficsim.core.serialization.kryo.impl.exfmt;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import microtrafficsim.core.exfmt.base.StreetGraphStream;
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.map.Bounds;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Serializer for {@link StreetGraphStream}. Nodes, edges, and connectors are written in batches of at most
+ * {@link #BATCH_SIZE} records, each batch prefixed by its size and the sequence terminated by an empty batch. If the
+ * stream references a graph, records are written directly from the graph.
+ *
+ * @author agent
+ */
+public class StreetGraphStreamSerializer extends Serializer<StreetGraphStream> {
+    public static final int BATCH_SIZE = 4096;
+
+    @Override
+    public void write(Kryo kryo, Output output, StreetGraphStream object) {
+        kryo.writeObjectOrNull(output, object.getBounds(), Bounds.class);
+
+        Graph graph = object.getSource();
+        if (graph != null) {
+            writeNodes(output, graph);
+            writeEdges(output, graph);
+            writeConnectors(output, graph);
+        } else {
+            writeNodes(output, object.nodes);
+            writeEdges(output, object.edges);
+            writeConnectors(output, object.connectors);
+        }
+    }
+
+    @Override
+    public StreetGraphStream read(Kryo kryo, Input input, Class<StreetGraphStream> type) {
+        StreetGraphStream stream = new StreetGraphStream(kryo.readObjectOrNull(input, Bounds.class));
+        kryo.reference(stream);
+
+        readNodes(input, stream.nodes);
+        readEdges(input, stream.edges);
+        readConnectors(input, stream.connectors);
+
+        return stream;
+    }
+
+
+    /*
+    |=======|
+    | nodes |
+    |=======|
+    */
+    private void writeNodes(Output output, Graph graph) {
+        Iterator<Node> nodes = graph.getNodes().iterator();
+        int remaining = graph.getNodes().size();
+
+        while (remaining > 0) {
+            int n = Math.min(remaining, BATCH_SIZE);
+            output.writeVarInt(n, true);
+
+            for (int i = 0; i < n; i++) {
+                Node node = nodes.next();
+                output.writeLong(node.getId());
+                output.writeDouble(node.getCoordinate().lat);
+                output.writeDouble(node.getCoordinate().lon);
+            }
+
+            remaining -= n;
+        }
+        output.writeVarInt(0, true);
+    }
+
+    private void writeNodes(Output output, StreetGraphStream.Nodes nodes) {
+        for (int begin = 0; begin < nodes.count; begin += BATCH_SIZE) {
+            int end = Math.min(begin + BATCH_SIZE, nodes.count);
+            output.writeVarInt(end - begin, true);
+
+            for (int i = begin; i < end; i++) {
+                output.writeLong(nodes.id[i]);
+                output.writeDouble(nodes.lat[i]);
+                output.writeDouble(nodes.lon[i]);
+            }
+        }
+        output.writeVarInt(0, true);
+    }
+
+    private void readNodes(Input input, StreetGraphStream.Nodes nodes) {
+        for (int n = input.readVarInt(true); n > 0; n = input.readVarInt(true)) {
+            nodes.ensureCapacity(nodes.count + n);
+
+            for (int i = nodes.count; i < nodes.count + n; i++) {
+                nodes.id[i]  = input.readLong();
+                nodes.lat[i] = input.readDouble();
+                nodes.lon[i] = input.readDouble();
+            }
+
+            nodes.count += n;
+        }
+    }
+
+
+    /*
+    |=======|
+    | edges |
+    |=======|
+    */
+    private void writeEdges(Output output, Graph graph) {
+        Iterator<DirectedEdge> edges = graph.getEdges().iterator();
+        int remaining = graph.getEdges().size();
+
+        while (remaining > 0) {
+            int n = Math.min(remaining, BATCH_SIZE);
+            output.writeVarInt(n, true);
+
+            for (int i = 0; i < n; i++) {
+                DirectedEdge edge = edges.next();
+                output.writeLong(edge.getId());
+                output.writeLong(edge.getOrigin().getId());
+                output.writeLong(edge.getDestination().getId());
+                output.writeBoolean(StreetGraphStream.isForward(edge));
+                output.writeDouble(edge.getLengthInMeter());
+                output.writeDouble(edge.getOriginDirection().x);
+                output.writeDouble(edge.getOriginDirection().y);
+                output.writeDouble(edge.getDestinationDirection().x);
+                output.writeDouble(edge.getDestinationDirection().y);
+                output.writeInt(edge.getStreetType().getBits());
+                output.writeVarInt(edge.getNumberOfLanes(), true);
+                output.writeFloat(edge.getRawMaxVelocity());
+            }
+
+            remaining -= n;
+        }
+        output.writeVarInt(0, true);
+    }
+
+    private void writeEdges(Output output, StreetGraphStream.Edges edges) {
+        for (int begin = 0; begin < edges.count; begin += BATCH_SIZE) {
+            int end = Math.min(begin + BATCH_SIZE, edges.count);
+            output.writeVarInt(end - begin, true);
+
+            for (int i = begin; i < end; i++) {
+                output.writeLong(edges.id[i]);
+                output.writeLong(edges.origin[i]);
+                output.writeLong(edges.destination[i]);
+                output.writeBoolean(edges.forward[i]);
+                output.writeDouble(edges.length[i]);
+                output.writeDouble(edges.directions[i * 4]);
+                output.writeDouble(edges.directions[i * 4 + 1]);
+                output.writeDouble(edges.directions[i * 4 + 2]);
+                output.writeDouble(edges.directions[i * 4 + 3]);
+                output.writeInt(edges.type[i]);
+                output.writeVarInt(edges.lanes[i], true);
+                output.writeFloat(edges.velocity[i]);
+            }
+        }
+        output.writeVarInt(0, true);
+    }
+
+    private void readEdges(Input input, StreetGraphStream.Edges edges) {
+        for (int n = input.readVarInt(true); n > 0; n = input.readVarInt(true)) {
+            edges.ensureCapacity(edges.count + n);
+
+            for (int i = edges.count; i < edges.count + n; i++) {
+                edges.id[i]                 = input.readLong();
+                edges.origin[i]             = input.readLong();
+                edges.destination[i]        = input.readLong();
+                edges.forward[i]            = input.readBoolean();
+                edges.length[i]             = input.readDouble();
+                edges.directions[i * 4]     = input.readDouble();
+                edges.directions[i * 4 + 1] = input.readDouble();
+                edges.directions[i * 4 + 2] = input.readDouble();
+                edges.directions[i * 4 + 3] = input.readDouble();
+                edges.type[i]               = input.readInt();
+                edges.lanes[i]              = input.readVarInt(true);
+                edges.velocity[i]           = input.readFloat();
+            }
+
+            edges.count += n;
+        }
+    }
+
+
+    /*
+    |============|
+    | connectors |
+    |============|
+    */
+    private void writeConnectors(Output output, Graph graph) {
+        // connectors are collected in a bounded buffer, as their number per batch is not known in advance
+        StreetGraphStream.Connectors batch = new StreetGraphStream.Connectors();
+        batch.ensureCapacity(BATCH_SIZE);
+
+        for (Node node : graph.getNodes()) {
+            for (Map.Entry<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> connector
+                    : node.getConnectors().entrySet()) {
+                DirectedEdge.Lane from = connector.getKey();
+
+                for (DirectedEdge.Lane to : connector.getValue().values()) {
+                    int i = batch.count++;
+                    batch.node[i]        = node.getId();
+                    batch.fromEdge[i]    = from.getEdge().getId();
+                    batch.fromForward[i] = StreetGraphStream.isForward(from.getEdge());
+                    batch.fromLane[i]    = from.getIndex();
+                    batch.toEdge[i]      = to.getEdge().getId();
+                    batch.toForward[i]   = StreetGraphStream.isForward(to.getEdge());
+                    batch.toLane[i]      = to.getIndex();
+
+                    if (batch.count == BATCH_SIZE) {
+                        writeConnectorBatch(output, batch, 0, batch.count);
+                        batch.count = 0;
+                    }
+                }
+            }
+        }
+
+        if (batch.count > 0)
+            writeConnectorBatch(output, batch, 0, batch.count);
+        output.writeVarInt(0, true);
+    }
+
+    private void writeConnectors(Output output, StreetGraphStream.Connectors connectors) {
+        for (int begin = 0; begin < connectors.count; begin += BATCH_SIZE)
+            writeConnectorBatch(output, connectors, begin, Math.min(begin + BATCH_SIZE, connectors.count));
+        output.writeVarInt(0, true);
+    }
+
+    private void writeConnectorBatch(Output output, StreetGraphStream.Connectors connectors, int begin, int end) {
+        output.writeVarInt(end - begin, true);
+
+        for (int i = begin; i < end; i++) {
+            output.writeLong(connectors.node[i]);
+            output.writeLong(connectors.fromEdge[i]);
+            output.writeBoolean(connectors.fromForward[i]);
+            output.writeVarInt(connectors.fromLane[i], true);
+            output.writeLong(connectors.toEdge[i]);
+            output.writeBoolean(connectors.toForward[i]);
+            output.writeVarInt(connectors.toLane[i], true);
+        }
+    }
+
+    private void readConnectors(Input input, StreetGraphStream.Connectors connectors) {
+        for (int n = input.readVarInt(true); n > 0; n = input.readVarInt(true)) {
+            connectors.ensureCapacity(connectors.count + n);
+
+            for (int i = connectors.count; i < connectors.count + n; i++) {
+                connectors.node[i]        = input.readLong();
+                connectors.fromEdge[i]    = input.readLong();
+                connectors.fromForward[i] = input.readBoolean();
+                connectors.fromLane[i]    = input.readVarInt(true);
+                connectors.toEdge[i]      = input.readLong();
+                connectors.toForward[i]   = input.readBoolean();
+                connectors.toLane[i]      = input.readVarInt(true);
+            }
+
+            connectors.count += n;
+        }
+    }
+}
@@ -67,12 +67,15 @@ public class VehicleScenarioBuilder implements ScenarioBuilder, Seeded, Resettab
 
     private Vehicle createVehicle(Scenario scenario, Route metaRoute) {
         // create vehicle components
+        // derive the seed from the id => independent of the order in which vehicles are created concurrently
+        long id = idGenerator.next();
         Vehicle logicVehicle = logicVehicleFactory.create(
-                idGenerator.next(),
-                seedGenerator.next(),
+                id,
+                seedGenerator.get(id),
                 scenario,
                 metaRoute
         );
+        logicVehicle.setGraphState(scenario.getGraphState());
         VisualizationVehicleEntity visVehicle = null;
         if (visVehicleFactory != null)
             visVehicle = visVehicleFactory.create();
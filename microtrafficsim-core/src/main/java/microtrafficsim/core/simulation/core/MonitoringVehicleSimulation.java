@@ -1,22 +1,67 @@
 package microtrafficsim.core.simulation.core;
 
+import java.io.*;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.NoSuchElementException;
 
+import microtrafficsim.core.logic.streetgraph.GraphState;
 import microtrafficsim.core.logic.streets.DirectedEdge;
 import microtrafficsim.core.logic.vehicles.machines.MonitoredVehicle;
 import microtrafficsim.core.logic.vehicles.machines.Vehicle;
+import microtrafficsim.core.simulation.core.monitoring.VehicleRecordReader;
+import microtrafficsim.core.simulation.core.monitoring.VehicleRecorder;
 import microtrafficsim.core.simulation.scenarios.Scenario;
 import microtrafficsim.utils.Resettable;
+import microtrafficsim.utils.logging.EasyMarkableLogger;
+import org.slf4j.Logger;
 
 /**
- * Monitors all vehicles implementing {@link MonitoredVehicle}
+ * <p>
+ * Monitors all vehicles implementing {@link MonitoredVehicle}. After each step, one row per monitored vehicle is
+ * streamed to a binary record file using a {@link VehicleRecorder}, so the memory usage does not grow with the
+ * number of simulation steps. If no record file is given, a temporary file is used.
+ *
+ * <p>
+ * The recorded data can be exported as csv using {@link #getCSVIterator(CSVType)} or
+ * {@link CSVType#export(File, Writer)}.
  *
  * @author Dominic Parga Cacheiro
  */
 public class MonitoringVehicleSimulation extends VehicleSimulation implements Resettable {
-    private List<VehicleStamp> vehicleStamps = new LinkedList<>();
+    private static final Logger logger = new EasyMarkableLogger(MonitoringVehicleSimulation.class);
+
+    private final File recordFile;
+    private final boolean isTemporary;
+    private VehicleRecorder recorder;
+    private boolean append;
+
+
+    /**
+     * Records to a temporary file, which is deleted on exit.
+     */
+    public MonitoringVehicleSimulation() {
+        this(null);
+    }
+
+    /**
+     * @param recordFile the file the monitored data is recorded to; if {@code null}, a temporary file is used
+     */
+    public MonitoringVehicleSimulation(File recordFile) {
+        if (recordFile == null) {
+            try {
+                recordFile = File.createTempFile("microtrafficsim-monitoring", ".rec");
+                recordFile.deleteOnExit();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Couldn't create temporary record file", e);
+            }
+            isTemporary = true;
+        } else {
+            isTemporary = false;
+        }
+
+        this.recordFile = recordFile;
+        this.append     = false;
+    }
 
 
     @Override
@@ -45,77 +90,150 @@ public class MonitoringVehicleSimulation extends VehicleSimulation implements Re
     public void didRunOneStep() {
         super.didRunOneStep();
 
-        for (Vehicle vehicle : getScenario().getVehicleContainer()) {
-            if (vehicle instanceof MonitoredVehicle) {
-                VehicleStamp stamp = new VehicleStamp();
-                stamp.simStep = getAge();
-                stamp.spawnedVehicleCount = getScenario().getVehicleContainer().getSpawnedCount();
-
-                stamp.velocity = vehicle.getVelocity();
-                if (vehicle.getLane() != null) {
-                    stamp.edgeStamp = new EdgeStamp();
-                    stamp.edgeStamp.setup(vehicle.getLane().getEdge());
-                }
+        VehicleRecorder recorder = getRecorder();
+        GraphState state = getScenario().getGraphState();
+        int step = getAge();
+        int spawnedCount = getScenario().getVehicleContainer().getSpawnedCount();
+
+        for (Vehicle vehicle : getScenario().getVehicleContainer().getMonitoredVehicles()) {
+            if (vehicle.getLane() != null) {
+                DirectedEdge edge = vehicle.getLane().getEdge();
+                recorder.record(step, spawnedCount, vehicle.getId(), vehicle.getVelocity(),
+                        edge.getId(), edge.getLength(), edge.getNumberOfLanes(), edge.getVehicleCount(state));
+            } else {
+                recorder.record(step, spawnedCount, vehicle.getId(), vehicle.getVelocity());
+            }
+        }
+    }
 
-                vehicleStamps.add(stamp);
+    private VehicleRecorder getRecorder() {
+        if (recorder == null) {
+            try {
+                recorder = new VehicleRecorder(recordFile, append, VehicleRecorder.DEFAULT_CHUNK_SIZE,
+                        VehicleRecorder.DEFAULT_MAX_CHUNKS);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Couldn't open record file " + recordFile, e);
             }
+            append = true;
         }
+        return recorder;
     }
 
-    public Iterator<String> getCSVIterator(CSVType type) {
-        Iterator<VehicleStamp> iter = vehicleStamps.iterator();
 
-        return new Iterator<String>() {
-            boolean isFirst = true;
+    /**
+     * @return the file the monitored data is recorded to
+     */
+    public File getRecordFile() {
+        return recordFile;
+    }
 
-            @Override
-            public boolean hasNext() {
-                return iter.hasNext();
-            }
+    /**
+     * Writes all monitored data to the record file.
+     */
+    public void flushRecording() throws IOException {
+        if (recorder != null)
+            recorder.flush();
+    }
 
-            @Override
-            public String next() {
-                if (isFirst) {
-                    isFirst = false;
-                    return type.legend;
-                } else {
-                    VehicleStamp next = iter.next();
-                    if (type.hasValidInfo(next))
-                        return CSVType.LINE_SEPARATOR + type.getInfo(next);
-                    else
-                        return ""; // todo performance
-                }
-            }
-        };
+    /**
+     * Writes all monitored data to the record file and closes it. Further steps are appended to the file.
+     */
+    public void closeRecording() throws IOException {
+        if (recorder != null) {
+            recorder.close();
+            recorder = null;
+        }
+    }
+
+    /**
+     * Writes all monitored data recorded so far and returns an iterator over the csv lines of the given type. The
+     * first element is the legend, every following element starts with a line separator. The underlying record file
+     * is closed after the last element has been returned.
+     *
+     * @throws UncheckedIOException if the record file can not be read
+     */
+    public Iterator<String> getCSVIterator(CSVType type) {
+        try {
+            flushRecording();
+            if (!recordFile.exists() || recordFile.length() == 0)
+                return new CSVIterator(type, null);
+
+            return new CSVIterator(type, new VehicleRecordReader(recordFile));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
 
+    /**
+     * Removes all monitored data.
+     */
     @Override
     public void reset() {
-        vehicleStamps.clear();
+        try {
+            closeRecording();
+        } catch (IOException e) {
+            logger.error("Failed to close record file", e);
+        }
+
+        // the record file is overwritten by the next step
+        append = false;
     }
 
+    /**
+     * Closes the record file and deletes it if it is a temporary file.
+     */
+    public void dispose() {
+        reset();
+        if (isTemporary && !recordFile.delete())
+            recordFile.deleteOnExit();
+    }
 
-    private static class VehicleStamp {
-        private int simStep;
-        private int spawnedVehicleCount;
 
-        private int velocity;
+    private static class CSVIterator implements Iterator<String> {
+        private final CSVType type;
+        private final VehicleRecordReader reader;
+        private boolean isFirst;
+        private boolean hasNext;
 
-        private EdgeStamp edgeStamp;
-    }
+        CSVIterator(CSVType type, VehicleRecordReader reader) throws IOException {
+            this.type    = type;
+            this.reader  = reader;
+            this.isFirst = true;
+            this.hasNext = reader != null && advance();
+        }
+
+        private boolean advance() throws IOException {
+            while (reader.next())
+                if (type.hasValidInfo(reader))
+                    return true;
 
-    private static class EdgeStamp {
-        private long edgeId;
-        private int edgeVehicleCount;
-        private int edgeLaneCount;
-        private int edgeLength;
+            reader.close();
+            return false;
+        }
 
-        public void setup(DirectedEdge edge) {
-            edgeId = edge.getId();
-            edgeVehicleCount = edge.getVehicleCount();
-            edgeLaneCount = edge.getNumberOfLanes();
-            edgeLength = edge.getLength();
+        @Override
+        public boolean hasNext() {
+            return isFirst || hasNext;
+        }
+
+        @Override
+        public String next() {
+            if (isFirst) {
+                isFirst = false;
+                return type.legend;
+            }
+
+            if (!hasNext)
+                throw new NoSuchElementException();
+
+            String line = CSVType.LINE_SEPARATOR + type.getInfo(reader);
+            try {
+                hasNext = advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return line;
         }
     }
 
@@ -147,42 +265,64 @@ public class MonitoringVehicleSimulation extends VehicleSimulation implements Re
             return filename + ".csv";
         }
 
-        public boolean hasValidInfo(VehicleStamp stamp) {
+        public String getLegend() {
+            return legend;
+        }
+
+        /**
+         * Writes all rows of the given record file as csv lines of this type to the given writer.
+         */
+        public void export(File recordFile, Writer writer) throws IOException {
+            writer.write(legend);
+            if (!recordFile.exists() || recordFile.length() == 0)
+                return;
+
+            try (VehicleRecordReader reader = new VehicleRecordReader(recordFile)) {
+                while (reader.next()) {
+                    if (hasValidInfo(reader)) {
+                        writer.write(LINE_SEPARATOR);
+                        writer.write(getInfo(reader));
+                    }
+                }
+            }
+        }
+
+        public boolean hasValidInfo(VehicleRecordReader row) {
             switch(this) {
                 case VELOCITY:
                 case SPAWNED_VEHICLE_COUNT:
                     return true;
                 case EDGE_INFO:
                 case EDGE_VEHICLE_COUNT:
-                    return stamp.edgeStamp != null;
+                    return row.hasEdge();
             }
 
             assert false : "Should not reach this point.";
             return false;
         }
 
-        public String getInfo(VehicleStamp stamp) {
+        public String getInfo(VehicleRecordReader row) {
             StringBuilder builder = new StringBuilder();
 
             switch (this) {
                 case VELOCITY:
-                    builder.append(stamp.simStep).append(SEPARATOR)
-                           .append(stamp.velocity);
+                    builder.append(row.getStep()).append(SEPARATOR)
+                           .append(row.getVelocity());
                     break;
                 case SPAWNED_VEHICLE_COUNT:
-                    builder.append(stamp.simStep).append(SEPARATOR)
-                           .append(stamp.spawnedVehicleCount);
+                    builder.append(row.getStep()).append(SEPARATOR)
+                           .append(row.getSpawnedCount());
                     break;
                 case EDGE_INFO:
-                    builder.append(stamp.simStep).append(SEPARATOR)
-                           .append(stamp.edgeStamp.edgeId).append(SEPARATOR)
-                           .append(stamp.edgeStamp.edgeLength).append(SEPARATOR)
-                           .append(stamp.edgeStamp.edgeLaneCount);
+                    builder.append(row.getStep()).append(SEPARATOR)
+                           .append(row.getEdgeId()).append(SEPARATOR)
+                           .append(row.getEdgeLength()).append(SEPARATOR)
+                           .append(row.getEdgeLaneCount());
                     break;
                 case EDGE_VEHICLE_COUNT:
-                    builder.append(stamp.simStep).append(SEPARATOR)
-                           .append(stamp.edgeStamp.edgeId).append(SEPARATOR)
-                           .append(stamp.edgeStamp.edgeVehicleCount);
+                    builder.append(row.getStep()).append(SEPARATOR)
+                           .append(row.getEdgeId()).append(SEPARATOR)
+                           .append(row.getEdgeVehicleCount());
                     break;
             }
 
@@ -0,0 +1,52 @@
+package microtrafficsim.core.simulation.core;
+
+
+/**
+ * <p>
+ * Wall-clock pacing policy of a running {@link Simulation}, i.e. the minimum time between the starts of two
+ * consecutive steps. The period is requested again before each step, so a policy can react to changes, e.g. of the
+ * speedup in the config.
+ *
+ * <p>
+ * Steps are scheduled at a fixed rate: if a step takes longer than the period, the next step starts immediately, but
+ * missed steps are not caught up in bursts. This keeps the visualization smooth when the simulation is throttled.
+ *
+ * @author agent
+ */
+@FunctionalInterface
+public interface Pacing {
+
+    /**
+     * Runs the simulation as fast as possible.
+     */
+    Pacing UNTHROTTLED = simulation -> 0;
+
+    /**
+     * Runs {@link microtrafficsim.core.simulation.configs.SimulationConfig#speedup speedup} steps per second, as
+     * defined by the config of the current scenario; a speedup of {@link Integer#MAX_VALUE} runs the simulation
+     * unthrottled.
+     */
+    Pacing SPEEDUP = simulation -> {
+        int speedup = simulation.getScenario().getConfig().speedup;
+        return speedup <= 0 || speedup == Integer.MAX_VALUE ? 0 : 1_000_000_000L / speedup;
+    };
+
+
+    /**
+     * @return the minimum time between the starts of two steps in nanoseconds; a value {@code <= 0} runs the next
+     * step immediately
+     */
+    long getStepPeriod(Simulation simulation);
+
+
+    /**
+     * @return a policy running the given number of steps per second
+     */
+    static Pacing stepsPerSecond(double steps) {
+        if (!(steps > 0))
+            throw new IllegalArgumentException("The number of steps per second has to be positive");
+
+        long period = (long) (1_000_000_000L / steps);
+        return simulation -> period;
+    }
+}
@@ -3,8 +3,6 @@ package microtrafficsim.core.simulation.core;
 import microtrafficsim.core.simulation.builder.ScenarioBuilder;
 import microtrafficsim.core.simulation.scenarios.Scenario;
 
-import java.util.Timer;
-
 
 /**
  * <p>
@@ -75,18 +73,51 @@ public interface Simulation {
      */
     int getAge();
 
+    /**
+     * Sets the number of finished simulation steps, e.g. when restoring a snapshot of this simulation. The simulation
+     * has to be paused.
+     */
+    void setAge(int age);
+
     /**
      * <p>
-     * This method starts calling the simulation steps repeatedly. Nothing will
-     * be done if the simulation is already running.
+     * This method starts calling the simulation steps repeatedly, paced by the speedup of the config (see
+     * {@link Pacing#SPEEDUP}). Nothing will be done if the simulation is already running or if the speedup is not
+     * positive.
      *
      * <p>
-     * The repeated simulation steps are started by a {@link Timer}. You can
+     * The repeated simulation steps are executed by a dedicated thread. You can
      * stop it by calling {@link #cancel()}. You can call {@link #isPaused()} to
      * ask if the simulation is paused.
      */
     void run();
 
+    /**
+     * Same as {@link #run()}, but paced by the given policy, e.g. {@link Pacing#UNTHROTTLED} for running as fast as
+     * possible.
+     */
+    void run(Pacing pacing);
+
+    /**
+     * Same as {@link #runSteps(int, Pacing) runSteps(steps, Pacing.UNTHROTTLED)}.
+     */
+    default int runSteps(int steps) {
+        return runSteps(steps, Pacing.UNTHROTTLED);
+    }
+
+    /**
+     * <p>
+     * Executes the given number of simulation steps in the calling thread and returns afterwards. Nothing will be done
+     * if the simulation is already running.
+     *
+     * <p>
+     * While executing, the simulation is not paused. The execution can be stopped cooperatively by calling
+     * {@link #cancel()}, e.g. from a {@link StepListener}; the currently running step is finished in this case.
+     *
+     * @return the number of executed steps, which is less than the given number if the execution has been cancelled
+     */
+    int runSteps(int steps, Pacing pacing);
+
     /**
      * <p>
      * This method is called before each simulation step. The default
@@ -120,8 +151,7 @@ public interface Simulation {
     /**
      * This method should stop iterating the simulation steps after the
      * currently running simulation step and letting {@link #isPaused()}
-     * returning true. One way could be using {@link Timer#cancel()} of
-     * {@link Timer}.
+     * returning true.
      */
     void cancel();
 
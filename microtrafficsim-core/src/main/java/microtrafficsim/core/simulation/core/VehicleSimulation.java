@@ -9,17 +9,25 @@ import microtrafficsim.utils.logging.EasyMarkableLogger;
 import microtrafficsim.utils.strings.StringUtils;
 import org.slf4j.Logger;
 
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
+ * <p>
  * This class is an implementation of {@link Simulation} for {@link Vehicle}s.
  *
+ * <p>
+ * {@link #run(Pacing)} executes the steps in a dedicated thread, which is created once per simulation and reused by
+ * all runs. {@link #runSteps(int, Pacing)} executes them in the calling thread. Both are paced by parking the
+ * executing thread until the next step is due, so there is no timer involved and an unthrottled run is only limited
+ * by the runtime of the steps.
+ *
  * @author Dominic Parga Cacheiro
  */
 public class VehicleSimulation implements Simulation {
@@ -29,10 +37,11 @@ public class VehicleSimulation implements Simulation {
     protected VehicleStepExecutor vehicleStepExecutor;
 
     // simulation steps
-    private boolean            paused;
-    private TimerTask          timerTask;
+    private volatile boolean   paused;
+    private Runner             runner;
+    private ExecutorService    runnerThread;
     private final Lock         executionLock;
-    private int                age;
+    private volatile int       age;
     private List<StepListener> stepListeners;
 
     // logging
@@ -44,7 +53,7 @@ public class VehicleSimulation implements Simulation {
     public VehicleSimulation() {
         paused = true;
         executionLock = new ReentrantLock(true); // fairness is important for cancelling simulation
-        this.stepListeners = new LinkedList<>();
+        this.stepListeners = new CopyOnWriteArrayList<>();
     }
 
     /**
@@ -109,9 +118,10 @@ public class VehicleSimulation implements Simulation {
     }
 
     /**
-     * The internal collection used to store listeners is a {@link LinkedList} for easy iterating. Due to its
-     * runtime in O(n) for checking whether an Object is contained or not, this method {@code addStepListener} DOES
-     * NOT check for duplicates. Thus if you add a listener twice, it is called twice.
+     * The internal collection used to store listeners is a {@link CopyOnWriteArrayList}, so listeners can be added
+     * from any thread (e.g. the UI thread) while the simulation is running. Due to its runtime in O(n) for checking
+     * whether an Object is contained or not, this method {@code addStepListener} DOES NOT check for duplicates. Thus
+     * if you add a listener twice, it is called twice.
      */
     @Override
     public void addStepListener(StepListener stepListener) {
@@ -120,10 +130,10 @@ public class VehicleSimulation implements Simulation {
     }
 
     /**
-     * The internal collection used to store listeners is a {@link LinkedList} for easy iterating. Due to its
-     * runtime in O(n) for checking whether an Object is contained or not, this method {@code addStepListener} DOES
-     * NOT check for duplicates. Thus if you have added a listener twice, it is only removed once due to
-     * {@link LinkedList#remove(Object)}
+     * The internal collection used to store listeners is a {@link CopyOnWriteArrayList}, so listeners can be removed
+     * from any thread while the simulation is running. Due to its runtime in O(n) for checking whether an Object is
+     * contained or not, this method {@code addStepListener} DOES NOT check for duplicates. Thus if you have added a
+     * listener twice, it is only removed once due to {@link CopyOnWriteArrayList#remove(Object)}
      */
     @Override
     public void removeStepListener(StepListener stepListener) {
@@ -137,20 +147,102 @@ public class VehicleSimulation implements Simulation {
 
     @Override
     public final void run() {
-        if (scenario.isPrepared() && isPaused() && scenario.getConfig().speedup > 0) {
-            timerTask = new TimerTask() {
-                @Override
-                public void run() {
-                    doRunOneStep();
+        if (scenario != null && scenario.getConfig().speedup > 0)
+            run(Pacing.SPEEDUP);
+    }
+
+    @Override
+    public final synchronized void run(Pacing pacing) {
+        Runner runner = start(Integer.MAX_VALUE, pacing);
+        if (runner == null)
+            return;
+
+        if (runnerThread == null) {
+            runnerThread = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "simulation-runner");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        runnerThread.execute(() -> {
+            try {
+                execute(runner);
+            } catch (RuntimeException e) {
+                logger.error("The simulation has been stopped due to an exception", e);
+            }
+        });
+    }
+
+    @Override
+    public final int runSteps(int steps, Pacing pacing) {
+        Runner runner;
+        synchronized (this) {
+            runner = start(steps, pacing);
+        }
+
+        return runner != null ? execute(runner) : 0;
+    }
+
+    /**
+     * @return the new runner, or {@code null} if the simulation cannot be started
+     */
+    private Runner start(int steps, Pacing pacing) {
+        if (scenario == null || !scenario.isPrepared() || !isPaused() || steps <= 0)
+            return null;
+
+        runner = new Runner(steps, pacing);
+        paused = false;
+        return runner;
+    }
+
+    /**
+     * Executes the steps of the given runner in the calling thread until it is finished or cancelled.
+     */
+    private int execute(Runner runner) {
+        runner.thread = Thread.currentThread();
+
+        int steps = 0;
+        try {
+            long deadline = System.nanoTime();
+            while (steps < runner.steps && !runner.cancelled) {
+                executionLock.lock();
+                try {
+                    if (runner.cancelled)
+                        break;
+                    unsecureDoRunOneStep();
+                } finally {
+                    executionLock.unlock();
+                }
+                steps++;
+
+                long period = runner.pacing.getStepPeriod(this);
+                if (period > 0) {
+                    // fixed rate, but missed steps are not caught up (would be a burst)
+                    deadline = Math.max(deadline + period, System.nanoTime());
+
+                    long remaining;
+                    while (!runner.cancelled && (remaining = deadline - System.nanoTime()) > 0)
+                        LockSupport.parkNanos(this, remaining);
+                } else {
+                    deadline = System.nanoTime();
+                }
+            }
+        } finally {
+            synchronized (this) {
+                if (this.runner == runner) {
+                    this.runner = null;
+                    paused = true;
                 }
-            };
-            new Timer().schedule(timerTask, 0, Math.max(1, 1000 / scenario.getConfig().speedup));
-            paused = false;
+            }
         }
+
+        return steps;
     }
 
     @Override
     public void willRunOneStep() {
+        // iterates over a snapshot, so listeners (e.g. scenarios) may add or remove listeners
         for (StepListener stepListener : stepListeners)
             stepListener.willDoOneStep(this);
 
@@ -254,6 +346,14 @@ public class VehicleSimulation implements Simulation {
         didRunOneStep();
     }
 
+    @Override
+    public void setAge(int age) {
+        if (!isPaused())
+            throw new RuntimeException("The simulation changes its age but is not paused.");
+
+        this.age = age;
+    }
+
     protected void incAge() {
         age++;
     }
@@ -272,17 +372,43 @@ public class VehicleSimulation implements Simulation {
 
     @Override
     public final void cancel() {
-        if (timerTask != null) {
+        Runner runner;
+        synchronized (this) {
+            runner = this.runner;
+            this.runner = null;
+            paused = true;
+        }
+
+        if (runner != null) {
+            runner.cancelled = true;
+            Thread thread = runner.thread;
+            if (thread != null)
+                LockSupport.unpark(thread);
+
+            // wait for the currently running step (if not called by the step itself)
             executionLock.lock();
-            timerTask.cancel();
-            timerTask = null;
             executionLock.unlock();
         }
-        paused = true;
     }
 
     @Override
     public final boolean isPaused() {
         return paused;
     }
-}
\ No newline at end of file
+
+
+    /**
+     * The state of one execution started by {@link #run(Pacing)} or {@link #runSteps(int, Pacing)}.
+     */
+    private static class Runner {
+        private final int    steps;
+        private final Pacing pacing;
+        private volatile boolean cancelled;
+        private volatile Thread  thread;
+
+        Runner(int steps, Pacing pacing) {
+            this.steps  = steps;
+            this.pacing = pacing;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package microtrafficsim.core.simulation.core.monitoring;
+
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.simulation.core.Simulation;
+import microtrafficsim.core.simulation.core.StepListener;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+
+/**
+ * <p>
+ * Incrementally aggregates traffic statistics of all edges of a graph, i.e. the data of fundamental diagrams (flow,
+ * density and mean speed per edge and time window).
+ *
+ * <p>
+ * The statistics are updated in the move phase of each step (see
+ * {@link microtrafficsim.core.logic.streetgraph.GraphState#setEdgeStatistics(EdgeStatistics) GraphState}): every
+ * moving vehicle is counted once for the edge it is driving on at the beginning of its move, together with its
+ * velocity, and as leaving vehicle if it crosses the end of this edge. The counters are held per thread, so the
+ * step threads don't have to synchronize; they are merged after each step by {@link #didOneStep(Simulation)}. The
+ * counters remember the edges they have counted since the last merge, so merging only visits these edges instead of
+ * all edges of all threads. Counters of threads that have terminated are dropped after their last merge. Every
+ * {@code windowSize} steps, the aggregated values are passed to the given consumer as {@link Window} and reset.
+ *
+ * <p>
+ * Use {@link #attach(Simulation)} to collect the statistics of the current scenario of a simulation.
+ *
+ * @author agent
+ */
+public class EdgeStatistics implements StepListener {
+
+    private final DirectedEdge[] edges;
+    private final int windowSize;
+    private final Consumer<Window> consumer;
+
+    private final ThreadLocal<Counters> local;
+    private final CopyOnWriteArrayList<Counters> counters;
+
+    /* current window */
+    private Counters window;
+    private int windowStart;
+    private int steps;
+
+
+    /**
+     * @param graph      the graph whose edges are observed; its topology must not change while collecting
+     * @param windowSize the number of steps aggregated to one {@link Window}
+     * @param consumer   called with each finished window, in the thread executing the simulation
+     */
+    public EdgeStatistics(Graph graph, int windowSize, Consumer<Window> consumer) {
+        if (windowSize <= 0)
+            throw new IllegalArgumentException("Window size has to be positive");
+
+        int nEdges = 0;
+        for (DirectedEdge edge : graph.getEdgeMap().values())
+            nEdges = Math.max(nEdges, edge.getIndex() + 1);
+
+        this.edges = new DirectedEdge[nEdges];
+        for (DirectedEdge edge : graph.getEdgeMap().values())
+            edges[edge.getIndex()] = edge;
+
+        this.windowSize = windowSize;
+        this.consumer   = consumer;
+
+        this.counters = new CopyOnWriteArrayList<>();
+        this.local    = ThreadLocal.withInitial(() -> {
+            Counters c = new Counters(edges.length, Thread.currentThread());
+            counters.add(c);
+            return c;
+        });
+
+        this.window      = new Counters(edges.length, null);
+        this.windowStart = -1;
+        this.steps       = 0;
+    }
+
+
+    /**
+     * Sets this collector in the graph state of the current scenario of the given simulation and adds it as step
+     * listener.
+     */
+    public void attach(Simulation simulation) {
+        simulation.getScenario().getGraphState().setEdgeStatistics(this);
+        simulation.addStepListener(this);
+    }
+
+    /**
+     * Reverts {@link #attach(Simulation)}. Data of an unfinished window is discarded.
+     */
+    public void detach(Simulation simulation) {
+        if (simulation.getScenario().getGraphState().getEdgeStatistics() == this)
+            simulation.getScenario().getGraphState().setEdgeStatistics(null);
+        simulation.removeStepListener(this);
+    }
+
+
+    /**
+     * Counts a moving vehicle. Can be called concurrently by multiple threads.
+     *
+     * @param edge     the edge the vehicle has been driving on before moving
+     * @param velocity the velocity of the vehicle in this step
+     * @param left     whether the vehicle has left the given edge by moving
+     */
+    public void record(DirectedEdge edge, int velocity, boolean left) {
+        int index = edge.getIndex();
+        Counters c = local.get();
+
+        if (c.samples[index]++ == 0)
+            c.touched[c.nTouched++] = index;
+        c.speeds[index] += velocity;
+        if (left)
+            c.flow[index]++;
+    }
+
+
+    /**
+     * Merges the counters of all threads and passes the window to the consumer if it is complete. Counters of
+     * terminated threads are dropped after merging them.
+     */
+    @Override
+    public void didOneStep(Simulation simulation) {
+        if (windowStart < 0)
+            windowStart = simulation.getAge();
+
+        for (Counters c : counters)
+            c.mergeInto(window);
+        counters.removeIf(Counters::isOwnerTerminated);
+
+        if (++steps == windowSize) {
+            consumer.accept(new Window(windowStart, steps, edges, window));
+            window.clear();
+            windowStart = -1;
+            steps = 0;
+        }
+    }
+
+    /**
+     * @return the observed edges, indexed by their {@link DirectedEdge#getIndex() index}; may contain {@code null}
+     */
+    public DirectedEdge[] getEdges() {
+        return edges;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+
+    private static class Counters {
+        private final int[] samples;
+        private final long[] speeds;
+        private final int[] flow;
+
+        /* indices of the edges with samples[i] > 0 */
+        private final int[] touched;
+        private int nTouched;
+
+        private final WeakReference<Thread> owner;
+
+        Counters(int nEdges, Thread owner) {
+            samples = new int[nEdges];
+            speeds  = new long[nEdges];
+            flow    = new int[nEdges];
+            touched = new int[nEdges];
+            nTouched = 0;
+
+            this.owner = new WeakReference<>(owner);
+        }
+
+        void mergeInto(Counters other) {
+            for (int k = 0; k < nTouched; k++) {
+                int i = touched[k];
+
+                if (other.samples[i] == 0)
+                    other.touched[other.nTouched++] = i;
+
+                other.samples[i] += samples[i];
+                other.speeds[i]  += speeds[i];
+                other.flow[i]    += flow[i];
+            }
+            clear();
+        }
+
+        void clear() {
+            for (int k = 0; k < nTouched; k++) {
+                int i = touched[k];
+                samples[i] = 0;
+                speeds[i]  = 0;
+                flow[i]    = 0;
+            }
+            nTouched = 0;
+        }
+
+        boolean isOwnerTerminated() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+
+
+    /**
+     * The aggregated statistics of all edges over a number of steps. All arrays are indexed by the
+     * {@link DirectedEdge#getIndex() edge index}.
+     */
+    public static class Window {
+
+        /** the simulation age after the first step of this window */
+        public final int firstStep;
+        /** the number of steps of this window */
+        public final int steps;
+
+        /** the number of vehicles that have left the edge during this window */
+        public final int[] flow;
+        /** the mean number of vehicles per cell of the edge, in [0, 1] */
+        public final float[] density;
+        /** the mean velocity of all vehicles on the edge in cells per step, or {@code NaN} if there was none */
+        public final float[] meanSpeed;
+
+        private Window(int firstStep, int steps, DirectedEdge[] edges, Counters counters) {
+            this.firstStep = firstStep;
+            this.steps     = steps;
+
+            flow      = Arrays.copyOf(counters.flow, edges.length);
+            density   = new float[edges.length];
+            meanSpeed = new float[edges.length];
+
+            for (int i = 0; i < edges.length; i++) {
+                int samples = counters.samples[i];
+                if (edges[i] != null) {
+                    int cells = edges[i].getLength() * edges[i].getNumberOfLanes();
+                    density[i] = samples / (float) (steps * cells);
+                }
+                meanSpeed[i] = samples > 0 ? counters.speeds[i] / (float) samples : Float.NaN;
+            }
+        }
+    }
+}
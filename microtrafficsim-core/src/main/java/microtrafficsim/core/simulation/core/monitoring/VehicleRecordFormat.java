@@ -0,0 +1,59 @@
+package microtrafficsim.core.simulation.core.monitoring;
+
+import microtrafficsim.utils.Version;
+
+import java.nio.ByteOrder;
+
+
+/**
+ * Constants of the binary vehicle record format written by {@link VehicleRecorder}.
+ * <p>
+ * A record file starts with a header, consisting of a magic number, the format version (major, minor and patch as
+ * shorts), the number of columns (short) and the width of each column in bytes (one byte per column). The header is
+ * followed by an arbitrary number of chunks. Each chunk starts with its number of rows (int), followed by the values
+ * of each column in the order of {@link Column}, i.e. the rows of a chunk are stored as columns (structure of arrays).
+ * All values are stored in little-endian byte order.
+ * </p><p>
+ * A row describes one monitored vehicle in one simulation step. If the vehicle has not been on an edge, the edge lane
+ * count is {@link #NO_EDGE} and the other edge columns are undefined.
+ * </p>
+ *
+ * @author agent
+ */
+public final class VehicleRecordFormat {
+    private VehicleRecordFormat() {}
+
+    public static final Version VERSION = new Version(1, 0, 0);
+
+    public static final int       MAGIC      = 0x5253544D;      // "MTSR" in little-endian
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /** Size of the fixed part of the header in bytes, followed by one byte per column. */
+    public static final int HEADER_SIZE = 12;
+    /** Size of the header of each chunk in bytes. */
+    public static final int CHUNK_HEADER_SIZE = 4;
+
+    /** Edge lane count of rows whose vehicle has not been on an edge. */
+    public static final int NO_EDGE = 0;
+
+
+    /**
+     * The columns of a record, in the order they are stored in each chunk.
+     */
+    public enum Column {
+        STEP(4),
+        SPAWNED_COUNT(4),
+        VEHICLE_ID(8),
+        VELOCITY(4),
+        EDGE_ID(8),
+        EDGE_LENGTH(4),
+        EDGE_LANE_COUNT(4),
+        EDGE_VEHICLE_COUNT(4);
+
+        public final int width;
+
+        Column(int width) {
+            this.width = width;
+        }
+    }
+}
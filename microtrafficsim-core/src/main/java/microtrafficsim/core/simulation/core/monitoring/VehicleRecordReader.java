@@ -0,0 +1,186 @@
+package microtrafficsim.core.simulation.core.monitoring;
+
+import microtrafficsim.core.simulation.core.monitoring.VehicleRecordFormat.Column;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import static microtrafficsim.core.simulation.core.monitoring.VehicleRecordFormat.*;
+
+
+/**
+ * Sequential reader for files written by {@link VehicleRecorder}. The file is read chunk by chunk, the values of the
+ * current row can be accessed via the getters after {@link #next()} returned {@code true}:
+ * <pre>{@code
+ * try (VehicleRecordReader reader = new VehicleRecordReader(file)) {
+ *     while (reader.next())
+ *         process(reader.getStep(), reader.getVehicleId(), reader.getVelocity());
+ * }
+ * }</pre>
+ *
+ * @author agent
+ */
+public class VehicleRecordReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer chunkHeader;
+    private final ByteBuffer[] columns;
+
+    private int rows;
+    private int row;
+
+
+    public VehicleRecordReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try {
+            readHeader(file);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_SIZE).order(BYTE_ORDER);
+        columns     = new ByteBuffer[Column.values().length];
+        rows        = 0;
+        row         = -1;
+    }
+
+    private void readHeader(File file) throws IOException {
+        Column[] expected = Column.values();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+        if (!readFully(header))
+            throw new IOException("Not a vehicle record file: " + file);
+
+        if (header.getInt(0) != MAGIC)
+            throw new IOException("Not a vehicle record file: " + file);
+
+        if (header.getShort(4) != VERSION.major)
+            throw new IOException("Unsupported vehicle record version " + header.getShort(4) + "." + header.getShort(6)
+                    + " (expected " + VERSION.major + ".x)");
+
+        int nColumns = header.getShort(10);
+        ByteBuffer widths = ByteBuffer.allocate(nColumns);
+        if (nColumns != expected.length || !readFully(widths))
+            throw new IOException("Invalid column layout in vehicle record file: " + file);
+
+        for (int i = 0; i < nColumns; i++)
+            if (widths.get(i) != expected[i].width)
+                throw new IOException("Invalid column layout in vehicle record file: " + file);
+    }
+
+
+    /**
+     * Moves to the next row.
+     *
+     * @return {@code false} if there is no row left
+     */
+    public boolean next() throws IOException {
+        while (++row >= rows) {
+            if (!readChunk())
+                return false;
+        }
+
+        return true;
+    }
+
+    private boolean readChunk() throws IOException {
+        chunkHeader.clear();
+        if (!readFully(chunkHeader))
+            return false;
+
+        rows = chunkHeader.getInt(0);
+        row  = -1;
+
+        Column[] values = Column.values();
+        for (int i = 0; i < values.length; i++) {
+            int size = rows * values[i].width;
+            if (columns[i] == null || columns[i].capacity() < size)
+                columns[i] = ByteBuffer.allocateDirect(size).order(BYTE_ORDER);
+
+            columns[i].clear().limit(size);
+            if (!readFully(columns[i]))
+                throw new EOFException("Truncated chunk in vehicle record file");
+        }
+
+        return true;
+    }
+
+    /**
+     * @return {@code false} if the end of the file has been reached before reading anything
+     */
+    private boolean readFully(ByteBuffer buffer) throws IOException {
+        boolean any = false;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer);
+            if (read < 0) {
+                if (any)
+                    throw new EOFException("Unexpected end of vehicle record file");
+                return false;
+            }
+            any |= read > 0;
+        }
+
+        return true;
+    }
+
+
+    public int getStep() {
+        return getInt(Column.STEP);
+    }
+
+    public int getSpawnedCount() {
+        return getInt(Column.SPAWNED_COUNT);
+    }
+
+    public long getVehicleId() {
+        return getLong(Column.VEHICLE_ID);
+    }
+
+    public int getVelocity() {
+        return getInt(Column.VELOCITY);
+    }
+
+    /**
+     * @return true if the vehicle of the current row has been on an edge, i.e. if the edge columns are defined
+     */
+    public boolean hasEdge() {
+        return getEdgeLaneCount() != NO_EDGE;
+    }
+
+    public long getEdgeId() {
+        return getLong(Column.EDGE_ID);
+    }
+
+    public int getEdgeLength() {
+        return getInt(Column.EDGE_LENGTH);
+    }
+
+    public int getEdgeLaneCount() {
+        return getInt(Column.EDGE_LANE_COUNT);
+    }
+
+    public int getEdgeVehicleCount() {
+        return getInt(Column.EDGE_VEHICLE_COUNT);
+    }
+
+    private int getInt(Column column) {
+        return columns[column.ordinal()].getInt(row * column.width);
+    }
+
+    private long getLong(Column column) {
+        return columns[column.ordinal()].getLong(row * column.width);
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
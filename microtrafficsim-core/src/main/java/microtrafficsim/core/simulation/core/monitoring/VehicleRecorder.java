@@ -0,0 +1,262 @@
+package microtrafficsim.core.simulation.core.monitoring;
+
+import microtrafficsim.core.simulation.core.monitoring.VehicleRecordFormat.Column;
+import microtrafficsim.utils.logging.EasyMarkableLogger;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.*;
+
+import static microtrafficsim.core.simulation.core.monitoring.VehicleRecordFormat.*;
+
+
+/**
+ * <p>
+ * Streaming writer for the binary vehicle record format (see {@link VehicleRecordFormat}). Rows are appended to
+ * fixed-width columns in off-heap chunks. Full chunks are written asynchronously by a background thread and reused
+ * afterwards, so the memory used by this recorder is bounded by the chunk size and the maximum number of chunks,
+ * independent of the length of the simulation. If all chunks are pending, {@link #record} blocks until one of them
+ * has been written.
+ *
+ * <p>
+ * This class is not thread-safe, all rows have to be recorded by the same thread. Errors of the background thread are
+ * reported by the next call of {@link #flush()} or {@link #close()}.
+ *
+ * @author agent
+ */
+public class VehicleRecorder implements Flushable, Closeable {
+    private static final Logger logger = new EasyMarkableLogger(VehicleRecorder.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+    public static final int DEFAULT_MAX_CHUNKS = 4;
+
+    private final FileChannel channel;
+    private final ExecutorService writer;
+
+    private final int chunkSize;
+    private final int maxChunks;
+    private final BlockingQueue<Chunk> free;
+    private int allocated;
+    private Chunk current;
+
+    private long rows;
+    private volatile IOException error;
+    private boolean closed;
+
+
+    /**
+     * Creates a new recorder overwriting the given file, using the default chunk size and number of chunks.
+     */
+    public VehicleRecorder(File file) throws IOException {
+        this(file, false, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNKS);
+    }
+
+    /**
+     * @param file      the file to write to
+     * @param append    if {@code true} and the file is not empty, the rows are appended to the existing chunks of
+     *                  the given file; the file is overwritten otherwise
+     * @param chunkSize the number of rows per chunk
+     * @param maxChunks the maximum number of chunks, i.e. the number of chunks that can be filled while others are
+     *                  being written
+     */
+    public VehicleRecorder(File file, boolean append, int chunkSize, int maxChunks) throws IOException {
+        if (chunkSize <= 0 || maxChunks <= 0)
+            throw new IllegalArgumentException("Chunk size and number of chunks have to be positive");
+
+        OpenOption mode = append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode);
+        if (channel.size() == 0)
+            writeHeader();
+
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+        this.free      = new ArrayBlockingQueue<>(maxChunks);
+
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vehicle-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void writeHeader() throws IOException {
+        Column[] columns = Column.values();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + columns.length).order(BYTE_ORDER);
+        header.putInt(MAGIC);
+        header.putShort((short) VERSION.major);
+        header.putShort((short) VERSION.minor);
+        header.putShort((short) VERSION.patch);
+        header.putShort((short) columns.length);
+        for (Column column : columns)
+            header.put((byte) column.width);
+
+        header.flip();
+        while (header.hasRemaining())
+            channel.write(header);
+    }
+
+
+    /**
+     * Appends a row for a vehicle that is not on an edge.
+     */
+    public void record(int step, int spawnedCount, long vehicleId, int velocity) {
+        record(step, spawnedCount, vehicleId, velocity, -1, -1, NO_EDGE, 0);
+    }
+
+    /**
+     * Appends a row. See {@link Column} for the meaning of the values.
+     */
+    public void record(int step, int spawnedCount, long vehicleId, int velocity,
+                       long edgeId, int edgeLength, int edgeLaneCount, int edgeVehicleCount)
+    {
+        if (closed)
+            throw new IllegalStateException("Recorder has already been closed");
+
+        if (current == null)
+            current = acquire();
+
+        current.column(Column.STEP).putInt(step);
+        current.column(Column.SPAWNED_COUNT).putInt(spawnedCount);
+        current.column(Column.VEHICLE_ID).putLong(vehicleId);
+        current.column(Column.VELOCITY).putInt(velocity);
+        current.column(Column.EDGE_ID).putLong(edgeId);
+        current.column(Column.EDGE_LENGTH).putInt(edgeLength);
+        current.column(Column.EDGE_LANE_COUNT).putInt(edgeLaneCount);
+        current.column(Column.EDGE_VEHICLE_COUNT).putInt(edgeVehicleCount);
+        current.rows++;
+        rows++;
+
+        if (current.rows == chunkSize) {
+            submit(current);
+            current = null;
+        }
+    }
+
+    /**
+     * @return the number of rows recorded by this recorder (excluding rows of an appended file)
+     */
+    public long getRowCount() {
+        return rows;
+    }
+
+
+    private Chunk acquire() {
+        Chunk chunk = free.poll();
+        if (chunk != null)
+            return chunk;
+
+        if (allocated < maxChunks) {
+            allocated++;
+            return new Chunk(chunkSize);
+        }
+
+        try {
+            return free.take();
+        } catch (InterruptedException e) {
+            // don't lose any data, exceed the limit instead
+            Thread.currentThread().interrupt();
+            return new Chunk(chunkSize);
+        }
+    }
+
+    private void submit(Chunk chunk) {
+        writer.execute(() -> {
+            try {
+                if (error == null)
+                    chunk.writeTo(channel);
+            } catch (IOException e) {
+                logger.error("Failed to write vehicle records", e);
+                error = e;
+            } finally {
+                chunk.clear();
+                free.offer(chunk);
+            }
+        });
+    }
+
+
+    /**
+     * Writes all recorded rows and waits until they have been written.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (closed)
+            return;
+
+        if (current != null && current.rows > 0) {
+            submit(current);
+            current = null;
+        }
+
+        try {
+            writer.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for vehicle records to be written");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+
+        if (error != null)
+            throw error;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+
+        try {
+            flush();
+        } finally {
+            closed = true;
+            writer.shutdown();
+            channel.close();
+        }
+    }
+
+
+    private static class Chunk {
+        private final ByteBuffer[] columns;
+        private int rows;
+
+        Chunk(int capacity) {
+            Column[] values = Column.values();
+
+            columns = new ByteBuffer[values.length];
+            for (int i = 0; i < values.length; i++)
+                columns[i] = ByteBuffer.allocateDirect(capacity * values[i].width).order(BYTE_ORDER);
+        }
+
+        ByteBuffer column(Column column) {
+            return columns[column.ordinal()];
+        }
+
+        void writeTo(FileChannel channel) throws IOException {
+            ByteBuffer[] buffers = new ByteBuffer[columns.length + 1];
+            buffers[0] = ByteBuffer.allocate(CHUNK_HEADER_SIZE).order(BYTE_ORDER).putInt(0, rows);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].flip();
+                buffers[i + 1] = columns[i];
+            }
+
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers)
+                remaining += buffer.remaining();
+
+            while (remaining > 0)
+                remaining -= channel.write(buffers);
+        }
+
+        void clear() {
+            rows = 0;
+            for (ByteBuffer column : columns)
+                column.clear();
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package microtrafficsim.core.simulation.core.snapshot;
+
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.routes.Route;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streetgraph.GraphGUID;
+import microtrafficsim.core.logic.streetgraph.GraphState;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.logic.vehicles.VehicleState;
+import microtrafficsim.core.logic.vehicles.driver.Driver;
+import microtrafficsim.core.logic.vehicles.machines.Vehicle;
+import microtrafficsim.core.map.Bounds;
+import microtrafficsim.core.simulation.core.Simulation;
+import microtrafficsim.core.simulation.scenarios.Scenario;
+import microtrafficsim.math.random.distributions.impl.CounterRandom;
+import microtrafficsim.utils.Version;
+import microtrafficsim.utils.logging.EasyMarkableLogger;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * <p>
+ * Writes and restores the complete dynamic state of a simulation, so a simulation can be continued at the same step
+ * after restarting the process. The map, the {@link microtrafficsim.core.simulation.configs.SimulationConfig config}
+ * and the routes are not part of a snapshot, they are stored using the exchange format. A snapshot only contains:
+ * <ul>
+ * <li>the simulation age and the seed of the scenario
+ * <li>per vehicle: its state, lane, cell position and velocity as well as the number of remaining route edges (the
+ * route cursor) and the dynamic information of its driver. The random generator of a driver is positioned by its
+ * seed and travelling time, so it does not need any additional information.
+ * <li>per node with crossing logic state: the registered vehicles, their assessed priorities and the position of the
+ * node's random generator
+ * </ul>
+ *
+ * <p>
+ * A snapshot is keyed by the {@link GraphGUID} of the graph. It is restored into a scenario that has been prepared
+ * the same way as the one the snapshot has been taken from, i.e. on the same graph with the same config and routes.
+ * Vehicles are matched by their ids, which are deterministic for a scenario builder with the same seed.
+ *
+ * <p>
+ * The file consists of a header (magic number, version, graph GUID, seed, age) followed by the vehicle and node
+ * sections, written in big-endian byte order and gzip-compressed. Vehicles and nodes are referenced by their ids,
+ * edges by their id and orientation.
+ *
+ * @author agent
+ */
+public final class SimulationSnapshot {
+    private SimulationSnapshot() {}
+
+    private static final Logger logger = new EasyMarkableLogger(SimulationSnapshot.class);
+
+    public static final Version VERSION = new Version(1, 0, 0);
+    public static final int     MAGIC   = 0x534E5354;   // "SNST"
+
+
+    /*
+    |=======|
+    | write |
+    |=======|
+    */
+    /**
+     * Writes a snapshot of the current scenario of the given simulation. The simulation has to be paused.
+     */
+    public static void write(Simulation simulation, File file) throws IOException {
+        if (!simulation.isPaused())
+            throw new IllegalStateException("The simulation has to be paused for writing a snapshot.");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file)))))
+        {
+            write(simulation, out);
+        }
+    }
+
+    /**
+     * Same as {@link #write(Simulation, File)}, but writes to the given stream.
+     */
+    public static void write(Simulation simulation, DataOutput out) throws IOException {
+        long time = System.nanoTime();
+
+        Scenario scenario = simulation.getScenario();
+        GraphState state = scenario.getGraphState();
+
+        /* header */
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION.major);
+        out.writeShort(VERSION.minor);
+        out.writeShort(VERSION.patch);
+        writeGUID(out, scenario.getGraph().getGUID());
+        out.writeLong(scenario.getConfig().seed);
+        out.writeInt(simulation.getAge());
+
+        /* vehicles, ordered by id */
+        List<Vehicle> vehicles = new ArrayList<>(scenario.getVehicleContainer().getVehicles());
+        vehicles.sort(Comparator.comparingLong(Vehicle::getId));
+
+        out.writeInt(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            Driver driver = vehicle.getDriver();
+
+            out.writeLong(vehicle.getId());
+            out.writeByte(vehicle.getState().ordinal());
+            out.writeInt(vehicle.getVelocity());
+            out.writeBoolean(vehicle.isLastVelocityZero());
+
+            DirectedEdge.Lane lane = vehicle.getLane();
+            out.writeBoolean(lane != null);
+            if (lane != null) {
+                writeEdge(out, lane.getEdge());
+                out.writeInt(lane.getIndex());
+                out.writeInt(vehicle.getCellPosition());
+            }
+
+            out.writeInt(driver.getRoute().size());
+            out.writeInt(driver.getTravellingTime());
+            out.writeInt(driver.getPriorityCounter());
+            out.writeInt(driver.getAnger());
+            out.writeInt(driver.getTotalAnger());
+        }
+
+        /* nodes, ordered by id */
+        List<Node> nodes = state.getActiveNodes();
+        nodes.sort(Comparator.comparingLong(Node::getId));
+
+        out.writeInt(nodes.size());
+        for (Node node : nodes) {
+            Node.CrossingState crossing = state.getCrossingState(node);
+
+            out.writeLong(node.getId());
+            out.writeLong(crossing.getRandom().getBlock());
+            out.writeLong(crossing.getRandom().getCounter());
+            out.writeBoolean(crossing.isAnyChangeSinceUpdate());
+
+            writeVehicles(out, crossing.getNewRegisteredVehicles());
+
+            SortedMap<Vehicle, List<Vehicle>> assessed = crossing.getAssessedVehicles();
+            out.writeInt(assessed.size());
+            for (Map.Entry<Vehicle, List<Vehicle>> entry : assessed.entrySet()) {
+                out.writeLong(entry.getKey().getId());
+                writeVehicles(out, entry.getValue());
+            }
+
+            writeVehicles(out, crossing.getMaxPrioVehicles());
+        }
+
+        logger.info("Snapshot of " + vehicles.size() + " vehicles and " + nodes.size() + " nodes written after "
+                + (System.nanoTime() - time) / 1_000_000 + "ms");
+    }
+
+    private static void writeGUID(DataOutput out, GraphGUID guid) throws IOException {
+        Bounds bounds = guid.getBounds();
+        out.writeDouble(bounds.minlat);
+        out.writeDouble(bounds.minlon);
+        out.writeDouble(bounds.maxlat);
+        out.writeDouble(bounds.maxlon);
+        out.writeInt(guid.getNodeHash());
+        out.writeInt(guid.getEdgeHash());
+    }
+
+    private static void writeEdge(DataOutput out, DirectedEdge edge) throws IOException {
+        out.writeLong(edge.getId());
+        out.writeByte(edge.getOrientation().ordinal());
+    }
+
+    private static void writeVehicles(DataOutput out, Collection<Vehicle> vehicles) throws IOException {
+        out.writeInt(vehicles.size());
+        for (Vehicle vehicle : vehicles)
+            out.writeLong(vehicle.getId());
+    }
+
+
+    /*
+    |=========|
+    | restore |
+    |=========|
+    */
+    /**
+     * Restores the given snapshot into the current scenario of the given simulation. The simulation has to be paused
+     * and its scenario has to be freshly prepared the same way as the scenario the snapshot has been taken from (see
+     * class description). Vehicles that are not part of the snapshot, i.e. that have already despawned, are despawned.
+     *
+     * @throws IOException if the file is no valid snapshot or if it does not match the graph or the vehicles of the
+     *                     current scenario
+     */
+    public static void restore(Simulation simulation, File file) throws IOException {
+        if (!simulation.isPaused())
+            throw new IllegalStateException("The simulation has to be paused for restoring a snapshot.");
+
+        try (DataInputStream in = new DataInputStream(
+                new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)))))
+        {
+            restore(simulation, in);
+        }
+    }
+
+    /**
+     * Same as {@link #restore(Simulation, File)}, but reads from the given stream.
+     */
+    public static void restore(Simulation simulation, DataInput in) throws IOException {
+        long time = System.nanoTime();
+
+        Scenario scenario = simulation.getScenario();
+        Graph graph = scenario.getGraph();
+        GraphState state = scenario.getGraphState();
+
+        /* header */
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a simulation snapshot");
+
+        int major = in.readShort();
+        int minor = in.readShort();
+        in.readShort();
+        if (major != VERSION.major)
+            throw new IOException("Unsupported simulation snapshot version " + major + "." + minor
+                    + " (expected " + VERSION.major + ".x)");
+
+        GraphGUID guid = readGUID(in);
+        if (!guid.equals(graph.getGUID()))
+            throw new IOException("The snapshot has been taken on another graph: " + guid);
+
+        long seed = in.readLong();
+        if (seed != scenario.getConfig().seed)
+            logger.warn("The snapshot has been taken with seed " + seed + ", but the current seed is "
+                    + scenario.getConfig().seed);
+
+        int age = in.readInt();
+
+        /* lookup tables */
+        HashMap<Long, DirectedEdge[]> edges = new HashMap<>();
+        for (DirectedEdge edge : graph.getEdges())
+            edges.computeIfAbsent(edge.getId(), id -> new DirectedEdge[2])[edge.getOrientation().ordinal()] = edge;
+
+        HashMap<Long, Node> nodes = new HashMap<>();
+        for (Node node : graph.getNodes())
+            nodes.put(node.getId(), node);
+
+        HashMap<Long, Vehicle> vehicles = new HashMap<>();
+        for (Vehicle vehicle : scenario.getVehicleContainer())
+            vehicles.put(vehicle.getId(), vehicle);
+
+        /* the graph state is rebuilt from scratch, e.g. removing registrations from preparing the scenario */
+        state.reset();
+
+        /* vehicles */
+        VehicleState[] vehicleStates = VehicleState.values();
+        HashSet<Vehicle> restored = new HashSet<>();
+
+        int nVehicles = in.readInt();
+        for (int i = 0; i < nVehicles; i++) {
+            Vehicle vehicle = vehicle(vehicles, in.readLong());
+            int ordinal = in.readByte();
+            if (ordinal < 0 || ordinal >= vehicleStates.length)
+                throw new IOException("Invalid state of vehicle " + vehicle.getId());
+            VehicleState vehicleState = vehicleStates[ordinal];
+            int velocity = in.readInt();
+            boolean lastVelocityIsZero = in.readBoolean();
+
+            DirectedEdge.Lane lane = null;
+            int cellPosition = -1;
+            if (in.readBoolean()) {
+                DirectedEdge edge = edge(edges, in.readLong(), in.readByte());
+                lane = edge.getLane(in.readInt());
+                cellPosition = in.readInt();
+            }
+
+            int routeSize = in.readInt();
+            Route route = vehicle.getDriver().getRoute();
+            if (routeSize > route.size())
+                throw new IOException("The route of vehicle " + vehicle.getId() + " is shorter than in the snapshot");
+            while (route.size() > routeSize)
+                route.pop();
+
+            vehicle.getDriver().restore(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+            vehicle.restore(vehicleState, lane, cellPosition, velocity, lastVelocityIsZero);
+            restored.add(vehicle);
+        }
+
+        for (Vehicle vehicle : vehicles.values())
+            if (!restored.contains(vehicle))
+                vehicle.despawn();
+        scenario.getVehicleContainer().rescheduleSpawning();
+
+        /* nodes */
+        int nNodes = in.readInt();
+        for (int i = 0; i < nNodes; i++) {
+            long id = in.readLong();
+            Node node = nodes.get(id);
+            if (node == null)
+                throw new IOException("Unknown node " + id);
+
+            Node.CrossingState crossing = state.getOrCreateCrossingState(node);
+            CounterRandom random = crossing.getRandom();
+            random.setPosition(in.readLong(), in.readLong());
+            boolean anyChangeSinceUpdate = in.readBoolean();
+
+            List<Vehicle> newRegistered = readVehicles(in, vehicles);
+
+            TreeMap<Vehicle, List<Vehicle>> assessed = new TreeMap<>(Comparator.comparingLong(Vehicle::getId));
+            int nAssessed = in.readInt();
+            for (int k = 0; k < nAssessed; k++) {
+                Vehicle vehicle = vehicle(vehicles, in.readLong());
+                assessed.put(vehicle, readVehicles(in, vehicles));
+            }
+
+            List<Vehicle> maxPrio = readVehicles(in, vehicles);
+
+            crossing.restore(newRegistered, assessed, maxPrio, anyChangeSinceUpdate);
+        }
+
+        simulation.setAge(age);
+
+        logger.info("Snapshot of " + nVehicles + " vehicles and " + nNodes + " nodes restored after "
+                + (System.nanoTime() - time) / 1_000_000 + "ms");
+    }
+
+    private static GraphGUID readGUID(DataInput in) throws IOException {
+        Bounds bounds = new Bounds(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+        return new GraphGUID(bounds, in.readInt(), in.readInt());
+    }
+
+    private static DirectedEdge edge(HashMap<Long, DirectedEdge[]> edges, long id, int orientation)
+            throws IOException {
+        DirectedEdge[] candidates = edges.get(id);
+        if (candidates == null || orientation < 0 || orientation >= 2 || candidates[orientation] == null)
+            throw new IOException("Unknown edge " + id);
+        return candidates[orientation];
+    }
+
+    private static Vehicle vehicle(HashMap<Long, Vehicle> vehicles, long id) throws IOException {
+        Vehicle vehicle = vehicles.get(id);
+        if (vehicle == null)
+            throw new IOException("Unknown vehicle " + id + "; the scenario has to be prepared as the snapshotted one");
+        return vehicle;
+    }
+
+    private static List<Vehicle> readVehicles(DataInput in, HashMap<Long, Vehicle> vehicles) throws IOException {
+        int n = in.readInt();
+        ArrayList<Vehicle> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            list.add(vehicle(vehicles, in.readLong()));
+        return list;
+    }
+}
@@ -1,8 +1,10 @@
 package microtrafficsim.core.simulation.core.stepexecutors;
 
-import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streetgraph.GraphState;
 import microtrafficsim.core.logic.vehicles.machines.Vehicle;
+import microtrafficsim.core.simulation.core.monitoring.EdgeStatistics;
 import microtrafficsim.core.simulation.scenarios.Scenario;
+import microtrafficsim.core.simulation.scenarios.containers.VehicleContainer;
 import microtrafficsim.utils.concurrency.delegation.StaticThreadDelegator;
 import microtrafficsim.utils.concurrency.delegation.ThreadDelegator;
 
@@ -82,8 +84,10 @@ public class MultiThreadedVehicleStepExecutor implements VehicleStepExecutor {
 
     @Override
     public void moveAll(final Scenario scenario) {
+        EdgeStatistics statistics = scenario.getGraphState().getEdgeStatistics();
         try {
-            delegator.doTask(Vehicle::move,
+            delegator.doTask(
+                    statistics == null ? Vehicle::move : vehicle -> VehicleStepExecutor.move(vehicle, statistics),
                     scenario.getVehicleContainer().getSpawnedVehicles().iterator(),
                     scenario.getConfig().multiThreading.vehiclesPerRunnable
             );
@@ -106,22 +110,25 @@ public class MultiThreadedVehicleStepExecutor implements VehicleStepExecutor {
 
     @Override
     public void spawnAll(final Scenario scenario) {
+        VehicleContainer container = scenario.getVehicleContainer();
         try {
             delegator.doTask(Vehicle::spawn,
-                    scenario.getVehicleContainer().getNotSpawnedVehicles().iterator(),
+                    container.getSpawnCandidates(scenario.getGraphState()).iterator(),
                     scenario.getConfig().multiThreading.vehiclesPerRunnable
             );
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        container.didSpawn();
     }
 
     @Override
     public void updateNodes(final Scenario scenario) {
+        GraphState state = scenario.getGraphState();
         try {
             delegator.doTask(
-                    Node::update,
-                    scenario.getGraph().getNodes().iterator(),
+                    node -> node.update(state),
+                    state.getActiveNodes().iterator(),
                     scenario.getConfig().multiThreading.nodesPerThread);
         } catch (InterruptedException e) {
             e.printStackTrace();
@@ -1,8 +1,11 @@
 package microtrafficsim.core.simulation.core.stepexecutors;
 
 import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streetgraph.GraphState;
 import microtrafficsim.core.logic.vehicles.machines.Vehicle;
+import microtrafficsim.core.simulation.core.monitoring.EdgeStatistics;
 import microtrafficsim.core.simulation.scenarios.Scenario;
+import microtrafficsim.core.simulation.scenarios.containers.VehicleContainer;
 
 
 /**
@@ -43,8 +46,14 @@ public class SingleThreadedVehicleStepExecutor implements VehicleStepExecutor {
 
     @Override
     public void moveAll(final Scenario scenario) {
-        for (Vehicle vehicle : scenario.getVehicleContainer().getSpawnedVehicles())
-            vehicle.move();
+        EdgeStatistics statistics = scenario.getGraphState().getEdgeStatistics();
+        if (statistics == null) {
+            for (Vehicle vehicle : scenario.getVehicleContainer().getSpawnedVehicles())
+                vehicle.move();
+        } else {
+            for (Vehicle vehicle : scenario.getVehicleContainer().getSpawnedVehicles())
+                VehicleStepExecutor.move(vehicle, statistics);
+        }
     }
 
     @Override
@@ -55,13 +64,16 @@ public class SingleThreadedVehicleStepExecutor implements VehicleStepExecutor {
 
     @Override
     public void spawnAll(final Scenario scenario) {
-        for (Vehicle vehicle : scenario.getVehicleContainer().getNotSpawnedVehicles())
+        VehicleContainer container = scenario.getVehicleContainer();
+        for (Vehicle vehicle : container.getSpawnCandidates(scenario.getGraphState()))
             vehicle.spawn();
+        container.didSpawn();
     }
 
     @Override
     public void updateNodes(final Scenario scenario) {
-        for (Node node : scenario.getGraph().getNodes())
-            node.update();
+        GraphState state = scenario.getGraphState();
+        for (Node node : state.getActiveNodes())
+            node.update(state);
     }
 }
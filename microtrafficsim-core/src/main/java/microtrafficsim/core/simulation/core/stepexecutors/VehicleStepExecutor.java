@@ -1,6 +1,11 @@
 package microtrafficsim.core.simulation.core.stepexecutors;
 
+import microtrafficsim.core.logic.streetgraph.GraphState;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.logic.vehicles.machines.Vehicle;
+import microtrafficsim.core.simulation.core.monitoring.EdgeStatistics;
 import microtrafficsim.core.simulation.scenarios.Scenario;
+import microtrafficsim.core.simulation.scenarios.containers.VehicleContainer;
 
 
 /**
@@ -28,7 +33,8 @@ public interface VehicleStepExecutor {
     void brakeAll(Scenario scenario);
 
     /**
-     * Moves all spawned vehicles.
+     * Moves all spawned vehicles. If the graph state of the scenario has {@link EdgeStatistics}, each move is
+     * recorded using {@link #move(Vehicle, EdgeStatistics)}.
      *
      * @param scenario The scenario holding an iterator over all spawned vehicles getting prepared for moving.
      */
@@ -42,7 +48,8 @@ public interface VehicleStepExecutor {
     void didMoveAll(Scenario scenario);
 
     /**
-     * After executing tasks for spawned vehicles, there is space for not spawned ones {@literal ->} spawn them.
+     * After executing tasks for spawned vehicles, there is space for not spawned ones {@literal ->} spawn them. Only
+     * the vehicles returned by {@link VehicleContainer#getSpawnCandidates(GraphState)} try to spawn.
      *
      * @param scenario The scenario holding an iterator over all not-spawned vehicles getting prepared for moving.
      */
@@ -55,4 +62,18 @@ public interface VehicleStepExecutor {
      * @param scenario The scenario holding the {@code StreetGraph} and {@code SimulationConfig}
      */
     void updateNodes(Scenario scenario);
+
+
+    /**
+     * Moves the given vehicle and records the move in the given statistics.
+     */
+    static void move(Vehicle vehicle, EdgeStatistics statistics) {
+        DirectedEdge edge = vehicle.getLane().getEdge();
+        int velocity = vehicle.getVelocity();
+
+        vehicle.move();
+
+        boolean left = vehicle.getLane() == null || vehicle.getLane().getEdge() != edge;
+        statistics.record(edge, velocity, left);
+    }
 }
\ No newline at end of file
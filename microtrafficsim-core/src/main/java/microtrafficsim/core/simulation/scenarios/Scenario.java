@@ -2,6 +2,7 @@ package microtrafficsim.core.simulation.scenarios;
 
 import microtrafficsim.core.logic.nodes.Node;
 import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streetgraph.GraphState;
 import microtrafficsim.core.logic.streets.DirectedEdge;
 import microtrafficsim.core.shortestpath.ShortestPathAlgorithm;
 import microtrafficsim.core.simulation.builder.ScenarioBuilder;
@@ -39,6 +40,12 @@ public interface Scenario extends StepListener, Resettable {
      */
     Graph getGraph();
 
+    /**
+     * @return the state of the streetgraph in this scenario, i.e. the vehicles on the lanes and the crossing logic of
+     * the nodes; the graph itself can be shared by multiple scenarios
+     */
+    GraphState getGraphState();
+
     /**
      * @return the vehicle container managing (not) spawned vehicles of this scenario
      */
@@ -88,18 +95,18 @@ public interface Scenario extends StepListener, Resettable {
      * Resets this scenario by<br>
      * &bull; setting prepared to false <br>
      * &bull; clearing the vehicle container <br>
-     * &bull; resetting the streetgraph
+     * &bull; resetting the state of the streetgraph
      *
      * @see #setPrepared(boolean)
      * @see #getVehicleContainer()
      * @see VehicleContainer#clearAll()
-     * @see #getGraph()
-     * @see Graph#reset()
+     * @see #getGraphState()
+     * @see GraphState#reset()
      */
     @Override
     default void reset() {
         setPrepared(false);
         getVehicleContainer().clearAll();
-        getGraph().reset();
+        getGraphState().reset();
     }
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package microtrafficsim.core.simulation.scenarios.containers;
 
+import microtrafficsim.core.logic.streetgraph.GraphState;
 import microtrafficsim.core.logic.streets.DirectedEdge;
 import microtrafficsim.core.logic.vehicles.VehicleStateListener;
+import microtrafficsim.core.logic.vehicles.machines.MonitoredVehicle;
 import microtrafficsim.core.logic.vehicles.machines.Vehicle;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
 
@@ -80,6 +83,54 @@ public interface VehicleContainer extends VehicleStateListener, Iterable<Vehicle
      */
     Collection<Vehicle> getNotSpawnedVehicles();
 
+    /**
+     * <p>
+     * Default: filters {@link #getVehicles()}
+     *
+     * @return All contained vehicles implementing {@link MonitoredVehicle}, ordered by id. The returned collection
+     * should be unmodifiable to guarantee only this class makes deep changes.
+     */
+    default Collection<Vehicle> getMonitoredVehicles() {
+        ArrayList<Vehicle> monitoredVehicles = new ArrayList<>();
+        for (Vehicle vehicle : getVehicles())
+            if (vehicle instanceof MonitoredVehicle)
+                monitoredVehicles.add(vehicle);
+        return monitoredVehicles;
+    }
+
+    /*
+    |==========|
+    | spawning |
+    |==========|
+    */
+    /**
+     * <p>
+     * Returns the not spawned vehicles, that have to call {@link Vehicle#spawn()} in the current simulation step. All
+     * other not spawned vehicles would not spawn anyways, so a container may skip them and call
+     * {@link Vehicle#waitForSpawning(int)} lazily instead. After the returned vehicles have tried to spawn,
+     * {@link #didSpawn()} has to be called.
+     *
+     * <p>
+     * Default: all not spawned vehicles
+     *
+     * @param state the state of the simulation the vehicles are part of
+     * @return the vehicles trying to spawn in the current step, ordered by id
+     */
+    default Collection<Vehicle> getSpawnCandidates(GraphState state) {
+        return getNotSpawnedVehicles();
+    }
+
+    /**
+     * Finishes the spawn phase of the current simulation step, see {@link #getSpawnCandidates(GraphState)}.
+     */
+    default void didSpawn() {}
+
+    /**
+     * Has to be called if the not spawned vehicles have been changed from outside (e.g. restored from a snapshot), so
+     * the container can update its internal schedule of them.
+     */
+    default void rescheduleSpawning() {}
+
     // probably unused :(
     //	/**
     //	 * Returns the index of the list of the greatest size less than or equal to
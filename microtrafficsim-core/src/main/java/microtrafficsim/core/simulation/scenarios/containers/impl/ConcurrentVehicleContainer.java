@@ -1,6 +1,7 @@
 package microtrafficsim.core.simulation.scenarios.containers.impl;
 
 import microtrafficsim.core.logic.vehicles.VehicleState;
+import microtrafficsim.core.logic.vehicles.machines.MonitoredVehicle;
 import microtrafficsim.core.logic.vehicles.machines.Vehicle;
 import microtrafficsim.core.simulation.scenarios.containers.VehicleContainer;
 
@@ -15,7 +16,7 @@ import java.util.*;
  */
 public class ConcurrentVehicleContainer implements VehicleContainer {
 
-    protected Set<Vehicle> spawnedVehicles, notSpawnedVehicles, vehicles;
+    protected Set<Vehicle> spawnedVehicles, notSpawnedVehicles, vehicles, monitoredVehicles;
 
     /**
      * Default constructor. It initializes the used sets as concurrent ones, so they can be edited while iterated.
@@ -24,6 +25,7 @@ public class ConcurrentVehicleContainer implements VehicleContainer {
         spawnedVehicles     = new TreeSet<>(Comparator.comparingLong(Vehicle::getId));
         notSpawnedVehicles  = new TreeSet<>(Comparator.comparingLong(Vehicle::getId));
         vehicles            = new TreeSet<>(Comparator.comparingLong(Vehicle::getId));
+        monitoredVehicles   = new TreeSet<>(Comparator.comparingLong(Vehicle::getId));
     }
 
     /*
@@ -35,6 +37,8 @@ public class ConcurrentVehicleContainer implements VehicleContainer {
     public synchronized void addVehicle(Vehicle vehicle) {
         notSpawnedVehicles.add(vehicle);
         vehicles.add(vehicle);
+        if (vehicle instanceof MonitoredVehicle)
+            monitoredVehicles.add(vehicle);
     }
 
     @Override
@@ -42,6 +46,7 @@ public class ConcurrentVehicleContainer implements VehicleContainer {
         spawnedVehicles.clear();
         notSpawnedVehicles.clear();
         vehicles.clear();
+        monitoredVehicles.clear();
     }
 
     @Override
@@ -89,6 +94,17 @@ public class ConcurrentVehicleContainer implements VehicleContainer {
         return set;
     }
 
+    /**
+     * Addition to superclass: Due to concurrency, this method returns a shallow copy created synchronized. The
+     * monitored vehicles are stored separately, so this method does not iterate over all vehicles.
+     */
+    @Override
+    public synchronized Set<Vehicle> getMonitoredVehicles() {
+        TreeSet<Vehicle> set = new TreeSet<>(Comparator.comparingLong(Vehicle::getId));
+        set.addAll(monitoredVehicles);
+        return set;
+    }
+
     /*
     |==========================|
     | (i) VehicleStateListener |
@@ -100,6 +116,7 @@ public class ConcurrentVehicleContainer implements VehicleContainer {
             spawnedVehicles.remove(vehicle);
             notSpawnedVehicles.remove(vehicle);
             vehicles.remove(vehicle);
+            monitoredVehicles.remove(vehicle);
         } else if (vehicle.getState() == VehicleState.SPAWNED) {
             notSpawnedVehicles.remove(vehicle);
             spawnedVehicles.add(vehicle);
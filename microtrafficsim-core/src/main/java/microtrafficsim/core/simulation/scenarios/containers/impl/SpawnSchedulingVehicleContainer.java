@@ -0,0 +1,228 @@
+package microtrafficsim.core.simulation.scenarios.containers.impl;
+
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.routes.Route;
+import microtrafficsim.core.logic.streetgraph.GraphState;
+import microtrafficsim.core.logic.vehicles.VehicleState;
+import microtrafficsim.core.logic.vehicles.machines.Vehicle;
+
+import java.util.*;
+
+
+/**
+ * <p>
+ * Extends the {@link ConcurrentVehicleContainer} by a schedule of the not spawned vehicles, so the spawn phase of a
+ * simulation step does not have to iterate over all not spawned vehicles. Instead, only vehicles that could spawn
+ * actually call {@link Vehicle#spawn()}; all other vehicles would only wait, which is applied lazily by
+ * {@link Vehicle#waitForSpawning(int)} before they are returned by this container or before they try to spawn.
+ *
+ * <p>
+ * The schedule consists of two parts:<br>
+ * &bull; a calendar (step &rarr; vehicles) containing the step, in which the spawn delay of a vehicle is over. Every
+ * vehicle tries to spawn in this step (e.g. vehicles with an empty route despawn).<br>
+ * &bull; the vehicles, whose spawn delay is over, grouped by their origin. A vehicle can only spawn if it has
+ * permission to cross its origin and if its first lane has space for it. Hence only the vehicles having permission
+ * are checked in each step, which are at most a few per origin.
+ *
+ * <p>
+ * Thus, the cost of the spawn phase depends on the number of origins and the number of vehicles actually spawning,
+ * but not on the number of queued vehicles.
+ *
+ * @author agent
+ */
+public class SpawnSchedulingVehicleContainer extends ConcurrentVehicleContainer {
+
+    private int step;   // number of finished spawn phases
+    private final HashMap<Long, Entry> entries;
+    private final HashMap<Integer, ArrayList<Entry>> calendar;
+    private final HashMap<Node, TreeSet<Vehicle>> waiting;
+    private Collection<Entry> candidates;
+
+
+    public SpawnSchedulingVehicleContainer() {
+        step       = 0;
+        entries    = new HashMap<>();
+        calendar   = new HashMap<>();
+        waiting    = new HashMap<>();
+        candidates = Collections.emptyList();
+    }
+
+
+    private void schedule(Vehicle vehicle) {
+        Entry entry = new Entry(vehicle, step);
+        entries.put(vehicle.getId(), entry);
+
+        // see Vehicle#spawn(): the vehicle tries to spawn as soon as its travelling time is not negative
+        int delay = -vehicle.getDriver().getTravellingTime();
+        calendar.computeIfAbsent(step + Math.max(0, delay), k -> new ArrayList<>()).add(entry);
+    }
+
+    private void unschedule(Vehicle vehicle) {
+        Entry entry = entries.remove(vehicle.getId());
+        if (entry == null || entry.origin == null)
+            return;
+
+        TreeSet<Vehicle> vehicles = waiting.get(entry.origin);
+        vehicles.remove(vehicle);
+        if (vehicles.isEmpty())
+            waiting.remove(entry.origin);
+    }
+
+    /**
+     * Applies all steps the given vehicle has been waiting lazily.
+     */
+    private void synchronize(Entry entry) {
+        entry.vehicle.waitForSpawning(step - entry.synchronizedStep);
+        entry.synchronizedStep = step;
+    }
+
+    private void synchronizeAll() {
+        for (Entry entry : entries.values())
+            synchronize(entry);
+    }
+
+    /*
+    |======================|
+    | (i) VehicleContainer |
+    |======================|
+    */
+    @Override
+    public synchronized void addVehicle(Vehicle vehicle) {
+        super.addVehicle(vehicle);
+        schedule(vehicle);
+    }
+
+    @Override
+    public synchronized void clearAll() {
+        super.clearAll();
+        entries.clear();
+        calendar.clear();
+        waiting.clear();
+        candidates = Collections.emptyList();
+    }
+
+    /**
+     * Addition to superclass: The lazily applied steps of the not spawned vehicles are applied before.
+     */
+    @Override
+    public synchronized Set<Vehicle> getVehicles() {
+        synchronizeAll();
+        return super.getVehicles();
+    }
+
+    /**
+     * Addition to superclass: The lazily applied steps of the not spawned vehicles are applied before.
+     */
+    @Override
+    public synchronized Set<Vehicle> getNotSpawnedVehicles() {
+        synchronizeAll();
+        return super.getNotSpawnedVehicles();
+    }
+
+    /**
+     * Addition to superclass: The lazily applied steps of the monitored not spawned vehicles are applied before.
+     */
+    @Override
+    public synchronized Set<Vehicle> getMonitoredVehicles() {
+        for (Vehicle vehicle : monitoredVehicles) {
+            Entry entry = entries.get(vehicle.getId());
+            if (entry != null)
+                synchronize(entry);
+        }
+        return super.getMonitoredVehicles();
+    }
+
+    @Override
+    public synchronized Collection<Vehicle> getSpawnCandidates(GraphState state) {
+        TreeMap<Long, Entry> candidates = new TreeMap<>();
+
+        /* spawn delay is over */
+        ArrayList<Entry> due = calendar.remove(step);
+        if (due != null) {
+            for (Entry entry : due) {
+                if (entries.get(entry.vehicle.getId()) != entry)
+                    continue;   // already unscheduled
+
+                candidates.put(entry.vehicle.getId(), entry);
+
+                Route route = entry.vehicle.getDriver().getRoute();
+                if (!route.isEmpty()) {
+                    entry.origin = route.getOrigin();
+                    waiting.computeIfAbsent(entry.origin, k -> new TreeSet<>(Comparator.comparingLong(Vehicle::getId)))
+                            .add(entry.vehicle);
+                }
+            }
+        }
+
+        /* waiting at origin => permission to cross and space on the first lane are needed for spawning */
+        for (Map.Entry<Node, TreeSet<Vehicle>> origin : waiting.entrySet()) {
+            Node.CrossingState crossing = state.getCrossingState(origin.getKey());
+            if (crossing == null)
+                continue;
+
+            for (Vehicle vehicle : crossing.getMaxPrioVehicles()) {
+                if (!origin.getValue().contains(vehicle))
+                    continue;
+
+                if (vehicle.getDriver().peekRoute().getLane(0).getMaxInsertionIndex(state) >= 0)
+                    candidates.put(vehicle.getId(), entries.get(vehicle.getId()));
+            }
+        }
+
+        ArrayList<Vehicle> vehicles = new ArrayList<>(candidates.size());
+        for (Entry entry : candidates.values()) {
+            synchronize(entry);
+            vehicles.add(entry.vehicle);
+        }
+
+        this.candidates = candidates.values();
+        return vehicles;
+    }
+
+    @Override
+    public synchronized void didSpawn() {
+        // candidates not spawned have been waiting by calling spawn()
+        for (Entry entry : candidates)
+            if (entries.get(entry.vehicle.getId()) == entry)
+                entry.synchronizedStep = step + 1;
+        candidates = Collections.emptyList();
+
+        step++;
+    }
+
+    @Override
+    public synchronized void rescheduleSpawning() {
+        entries.clear();
+        calendar.clear();
+        waiting.clear();
+        candidates = Collections.emptyList();
+
+        for (Vehicle vehicle : notSpawnedVehicles)
+            schedule(vehicle);
+    }
+
+    /*
+    |==========================|
+    | (i) VehicleStateListener |
+    |==========================|
+    */
+    @Override
+    public synchronized void stateChanged(Vehicle vehicle) {
+        super.stateChanged(vehicle);
+
+        if (vehicle.getState() == VehicleState.SPAWNED || vehicle.getState() == VehicleState.DESPAWNED)
+            unschedule(vehicle);
+    }
+
+
+    private static class Entry {
+        private final Vehicle vehicle;
+        private int synchronizedStep;   // all spawn phases before this step are applied to the vehicle
+        private Node origin;            // null until the spawn delay is over
+
+        private Entry(Vehicle vehicle, int step) {
+            this.vehicle          = vehicle;
+            this.synchronizedStep = step;
+        }
+    }
+}
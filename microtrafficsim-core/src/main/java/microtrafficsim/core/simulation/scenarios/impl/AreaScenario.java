@@ -1,20 +1,21 @@
 package microtrafficsim.core.simulation.scenarios.impl;
 
 import microtrafficsim.core.logic.nodes.Node;
-import microtrafficsim.core.logic.routes.MetaRoute;
-import microtrafficsim.core.logic.routes.Route;
 import microtrafficsim.core.logic.streetgraph.Graph;
 import microtrafficsim.core.map.UnprojectedAreas;
+import microtrafficsim.core.map.area.MappableGrid;
 import microtrafficsim.core.map.area.polygons.TypedPolygonArea;
 import microtrafficsim.core.simulation.configs.SimulationConfig;
 import microtrafficsim.core.simulation.scenarios.containers.VehicleContainer;
-import microtrafficsim.core.simulation.scenarios.containers.impl.ConcurrentVehicleContainer;
+import microtrafficsim.core.simulation.scenarios.containers.impl.SpawnSchedulingVehicleContainer;
 import microtrafficsim.core.simulation.utils.RouteContainer;
+import microtrafficsim.core.simulation.utils.RouteTable;
 import microtrafficsim.core.simulation.utils.SortedRouteContainer;
 import microtrafficsim.core.vis.scenario.areas.Area;
 import microtrafficsim.math.random.Seeded;
 import microtrafficsim.math.random.distributions.WheelOfFortune;
 import microtrafficsim.math.random.distributions.impl.BasicWheelOfFortune;
+import microtrafficsim.math.random.distributions.impl.CounterRandom;
 import microtrafficsim.math.random.distributions.impl.Random;
 import microtrafficsim.utils.Resettable;
 import microtrafficsim.utils.collections.FastSortedArrayList;
@@ -22,7 +23,11 @@ import microtrafficsim.utils.logging.EasyMarkableLogger;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Dominic Parga Cacheiro
@@ -31,18 +36,18 @@ public class AreaScenario extends BasicRandomScenario {
     private static final Logger logger = new EasyMarkableLogger(AreaScenario.class);
 
     private final AreaNodeContainer areaNodeContainer;
-    private final RouteContainer routes;
+    private RouteContainer routes;
 
     public AreaScenario(long seed,
                         SimulationConfig config,
                         Graph graph) {
-        this(new Random(seed), config, graph, new ConcurrentVehicleContainer());
+        this(new Random(seed), config, graph, new SpawnSchedulingVehicleContainer());
     }
 
     public AreaScenario(Random random,
                         SimulationConfig config,
                         Graph graph) {
-        this(random, config, graph, new ConcurrentVehicleContainer());
+        this(random, config, graph, new SpawnSchedulingVehicleContainer());
     }
 
     public AreaScenario(long seed,
@@ -79,20 +84,46 @@ public class AreaScenario extends BasicRandomScenario {
         resetAndClearRoutes();
         areaNodeContainer.refillNodeLists(getGraph());
 
-        for (int i = 0; i < getConfig().maxVehicleCount; i++) {
-            boolean weightedUniformly = getConfig().scenario.nodesAreWeightedUniformly;
+        boolean weightedUniformly = getConfig().scenario.nodesAreWeightedUniformly;
+        NodeSampler origins       = areaNodeContainer.getOriginSampler();
+        NodeSampler destinations  = areaNodeContainer.getDestinationSampler();
 
-            MonitoredNode origin      = areaNodeContainer.getRdmOriginNode(weightedUniformly);
-            MonitoredNode destination = areaNodeContainer.getRdmDestNode(weightedUniformly);
+        defineMetaRoutes((index, random, table) -> {
+            MonitoredNode origin      = origins.next(random, weightedUniformly);
+            MonitoredNode destination = destinations.next(random, weightedUniformly);
 
-            Route route = new MetaRoute(origin.node, destination.node);
-            route.setMonitored(origin.isMonitored || destination.isMonitored);
-            routes.add(route);
-        }
+            table.set(index, origin.node, destination.node, origin.isMonitored() || destination.isMonitored());
+        });
 
         logger.info("DEFINING routes finished");
     }
 
+    /**
+     * Replaces the routes of this scenario by a {@link RouteTable} of
+     * {@link SimulationConfig#maxVehicleCount maxVehicleCount} routes defined in parallel by the given definition. The
+     * random streams of the definition are derived from the seed of this scenario, so the routes are independent of
+     * the number of threads.
+     */
+    protected void defineMetaRoutes(RouteTable.Definition definition) {
+        try {
+            routes = RouteTable.define(getGraph(), getConfig().maxVehicleCount, areaNodeContainer.getSeed(),
+                    getConfig().multiThreading.nThreads, definition);
+        } catch (InterruptedException e) {
+            logger.info("DEFINING routes interrupted");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Addition to superclass: The routes are replaced by an empty {@link SortedRouteContainer}, so routes of any kind
+     * can be added afterwards.
+     */
+    @Override
+    public void resetAndClearRoutes() {
+        super.resetAndClearRoutes();
+        routes = new SortedRouteContainer();
+    }
+
 
     @Override
     public void reset() {
@@ -107,6 +138,16 @@ public class AreaScenario extends BasicRandomScenario {
     }
 
 
+    /**
+     * <p>
+     * Assigns the nodes of a graph to origin and destination areas. The nodes are weighted by the number of areas of
+     * the respective type they are contained in.
+     *
+     * <p>
+     * The nodes are found using a spatial index ({@link MappableGrid}) over the nodes of the graph, which is built
+     * once per graph. Added and removed areas are only applied on the next call of {@link #refillNodeLists(Graph)},
+     * which re-weights the nodes inside these areas only.
+     */
     public static class AreaNodeContainer implements Seeded, Resettable {
         private final UnprojectedAreas originAreas;
         private final UnprojectedAreas destinationAreas;
@@ -115,6 +156,13 @@ public class AreaScenario extends BasicRandomScenario {
         private final HashMap<TypedPolygonArea, FastSortedArrayList<MonitoredNode>> areaToNode;
         private final Random nodeRandom;
 
+        /* incremental updates */
+        private Graph indexedGraph;
+        private MappableGrid<Node> nodeIndex;
+        private final HashMap<Node, MonitoredNode> monitoredNodes;
+        private final ArrayList<TypedPolygonArea> addedAreas;
+        private final HashMap<TypedPolygonArea, FastSortedArrayList<MonitoredNode>> removedAreas;
+
         private boolean isDirty = false;
 
         public AreaNodeContainer(long seed) {
@@ -126,6 +174,12 @@ public class AreaScenario extends BasicRandomScenario {
             rdmDestinationSupplier = new BasicWheelOfFortune<>(nodeRandom);
 
             areaToNode = new HashMap<>();
+
+            indexedGraph   = null;
+            nodeIndex      = null;
+            monitoredNodes = new HashMap<>();
+            addedAreas     = new ArrayList<>();
+            removedAreas   = new HashMap<>();
         }
 
 
@@ -159,8 +213,16 @@ public class AreaScenario extends BasicRandomScenario {
                 originAreas.add(area);
             else
                 destinationAreas.add(area);
-            areaToNode.computeIfAbsent(area, k -> new FastSortedArrayList<>());
-            isDirty = true;
+
+            // removed and added again before refilling => nodes are still assigned
+            FastSortedArrayList<MonitoredNode> nodes = removedAreas.remove(area);
+            if (nodes != null) {
+                areaToNode.put(area, nodes);
+            } else {
+                areaToNode.put(area, new FastSortedArrayList<>());
+                addedAreas.add(area);
+                isDirty = true;
+            }
             return true;
         }
 
@@ -175,12 +237,13 @@ public class AreaScenario extends BasicRandomScenario {
         }
 
         /**
-         * Removes the given area WITHOUT the need of calling {@link #refillNodeLists(Graph)}
+         * Removes the given area WITHOUT refilling the respective node list. If you like to, call
+         * {@link #refillNodeLists(Graph)}
          *
          * @param area
          */
         public void removeArea(TypedPolygonArea area) {
-            ArrayList<MonitoredNode> nodes = areaToNode.remove(area);
+            FastSortedArrayList<MonitoredNode> nodes = areaToNode.remove(area);
             if (nodes == null)
                 return;
 
@@ -188,7 +251,12 @@ public class AreaScenario extends BasicRandomScenario {
                 originAreas.remove(area);
             else
                 destinationAreas.remove(area);
-            isDirty = true;
+
+            // added and removed again before refilling => nodes have never been assigned
+            if (!addedAreas.remove(area)) {
+                removedAreas.put(area, nodes);
+                isDirty = true;
+            }
         }
 
 
@@ -204,6 +272,35 @@ public class AreaScenario extends BasicRandomScenario {
             return rdmDestinationSupplier.nextObject(weightedUniformly);
         }
 
+        /**
+         * @return a snapshot of the origin nodes and their weights, which can be sampled concurrently
+         */
+        public NodeSampler getOriginSampler() {
+            assert !isDirty : "Random nodes could not be chosen due to the collection is not updated yet.";
+
+            return new NodeSampler(rdmOriginSupplier);
+        }
+
+        /**
+         * @return a snapshot of the destination nodes and their weights, which can be sampled concurrently
+         */
+        public NodeSampler getDestinationSampler() {
+            assert !isDirty : "Random nodes could not be chosen due to the collection is not updated yet.";
+
+            return new NodeSampler(rdmDestinationSupplier);
+        }
+
+        /**
+         * @return a snapshot of the nodes of the given area, which can be sampled concurrently (all nodes are
+         * weighted equally)
+         */
+        public NodeSampler getSampler(TypedPolygonArea area) {
+            List<MonitoredNode> nodes = getNodes(area);
+            if (nodes.isEmpty())
+                logger.warn("Empty area in class " + AreaScenario.class.getSimpleName());
+            return new NodeSampler(nodes);
+        }
+
         public MonitoredNode getRdmNode(TypedPolygonArea area) {
             assert !isDirty : "Random nodes could not be chosen due to the collection is not updated yet.";
 
@@ -215,61 +312,94 @@ public class AreaScenario extends BasicRandomScenario {
             return nodes.get(nodeRandom.nextInt(nodes.size()));
         }
 
+        /**
+         * @return the nodes assigned to the given area (sorted), or an empty list if the area is not part of this
+         * container
+         */
+        public List<MonitoredNode> getNodes(TypedPolygonArea area) {
+            assert !isDirty : "Nodes could not be returned due to the collection is not updated yet.";
+
+            FastSortedArrayList<MonitoredNode> nodes = areaToNode.get(area);
+            if (nodes == null)
+                return Collections.emptyList();
+
+            nodes.sort();
+            return Collections.unmodifiableList(nodes);
+        }
+
 
         public void refillNodeLists(Graph graph) {
             reset();
 
-            isDirty |= !hasOriginAreas() || !hasDestinationAreas();
-            if (isDirty) {
+            // new graph => rebuild index and re-assign all areas
+            if (graph != indexedGraph) {
+                indexedGraph = graph;
+                nodeIndex = new MappableGrid<>(graph.getNodes());
+
                 clearNodeLists();
+                removedAreas.clear();
+                addedAreas.clear();
+                addedAreas.addAll(originAreas);
+                addedAreas.addAll(destinationAreas);
+                isDirty = true;
+            }
 
+            isDirty |= !hasOriginAreas() || !hasDestinationAreas();
+            if (isDirty) {
                 if (!hasOriginAreas())
                     addArea(graph.total(Area.Type.ORIGIN));
                 if (!hasDestinationAreas())
                     addArea(graph.total(Area.Type.DESTINATION));
 
-                for (Node node : graph.getNodes()) {
-                    MonitoredNode monitoredNode = new MonitoredNode(node, false);
-
-                    // origin areas
-                    int weight = 0;
-                    boolean added = false;
-                    for (TypedPolygonArea area : originAreas) {
-                        if (area.contains((node))) {
-                            weight++;
-                            added = true;
-                            monitoredNode.isMonitored |= area.isMonitored();
-                            areaToNode.get(area).add(monitoredNode);
-                        }
-                    }
-                    if (added)
-                        rdmOriginSupplier.add(monitoredNode, weight);
-
-
-                    // destination areas
-                    weight = 0;
-                    added = false;
-                    for (TypedPolygonArea area : destinationAreas) {
-                        if (area.contains((node))) {
-                            weight++;
-                            added = true;
-                            monitoredNode.isMonitored |= area.isMonitored();
-                            areaToNode.get(area).add(monitoredNode);
-                        }
-                    }
-                    if (added) {
-                        rdmDestinationSupplier.add(monitoredNode, weight);
-                    }
-                }
+                for (Map.Entry<TypedPolygonArea, FastSortedArrayList<MonitoredNode>> entry : removedAreas.entrySet())
+                    unassign(entry.getKey(), entry.getValue());
+
+                for (TypedPolygonArea area : addedAreas)
+                    assign(area);
 
+                removedAreas.clear();
+                addedAreas.clear();
                 isDirty = false;
             }
         }
 
+        private void assign(TypedPolygonArea area) {
+            WheelOfFortune<MonitoredNode> supplier = getSupplier(area);
+            FastSortedArrayList<MonitoredNode> nodes = areaToNode.get(area);
+
+            for (Node node : nodeIndex.query(area, area.getBounds())) {
+                MonitoredNode monitoredNode = monitoredNodes.computeIfAbsent(node, n -> new MonitoredNode(n, false));
+                if (area.isMonitored())
+                    monitoredNode.incMonitoringAreas();
+
+                supplier.incWeight(monitoredNode);
+                nodes.add(monitoredNode);
+            }
+        }
+
+        private void unassign(TypedPolygonArea area, FastSortedArrayList<MonitoredNode> nodes) {
+            WheelOfFortune<MonitoredNode> supplier = getSupplier(area);
+
+            for (MonitoredNode monitoredNode : nodes) {
+                if (area.isMonitored())
+                    monitoredNode.decMonitoringAreas();
+
+                supplier.decWeight(monitoredNode);
+                if (rdmOriginSupplier.getWeight(monitoredNode) == 0
+                        && rdmDestinationSupplier.getWeight(monitoredNode) == 0)
+                    monitoredNodes.remove(monitoredNode.node);
+            }
+        }
+
+        private WheelOfFortune<MonitoredNode> getSupplier(TypedPolygonArea area) {
+            return area.getType() == Area.Type.ORIGIN ? rdmOriginSupplier : rdmDestinationSupplier;
+        }
+
         private void clearNodeLists() {
             rdmOriginSupplier.clear();
             rdmDestinationSupplier.clear();
             areaToNode.values().forEach(ArrayList::clear);
+            monitoredNodes.clear();
         }
 
 
@@ -294,9 +424,58 @@ public class AreaScenario extends BasicRandomScenario {
     }
 
 
+    /**
+     * An immutable snapshot of weighted nodes. In contrast to {@link WheelOfFortune}, the random generator is given
+     * per call, so it can be used concurrently, and the weighted selection needs O(log n) instead of O(n).
+     */
+    public static class NodeSampler {
+        private final MonitoredNode[] nodes;
+        private final int[] cumulativeWeights;
+
+        private NodeSampler(WheelOfFortune<MonitoredNode> wheel) {
+            nodes = new MonitoredNode[wheel.size()];
+            cumulativeWeights = new int[nodes.length];
+
+            int i = 0;
+            int weight = 0;
+            for (MonitoredNode node : wheel) {
+                weight += wheel.getWeight(node);
+                nodes[i] = node;
+                cumulativeWeights[i] = weight;
+                i++;
+            }
+        }
+
+        private NodeSampler(List<MonitoredNode> nodes) {
+            this.nodes = nodes.toArray(new MonitoredNode[nodes.size()]);
+            cumulativeWeights = new int[this.nodes.length];
+            for (int i = 0; i < cumulativeWeights.length; i++)
+                cumulativeWeights[i] = i + 1;
+        }
+
+        /**
+         * @return a random node (same distribution as {@link WheelOfFortune#nextObject(boolean)}), or {@code null}
+         * if there are no nodes
+         */
+        public MonitoredNode next(CounterRandom random, boolean weightedUniformly) {
+            if (nodes.length == 0)
+                return null;
+
+            if (weightedUniformly)
+                return nodes[random.nextInt(nodes.length)];
+
+            // first node whose cumulative weight is greater than the drawn value
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int i = Arrays.binarySearch(cumulativeWeights, value + 1);
+            return nodes[i >= 0 ? i : -(i + 1)];
+        }
+    }
+
+
     public static class MonitoredNode implements Comparable<MonitoredNode> {
         private Node node;
         private boolean isMonitored;
+        private int monitoringAreas;    // number of assigned monitored areas
 
         public MonitoredNode(Node node, boolean isMonitored) {
             this.node = node;
@@ -308,7 +487,15 @@ public class AreaScenario extends BasicRandomScenario {
         }
 
         public boolean isMonitored() {
-            return isMonitored;
+            return isMonitored || monitoringAreas > 0;
+        }
+
+        private void incMonitoringAreas() {
+            monitoringAreas++;
+        }
+
+        private void decMonitoringAreas() {
+            monitoringAreas--;
         }
 
         @Override
@@ -7,7 +7,7 @@ import microtrafficsim.core.shortestpath.ShortestPathAlgorithm;
 import microtrafficsim.core.shortestpath.astar.AStars;
 import microtrafficsim.core.simulation.configs.SimulationConfig;
 import microtrafficsim.core.simulation.scenarios.containers.VehicleContainer;
-import microtrafficsim.core.simulation.scenarios.containers.impl.ConcurrentVehicleContainer;
+import microtrafficsim.core.simulation.scenarios.containers.impl.SpawnSchedulingVehicleContainer;
 import microtrafficsim.core.simulation.utils.RouteContainer;
 import microtrafficsim.math.random.Seeded;
 import microtrafficsim.math.random.distributions.impl.Random;
@@ -39,7 +39,7 @@ public abstract class BasicRandomScenario extends BasicScenario implements Seede
     protected BasicRandomScenario(Random random,
                                   SimulationConfig config,
                                   Graph graph) {
-        this(random, config, graph, new ConcurrentVehicleContainer());
+        this(random, config, graph, new SpawnSchedulingVehicleContainer());
     }
 
     protected BasicRandomScenario(long seed,
@@ -1,11 +1,12 @@
 package microtrafficsim.core.simulation.scenarios.impl;
 
 import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streetgraph.GraphState;
 import microtrafficsim.core.logic.streetgraph.UnmodifiableGraph;
 import microtrafficsim.core.simulation.configs.SimulationConfig;
 import microtrafficsim.core.simulation.scenarios.Scenario;
 import microtrafficsim.core.simulation.scenarios.containers.VehicleContainer;
-import microtrafficsim.core.simulation.scenarios.containers.impl.ConcurrentVehicleContainer;
+import microtrafficsim.core.simulation.scenarios.containers.impl.SpawnSchedulingVehicleContainer;
 
 /**
  * This class should only implement the basic stuff for children classes.
@@ -15,6 +16,7 @@ import microtrafficsim.core.simulation.scenarios.containers.impl.ConcurrentVehic
 public abstract class BasicScenario implements Scenario {
     private final SimulationConfig config;
     private final Graph            graph;
+    private final GraphState       graphState;
     private final VehicleContainer vehicleContainer;
     private boolean                isPrepared;
 
@@ -30,12 +32,13 @@ public abstract class BasicScenario implements Scenario {
                             VehicleContainer vehicleContainer) {
         this.config = config;
         this.graph = graph;
+        this.graphState = new GraphState(graph, config.crossingLogic, config.seed);
         this.vehicleContainer = vehicleContainer;
         this.isPrepared = false;
     }
 
     protected BasicScenario(SimulationConfig config, Graph graph) {
-        this(config, graph, new ConcurrentVehicleContainer());
+        this(config, graph, new SpawnSchedulingVehicleContainer());
     }
 
     @Override
@@ -48,6 +51,11 @@ public abstract class BasicScenario implements Scenario {
         return new UnmodifiableGraph(graph);
     }
 
+    @Override
+    public final GraphState getGraphState() {
+        return graphState;
+    }
+
     @Override
     public final VehicleContainer getVehicleContainer() {
         return vehicleContainer;
@@ -1,15 +1,13 @@
 package microtrafficsim.core.simulation.scenarios.impl;
 
 import microtrafficsim.core.logic.nodes.Node;
-import microtrafficsim.core.logic.routes.MetaRoute;
-import microtrafficsim.core.logic.routes.Route;
 import microtrafficsim.core.logic.streetgraph.Graph;
 import microtrafficsim.core.map.Bounds;
 import microtrafficsim.core.map.Coordinate;
 import microtrafficsim.core.map.area.polygons.TypedPolygonArea;
 import microtrafficsim.core.simulation.configs.SimulationConfig;
 import microtrafficsim.core.simulation.scenarios.containers.VehicleContainer;
-import microtrafficsim.core.simulation.scenarios.containers.impl.ConcurrentVehicleContainer;
+import microtrafficsim.core.simulation.scenarios.containers.impl.SpawnSchedulingVehicleContainer;
 import microtrafficsim.core.vis.scenario.areas.Area;
 import microtrafficsim.math.HaversineDistanceCalculator;
 import microtrafficsim.math.random.distributions.impl.Random;
@@ -35,13 +33,13 @@ public class CrossingTheMapScenario extends AreaScenario {
     public CrossingTheMapScenario(long seed,
                                   SimulationConfig config,
                                   Graph graph) {
-        this(new Random(seed), config, graph, new ConcurrentVehicleContainer());
+        this(new Random(seed), config, graph, new SpawnSchedulingVehicleContainer());
     }
 
     public CrossingTheMapScenario(Random random,
                                   SimulationConfig config,
                                   Graph graph) {
-        this(random, config, graph, new ConcurrentVehicleContainer());
+        this(random, config, graph, new SpawnSchedulingVehicleContainer());
     }
 
     public CrossingTheMapScenario(long seed,
@@ -190,9 +188,14 @@ public class CrossingTheMapScenario extends AreaScenario {
         resetAndClearRoutes();
         getAreaNodeContainer().refillNodeLists(getGraph());
 
-        for (int i = 0; i < getConfig().maxVehicleCount; i++) {
-            MonitoredNode monitoredNode = getAreaNodeContainer()
-                    .getRdmOriginNode(getConfig().scenario.nodesAreWeightedUniformly);
+        boolean weightedUniformly = getConfig().scenario.nodesAreWeightedUniformly;
+        NodeSampler origins = getAreaNodeContainer().getOriginSampler();
+        NodeSampler[] destinations = new NodeSampler[destinationAreas.length];
+        for (int i = 0; i < destinationAreas.length; i++)
+            destinations[i] = getAreaNodeContainer().getSampler(destinationAreas[i]);
+
+        defineMetaRoutes((index, random, table) -> {
+            MonitoredNode monitoredNode = origins.next(random, weightedUniformly);
             Node origin = monitoredNode.getNode();
             boolean isMonitored = monitoredNode.isMonitored();
 
@@ -231,25 +234,19 @@ public class CrossingTheMapScenario extends AreaScenario {
             double latDistance = HaversineDistanceCalculator.getDistance(originCoord, latProjection);
             double lonDistance = HaversineDistanceCalculator.getDistance(originCoord, lonProjection);
             if (latDistance > lonDistance)
-                monitoredNode = getAreaNodeContainer().getRdmNode(getDestinationArea(lonOrientation, latOrientation));
+                monitoredNode = destinations[getDestinationAreaIndex(lonOrientation, latOrientation)].next(random, true);
             else
-                monitoredNode = getAreaNodeContainer().getRdmNode(getDestinationArea(latOrientation, lonOrientation));
+                monitoredNode = destinations[getDestinationAreaIndex(latOrientation, lonOrientation)].next(random, true);
             Node destination = monitoredNode.getNode();
             isMonitored |= monitoredNode.isMonitored();
 
-            Route route = new MetaRoute(origin, destination);
-            route.setMonitored(isMonitored);
-            getRoutes().add(route);
-        }
+            table.set(index, origin, destination, isMonitored);
+        });
 
         logger.info("DEFINING routes finished");
     }
 
 
-    private TypedPolygonArea getDestinationArea(Orientation major, Orientation minor) {
-        return destinationAreas[getDestinationAreaIndex(major, minor)];
-    }
-
     private void setDestinationArea(Orientation major, Orientation minor, TypedPolygonArea area) {
         destinationAreas[getDestinationAreaIndex(major, minor)] = area;
     }
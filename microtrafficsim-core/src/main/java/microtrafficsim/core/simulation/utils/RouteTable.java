@@ -0,0 +1,274 @@
+package microtrafficsim.core.simulation.utils;
+
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.routes.MetaRoute;
+import microtrafficsim.core.logic.routes.Route;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.vehicles.machines.Vehicle;
+import microtrafficsim.core.simulation.scenarios.Scenario;
+import microtrafficsim.math.random.distributions.impl.CounterRandom;
+import microtrafficsim.math.random.distributions.impl.Random;
+import microtrafficsim.utils.concurrency.delegation.StaticThreadDelegator;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+
+/**
+ * <p>
+ * A {@link RouteContainer} storing routes without path (like {@link MetaRoute}) in primitive arrays instead of route
+ * objects: the indices of origin and destination in the graph, the spawn delay and whether the route is monitored.
+ * The routes returned by this container are views, so changes of their spawn delay or monitoring are written
+ * through to this table.
+ *
+ * <p>
+ * {@link #define(Graph, int, long, int, Definition)} creates a presized table and defines its routes in parallel.
+ * Every route is defined using its own random stream (see {@link CounterRandom#seek(long, long)}), so the result only
+ * depends on the seed, but not on the number of threads.
+ *
+ * @author agent
+ */
+public class RouteTable extends AbstractList<Route> implements RouteContainer {
+
+    /** Number of routes defined by one task in {@link #define(Graph, int, long, int, Definition)} */
+    private static final int ROUTES_PER_TASK = 1024;
+    private static final long RANDOM_ROUTE   = 0x524F555445L;
+
+    private final Node[] nodes;    // graph nodes by index
+    private int[] origins;
+    private int[] destinations;
+    private int[] spawnDelays;
+    private boolean[] monitored;
+    private int size;
+
+
+    public RouteTable(Graph graph) {
+        this(graph, 16);
+    }
+
+    public RouteTable(Graph graph, int capacity) {
+        int nNodes = 0;
+        for (Node node : graph.getNodes())
+            nNodes = Math.max(nNodes, node.getIndex() + 1);
+
+        nodes = new Node[nNodes];
+        for (Node node : graph.getNodes())
+            nodes[node.getIndex()] = node;
+
+        origins      = new int[capacity];
+        destinations = new int[capacity];
+        spawnDelays  = new int[capacity];
+        monitored    = new boolean[capacity];
+        size         = 0;
+    }
+
+
+    /**
+     * Creates a table of the given size and defines each route by calling the given definition, which has to call
+     * {@link #set(int, Node, Node, boolean)} for its index. If {@code nThreads > 1}, the routes are defined
+     * concurrently.
+     *
+     * @param seed the seed of the random streams used for the definition
+     */
+    public static RouteTable define(Graph graph, int size, long seed, int nThreads, Definition definition)
+            throws InterruptedException {
+        RouteTable table = new RouteTable(graph, size);
+        table.size = size;
+
+        int nTasks = (size + ROUTES_PER_TASK - 1) / ROUTES_PER_TASK;
+        if (nThreads > 1 && nTasks > 1) {
+            StaticThreadDelegator delegator = new StaticThreadDelegator(Math.min(nThreads, nTasks));
+            try {
+                delegator.doTask(
+                        task -> table.define(task, seed, definition),
+                        IntStream.range(0, nTasks).iterator(),
+                        1);
+            } finally {
+                delegator.shutdown();
+            }
+        } else {
+            for (int task = 0; task < nTasks; task++)
+                table.define(task, seed, definition);
+        }
+
+        return table;
+    }
+
+    private void define(int task, long seed, Definition definition) {
+        CounterRandom random = new CounterRandom(seed);
+
+        int end = Math.min(size, (task + 1) * ROUTES_PER_TASK);
+        for (int index = task * ROUTES_PER_TASK; index < end; index++) {
+            random.seek(index, RANDOM_ROUTE);
+            definition.define(index, random, this);
+        }
+    }
+
+
+    /**
+     * Sets the route of the given index, which has to be less than the size. Calling this method concurrently for
+     * different indices is allowed.
+     */
+    public void set(int index, Node origin, Node destination, boolean isMonitored) {
+        set(index, origin, destination, 0, isMonitored);
+    }
+
+    /**
+     * Same as {@link #set(int, Node, Node, boolean)}, but with a spawn delay.
+     */
+    public void set(int index, Node origin, Node destination, int spawnDelay, boolean isMonitored) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+        origins[index]      = origin.getIndex();
+        destinations[index] = destination.getIndex();
+        spawnDelays[index]  = spawnDelay;
+        monitored[index]    = isMonitored;
+    }
+
+    public Node getOrigin(int index) {
+        return nodes[origins[index]];
+    }
+
+    public Node getDestination(int index) {
+        return nodes[destinations[index]];
+    }
+
+    public int getSpawnDelay(int index) {
+        return spawnDelays[index];
+    }
+
+    public boolean isMonitored(int index) {
+        return monitored[index];
+    }
+
+
+    /*
+    |========================|
+    | (i) List, (i) Iterable |
+    |========================|
+    */
+    /**
+     * @return a view of the route of the given index
+     */
+    @Override
+    public Route get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+        return new RouteView(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the given route is not empty, because the path cannot be stored
+     */
+    @Override
+    public boolean add(Route route) {
+        if (!route.isEmpty())
+            throw new UnsupportedOperationException("A route table can only store routes without path");
+
+        append(route.getOrigin(), route.getDestination(), route.getSpawnDelay(), route.isMonitored());
+        return true;
+    }
+
+    private void append(Node origin, Node destination, int spawnDelay, boolean isMonitored) {
+        if (size == origins.length) {
+            int capacity = Math.max(16, 2 * size);
+            origins      = Arrays.copyOf(origins, capacity);
+            destinations = Arrays.copyOf(destinations, capacity);
+            spawnDelays  = Arrays.copyOf(spawnDelays, capacity);
+            monitored    = Arrays.copyOf(monitored, capacity);
+        }
+
+        size++;
+        set(size - 1, origin, destination, spawnDelay, isMonitored);
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    /*
+    |====================|
+    | (i) RouteContainer |
+    |====================|
+    */
+    /**
+     * Same as {@link SortedRouteContainer#addAll(Scenario)}, but only origin, destination, spawn delay and monitoring
+     * of the routes are stored, not their paths.
+     */
+    @Override
+    public void addAll(Scenario scenario) {
+        for (Vehicle vehicle : scenario.getVehicleContainer()) {
+            Route route = vehicle.getDriver().getRoute();
+            if (!route.isEmpty())
+                append(route.getOrigin(), route.getDestination(), route.getSpawnDelay(), route.isMonitored());
+        }
+    }
+
+    @Override
+    public Route getRdm(Random random) {
+        return get(random.nextInt(size()));
+    }
+
+
+    /**
+     * Defines the route of a given index in {@link #define(Graph, int, long, int, Definition)}.
+     */
+    @FunctionalInterface
+    public interface Definition {
+
+        /**
+         * @param index  the index of the route, that has to be set
+         * @param random positioned at the random stream of this route; has to be the only source of randomness
+         * @param table  the table the route has to be set in
+         */
+        void define(int index, CounterRandom random, RouteTable table);
+    }
+
+
+    private class RouteView extends MetaRoute {
+        private final int index;
+
+        private RouteView(int index) {
+            super(nodes[origins[index]], nodes[destinations[index]]);
+            this.index = index;
+        }
+
+        @Override
+        public MetaRoute clone() {
+            MetaRoute route = new MetaRoute(getOrigin(), getDestination(), getSpawnDelay());
+            route.setMonitored(isMonitored());
+            return route;
+        }
+
+        @Override
+        public boolean isMonitored() {
+            return monitored[index];
+        }
+
+        @Override
+        public void setMonitored(boolean isMonitored) {
+            monitored[index] = isMonitored;
+        }
+
+        @Override
+        public int getSpawnDelay() {
+            return spawnDelays[index];
+        }
+
+        @Override
+        public void setSpawnDelay(int spawnDelay) {
+            spawnDelays[index] = spawnDelay;
+        }
+    }
+}
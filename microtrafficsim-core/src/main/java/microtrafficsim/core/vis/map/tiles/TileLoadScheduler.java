@@ -0,0 +1,583 @@
+package microtrafficsim.core.vis.map.tiles;
+
+import microtrafficsim.core.map.tiles.TileId;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.map.tiles.TilingScheme;
+import microtrafficsim.math.Rect2d;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+
+/**
+ * Scheduler for asynchronous tile loading. Requests are queued and dispatched to an {@code ExecutorService} with
+ * bounded concurrency, coarse tiles first and, on the same zoom-level, ordered by their distance to the center of
+ * the current focus.
+ *
+ * <p>
+ * Requests for tiles that are already queued or being loaded are de-duplicated. Requests that are no longer needed
+ * can be discarded: discarded requests are retained for a number of focus-updates and will not be dispatched during
+ * this time. If the same tile is requested again before the retention ends (e.g. when quickly panning or zooming
+ * back and forth), the retained request is re-used instead of loading the tile again. Retained requests that have
+ * not been re-used are cancelled and need to be collected (and their results released) by the owner of this
+ * scheduler via {@link #collect(Collection)}.
+ * </p>
+ *
+ * <p>
+ * De-duplication also works across zoom-levels: a new request supersedes the queued requests of its parent and child
+ * tiles (i.e. the tiles on other zoom-levels overlapping it), which are discarded as described above. This prevents
+ * loading tiles of the previous zoom-level that are no longer needed after zooming. Since the tiles of each
+ * zoom-level are created from differently simplified geometry, a tile on one zoom-level can not be used to serve a
+ * request for another zoom-level, so the request for the requested tile is always kept. Requests that are already
+ * running are not affected. Superseding requires the tiling-scheme, i.e. it is only active after the focus has been
+ * set via {@link #setFocus(TilingScheme, TileRect)}.
+ * </p>
+ *
+ * <p>
+ * This class does not require an OpenGL context, all context-specific work is left to the loader-tasks.
+ * </p>
+ *
+ * @param <T> the type of the loaded tiles.
+ * @author agent
+ */
+public class TileLoadScheduler<T> {
+
+    /** The default number of focus-updates for which discarded requests are retained. */
+    public static final int DEFAULT_RETENTION = 30;
+
+    private final ExecutorService executor;
+    private final int maxConcurrent;
+    private final int retention;
+
+    private final PriorityQueue<Request> queue;
+    private final HashMap<TileId, Request> requests;    // queued or running, not discarded
+    private final HashMap<TileId, Request> discarded;   // retained for re-use
+    private final ArrayList<Request>       expired;     // cancelled or expired, to be collected
+
+    private TilingScheme scheme;
+    private double focusX;
+    private double focusY;
+    private long generation;
+    private long sequence;
+    private int running;
+
+    // statistics
+    private long submitted;
+    private long coalesced;
+    private long superseded;
+    private long completed;
+    private long cancelled;
+    private long failed;
+    private long latencySum;
+    private long latencyMax;
+    private long waitSum;
+
+
+    /**
+     * Constructs a new {@code TileLoadScheduler} using the default retention.
+     *
+     * @param executor      the executor on which the tiles are loaded.
+     * @param maxConcurrent the maximum number of requests that are executed concurrently.
+     */
+    public TileLoadScheduler(ExecutorService executor, int maxConcurrent) {
+        this(executor, maxConcurrent, DEFAULT_RETENTION);
+    }
+
+    /**
+     * Constructs a new {@code TileLoadScheduler}.
+     *
+     * @param executor      the executor on which the tiles are loaded.
+     * @param maxConcurrent the maximum number of requests that are executed concurrently.
+     * @param retention     the number of focus-updates for which discarded requests are retained for re-use.
+     */
+    public TileLoadScheduler(ExecutorService executor, int maxConcurrent, int retention) {
+        if (maxConcurrent < 1)
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+
+        this.executor      = executor;
+        this.maxConcurrent = maxConcurrent;
+        this.retention     = retention;
+
+        this.queue     = new PriorityQueue<>();
+        this.requests  = new HashMap<>();
+        this.discarded = new HashMap<>();
+        this.expired   = new ArrayList<>();
+    }
+
+
+    /**
+     * Requests the given tile. If a request for this tile is already queued, running or retained, that request is
+     * returned instead of creating a new one.
+     *
+     * @param id     the id of the requested tile.
+     * @param loader the task loading the tile, only used if a new request has to be created.
+     * @return the request for the given tile.
+     */
+    public synchronized Future<T> request(TileId id, Callable<T> loader) {
+        Request request = requests.get(id);
+        if (request != null) {
+            coalesced++;
+            return request;
+        }
+
+        request = discarded.remove(id);
+        if (request != null) {
+            if (!request.isCancelled()) {
+                coalesced++;
+                adopt(request);
+                supersede(request.id);
+                dispatch();
+                return request;
+            }
+
+            expired.add(request);
+        }
+
+        return enqueue(id, loader);
+    }
+
+    /**
+     * Requests the given tile, making sure that it is loaded after this call, e.g. because its contents have changed.
+     * Queued requests for this tile are re-used, running or retained requests are cancelled.
+     *
+     * @param id     the id of the requested tile.
+     * @param loader the task loading the tile.
+     * @return the request for the given tile.
+     */
+    public synchronized Future<T> reload(TileId id, Callable<T> loader) {
+        Request request = requests.get(id);
+        if (request != null && !request.started) {
+            coalesced++;
+            return request;
+        }
+
+        // running requests may produce outdated tiles, cancel them
+        if (request != null) {
+            requests.remove(id);
+            expire(request);
+        }
+
+        expire(discarded.remove(id));
+
+        return enqueue(id, loader);
+    }
+
+    /**
+     * Discards the given request. The request will not be dispatched and is retained for re-use for the configured
+     * number of focus-updates. Afterwards, it will be cancelled and can be collected via {@link #collect(Collection)}.
+     *
+     * @param future the request to discard.
+     */
+    public synchronized void discard(Future<T> future) {
+        if (!(future instanceof TileLoadScheduler.Request)) return;
+
+        @SuppressWarnings("unchecked")
+        Request request = (Request) future;
+        if (request.getScheduler() != this) return;
+
+        if (requests.get(request.id) == request)
+            requests.remove(request.id);
+
+        queue.remove(request);
+
+        // only retain one request per tile
+        Request prev = discarded.put(request.id, request);
+        if (prev != request)
+            expire(prev);
+
+        request.discarded = generation;
+    }
+
+    /**
+     * Cancels all queued, running and retained requests. Cancelled requests can be collected via
+     * {@link #collect(Collection)}.
+     */
+    public synchronized void cancelAll() {
+        ArrayList<Request> all = new ArrayList<>(requests.values());
+        all.addAll(discarded.values());
+
+        for (Request request : all)
+            discard(request);
+
+        for (Request request : discarded.values())
+            expire(request);
+
+        discarded.clear();
+    }
+
+    /**
+     * Collects all discarded requests that have not been re-used and are done, i.e. completed or cancelled. The caller
+     * is responsible for releasing the results of these requests.
+     *
+     * @param out the collection to which the requests should be added.
+     * @return the number of collected requests.
+     */
+    public synchronized int collect(Collection<? super Future<T>> out) {
+        int count = 0;
+
+        Iterator<Request> it = expired.iterator();
+        while (it.hasNext()) {
+            Request request = it.next();
+
+            if (request.isDone()) {
+                out.add(request);
+                it.remove();
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Sets the focus of this scheduler, re-prioritizes the queued requests and expires retained requests. This
+     * method is expected to be called once per view-update.
+     *
+     * @param scheme the tiling-scheme used to compute the distances of the tiles to the focus.
+     * @param view   the tiles in view, or {@code null} if no tiles are in view.
+     */
+    public synchronized void setFocus(TilingScheme scheme, TileRect view) {
+        generation++;
+
+        // expire retained requests
+        Iterator<Request> it = discarded.values().iterator();
+        while (it.hasNext()) {
+            Request request = it.next();
+
+            if (generation - request.discarded > retention) {
+                expire(request);
+                it.remove();
+            }
+        }
+
+        // update focus, re-prioritize on change
+        if (view != null) {
+            Rect2d bounds = scheme.getBounds(view);
+            double x = (bounds.xmin + bounds.xmax) / 2.0;
+            double y = (bounds.ymin + bounds.ymax) / 2.0;
+
+            if (scheme != this.scheme || x != focusX || y != focusY) {
+                this.scheme = scheme;
+                this.focusX = x;
+                this.focusY = y;
+
+                ArrayList<Request> queued = new ArrayList<>(queue);
+                queue.clear();
+                for (Request request : queued) {
+                    request.distance = distance(request.id);
+                    queue.add(request);
+                }
+            }
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Returns a snapshot of the current statistics of this scheduler.
+     *
+     * @return the statistics of this scheduler.
+     */
+    public synchronized Statistics getStatistics() {
+        return new Statistics(this);
+    }
+
+
+    private Request enqueue(TileId id, Callable<T> loader) {
+        Request request = new Request(id, loader, sequence++);
+        request.distance = distance(id);
+        request.submitted = System.nanoTime();
+
+        requests.put(id, request);
+        queue.add(request);
+        submitted++;
+
+        supersede(id);
+        dispatch();
+        return request;
+    }
+
+    private void adopt(Request request) {
+        request.discarded = -1;
+        if (request.isDone()) return;
+
+        requests.put(request.id, request);
+        if (!request.started) {
+            request.distance = distance(request.id);
+            queue.add(request);
+        }
+    }
+
+    /**
+     * Discards all queued requests for the tiles on other zoom-levels overlapping the given tile.
+     */
+    private void supersede(TileId id) {
+        if (scheme == null) return;
+
+        ArrayList<Request> overlapping = new ArrayList<>();
+        for (Request request : queue) {
+            if (request.id.z != id.z && scheme.getTiles(request.id, id.z).contains(id))
+                overlapping.add(request);
+        }
+
+        for (Request request : overlapping) {
+            discard(request);
+            superseded++;
+        }
+    }
+
+    private void expire(Request request) {
+        if (request == null) return;
+
+        request.cancel(true);
+        expired.add(request);
+    }
+
+    private double distance(TileId id) {
+        if (scheme == null) return 0.0;
+
+        Rect2d bounds = scheme.getBounds(id);
+        double dx = (bounds.xmin + bounds.xmax) / 2.0 - focusX;
+        double dy = (bounds.ymin + bounds.ymax) / 2.0 - focusY;
+        return dx * dx + dy * dy;
+    }
+
+    private synchronized void dispatch() {
+        while (running < maxConcurrent && !queue.isEmpty()) {
+            Request request = queue.poll();
+            if (request.isDone()) continue;
+
+            request.started = true;
+            running++;
+
+            try {
+                executor.execute(() -> execute(request));
+            } catch (RejectedExecutionException e) {
+                running--;
+                request.cancel(false);
+            }
+        }
+    }
+
+    private void execute(Request request) {
+        try {
+            synchronized (this) {
+                request.dispatched = System.nanoTime();
+            }
+            request.run();
+        } finally {
+            synchronized (this) {
+                running--;
+                dispatch();
+            }
+        }
+    }
+
+    private synchronized void finished(Request request) {
+        if (requests.get(request.id) == request)
+            requests.remove(request.id);
+
+        queue.remove(request);
+
+        if (request.isCancelled()) {
+            cancelled++;
+            return;
+        }
+
+        try {
+            request.get();
+        } catch (ExecutionException e) {
+            failed++;
+            return;
+        } catch (InterruptedException | CancellationException e) {
+            cancelled++;
+            return;
+        }
+
+        long now     = System.nanoTime();
+        long latency = now - request.submitted;
+
+        completed++;
+        latencySum += latency;
+        latencyMax = Math.max(latencyMax, latency);
+        waitSum += request.dispatched - request.submitted;
+    }
+
+
+    /**
+     * A request for a single tile.
+     */
+    private class Request extends FutureTask<T> implements Comparable<Request> {
+        private final TileId id;
+        private final long   seq;
+
+        private double  distance;
+        private boolean started    = false;
+        private long    discarded  = -1;
+        private long    submitted;
+        private long    dispatched;
+
+        Request(TileId id, Callable<T> loader, long seq) {
+            super(loader);
+            this.id  = id;
+            this.seq = seq;
+        }
+
+        TileLoadScheduler<T> getScheduler() {
+            return TileLoadScheduler.this;
+        }
+
+        @Override
+        protected void done() {
+            finished(this);
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            if (id.z != other.id.z)
+                return id.z < other.id.z ? -1 : 1;
+
+            int cmp = Double.compare(distance, other.distance);
+            if (cmp != 0) return cmp;
+
+            return Long.compare(seq, other.seq);
+        }
+    }
+
+    /**
+     * Statistics of a {@code TileLoadScheduler}.
+     */
+    public static class Statistics {
+        private final int  queued;
+        private final int  running;
+        private final int  retained;
+        private final long submitted;
+        private final long coalesced;
+        private final long superseded;
+        private final long completed;
+        private final long cancelled;
+        private final long failed;
+        private final double latencyMean;
+        private final double latencyMax;
+        private final double waitMean;
+
+        private Statistics(TileLoadScheduler<?> scheduler) {
+            this.queued    = scheduler.queue.size();
+            this.running   = scheduler.running;
+            this.retained  = scheduler.discarded.size();
+            this.submitted = scheduler.submitted;
+            this.coalesced = scheduler.coalesced;
+            this.superseded = scheduler.superseded;
+            this.completed = scheduler.completed;
+            this.cancelled = scheduler.cancelled;
+            this.failed    = scheduler.failed;
+
+            this.latencyMean = completed > 0 ? scheduler.latencySum / 1e6 / completed : 0.0;
+            this.latencyMax  = scheduler.latencyMax / 1e6;
+            this.waitMean    = completed > 0 ? scheduler.waitSum / 1e6 / completed : 0.0;
+        }
+
+        /**
+         * Returns the number of requests waiting to be dispatched.
+         *
+         * @return the current queue depth.
+         */
+        public int getQueueDepth() {
+            return queued;
+        }
+
+        /**
+         * Returns the number of requests currently being executed.
+         *
+         * @return the number of running requests.
+         */
+        public int getRunning() {
+            return running;
+        }
+
+        /**
+         * Returns the number of discarded requests currently retained for re-use.
+         *
+         * @return the number of retained requests.
+         */
+        public int getRetained() {
+            return retained;
+        }
+
+        /**
+         * Returns the total number of created requests.
+         *
+         * @return the total number of created requests.
+         */
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        /**
+         * Returns the total number of requests that have been served by an existing or retained request.
+         *
+         * @return the total number of coalesced requests.
+         */
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        /**
+         * Returns the total number of queued requests that have been discarded because a request for a parent or
+         * child tile has been made.
+         *
+         * @return the total number of superseded requests.
+         */
+        public long getSuperseded() {
+            return superseded;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getCancelled() {
+            return cancelled;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * Returns the mean time between creation and completion of completed requests.
+         *
+         * @return the mean tile latency in milliseconds.
+         */
+        public double getMeanLatency() {
+            return latencyMean;
+        }
+
+        /**
+         * Returns the maximum time between creation and completion of completed requests.
+         *
+         * @return the maximum tile latency in milliseconds.
+         */
+        public double getMaxLatency() {
+            return latencyMax;
+        }
+
+        /**
+         * Returns the mean time completed requests have been waiting in the queue.
+         *
+         * @return the mean queue wait-time in milliseconds.
+         */
+        public double getMeanWait() {
+            return waitMean;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("queued: %d, running: %d, retained: %d, submitted: %d, coalesced: %d, "
+                            + "superseded: %d, completed: %d, cancelled: %d, failed: %d, latency: %.1fms "
+                            + "(max %.1fms), wait: %.1fms",
+                    queued, running, retained, submitted, coalesced, superseded, completed, cancelled, failed,
+                    latencyMean, latencyMax, waitMean);
+        }
+    }
+}
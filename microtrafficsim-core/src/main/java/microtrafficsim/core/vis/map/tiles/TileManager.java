@@ -25,8 +25,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public strictfp class TileManager {
     private static final Comparator<Tile> CMP_TILE = new TileComparator();
 
-    private TileProvider    provider;
-    private ExecutorService worker;
+    /** The default maximum number of tiles loaded concurrently by a single manager. */
+    public static final int DEFAULT_MAX_CONCURRENT_LOADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private TileProvider            provider;
+    private TileLoadScheduler<Tile> scheduler;
 
     private TileRect tiles;
 
@@ -40,14 +43,26 @@ public strictfp class TileManager {
 
 
     /**
-     * Constructs a new {@code TileManager} with the given tile-provider and executor-service.
+     * Constructs a new {@code TileManager} with the given tile-provider and executor-service, loading at most
+     * {@link #DEFAULT_MAX_CONCURRENT_LOADS} tiles concurrently.
      *
      * @param provider the provider providing the tiles to be displayed.
      * @param worker   the {@code ExecutorService} responsible for asynchronous tile loading.
      */
     public TileManager(TileProvider provider, ExecutorService worker) {
-        this.provider = provider;
-        this.worker   = worker;
+        this(provider, worker, DEFAULT_MAX_CONCURRENT_LOADS);
+    }
+
+    /**
+     * Constructs a new {@code TileManager} with the given tile-provider and executor-service.
+     *
+     * @param provider      the provider providing the tiles to be displayed.
+     * @param worker        the {@code ExecutorService} responsible for asynchronous tile loading.
+     * @param maxConcurrent the maximum number of tiles loaded concurrently by this manager.
+     */
+    public TileManager(TileProvider provider, ExecutorService worker, int maxConcurrent) {
+        this.provider  = provider;
+        this.scheduler = new TileLoadScheduler<>(worker, maxConcurrent);
 
         this.tiles = new TileRect(0, 0, 0, 0, 0);
 
@@ -116,6 +131,15 @@ public strictfp class TileManager {
         return provider.getProjectedBounds();
     }
 
+    /**
+     * Returns the statistics of the tile-loading scheduler of this manager, i.e. queue depth and tile latency.
+     *
+     * @return the current tile-loading statistics.
+     */
+    public TileLoadScheduler.Statistics getLoadStatistics() {
+        return scheduler.getStatistics();
+    }
+
     /**
      * Initialize this manager.
      *
@@ -134,10 +158,8 @@ public strictfp class TileManager {
      */
     public void dispose(RenderContext context) throws Exception {
         // cancel tiles which are currently beeing loaded
-        for (Future<Tile> future : loading.values()) {
-            future.cancel(true);
-            cancelling.add(future);
-        }
+        scheduler.cancelAll();
+        scheduler.collect(cancelling);
 
         // dispose layers that have already been loaded
         for (Tile t : visible.values())
@@ -177,6 +199,9 @@ public strictfp class TileManager {
         TileRect provided = scheme.getTiles(provider.getProjectedBounds(), zoom);
         TileRect common   = provided != null ? TileRect.intersect(view, provided) : null;    // provided and in view
 
+        // update loading priorities and expire discarded requests
+        scheduler.setFocus(scheme, common);
+
         // load tiles asynchronously, move loaded tiles to visible, update
         boolean rebuild = mgmtReload(context, common);
         rebuild |= mgmtMoveLoaded(context);
@@ -210,12 +235,26 @@ public strictfp class TileManager {
         if (common == null) return false;
         boolean change = false;
 
-        // if explicit request or zoom changed: reload all tiles
-        if (reload.getAndSet(false) || common.zoom != this.tiles.zoom) {
+        // if explicit request: reload all tiles
+        if (reload.getAndSet(false)) {
             changed.clear();
             for (int x = common.xmin; x <= common.xmax; x++)
                 for (int y = common.ymin; y <= common.ymax; y++)
-                    change |= mgmtAsyncReload(context, new TileId(x, y, common.zoom));
+                    change |= mgmtAsyncReload(context, new TileId(x, y, common.zoom), true);
+
+            // if zoom changed: load all tiles that are not already visible or loading
+        } else if (common.zoom != this.tiles.zoom) {
+            HashSet<TileId> invalid = new HashSet<>(changed);
+            changed.clear();
+
+            for (int x = common.xmin; x <= common.xmax; x++) {
+                for (int y = common.ymin; y <= common.ymax; y++) {
+                    TileId id = new TileId(x, y, common.zoom);
+                    if (!invalid.contains(id) && visible.containsKey(id)) continue;
+
+                    change |= mgmtAsyncReload(context, id, invalid.contains(id));
+                }
+            }
 
             // else: reload only tiles that are explicitly marked as invalidated or newly in view
         } else {
@@ -227,26 +266,26 @@ public strictfp class TileManager {
             // full x-segments
             for (int y = common.ymin; y <= common.ymax; y++) {
                 for (int x = common.xmin; x < xmin; x++)
-                    change |= mgmtAsyncReload(context, new TileId(x, y, common.zoom));
+                    change |= mgmtAsyncReload(context, new TileId(x, y, common.zoom), false);
 
                 for (int x = common.xmax; x > xmax; x--)
-                    change |= mgmtAsyncReload(context, new TileId(x, y, common.zoom));
+                    change |= mgmtAsyncReload(context, new TileId(x, y, common.zoom), false);
             }
 
             // partial y-segments
             for (int x = xmin; x <= xmax; x++) {
                 for (int y = common.ymin; y < ymin; y++)
-                    change |= mgmtAsyncReload(context, new TileId(x, y, common.zoom));
+                    change |= mgmtAsyncReload(context, new TileId(x, y, common.zoom), false);
 
                 for (int y = common.ymax; y > ymax; y--)
-                    change |= mgmtAsyncReload(context, new TileId(x, y, common.zoom));
+                    change |= mgmtAsyncReload(context, new TileId(x, y, common.zoom), false);
             }
 
             // changed tiles
             TileId id;
             while ((id = changed.poll()) != null) {
                 if (id.x >= xmin && id.x <= xmax && id.y >= ymin && id.x <= ymax && id.z == common.zoom)
-                    change |= mgmtAsyncReload(context, id);
+                    change |= mgmtAsyncReload(context, id, true);
             }
         }
 
@@ -256,24 +295,26 @@ public strictfp class TileManager {
     /**
      * Asynchronously (re-)loads the specified tile.
      *
-     * @param context the context on which the tiles are going to be displayed.
-     * @param id      the id of the tile that should be (re-)loaded.
+     * @param context    the context on which the tiles are going to be displayed.
+     * @param id         the id of the tile that should be (re-)loaded.
+     * @param invalidate {@code true} if the tile has changed, i.e. previous requests for it must not be re-used.
      * @return {@code true} if the internal list of visible tiles has changed.
      * @throws ExecutionException   if an {@code ExecutionException} was thrown by the loading-task of a tile.
      * @throws InterruptedException if the operation has been interrupted.
      * @throws Exception            if any other exception occurs.
      */
-    private boolean mgmtAsyncReload(RenderContext context, TileId id) throws Exception {
+    private boolean mgmtAsyncReload(RenderContext context, TileId id, boolean invalidate) throws Exception {
+        // tile is already being loaded and still valid, nothing to do
+        if (!invalidate && loading.containsKey(id)) return false;
 
-        Future<Tile> prev = loading.put(id, worker.submit(new Loader(context, provider, id)));
-        if (prev == null) return false;
+        Loader loader = new Loader(context, provider, id);
 
-        // if the previous task is not finished, cancel it
-        if (!prev.isDone()) {
-            prev.cancel(true);
-            cancelling.add(prev);
-            return false;
-        }
+        Future<Tile> next = invalidate ? scheduler.reload(id, loader) : scheduler.request(id, loader);
+        Future<Tile> prev = loading.put(id, next);
+        if (prev == null || prev == next) return false;
+
+        // if the previous task is not finished, it has been cancelled by the scheduler
+        if (!prev.isDone()) return false;
 
         // if the previous task was cancelled, it is already disposed
         if (prev.isCancelled()) return false;
@@ -348,14 +389,13 @@ public strictfp class TileManager {
         visible.keySet().removeAll(remove);
         remove.clear();
 
-        // remove from loading
+        // remove from loading, keep the discarded requests around in case they come into view again
         for (Map.Entry<TileId, Future<Tile>> entry : loading.entrySet()) {
             TileId       id   = entry.getKey();
             Future<Tile> task = entry.getValue();
 
             if (common == null || !common.contains(id)) {
-                task.cancel(true);
-                cancelling.add(task);
+                scheduler.discard(task);
                 remove.add(id);
             }
         }
@@ -405,6 +445,8 @@ public strictfp class TileManager {
      * @throws Exception            if any other exception occurs.
      */
     private void mgmtCleanupCancelled(RenderContext context) throws Exception {
+        scheduler.collect(cancelling);
+
         Iterator<Future<Tile>> it = cancelling.iterator();
 
         while (it.hasNext()) {
@@ -9,6 +9,8 @@ import microtrafficsim.core.vis.context.RenderContext;
 import microtrafficsim.core.vis.map.tiles.mesh.FeatureMeshGenerator;
 import microtrafficsim.core.vis.map.tiles.mesh.PolygonMeshGenerator;
 import microtrafficsim.core.vis.map.tiles.mesh.StreetMeshGenerator;
+import microtrafficsim.core.vis.map.tiles.mesh.TileMeshData;
+import microtrafficsim.core.vis.map.tiles.mesh.TileMeshStore;
 import microtrafficsim.core.vis.mesh.ManagedMesh;
 import microtrafficsim.core.vis.mesh.Mesh;
 import microtrafficsim.core.vis.mesh.MeshPool;
@@ -18,6 +20,7 @@ import microtrafficsim.math.Rect2d;
 import microtrafficsim.utils.logging.EasyMarkableLogger;
 import org.slf4j.Logger;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 
@@ -30,11 +33,13 @@ import java.util.HashSet;
 public class FeatureTileLayerGenerator implements TileLayerGenerator {
     private static final Logger logger = new EasyMarkableLogger(FeatureTileLayerGenerator.class);
 
-    private static final Rect2d MESH_TARGET = new Rect2d(-1.0, -1.0, 1.0, 1.0);
+    /** The target-space to which all feature meshes are projected. */
+    public static final Rect2d MESH_TARGET = new Rect2d(-1.0, -1.0, 1.0, 1.0);
 
     private MeshPool<FeatureMeshGenerator.FeatureMeshKey> pool;
     private HashSet<FeatureMeshGenerator.FeatureMeshKey>  loading;
     private HashMap<Class<? extends FeaturePrimitive>, FeatureMeshGenerator> generators;
+    private volatile TileMeshStore store;
 
 
     /**
@@ -57,6 +62,7 @@ public class FeatureTileLayerGenerator implements TileLayerGenerator {
         this.pool       = new MeshPool<>();
         this.loading    = new HashSet<>();
         this.generators = new HashMap<>();
+        this.store      = null;
 
         if (defaultInit) {
             generators.put(Street.class, new StreetMeshGenerator());
@@ -65,6 +71,42 @@ public class FeatureTileLayerGenerator implements TileLayerGenerator {
     }
 
 
+    /**
+     * Associate the given generator with the given feature-type.
+     *
+     * @param type      the feature-type to associate the generator with.
+     * @param generator the generator to be associated with the given type.
+     * @return the generator previously associated with the given type.
+     */
+    public FeatureMeshGenerator putGenerator(Class<? extends FeaturePrimitive> type, FeatureMeshGenerator generator) {
+        return generators.put(type, generator);
+    }
+
+    /**
+     * Returns the generator associated with the given feature-type.
+     *
+     * @param type the feature-type.
+     * @return the generator associated with the given type or {@code null} if there is none.
+     */
+    public FeatureMeshGenerator getGenerator(Class<? extends FeaturePrimitive> type) {
+        return generators.get(type);
+    }
+
+    /**
+     * Sets the store from which pre-baked meshes should be loaded. Meshes not contained in the store are generated
+     * as usual. The store must have been baked for the map and style used with this generator.
+     *
+     * @param store the store to load pre-baked meshes from, or {@code null} to always generate meshes.
+     */
+    public void setMeshStore(TileMeshStore store) {
+        this.store = store;
+    }
+
+    public TileMeshStore getMeshStore() {
+        return store;
+    }
+
+
     @Override
     public FeatureTileLayer generate(RenderContext context, Layer layer, TileId tile, Rect2d target)
             throws InterruptedException {
@@ -106,9 +148,10 @@ public class FeatureTileLayerGenerator implements TileLayerGenerator {
             logger.debug("generating mesh for tile {" + actual.xmin + "-" + actual.xmax + "/" + actual.ymin + "-"
                          + actual.ymax + "/" + actual.zoom + "}, feature '" + src.getFeatureName() + "'");
 
-            Mesh m;
+            Mesh m = load(context, layer, actual);
             try {
-                m = generator.generate(context, src, tile, MESH_TARGET);
+                if (m == null)
+                    m = generator.generate(context, src, tile, MESH_TARGET);
             } catch (InterruptedException e) {
                 synchronized (this) {
                     loading.remove(key);
@@ -157,4 +200,29 @@ public class FeatureTileLayerGenerator implements TileLayerGenerator {
         FeatureStyle style = new FeatureStyle(src.getStyle());
         return new FeatureTileLayer(tile, layer, transform, mesh, style);
     }
+
+    /**
+     * Loads the pre-baked mesh for the given layer and tile-rectangle from the mesh-store, if available.
+     *
+     * @param context the context on which the mesh should be displayed.
+     * @param layer   the layer for which the mesh should be loaded.
+     * @param tiles   the tile-rectangle covered by the mesh.
+     * @return the loaded mesh, or {@code null} if it is not available.
+     */
+    private Mesh load(RenderContext context, Layer layer, TileRect tiles) {
+        TileMeshStore store = this.store;
+        if (store == null) return null;
+
+        try {
+            TileMeshData data = store.get(layer.getName(), tiles);
+            if (data == null || !data.isCompatible(context))
+                return null;
+
+            return data.create();
+
+        } catch (IOException e) {
+            logger.warn("failed to load pre-baked mesh for layer '" + layer.getName() + "'", e);
+            return null;
+        }
+    }
 }
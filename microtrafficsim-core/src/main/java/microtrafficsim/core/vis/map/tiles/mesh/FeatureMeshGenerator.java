@@ -39,6 +39,21 @@ public interface FeatureMeshGenerator {
         return src.getFeatureProvider().getFeatureBounds(src.getFeatureName(), tile);
     }
 
+    /**
+     * Generates the vertex- and index-data of a mesh from the given source for the given tile, projecting it to the
+     * provided target rectangle. The returned data does not depend on any OpenGL state, so this method can be used
+     * without context (e.g. to pre-bake meshes).
+     *
+     * @param context the context for which the mesh should be created, may be {@code null}.
+     * @param source  the source of the mesh.
+     * @param tile    the tile for which the mesh should be generated.
+     * @param target  the target-space to which the mesh should be projected.
+     * @return the generated mesh data.
+     * @throws InterruptedException if this operation has been interrupted.
+     */
+    TileMeshData generateData(RenderContext context, FeatureTileLayerSource source, TileId tile, Rect2d target)
+            throws InterruptedException;
+
     /**
      * Generates a mesh on the given context from the given source for the given tile, projecting it to the provided
      * target rectangle.
@@ -50,6 +65,9 @@ public interface FeatureMeshGenerator {
      * @return the generated mesh.
      * @throws InterruptedException if this operation has been interrupted.
      */
-    Mesh generate(RenderContext context, FeatureTileLayerSource source, TileId tile, Rect2d target)
-            throws InterruptedException;
+    default Mesh generate(RenderContext context, FeatureTileLayerSource source, TileId tile, Rect2d target)
+            throws InterruptedException {
+        TileMeshData data = generateData(context, source, tile, target);
+        return data != null ? data.create() : null;
+    }
 }
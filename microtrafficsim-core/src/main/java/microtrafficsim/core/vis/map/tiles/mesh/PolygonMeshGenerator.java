@@ -1,6 +1,5 @@
 package microtrafficsim.core.vis.map.tiles.mesh;
 
-import com.jogamp.opengl.GL3;
 import microtrafficsim.core.map.Coordinate;
 import microtrafficsim.core.map.TileFeature;
 import microtrafficsim.core.map.features.Polygon;
@@ -9,23 +8,57 @@ import microtrafficsim.core.map.tiles.TilingScheme;
 import microtrafficsim.core.vis.context.RenderContext;
 import microtrafficsim.core.vis.map.projections.Projection;
 import microtrafficsim.core.vis.map.tiles.layers.FeatureTileLayerSource;
-import microtrafficsim.core.vis.mesh.Mesh;
-import microtrafficsim.core.vis.mesh.impl.SingleFloatAttributeIndexedMesh;
+import microtrafficsim.core.vis.mesh.utils.FloatBufferBuilder;
+import microtrafficsim.core.vis.mesh.utils.IntBufferBuilder;
 import microtrafficsim.core.vis.opengl.DataTypes;
 import microtrafficsim.math.Rect2d;
 import microtrafficsim.math.Vec2d;
-import microtrafficsim.math.geometry.polygons.SweepLineTriangulator;
-import microtrafficsim.math.geometry.polygons.Triangulator;
-import microtrafficsim.utils.collections.ArrayUtils;
-
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
-import java.util.ArrayList;
+import microtrafficsim.math.geometry.polygons.EarClippingTriangulator;
+import microtrafficsim.utils.collections.LRUCache;
 
 
+/**
+ * {@code FeatureMeshGenerator} for polygons. Generated vertex- and index-buffers are kept in a size-bounded
+ * LRU-cache, so that meshes for tiles that have been visible before can be re-created without re-generating them.
+ *
+ * @author Maximilian Luz
+ */
 public class PolygonMeshGenerator implements FeatureMeshGenerator {
 
-    private Triangulator triangulator = new SweepLineTriangulator();
+    /** The default capacity of the mesh-cache, in bytes. */
+    public static final long DEFAULT_MESH_CACHE_CAPACITY = 32L * 1024L * 1024L;
+
+    private static final int[] NO_HOLES = new int[0];
+
+    private EarClippingTriangulator triangulator = new EarClippingTriangulator();
+    private final LRUCache<FeatureMeshKey, TileMeshData> meshes;
+
+
+    /**
+     * Creates a new {@code PolygonMeshGenerator} with default cache capacity.
+     */
+    public PolygonMeshGenerator() {
+        this(DEFAULT_MESH_CACHE_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@code PolygonMeshGenerator}.
+     *
+     * @param meshCacheCapacity the capacity of the mesh-cache in bytes, zero disables it.
+     */
+    public PolygonMeshGenerator(long meshCacheCapacity) {
+        this.meshes = new LRUCache<>(meshCacheCapacity, TileMeshData::getSize);
+    }
+
+
+    /**
+     * Returns the cache used to store the vertex- and index-buffers of generated meshes.
+     *
+     * @return the mesh-cache of this generator.
+     */
+    public LRUCache<FeatureMeshKey, TileMeshData> getMeshCache() {
+        return meshes;
+    }
 
 
     @Override
@@ -42,16 +75,21 @@ public class PolygonMeshGenerator implements FeatureMeshGenerator {
     }
 
     @Override
-    public Mesh generate(RenderContext context, FeatureTileLayerSource src, TileId tile, Rect2d target)
+    public TileMeshData generateData(RenderContext context, FeatureTileLayerSource src, TileId tile, Rect2d target)
             throws InterruptedException {
 
+        // check cache
+        FeatureMeshKey key = getKey(context, src, tile, target);
+        TileMeshData cached = meshes.get(key);
+        if (cached != null) return cached;
+
         // get feature, return null if not available
         TileFeature<Polygon> feature = src.getFeatureProvider().require(src.getFeatureName(), tile);
         if (feature == null) return null;
 
         // generate mesh
-        ArrayList<Vec2d>   vertices = new ArrayList<>();
-        ArrayList<Integer> indices  = new ArrayList<>();
+        FloatBufferBuilder vertices = new FloatBufferBuilder();
+        IntBufferBuilder   indices  = new IntBufferBuilder();
 
         try {
             generateMesh(feature, src, tile, target, vertices, indices);
@@ -59,58 +97,39 @@ public class PolygonMeshGenerator implements FeatureMeshGenerator {
             src.getFeatureProvider().release(feature);
         }
 
-        // create vertex buffer
-        FloatBuffer vb = FloatBuffer.allocate(vertices.size() * 2);
-        for (Vec2d v : vertices) {
-            if (Thread.interrupted()) throw new InterruptedException();
-            vb.put((float) v.x);
-            vb.put((float) v.y);
-        }
-        vb.rewind();
-
-        // create index buffer
-        IntBuffer ib = IntBuffer.allocate(indices.size());
-        ib.put(ArrayUtils.toArray(indices, null));
-        ib.rewind();
-
-        // create mesh and buckets
-        SingleFloatAttributeIndexedMesh mesh = SingleFloatAttributeIndexedMesh.newPos2Mesh(
-                GL3.GL_STATIC_DRAW, GL3.GL_TRIANGLES, vb, ib);
+        TileMeshData data = TileMeshData.polygon(vertices.toBuffer(), indices.toBuffer());
+        meshes.put(key, data);
 
-        ArrayList<SingleFloatAttributeIndexedMesh.Bucket> buckets = new ArrayList<>();
-        buckets.add(mesh.new Bucket(0, 0, indices.size()));
-        mesh.setBuckets(buckets);
-
-        return mesh;
+        return data;
     }
 
     private void generateMesh(TileFeature<? extends Polygon> feature, FeatureTileLayerSource src, TileId tile,
-                              Rect2d target, ArrayList<Vec2d> vertices, ArrayList<Integer> indices)
+                              Rect2d target, FloatBufferBuilder vertices, IntBufferBuilder indices)
             throws InterruptedException {
 
         TilingScheme scheme     = src.getTilingScheme();
         Projection   projection = scheme.getProjection();
         Rect2d       bounds     = scheme.getBounds(getFeatureBounds(src, tile));
 
-        // TODO: replace triangulation-method
         // NOTE: outline has start-node == end-node
 
         int counter = 0;
         for (Polygon polygon : feature.getData()) {
             if (Thread.interrupted()) throw new InterruptedException();
 
-            Vec2d outline[] = project(projection, bounds, target, polygon.outline, polygon.outline.length - 1);
-            Triangulator.Result result = triangulator.triangulate(new microtrafficsim.math.geometry.polygons.Polygon(outline).normalize());
-            if (result == null) {
-                System.err.println("Failed to triangulate polygon (around coordinate " + polygon.outline[0].toString() + ").");
-                continue;
-            }
+            double[] outline = project(projection, bounds, target, polygon.outline, polygon.outline.length - 1);
+            int[] triangles = triangulator.triangulate(outline, NO_HOLES);
+            if (triangles.length == 0) continue;    // polygon takes up no space
+
+            vertices.ensureCapacity(vertices.size() + outline.length);
+            for (double v : outline)
+                vertices.add((float) v);
 
-            vertices.addAll(result.vertices);
-            for (int i : result.indices)
+            indices.ensureCapacity(indices.size() + triangles.length);
+            for (int i : triangles)
                 indices.add(counter + i);
 
-            counter += result.vertices.size();
+            counter += outline.length / 2;
         }
     }
 
@@ -121,14 +140,18 @@ public class PolygonMeshGenerator implements FeatureMeshGenerator {
      * @param projection the projection to use.
      * @param from       the source rectangle.
      * @param to         the target rectangle.
-     * @param c          the coordinate to project.
-     * @return the projected coordinate as vector.
+     * @param c          the coordinates to project.
+     * @param len        the number of coordinates to project.
+     * @return the projected coordinates as interleaved x- and y-components.
      */
-    private static Vec2d[] project(Projection projection, Rect2d from, Rect2d to, Coordinate[] c, int len) {
-        Vec2d[] result = new Vec2d[len];
+    private static double[] project(Projection projection, Rect2d from, Rect2d to, Coordinate[] c, int len) {
+        double[] result = new double[len * 2];
 
-        for (int i = 0; i < len; i++)
-            result[i] = project(projection, from, to, c[i]);
+        for (int i = 0; i < len; i++) {
+            Vec2d p = project(projection, from, to, c[i]);
+            result[i * 2]     = p.x;
+            result[i * 2 + 1] = p.y;
+        }
 
         return result;
     }
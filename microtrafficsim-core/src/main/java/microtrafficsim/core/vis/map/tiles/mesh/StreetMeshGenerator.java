@@ -1,6 +1,5 @@
 package microtrafficsim.core.vis.map.tiles.mesh;
 
-import com.jogamp.opengl.GL3;
 import microtrafficsim.core.map.Coordinate;
 import microtrafficsim.core.map.TileFeature;
 import microtrafficsim.core.map.features.Street;
@@ -10,31 +9,86 @@ import microtrafficsim.core.map.tiles.TilingScheme;
 import microtrafficsim.core.vis.context.RenderContext;
 import microtrafficsim.core.vis.map.projections.Projection;
 import microtrafficsim.core.vis.map.tiles.layers.FeatureTileLayerSource;
-import microtrafficsim.core.vis.mesh.Mesh;
 import microtrafficsim.core.vis.mesh.builder.LineMeshBuilder;
-import microtrafficsim.core.vis.mesh.impl.DualFloatAttributeIndexedMesh;
 import microtrafficsim.core.vis.mesh.style.Style;
-import microtrafficsim.core.vis.mesh.utils.VertexSet;
+import microtrafficsim.core.vis.mesh.utils.FloatVertexSet;
+import microtrafficsim.core.vis.mesh.utils.IntBufferBuilder;
 import microtrafficsim.core.vis.utils.LaneOffset;
 import microtrafficsim.math.Rect2d;
 import microtrafficsim.math.Vec3d;
-import microtrafficsim.math.Vec3f;
 import microtrafficsim.utils.collections.HashListMultiMap;
+import microtrafficsim.utils.collections.LRUCache;
+import microtrafficsim.utils.hashing.FNVHashBuilder;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Objects;
 
 
 /**
  * {@code FeatureMeshGenerator} for streets.
+ * <p>
+ * Generated vertex- and index-buffers are kept in a size-bounded LRU-cache, so that meshes for tiles that have been
+ * visible before (e.g. when panning back) can be re-created without re-generating them. Additionally, the line
+ * geometry of each street is memoized, as the expanded areas of neighbouring tiles overlap and thus the same streets
+ * are required for multiple tiles.
+ * </p>
  *
  * @author Maximilian Luz
  */
 public class StreetMeshGenerator implements FeatureMeshGenerator {
 
+    /** The default capacity of the mesh-cache, in bytes. */
+    public static final long DEFAULT_MESH_CACHE_CAPACITY = 64L * 1024L * 1024L;
+
+    /** The default capacity of the street-geometry cache, in (estimated) bytes. */
+    public static final long DEFAULT_GEOMETRY_CACHE_CAPACITY = 32L * 1024L * 1024L;
+
+    private final LRUCache<FeatureMeshKey, TileMeshData> meshes;
+    private final LRUCache<GeometryKey, Geometry>    geometry;
+
+
+    /**
+     * Creates a new {@code StreetMeshGenerator} with default cache capacities.
+     */
+    public StreetMeshGenerator() {
+        this(DEFAULT_MESH_CACHE_CAPACITY, DEFAULT_GEOMETRY_CACHE_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@code StreetMeshGenerator}.
+     *
+     * @param meshCacheCapacity     the capacity of the mesh-cache in bytes, zero disables it.
+     * @param geometryCacheCapacity the capacity of the street-geometry cache in (estimated) bytes, zero disables it.
+     */
+    public StreetMeshGenerator(long meshCacheCapacity, long geometryCacheCapacity) {
+        this.meshes   = new LRUCache<>(meshCacheCapacity, TileMeshData::getSize);
+        this.geometry = new LRUCache<>(geometryCacheCapacity, Geometry::getSize);
+    }
+
+
+    /**
+     * Returns the cache used to store the vertex- and index-buffers of generated meshes.
+     *
+     * @return the mesh-cache of this generator.
+     */
+    public LRUCache<FeatureMeshKey, TileMeshData> getMeshCache() {
+        return meshes;
+    }
+
+    /**
+     * Returns the cache used to memoize the line geometry of single streets.
+     *
+     * @return the street-geometry cache of this generator.
+     */
+    public LRUCache<GeometryKey, Geometry> getGeometryCache() {
+        return geometry;
+    }
+
     @Override
     public FeatureMeshKey getKey(RenderContext context, FeatureTileLayerSource source, TileId tile, Rect2d target) {
         StreetStyle style = StreetStyle.from(source.getStyle(), source.getFeatureProvider().getProperties().drivingOnTheRight);
@@ -59,8 +113,13 @@ public class StreetMeshGenerator implements FeatureMeshGenerator {
     }
 
     @Override
-    public Mesh generate(RenderContext context, FeatureTileLayerSource src, TileId tile, Rect2d target)
+    public TileMeshData generateData(RenderContext context, FeatureTileLayerSource src, TileId tile, Rect2d target)
             throws InterruptedException {
+        // check cache
+        FeatureMeshKey key = getKey(context, src, tile, target);
+        TileMeshData cached = meshes.get(key);
+        if (cached != null) return cached;
+
         // expand to handle thick lines
         TileRect expanded = new TileRect(tile.x - 1, tile.y - 1, tile.x + 1, tile.y + 1, tile.z);
 
@@ -76,7 +135,7 @@ public class StreetMeshGenerator implements FeatureMeshGenerator {
         StreetStyle style = StreetStyle.from(src.getStyle(), src.getFeatureProvider().getProperties().drivingOnTheRight);
 
         // generate mesh
-        VertexSet<LineMeshBuilder.Vertex> vertices = new VertexSet<>();
+        FloatVertexSet vertices = new FloatVertexSet(6);
         HashMap<Double, IndexBucket> buckets = new HashMap<>();
 
         try {
@@ -85,11 +144,14 @@ public class StreetMeshGenerator implements FeatureMeshGenerator {
             src.getFeatureProvider().release(feature);
         }
 
-        return mesh(vertices, buckets.values(), projection);
+        TileMeshData data = mesh(vertices, buckets.values(), restart(context));
+        meshes.put(key, data);
+
+        return data;
     }
 
     private void generate(RenderContext context, TileFeature<? extends Street> feature, MeshProjection projection,
-                          StreetStyle style, VertexSet<LineMeshBuilder.Vertex> vertices, HashMap<Double, IndexBucket> buckets)
+                          StreetStyle style, FloatVertexSet vertices, HashMap<Double, IndexBucket> buckets)
             throws InterruptedException
     {
         HashListMultiMap<Coordinate, Street> intersections = null;
@@ -121,20 +183,21 @@ public class StreetMeshGenerator implements FeatureMeshGenerator {
             });
         }
 
-        int restart = context.PrimitiveRestart.getIndex();
+        int restart = restart(context);
         LineMeshBuilder builder = new LineMeshBuilder(null);
 
         for (Street street : feature.getData()) {
             if (Thread.interrupted()) throw new InterruptedException();
 
             IndexBucket bucket = buckets.computeIfAbsent(street.layer, k -> new IndexBucket(street.layer));
-            builder.setEmitter(new BucketBuilder(vertices, bucket, restart));
+            BucketBuilder emitter = new BucketBuilder(vertices, bucket.indices, restart, projection);
 
-            generate(street, projection, builder, style, intersections);
+            generate(street, projection, builder, emitter, style, intersections);
         }
     }
 
-    private void generate(Street street, MeshProjection projection, LineMeshBuilder builder, StreetStyle style,
+    private void generate(Street street, MeshProjection projection, LineMeshBuilder builder,
+                          LineMeshBuilder.VertexEmitter emitter, StreetStyle style,
                           HashListMultiMap<Coordinate, Street> intersections) {
         Vec3d[] projected = projection.toGlobal(street.coordinates, street.layer);
 
@@ -155,6 +218,24 @@ public class StreetMeshGenerator implements FeatureMeshGenerator {
             }
         }
 
+        // re-use memoized geometry if available
+        GeometryKey key = new GeometryKey(street, style, in, out);
+        Geometry geom = geometry.get(key);
+
+        if (geom == null) {
+            GeometryRecorder recorder = new GeometryRecorder();
+            builder.setEmitter(recorder);
+            generate(street, projected, builder, style, in, out);
+
+            geom = recorder.finish();
+            geometry.put(key, geom);
+        }
+
+        geom.replay(emitter);
+    }
+
+    private void generate(Street street, Vec3d[] projected, LineMeshBuilder builder, StreetStyle style,
+                          Vec3d in, Vec3d out) {
         if (style.type == LineType.BASE) {
             double linewidth = style.lanewidth * (street.numLanesFwd + street.numLanesBwd) + 2.0 * style.linewidth;
             double offset = LaneOffset.getCenterOffset(style.lanewidth, street, style.drivingOnTheRight);
@@ -190,61 +271,39 @@ public class StreetMeshGenerator implements FeatureMeshGenerator {
     }
 
     /**
-     * Generate a Mesh instance from the given vertices and indices.
+     * Generate the mesh data from the given vertices and indices.
      *
-     * @param vertices   the vertices from which the mesh will be generated.
-     * @param indices    the indices in buckets from which the mesh will be generated.
-     * @param projection the projection to project the mesh to the tile.
-     * @return the generated mesh.
-     * @throws InterruptedException if the executing thread is interrupted.
+     * @param vertices the vertices from which the mesh will be generated.
+     * @param indices  the indices in buckets from which the mesh will be generated.
+     * @param restart  the primitive restart index used in the given indices.
+     * @return the generated mesh data.
      */
-    private Mesh mesh(VertexSet<LineMeshBuilder.Vertex> vertices, Collection<IndexBucket> indices,
-                      MeshProjection projection) throws InterruptedException
-    {
+    private TileMeshData mesh(FloatVertexSet vertices, Collection<IndexBucket> indices, int restart) {
         // create vertex buffer
-        FloatBuffer vb = FloatBuffer.allocate(vertices.size() * 6);
-        for (LineMeshBuilder.Vertex v : vertices.getVertices()) {
-            if (Thread.interrupted()) throw new InterruptedException();
-
-            Vec3f pos = projection.globalToTile(v.position);
-
-            vb.put(pos.x);
-            vb.put(pos.y);
-            vb.put(pos.z);
-            vb.put((float) v.segment.x);
-            vb.put((float) v.segment.y);
-            vb.put((float) v.segment.z);
-        }
-        vb.rewind();
+        FloatBuffer vb = vertices.getVertices().toBuffer();
 
         // create index buffer
-        int nIndices = 0;
-        for (IndexBucket i : indices)
-            nIndices += i.size();
-
-        IntBuffer ib = IntBuffer.allocate(nIndices);
+        IntBufferBuilder ibb = new IntBufferBuilder(0);
         for (IndexBucket bucket : indices)
-            for (int i : bucket)
-                ib.put(i);
-        ib.rewind();
+            ibb.add(bucket.indices);
+        IntBuffer ib = ibb.toBuffer();
 
-        // create mesh and buckets
-        final int usage = GL3.GL_STATIC_DRAW;
-        final int mode = GL3.GL_TRIANGLE_STRIP;
-        DualFloatAttributeIndexedMesh mesh = DualFloatAttributeIndexedMesh.newPos3LineMesh(usage, mode, vb, ib);
-        ArrayList<DualFloatAttributeIndexedMesh.Bucket> buckets = new ArrayList<>();
+        // create buckets
+        float[] layers = new float[indices.size()];
+        int[]   counts = new int[indices.size()];
 
-        int offset = 0;
+        int i = 0;
         for (IndexBucket indexbucket : indices) {
-            double layer = indexbucket.getLayer();
-            int    count = indexbucket.size();
-
-            buckets.add(mesh.new Bucket((float) layer, offset, count));
-            offset += count;
+            layers[i] = (float) indexbucket.getLayer();
+            counts[i] = indexbucket.indices.size();
+            i++;
         }
 
-        mesh.setBuckets(buckets);
-        return mesh;
+        return new TileMeshData(TileMeshData.Type.STREET, vb, ib, layers, counts, restart);
+    }
+
+    private static int restart(RenderContext context) {
+        return context != null ? context.PrimitiveRestart.getIndex() : TileMeshData.DEFAULT_RESTART_INDEX;
     }
 
 
@@ -314,14 +373,145 @@ public class StreetMeshGenerator implements FeatureMeshGenerator {
             this.useJoinsWhenPossible = useJoinsWhenPossible;
             this.drivingOnTheRight = drivingOnTheRight;
         }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof StreetStyle)) return false;
+
+            StreetStyle other = (StreetStyle) obj;
+            return this.lanewidth == other.lanewidth
+                    && this.linewidth == other.linewidth
+                    && this.cap == other.cap
+                    && this.join == other.join
+                    && this.type == other.type
+                    && Arrays.equals(this.dasharray, other.dasharray)
+                    && this.miterAngleLimit == other.miterAngleLimit
+                    && this.useJoinsWhenPossible == other.useJoinsWhenPossible
+                    && this.drivingOnTheRight == other.drivingOnTheRight;
+        }
+
+        @Override
+        public int hashCode() {
+            return new FNVHashBuilder()
+                    .add(lanewidth)
+                    .add(linewidth)
+                    .add(cap)
+                    .add(join)
+                    .add(type)
+                    .add(dasharray)
+                    .add(miterAngleLimit)
+                    .add(useJoinsWhenPossible)
+                    .add(drivingOnTheRight)
+                    .getHash();
+        }
     }
 
 
-    private static class IndexBucket extends ArrayList<Integer> {
-        private double layer;
+    /**
+     * Key for memoized street geometry. Streets are compared by identity.
+     */
+    public static class GeometryKey {
+        private final Street      street;
+        private final StreetStyle style;
+        private final Vec3d       in;
+        private final Vec3d       out;
+
+        private GeometryKey(Street street, StreetStyle style, Vec3d in, Vec3d out) {
+            this.street = street;
+            this.style  = style;
+            this.in     = in;
+            this.out    = out;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof GeometryKey)) return false;
+
+            GeometryKey other = (GeometryKey) obj;
+            return this.street == other.street
+                    && this.style.equals(other.style)
+                    && Objects.equals(this.in, other.in)
+                    && Objects.equals(this.out, other.out);
+        }
+
+        @Override
+        public int hashCode() {
+            return new FNVHashBuilder()
+                    .add(System.identityHashCode(street))
+                    .add(style)
+                    .add(in)
+                    .add(out)
+                    .getHash();
+        }
+    }
+
+    /**
+     * Memoized line geometry of a single street, stored as vertices and emitted indices (with {@code -1} denoting a
+     * primitive restart).
+     */
+    public static class Geometry {
+        private final LineMeshBuilder.Vertex[] vertices;
+        private final int[] indices;
+
+        private Geometry(LineMeshBuilder.Vertex[] vertices, int[] indices) {
+            this.vertices = vertices;
+            this.indices  = indices;
+        }
+
+        /**
+         * Returns the (estimated) size of this geometry in bytes.
+         *
+         * @return the estimated size of this geometry in bytes.
+         */
+        public long getSize() {
+            return vertices.length * 96L + indices.length * 4L;
+        }
+
+        private void replay(LineMeshBuilder.VertexEmitter emitter) {
+            int[] ids = new int[vertices.length];
+            for (int i = 0; i < vertices.length; i++)
+                ids[i] = emitter.add(vertices[i]);
+
+            for (int i : indices) {
+                if (i < 0)
+                    emitter.next();
+                else
+                    emitter.emit(ids[i]);
+            }
+        }
+    }
+
+    private static class GeometryRecorder implements LineMeshBuilder.VertexEmitter {
+        private ArrayList<LineMeshBuilder.Vertex> vertices = new ArrayList<>();
+        private IntBufferBuilder indices = new IntBufferBuilder();
+
+        public int add(LineMeshBuilder.Vertex vertex) {
+            vertices.add(vertex);
+            return vertices.size() - 1;
+        }
+
+        public void emit(int id) {
+            indices.add(id);
+        }
+
+        public void next() {
+            indices.add(-1);
+        }
+
+        private Geometry finish() {
+            return new Geometry(vertices.toArray(new LineMeshBuilder.Vertex[vertices.size()]),
+                                Arrays.copyOf(indices.array(), indices.size()));
+        }
+    }
+
+
+    private static class IndexBucket {
+        private final double layer;
+        private final IntBufferBuilder indices;
 
         public IndexBucket(double layer) {
             this.layer = layer;
+            this.indices = new IntBufferBuilder();
         }
 
 
@@ -331,17 +521,25 @@ public class StreetMeshGenerator implements FeatureMeshGenerator {
     }
 
     private static class BucketBuilder implements LineMeshBuilder.VertexEmitter {
-        private VertexSet<LineMeshBuilder.Vertex> vertices;
-        private ArrayList<Integer> indices;
+        private FloatVertexSet vertices;
+        private IntBufferBuilder indices;
         private int restart;
+        private MeshProjection projection;
+        private float[] vertex = new float[6];
 
-        public BucketBuilder(VertexSet<LineMeshBuilder.Vertex> vertices, ArrayList<Integer> indices, int restart) {
+        public BucketBuilder(FloatVertexSet vertices, IntBufferBuilder indices, int restart,
+                             MeshProjection projection) {
             this.vertices = vertices;
             this.indices = indices;
             this.restart = restart;
+            this.projection = projection;
         }
 
-        public int add(LineMeshBuilder.Vertex vertex) {
+        public int add(LineMeshBuilder.Vertex v) {
+            projection.globalToTile(v.position, vertex);
+            vertex[3] = (float) v.segment.x;
+            vertex[4] = (float) v.segment.y;
+            vertex[5] = (float) v.segment.z;
             return vertices.add(vertex);
         }
 
@@ -385,12 +583,10 @@ public class StreetMeshGenerator implements FeatureMeshGenerator {
             return new Vec3d(projection.project(coord), layer);
         }
 
-        private Vec3f globalToTile(Vec3d p) {
-            return new Vec3f(
-                    (float) (((p.x - from.xmin) / (from.xmax - from.xmin)) * (to.xmax - to.xmin) + to.xmin),
-                    (float) (((p.y - from.ymin) / (from.ymax - from.ymin)) * (to.ymax - to.ymin) + to.ymin),
-                    (float) p.z
-            );
+        private void globalToTile(Vec3d p, float[] out) {
+            out[0] = (float) (((p.x - from.xmin) / (from.xmax - from.xmin)) * (to.xmax - to.xmin) + to.xmin);
+            out[1] = (float) (((p.y - from.ymin) / (from.ymax - from.ymin)) * (to.ymax - to.ymin) + to.ymin);
+            out[2] = (float) p.z;
         }
     }
 }
@@ -0,0 +1,149 @@
+package microtrafficsim.core.vis.map.tiles.mesh;
+
+import microtrafficsim.core.map.FeaturePrimitive;
+import microtrafficsim.core.map.TileFeatureProvider;
+import microtrafficsim.core.map.features.Polygon;
+import microtrafficsim.core.map.features.Street;
+import microtrafficsim.core.map.layers.LayerDefinition;
+import microtrafficsim.core.map.tiles.TileId;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.map.tiles.TilingScheme;
+import microtrafficsim.core.vis.map.tiles.layers.FeatureTileLayerGenerator;
+import microtrafficsim.core.vis.map.tiles.layers.FeatureTileLayerSource;
+import microtrafficsim.utils.logging.EasyMarkableLogger;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+
+
+/**
+ * Pre-bakes the meshes of feature tile layers into a {@link TileMeshStore}, without requiring an OpenGL context.
+ *
+ * @author agent
+ */
+public class TileMeshBaker {
+    private static final Logger logger = new EasyMarkableLogger(TileMeshBaker.class);
+
+    private HashMap<Class<? extends FeaturePrimitive>, FeatureMeshGenerator> generators;
+
+
+    /**
+     * Creates a new {@code TileMeshBaker} using the default generators. As each mesh is only generated once, the
+     * mesh-caches of the default generators are disabled.
+     */
+    public TileMeshBaker() {
+        this.generators = new HashMap<>();
+        this.generators.put(Street.class,
+                new StreetMeshGenerator(0, StreetMeshGenerator.DEFAULT_GEOMETRY_CACHE_CAPACITY));
+        this.generators.put(Polygon.class, new PolygonMeshGenerator(0));
+    }
+
+
+    /**
+     * Associate the given generator with the given feature-type.
+     *
+     * @param type      the feature-type to associate the generator with.
+     * @param generator the generator to be associated with the given type.
+     * @return the generator previously associated with the given type.
+     */
+    public FeatureMeshGenerator putGenerator(Class<? extends FeaturePrimitive> type, FeatureMeshGenerator generator) {
+        return generators.put(type, generator);
+    }
+
+    /**
+     * Bakes the meshes of all given feature layers for the given zoom-levels into the given store, replacing the
+     * previously stored meshes of these layers. Zoom-levels outside of the zoom-range of a layer are ignored.
+     *
+     * @param store    the store to write the meshes to.
+     * @param provider the provider of the features.
+     * @param layers   the layers to bake.
+     * @param minzoom  the minimum zoom-level to bake.
+     * @param maxzoom  the maximum zoom-level to bake.
+     * @return the number of meshes written.
+     * @throws IOException          if the meshes cannot be written.
+     * @throws InterruptedException if this operation has been interrupted.
+     */
+    public int bake(TileMeshStore store, TileFeatureProvider provider, Collection<LayerDefinition> layers,
+                    int minzoom, int maxzoom) throws IOException, InterruptedException {
+        int total = 0;
+
+        for (LayerDefinition layer : layers) {
+            if (!(layer.getSource() instanceof FeatureTileLayerSource)) continue;
+
+            // use a separate source to leave the layer definition untouched
+            FeatureTileLayerSource def = (FeatureTileLayerSource) layer.getSource();
+            FeatureTileLayerSource src = new FeatureTileLayerSource(def.getFeatureName(), def.getStyle(), provider);
+
+            try {
+                if (!src.isAvailable()) continue;
+
+                FeatureMeshGenerator generator = generators.get(src.getFeatureType());
+                if (generator == null) continue;
+
+                int zmin = Math.max(minzoom, layer.getMinimumZoomLevel());
+                int zmax = Math.min(maxzoom, layer.getMaximumZoomLevel());
+
+                try (TileMeshStore.Writer writer = store.writer(layer.getName())) {
+                    for (int z = zmin; z <= zmax; z++)
+                        bake(writer, generator, src, zmin, z);
+
+                    logger.debug("baked " + writer.size() + " meshes for layer '" + layer.getName() + "'");
+                    total += writer.size();
+                }
+            } finally {
+                src.setFeatureProvider(null);
+            }
+        }
+
+        return total;
+    }
+
+    private void bake(TileMeshStore.Writer writer, FeatureMeshGenerator generator, FeatureTileLayerSource src,
+                      int zmin, int zoom) throws IOException, InterruptedException {
+        TilingScheme scheme = src.getTilingScheme();
+        TileRect tiles = scheme.getTiles(src.getProjectedBounds(), zoom);
+
+        /* If features are stored on a lower level, all tiles of this level map to meshes of that level, which have
+         * already been baked if that level is inside the requested range. */
+        int stored = generator.getFeatureBounds(src, new TileId(tiles.xmin, tiles.ymin, zoom)).zoom;
+        if (stored < zoom && stored >= zmin)
+            return;
+
+        for (int y = tiles.ymin; y <= tiles.ymax; y++) {
+            for (int x = tiles.xmin; x <= tiles.xmax; x++) {
+                if (Thread.interrupted()) throw new InterruptedException();
+
+                TileId tile = new TileId(x, y, zoom);
+                if (!src.getFeatureProvider().hasTile(x, y, zoom)) continue;
+
+                TileRect actual = generator.getFeatureBounds(src, tile);
+                if (writer.contains(actual)) continue;
+
+                TileMeshData data = generator.generateData(null, src, tile, FeatureTileLayerGenerator.MESH_TARGET);
+                if (data != null)
+                    writer.put(actual, data);
+            }
+        }
+    }
+
+    /**
+     * Verifies the checksums of all meshes stored for the given layers.
+     *
+     * @param store  the store to verify.
+     * @param layers the layers to verify.
+     * @return the number of corrupted meshes.
+     * @throws IOException if the store cannot be read.
+     */
+    public static int verify(TileMeshStore store, Collection<LayerDefinition> layers) throws IOException {
+        int corrupted = 0;
+
+        for (LayerDefinition layer : layers) {
+            if (layer.getSource() instanceof FeatureTileLayerSource)
+                corrupted += store.verify(layer.getName());
+        }
+
+        return corrupted;
+    }
+}
@@ -0,0 +1,173 @@
+package microtrafficsim.core.vis.map.tiles.mesh;
+
+import com.jogamp.opengl.GL3;
+import microtrafficsim.core.vis.context.RenderContext;
+import microtrafficsim.core.vis.mesh.Mesh;
+import microtrafficsim.core.vis.mesh.impl.DualFloatAttributeIndexedMesh;
+import microtrafficsim.core.vis.mesh.impl.SingleFloatAttributeIndexedMesh;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+
+
+/**
+ * Vertex- and index-data of a generated feature mesh, independent of any OpenGL context. Meshes can be created from
+ * this data on any context, the buffers are shared between all created meshes.
+ *
+ * @author agent
+ */
+public class TileMeshData {
+
+    /** The primitive restart index used by the tile-based visualization. */
+    public static final int DEFAULT_RESTART_INDEX = 0xFFFFFFFF;
+
+    /**
+     * The type of the mesh, specifying its vertex layout.
+     */
+    public enum Type {
+
+        /** Triangles with a two-component position attribute. */
+        POLYGON,
+
+        /** Triangle-strips with a three-component position and a three-component line attribute. */
+        STREET
+    }
+
+    private final Type        type;
+    private final FloatBuffer vertices;
+    private final IntBuffer   indices;
+    private final float[]     layers;
+    private final int[]       counts;
+    private final int         restart;
+
+
+    /**
+     * Creates a new {@code TileMeshData} instance.
+     *
+     * @param type     the type of the mesh.
+     * @param vertices the vertex-buffer.
+     * @param indices  the index-buffer.
+     * @param layers   the layer of each index-bucket.
+     * @param counts   the number of indices in each index-bucket.
+     * @param restart  the primitive restart index used in the index-buffer.
+     */
+    public TileMeshData(Type type, FloatBuffer vertices, IntBuffer indices, float[] layers, int[] counts,
+                        int restart) {
+        this.type     = type;
+        this.vertices = vertices;
+        this.indices  = indices;
+        this.layers   = layers;
+        this.counts   = counts;
+        this.restart  = restart;
+    }
+
+    /**
+     * Creates a new {@code TileMeshData} instance for a polygon mesh, consisting of a single index-bucket.
+     *
+     * @param vertices the vertex-buffer.
+     * @param indices  the index-buffer.
+     * @return the created mesh data.
+     */
+    public static TileMeshData polygon(FloatBuffer vertices, IntBuffer indices) {
+        return new TileMeshData(Type.POLYGON, vertices, indices, new float[] {0.0f},
+                new int[] {indices.capacity()}, DEFAULT_RESTART_INDEX);
+    }
+
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns a view on the vertex-buffer of this mesh data.
+     *
+     * @return a view on the vertex-buffer of this mesh data.
+     */
+    public FloatBuffer getVertices() {
+        return vertices.duplicate();
+    }
+
+    /**
+     * Returns a view on the index-buffer of this mesh data.
+     *
+     * @return a view on the index-buffer of this mesh data.
+     */
+    public IntBuffer getIndices() {
+        return indices.duplicate();
+    }
+
+    public float[] getLayers() {
+        return layers;
+    }
+
+    public int[] getCounts() {
+        return counts;
+    }
+
+    public int getRestartIndex() {
+        return restart;
+    }
+
+    /**
+     * Returns the size of the vertex- and index-data in bytes.
+     *
+     * @return the size of this mesh data in bytes.
+     */
+    public long getSize() {
+        return vertices.capacity() * 4L + indices.capacity() * 4L;
+    }
+
+    /**
+     * Checks if meshes created from this data can be displayed on the given context, i.e. if the primitive restart
+     * indices match.
+     *
+     * @param context the context to check against.
+     * @return {@code true} if this data can be used on the given context.
+     */
+    public boolean isCompatible(RenderContext context) {
+        return type != Type.STREET || restart == context.PrimitiveRestart.getIndex();
+    }
+
+    /**
+     * Creates a new mesh from this data. The buffers are shared between all created meshes.
+     *
+     * @return the created mesh.
+     */
+    public Mesh create() {
+        switch (type) {
+        case POLYGON: {
+            SingleFloatAttributeIndexedMesh mesh = SingleFloatAttributeIndexedMesh.newPos2Mesh(
+                    GL3.GL_STATIC_DRAW, GL3.GL_TRIANGLES, vertices.duplicate(), indices.duplicate());
+
+            ArrayList<SingleFloatAttributeIndexedMesh.Bucket> buckets = new ArrayList<>();
+            int offset = 0;
+            for (int i = 0; i < layers.length; i++) {
+                buckets.add(mesh.new Bucket(layers[i], offset, counts[i]));
+                offset += counts[i];
+            }
+
+            mesh.setBuckets(buckets);
+            return mesh;
+        }
+
+        case STREET: {
+            DualFloatAttributeIndexedMesh mesh = DualFloatAttributeIndexedMesh.newPos3LineMesh(
+                    GL3.GL_STATIC_DRAW, GL3.GL_TRIANGLE_STRIP, vertices.duplicate(), indices.duplicate());
+
+            ArrayList<DualFloatAttributeIndexedMesh.Bucket> buckets = new ArrayList<>();
+            int offset = 0;
+            for (int i = 0; i < layers.length; i++) {
+                buckets.add(mesh.new Bucket(layers[i], offset, counts[i]));
+                offset += counts[i];
+            }
+
+            mesh.setBuckets(buckets);
+            return mesh;
+        }
+
+        default:
+            return null;
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package microtrafficsim.core.vis.map.tiles.mesh;
+
+import microtrafficsim.core.logic.streetgraph.GraphGUID;
+import microtrafficsim.core.map.layers.LayerDefinition;
+import microtrafficsim.core.map.style.MapStyleSheet;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.vis.map.tiles.layers.FeatureTileLayerSource;
+import microtrafficsim.core.vis.mesh.style.Style;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+
+/**
+ * On-disk store for pre-baked tile meshes.
+ * <p>
+ * A store is a directory containing one pack-file per layer. Each pack-file consists of a header, the encoded mesh
+ * data of each baked tile-rectangle, and an index mapping the tile-rectangles (as returned by
+ * {@link FeatureMeshGenerator#getFeatureBounds(FeatureTileLayerSource, microtrafficsim.core.map.tiles.TileId)
+ * FeatureMeshGenerator.getFeatureBounds(...)}) to their data. The index of a pack-file is read on the first access
+ * to its layer, mesh data is memory-mapped on demand, so that opening a store is cheap regardless of its size.
+ * </p>
+ * <p>
+ * As meshes depend on both the map and its style, stores should be placed in a directory specific to both, see
+ * {@link #getDirectory(File, GraphGUID, MapStyleSheet, boolean)}. All data is stored in little-endian byte order.
+ * </p>
+ *
+ * @author agent
+ */
+public class TileMeshStore implements Closeable {
+
+    /** The magic number identifying a pack-file ({@code "MTSM"}). */
+    public static final int MAGIC = 0x4D53544D;
+
+    /** The version of the pack-file format. */
+    public static final int VERSION = 1;
+
+    /** The file-extension used for pack-files. */
+    public static final String FILE_EXTENSION = ".mtsmesh";
+
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final int INDEX_ENTRY_SIZE = 5 * 4 + 8 + 4 + 4;
+    private static final int MESH_HEADER_SIZE = 5 * 4;
+
+    private static final long FNV64_BASE  = 0xCBF29CE484222325L;
+    private static final long FNV64_PRIME = 0x100000001B3L;
+
+    private final File directory;
+    private final HashMap<String, Pack> packs;
+
+
+    /**
+     * Creates a new {@code TileMeshStore} for the given directory. The directory does not have to exist.
+     *
+     * @param directory the directory of the store.
+     */
+    public TileMeshStore(File directory) {
+        this.directory = directory;
+        this.packs     = new HashMap<>();
+    }
+
+
+    /**
+     * Returns the default root directory for the tile-mesh stores of the given map-file, i.e. the directory
+     * {@code <map-file>.meshes} next to the map-file.
+     *
+     * @param map the map-file.
+     * @return the default root directory for the stores of the given map-file.
+     */
+    public static File getDefaultRoot(File map) {
+        return new File(map.getPath() + ".meshes");
+    }
+
+    /**
+     * Returns the directory of the store for the given graph and style inside the given root directory.
+     *
+     * @param root              the root directory containing the stores.
+     * @param guid              the GUID of the graph for which the meshes are (or have been) generated.
+     * @param style             the style-sheet for which the meshes are (or have been) generated.
+     * @param drivingOnTheRight the driving-side of the map.
+     * @return the directory of the store.
+     */
+    public static File getDirectory(File root, GraphGUID guid, MapStyleSheet style, boolean drivingOnTheRight) {
+        return new File(root, getKey(guid, style, drivingOnTheRight));
+    }
+
+    /**
+     * Returns the key identifying a store for the given graph and style.
+     *
+     * @param guid              the GUID of the graph.
+     * @param style             the style-sheet.
+     * @param drivingOnTheRight the driving-side of the map.
+     * @return the key identifying the store.
+     */
+    public static String getKey(GraphGUID guid, MapStyleSheet style, boolean drivingOnTheRight) {
+        return String.format("%016x-%016x", getGraphHash(guid), getStyleHash(style, drivingOnTheRight));
+    }
+
+    /**
+     * Returns a hash of the given graph-GUID that is stable across runs.
+     *
+     * @param guid the GUID to hash.
+     * @return the hash of the given GUID.
+     */
+    public static long getGraphHash(GraphGUID guid) {
+        long hash = FNV64_BASE;
+        hash = fnv64(hash, Double.doubleToLongBits(guid.getBounds().minlat));
+        hash = fnv64(hash, Double.doubleToLongBits(guid.getBounds().minlon));
+        hash = fnv64(hash, Double.doubleToLongBits(guid.getBounds().maxlat));
+        hash = fnv64(hash, Double.doubleToLongBits(guid.getBounds().maxlon));
+        hash = fnv64(hash, guid.getNodeHash());
+        hash = fnv64(hash, guid.getEdgeHash());
+        return hash;
+    }
+
+    /**
+     * Returns a hash of all properties of the given style-sheet that affect the generated meshes. The hash is stable
+     * across runs.
+     *
+     * @param style             the style-sheet to hash.
+     * @param drivingOnTheRight the driving-side of the map.
+     * @return the hash of the given style-sheet.
+     */
+    public static long getStyleHash(MapStyleSheet style, boolean drivingOnTheRight) {
+        StringBuilder builder = new StringBuilder()
+                .append(style.getClass().getName()).append(';')
+                .append(drivingOnTheRight).append(';');
+
+        ArrayList<LayerDefinition> layers = new ArrayList<>(style.getLayers());
+        layers.sort(Comparator.comparing(LayerDefinition::getName));
+
+        for (LayerDefinition layer : layers) {
+            builder.append(layer.getName()).append(',')
+                    .append(layer.getIndex()).append(',')
+                    .append(layer.getMinimumZoomLevel()).append(',')
+                    .append(layer.getMaximumZoomLevel()).append(',')
+                    .append(layer.getSource().getType().getName());
+
+            if (layer.getSource() instanceof FeatureTileLayerSource) {
+                FeatureTileLayerSource src = (FeatureTileLayerSource) layer.getSource();
+                builder.append(',').append(src.getFeatureName());
+
+                Style s = src.getStyle();
+                if (s != null) {
+                    for (Map.Entry<String, Object> property : new TreeMap<>(s.getProperties()).entrySet())
+                        builder.append(',').append(property.getKey()).append('=').append(toString(property.getValue()));
+                }
+            }
+
+            builder.append(';');
+        }
+
+        long hash = FNV64_BASE;
+        for (byte b : builder.toString().getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV64_PRIME;
+        }
+
+        return hash;
+    }
+
+
+    /**
+     * Returns the directory of this store.
+     *
+     * @return the directory of this store.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the file used to store the meshes of the given layer.
+     *
+     * @param layer the name of the layer.
+     * @return the pack-file of the given layer.
+     */
+    public File getFile(String layer) {
+        StringBuilder name = new StringBuilder();
+        for (char c : layer.toCharArray())
+            name.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' ? c : '.');
+
+        return new File(directory, String.format("%s-%08x%s", name, layer.hashCode(), FILE_EXTENSION));
+    }
+
+    /**
+     * Checks if this store contains a mesh for the given layer and tile-rectangle.
+     *
+     * @param layer the name of the layer.
+     * @param tiles the tile-rectangle.
+     * @return {@code true} if this store contains a mesh for the given layer and tiles.
+     * @throws IOException if the pack-file of the given layer cannot be read.
+     */
+    public boolean contains(String layer, TileRect tiles) throws IOException {
+        Pack pack = pack(layer);
+        return pack != null && pack.index.containsKey(tiles);
+    }
+
+    /**
+     * Returns the tile-rectangles for which meshes of the given layer are stored.
+     *
+     * @param layer the name of the layer.
+     * @return the tile-rectangles for which meshes of the given layer are stored.
+     * @throws IOException if the pack-file of the given layer cannot be read.
+     */
+    public Set<TileRect> getTiles(String layer) throws IOException {
+        Pack pack = pack(layer);
+        return pack != null ? Collections.unmodifiableSet(pack.index.keySet()) : Collections.emptySet();
+    }
+
+    /**
+     * Returns the mesh data for the given layer and tile-rectangle. The returned buffers are memory-mapped from the
+     * pack-file.
+     *
+     * @param layer the name of the layer.
+     * @param tiles the tile-rectangle.
+     * @return the stored mesh data or {@code null} if there is none.
+     * @throws IOException if the mesh data cannot be read.
+     */
+    public TileMeshData get(String layer, TileRect tiles) throws IOException {
+        Pack pack = pack(layer);
+        if (pack == null) return null;
+
+        Entry entry = pack.index.get(tiles);
+        if (entry == null) return null;
+
+        return decode(pack.channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.length).order(ORDER));
+    }
+
+    /**
+     * Verifies the checksums of all meshes stored for the given layer.
+     *
+     * @param layer the name of the layer.
+     * @return the number of corrupted meshes.
+     * @throws IOException if the pack-file of the given layer cannot be read.
+     */
+    public int verify(String layer) throws IOException {
+        Pack pack = pack(layer);
+        if (pack == null) return 0;
+
+        int corrupted = 0;
+        for (Entry entry : pack.index.values()) {
+            ByteBuffer data = pack.channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.length);
+
+            CRC32 crc = new CRC32();
+            crc.update(data);
+
+            if ((int) crc.getValue() != entry.crc)
+                corrupted++;
+        }
+
+        return corrupted;
+    }
+
+    /**
+     * Creates a writer for the given layer, replacing all meshes previously stored for the layer when closed.
+     *
+     * @param layer the name of the layer.
+     * @return the created writer.
+     * @throws IOException if the pack-file cannot be created.
+     */
+    public Writer writer(String layer) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Failed to create directory '" + directory + "'");
+
+        synchronized (this) {
+            Pack pack = packs.remove(layer);
+            if (pack != null) pack.channel.close();
+        }
+
+        return new Writer(getFile(layer), layer);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Pack pack : packs.values())
+            if (pack != null) pack.channel.close();
+
+        packs.clear();
+    }
+
+
+    private synchronized Pack pack(String layer) throws IOException {
+        if (packs.containsKey(layer))
+            return packs.get(layer);
+
+        File file = getFile(layer);
+        Pack pack = file.isFile() ? Pack.open(file, layer) : null;
+        packs.put(layer, pack);
+
+        return pack;
+    }
+
+
+    private static ByteBuffer encode(TileMeshData data) {
+        FloatBuffer vertices = data.getVertices();
+        IntBuffer   indices  = data.getIndices();
+        float[]     layers   = data.getLayers();
+        int[]       counts   = data.getCounts();
+
+        vertices.rewind();
+        indices.rewind();
+
+        int nv = vertices.remaining();
+        int ni = indices.remaining();
+
+        ByteBuffer buffer = ByteBuffer.allocate(MESH_HEADER_SIZE + layers.length * 8 + nv * 4 + ni * 4).order(ORDER);
+
+        buffer.putInt(data.getType().ordinal());
+        buffer.putInt(data.getRestartIndex());
+        buffer.putInt(layers.length);
+        buffer.putInt(nv);
+        buffer.putInt(ni);
+
+        for (float layer : layers)
+            buffer.putFloat(layer);
+        for (int count : counts)
+            buffer.putInt(count);
+
+        buffer.asFloatBuffer().put(vertices);
+        buffer.position(buffer.position() + nv * 4);
+        buffer.asIntBuffer().put(indices);
+
+        buffer.rewind();
+        return buffer;
+    }
+
+    private static TileMeshData decode(ByteBuffer buffer) throws IOException {
+        TileMeshData.Type[] types = TileMeshData.Type.values();
+
+        int type     = buffer.getInt();
+        int restart  = buffer.getInt();
+        int buckets  = buffer.getInt();
+        int vertices = buffer.getInt();
+        int indices  = buffer.getInt();
+
+        if (type < 0 || type >= types.length || buckets < 0 || vertices < 0 || indices < 0
+                || MESH_HEADER_SIZE + (long) buckets * 8 + (long) vertices * 4 + (long) indices * 4 != buffer.limit())
+            throw new IOException("Invalid mesh data");
+
+        float[] layers = new float[buckets];
+        int[]   counts = new int[buckets];
+        for (int i = 0; i < buckets; i++)
+            layers[i] = buffer.getFloat();
+        for (int i = 0; i < buckets; i++)
+            counts[i] = buffer.getInt();
+
+        int begin = buffer.position();
+
+        buffer.limit(begin + vertices * 4);
+        FloatBuffer vb = buffer.slice().order(ORDER).asFloatBuffer();
+
+        buffer.limit(begin + vertices * 4 + indices * 4);
+        buffer.position(begin + vertices * 4);
+        IntBuffer ib = buffer.slice().order(ORDER).asIntBuffer();
+
+        return new TileMeshData(types[type], vb, ib, layers, counts, restart);
+    }
+
+    private static String toString(Object value) {
+        if (value instanceof double[])  return Arrays.toString((double[]) value);
+        if (value instanceof float[])   return Arrays.toString((float[]) value);
+        if (value instanceof int[])     return Arrays.toString((int[]) value);
+        if (value instanceof long[])    return Arrays.toString((long[]) value);
+        if (value instanceof Object[])  return Arrays.deepToString((Object[]) value);
+        return String.valueOf(value);
+    }
+
+    private static long fnv64(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xFF;
+            hash *= FNV64_PRIME;
+        }
+        return hash;
+    }
+
+
+    /**
+     * Writer for a single pack-file. Meshes are appended to the file, the index is written when the writer is
+     * closed.
+     */
+    public static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final HashMap<TileRect, Entry> index;
+        private final long indexOffsetPosition;
+
+        private Writer(File file, String layer) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.index = new HashMap<>();
+
+            byte[] name = layer.getBytes(StandardCharsets.UTF_8);
+            int padding = (4 - name.length % 4) % 4;
+
+            ByteBuffer header = ByteBuffer.allocate(4 * 3 + name.length + padding + 8 + 4).order(ORDER);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(name.length);
+            header.put(name);
+            header.put(new byte[padding]);
+            this.indexOffsetPosition = header.position();
+            header.putLong(0);      // index offset, written on close
+            header.putInt(0);       // number of entries, written on close
+            header.flip();
+
+            write(header, 0);
+        }
+
+        /**
+         * Checks if this writer already contains a mesh for the given tile-rectangle.
+         *
+         * @param tiles the tile-rectangle.
+         * @return {@code true} if this writer contains a mesh for the given tiles.
+         */
+        public boolean contains(TileRect tiles) {
+            return index.containsKey(tiles);
+        }
+
+        /**
+         * Appends the given mesh data for the given tile-rectangle.
+         *
+         * @param tiles the tile-rectangle for which the mesh has been generated.
+         * @param data  the mesh data.
+         * @throws IOException if the data cannot be written.
+         */
+        public void put(TileRect tiles, TileMeshData data) throws IOException {
+            ByteBuffer buffer = encode(data);
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, buffer.limit());
+
+            long offset = channel.size();
+            write(buffer, offset);
+
+            index.put(new TileRect(tiles), new Entry(offset, buffer.limit(), (int) crc.getValue()));
+        }
+
+        /**
+         * Returns the number of meshes written.
+         *
+         * @return the number of meshes written.
+         */
+        public int size() {
+            return index.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                long offset = channel.size();
+
+                ByteBuffer buffer = ByteBuffer.allocate(index.size() * INDEX_ENTRY_SIZE).order(ORDER);
+                for (Map.Entry<TileRect, Entry> e : index.entrySet()) {
+                    buffer.putInt(e.getKey().xmin);
+                    buffer.putInt(e.getKey().ymin);
+                    buffer.putInt(e.getKey().xmax);
+                    buffer.putInt(e.getKey().ymax);
+                    buffer.putInt(e.getKey().zoom);
+                    buffer.putLong(e.getValue().offset);
+                    buffer.putInt(e.getValue().length);
+                    buffer.putInt(e.getValue().crc);
+                }
+                buffer.flip();
+                write(buffer, offset);
+
+                ByteBuffer header = ByteBuffer.allocate(8 + 4).order(ORDER);
+                header.putLong(offset);
+                header.putInt(index.size());
+                header.flip();
+                write(header, indexOffsetPosition);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void write(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining())
+                position += channel.write(buffer, position);
+        }
+    }
+
+
+    private static class Entry {
+        private final long offset;
+        private final int  length;
+        private final int  crc;
+
+        private Entry(long offset, int length, int crc) {
+            this.offset = offset;
+            this.length = length;
+            this.crc    = crc;
+        }
+    }
+
+    private static class Pack {
+        private final FileChannel channel;
+        private final HashMap<TileRect, Entry> index;
+
+        private Pack(FileChannel channel, HashMap<TileRect, Entry> index) {
+            this.channel = channel;
+            this.index   = index;
+        }
+
+        private static Pack open(File file, String layer) throws IOException {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+            try {
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 4096))
+                        .order(ORDER);
+
+                if (header.remaining() < 12 || header.getInt() != MAGIC)
+                    throw new IOException("'" + file + "' is not a mesh pack-file");
+                if (header.getInt() != VERSION)
+                    throw new IOException("'" + file + "' has an unsupported version");
+
+                int length = header.getInt();
+                if (length < 0 || length > header.remaining() - 12)
+                    throw new IOException("'" + file + "' has an invalid header");
+
+                byte[] name = new byte[length];
+                header.get(name);
+                header.position(header.position() + (4 - length % 4) % 4);
+
+                if (!layer.equals(new String(name, StandardCharsets.UTF_8)))
+                    throw new IOException("'" + file + "' belongs to a different layer");
+
+                long offset = header.getLong();
+                int  count  = header.getInt();
+                if (offset <= 0 || count < 0 || offset + (long) count * INDEX_ENTRY_SIZE > channel.size())
+                    throw new IOException("'" + file + "' has an invalid or incomplete index");
+
+                ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) count * INDEX_ENTRY_SIZE)
+                        .order(ORDER);
+
+                HashMap<TileRect, Entry> index = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    TileRect rect = new TileRect(data.getInt(), data.getInt(), data.getInt(), data.getInt(),
+                            data.getInt());
+                    index.put(rect, new Entry(data.getLong(), data.getInt(), data.getInt()));
+                }
+
+                return new Pack(channel, index);
+
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package microtrafficsim.core.vis.mesh.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Growable array of primitive {@code float}s, used to build vertex buffers without boxing.
+ *
+ * @author agent
+ */
+public class FloatBufferBuilder {
+    private float[] data;
+    private int     size;
+
+
+    /**
+     * Creates a new, empty {@code FloatBufferBuilder}.
+     */
+    public FloatBufferBuilder() {
+        this(64);
+    }
+
+    /**
+     * Creates a new, empty {@code FloatBufferBuilder} with the given initial capacity.
+     *
+     * @param capacity the initial capacity.
+     */
+    public FloatBufferBuilder(int capacity) {
+        this.data = new float[Math.max(capacity, 1)];
+        this.size = 0;
+    }
+
+
+    /**
+     * Appends the given value.
+     *
+     * @param value the value to append.
+     */
+    public void add(float value) {
+        if (size == data.length)
+            data = Arrays.copyOf(data, data.length * 2);
+
+        data[size++] = value;
+    }
+
+    /**
+     * Appends the given values.
+     *
+     * @param values the array containing the values to append.
+     * @param offset the offset of the first value in the given array.
+     * @param length the number of values to append.
+     */
+    public void add(float[] values, int offset, int length) {
+        ensureCapacity(size + length);
+        System.arraycopy(values, offset, data, size, length);
+        size += length;
+    }
+
+    public float get(int index) {
+        return data[index];
+    }
+
+    public void set(int index, float value) {
+        data[index] = value;
+    }
+
+    /**
+     * Returns the number of values in this builder.
+     *
+     * @return the number of values in this builder.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all values from this builder, retaining its capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Ensures that this builder can hold at least the given number of values without growing.
+     *
+     * @param capacity the required capacity.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length)
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+    }
+
+    /**
+     * Returns the backing array of this builder. Only the first {@link #size()} values are valid.
+     *
+     * @return the backing array of this builder.
+     */
+    public float[] array() {
+        return data;
+    }
+
+    /**
+     * Creates a new, direct buffer containing exactly the values of this builder.
+     *
+     * @return the created buffer, positioned at zero.
+     */
+    public FloatBuffer toBuffer() {
+        FloatBuffer buffer = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        buffer.put(data, 0, size);
+        buffer.rewind();
+        return buffer;
+    }
+}
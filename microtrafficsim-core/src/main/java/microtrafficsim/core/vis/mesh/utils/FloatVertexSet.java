@@ -0,0 +1,151 @@
+package microtrafficsim.core.vis.mesh.utils;
+
+import java.util.Arrays;
+
+
+/**
+ * Set of vertices consisting of a fixed number of {@code float} components, assigning each unique vertex a
+ * consecutive index. Vertices are stored interleaved in a single {@link FloatBufferBuilder} and de-duplicated via an
+ * open-addressing hash-table over their raw component bits, i.e. without creating any objects per vertex.
+ *
+ * @author agent
+ */
+public class FloatVertexSet {
+    private static final int EMPTY = -1;
+
+    private final int stride;
+    private final FloatBufferBuilder vertices;
+    private int[] table;
+    private int   count;
+
+
+    /**
+     * Creates a new, empty {@code FloatVertexSet}.
+     *
+     * @param stride the number of components per vertex.
+     */
+    public FloatVertexSet(int stride) {
+        this(stride, 64);
+    }
+
+    /**
+     * Creates a new, empty {@code FloatVertexSet}.
+     *
+     * @param stride   the number of components per vertex.
+     * @param capacity the expected number of vertices.
+     */
+    public FloatVertexSet(int stride, int capacity) {
+        this.stride   = stride;
+        this.vertices = new FloatBufferBuilder(Math.max(capacity, 1) * stride);
+        this.table    = new int[tableSize(capacity)];
+        this.count    = 0;
+
+        Arrays.fill(table, EMPTY);
+    }
+
+
+    /**
+     * Adds the given vertex, if no equal vertex is contained in this set.
+     *
+     * @param vertex the array containing the components of the vertex, its length must be at least the stride of
+     *               this set.
+     * @return the index of the (possibly already contained) vertex.
+     */
+    public int add(float[] vertex) {
+        int mask = table.length - 1;
+        int slot = hash(vertex, 0) & mask;
+
+        while (table[slot] != EMPTY) {
+            if (equals(table[slot], vertex))
+                return table[slot];
+
+            slot = (slot + 1) & mask;
+        }
+
+        int index = count++;
+        table[slot] = index;
+        vertices.add(vertex, 0, stride);
+
+        if (count * 2 > table.length)
+            rehash(table.length * 2);
+
+        return index;
+    }
+
+    /**
+     * Returns the number of vertices in this set.
+     *
+     * @return the number of vertices in this set.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of components per vertex.
+     *
+     * @return the number of components per vertex.
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Returns the interleaved vertex components, ordered by vertex index.
+     *
+     * @return the interleaved vertex components.
+     */
+    public FloatBufferBuilder getVertices() {
+        return vertices;
+    }
+
+
+    private boolean equals(int index, float[] vertex) {
+        float[] data = vertices.array();
+        int base = index * stride;
+
+        for (int i = 0; i < stride; i++) {
+            if (bits(data[base + i]) != bits(vertex[i]))
+                return false;
+        }
+
+        return true;
+    }
+
+    private int hash(float[] data, int base) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < stride; i++)
+            h = (h ^ bits(data[base + i])) * 0x01000193;
+
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash(int size) {
+        int[] table = new int[size];
+        Arrays.fill(table, EMPTY);
+
+        int mask = size - 1;
+        float[] data = vertices.array();
+        for (int index = 0; index < count; index++) {
+            int slot = hash(data, index * stride) & mask;
+            while (table[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+
+            table[slot] = index;
+        }
+
+        this.table = table;
+    }
+
+    private static int bits(float value) {
+        return value == 0.0f ? 0 : Float.floatToIntBits(value);      // treat -0.0 and +0.0 as equal
+    }
+
+    private static int tableSize(int capacity) {
+        int size = 16;
+        while (size < capacity * 2)
+            size <<= 1;
+
+        return size;
+    }
+}
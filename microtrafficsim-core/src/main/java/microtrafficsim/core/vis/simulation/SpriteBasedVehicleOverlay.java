@@ -1,11 +1,9 @@
 package microtrafficsim.core.vis.simulation;
 
 import com.jogamp.opengl.GL3;
-import microtrafficsim.core.entities.vehicle.LogicVehicleEntity;
-import microtrafficsim.core.logic.streets.DirectedEdge;
-import microtrafficsim.core.map.Coordinate;
 import microtrafficsim.core.map.MapProperties;
 import microtrafficsim.core.map.style.VehicleStyleSheet;
+import microtrafficsim.core.map.tiles.TileRect;
 import microtrafficsim.core.simulation.builder.impl.VisVehicleFactory;
 import microtrafficsim.core.simulation.configs.SimulationConfig;
 import microtrafficsim.core.simulation.core.Simulation;
@@ -23,15 +21,13 @@ import microtrafficsim.core.vis.opengl.shader.resources.ShaderSource;
 import microtrafficsim.core.vis.opengl.shader.uniforms.UniformMat4f;
 import microtrafficsim.core.vis.opengl.shader.uniforms.UniformSampler2D;
 import microtrafficsim.core.vis.opengl.utils.TextureData2D;
-import microtrafficsim.core.vis.utils.LaneOffset;
 import microtrafficsim.core.vis.view.OrthographicView;
 import microtrafficsim.math.*;
 import microtrafficsim.utils.resources.PackagedResource;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.nio.ByteOrder;
 
 
 /**
@@ -64,6 +60,10 @@ public class SpriteBasedVehicleOverlay implements VehicleOverlay {
     private int           sprite;
     private int           vao;
     private BufferStorage vbo;
+    private long          vboCapacity;
+    private ByteBuffer    staging;
+
+    private final VehicleSnapshotBuffer snapshots;
 
     private VertexAttributePointer ptrPosition;
     private VertexAttributePointer ptrNormal;
@@ -90,8 +90,12 @@ public class SpriteBasedVehicleOverlay implements VehicleOverlay {
 
         this.vehicleFactory = () -> new Vehicle(vehicleStyle.getDefaultVehicleColor());
 
-        this.vao = -1;
-        this.vbo = null;
+        this.snapshots = new VehicleSnapshotBuffer(projection);
+
+        this.vao         = -1;
+        this.vbo         = null;
+        this.vboCapacity = 0;
+        this.staging     = null;
 
         this.ptrPosition = null;
         this.ptrNormal   = null;
@@ -114,6 +118,7 @@ public class SpriteBasedVehicleOverlay implements VehicleOverlay {
     @Override
     public void setMapProperties(MapProperties properties) {
         this.map = properties;
+        this.snapshots.setDrivingOnTheRight(properties.drivingOnTheRight);
     }
 
 
@@ -185,7 +190,8 @@ public class SpriteBasedVehicleOverlay implements VehicleOverlay {
 
         // allocate initial buffer
         gl.glBindBuffer(vbo.target, vbo.handle);
-        gl.glBufferData(vbo.target, 1000 * 6 * 4L, null, GL3.GL_DYNAMIC_DRAW);
+        vboCapacity = 1000 * 6 * 4L;
+        gl.glBufferData(vbo.target, vboCapacity, null, GL3.GL_DYNAMIC_DRAW);
         gl.glBindBuffer(vbo.target, 0);
     }
 
@@ -220,7 +226,6 @@ public class SpriteBasedVehicleOverlay implements VehicleOverlay {
         int zoom = (int) Math.ceil(view.getZoomLevel());
         double lanewidth = config.visualization.style.getNormalizedStreetLaneWidth(zoom);
         double scalenorm = config.visualization.style.getScaleNorm();
-        boolean drivingOnTheRight = this.map.drivingOnTheRight;
 
         // disable depth test
         context.DepthTest.setMask(gl, false);
@@ -252,54 +257,57 @@ public class SpriteBasedVehicleOverlay implements VehicleOverlay {
         Rect2d viewrect = view.getViewportBounds();
         Rect2d ndcrect = new Rect2d(-1.0, -1.0, 1.0, 1.0);
 
-        // update vehicle list
-        Collection<? extends LogicVehicleEntity>
-                vehicles = new ArrayList<>(simulation.getScenario().getVehicleContainer().getSpawnedVehicles());
-        int len          = vehicles.size();
+        // get latest vehicle snapshot
+        VehicleSnapshotBuffer.Snapshot snapshot = snapshots.acquire(simulation);
+        int len = snapshot.count;
         if (len == 0) return;
 
-        // orphan last buffer and load it to a new one
-        gl.glBindBuffer(vbo.target, vbo.handle);
-        gl.glBufferData(vbo.target, len * 6 * 4L, null, GL3.GL_DYNAMIC_DRAW);
+        // query visible tiles, expanded by the maximum lane offset
+        double   margin = snapshot.getMaxOffset() * lanewidth;
+        TileRect tiles  = snapshot.getTiles(new Rect2d(left - margin, bottom - margin, right + margin, top + margin));
+        if (tiles == null) return;
 
-        ByteBuffer buffer = gl.glMapBufferRange(vbo.target, 0, len * 6 * 4L,
-                                                GL3.GL_MAP_WRITE_BIT | GL3.GL_MAP_INVALIDATE_BUFFER_BIT);
-
-        // write positions
+        // write positions of vehicles in visible tiles
+        ByteBuffer buffer = getStagingBuffer(len * 6 * 4);
         int vehicleCount = 0;
-        for (LogicVehicleEntity logic : vehicles) {
-            Vehicle v = (Vehicle) logic.getEntity().getVisualization();
-
-            Coordinate cpos = v.getPosition();
-            Vec2d      pos  = projection.project(cpos);
-
-            Coordinate ctarget = v.getTarget();
-            Vec2d      dir     = projection.project(ctarget).sub(pos).normalize();
-
-            // adjust position to lane
-            DirectedEdge edge = v.getCurrentEdge();
-            if (edge == null) continue;
-
-            double laneOffset = LaneOffset.getLaneOffset(lanewidth, edge, v.getIndexOfCurrentLane(), drivingOnTheRight);
-
-            pos.x += dir.y * laneOffset;
-            pos.y -= dir.x * laneOffset;
-
-            // continue if out of bounds
-            if (pos.x < left || pos.x > right || pos.y < bottom || pos.y > top) continue;
-
-            pos = Rect2d.project(viewrect, ndcrect, pos);
-
-            buffer.putFloat((float) pos.x);
-            buffer.putFloat((float) pos.y);
-            buffer.putFloat((float) v.getLayer());
-            buffer.putFloat((float) dir.x);
-            buffer.putFloat((float) dir.y);
-            buffer.putInt(v.getBaseColor().toIntABGR());
-            vehicleCount++;
+        for (int ty = tiles.ymin; ty <= tiles.ymax; ty++) {
+            for (int tx = tiles.xmin; tx <= tiles.xmax; tx++) {
+                int end = snapshot.getTileEnd(tx, ty);
+                for (int k = snapshot.getTileBegin(tx, ty); k < end; k++) {
+                    int i = snapshot.order[k];
+
+                    float dx = snapshot.direction[i * 2];
+                    float dy = snapshot.direction[i * 2 + 1];
+
+                    // adjust position to lane
+                    double laneOffset = snapshot.offset[i] * lanewidth;
+                    double x = snapshot.position[i * 2] + dy * laneOffset;
+                    double y = snapshot.position[i * 2 + 1] - dx * laneOffset;
+
+                    // continue if out of bounds
+                    if (x < left || x > right || y < bottom || y > top) continue;
+
+                    Vec2d pos = Rect2d.project(viewrect, ndcrect, new Vec2d(x, y));
+
+                    buffer.putFloat((float) pos.x);
+                    buffer.putFloat((float) pos.y);
+                    buffer.putFloat(snapshot.layer[i]);
+                    buffer.putFloat(dx);
+                    buffer.putFloat(dy);
+                    buffer.putInt(snapshot.color[i]);
+                    vehicleCount++;
+                }
+            }
         }
+        buffer.flip();
 
-        gl.glUnmapBuffer(vbo.target);
+        // upload vehicles, re-allocate vertex buffer only if it is too small
+        gl.glBindBuffer(vbo.target, vbo.handle);
+        if (buffer.remaining() > vboCapacity) {
+            vboCapacity = buffer.capacity();
+            gl.glBufferData(vbo.target, vboCapacity, null, GL3.GL_DYNAMIC_DRAW);
+        }
+        gl.glBufferSubData(vbo.target, 0, buffer.remaining(), buffer);
         gl.glBindBuffer(vbo.target, 0);
 
         // bind textures
@@ -333,6 +341,7 @@ public class SpriteBasedVehicleOverlay implements VehicleOverlay {
     @Override
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
+        this.snapshots.setEnabled(enabled);
     }
 
     @Override
@@ -353,7 +362,13 @@ public class SpriteBasedVehicleOverlay implements VehicleOverlay {
 
     @Override
     public void setSimulation(Simulation simulation) {
+        if (this.simulation != null)
+            this.simulation.removeStepListener(snapshots);
+
         this.simulation = simulation;
+
+        if (simulation != null)
+            simulation.addStepListener(snapshots);
     }
 
     public VisVehicleFactory getVehicleFactory() {
@@ -361,6 +376,15 @@ public class SpriteBasedVehicleOverlay implements VehicleOverlay {
     }
 
 
+    private ByteBuffer getStagingBuffer(int size) {
+        if (staging == null || staging.capacity() < size)
+            staging = ByteBuffer.allocateDirect(Math.max(size, staging != null ? staging.capacity() * 2 : 0))
+                    .order(ByteOrder.nativeOrder());
+
+        staging.clear();
+        return staging;
+    }
+
     private float getVehicleSize(double zoom, double zoomMax) {
         final double slowdecaylevel = 15.0;
 
@@ -28,18 +28,35 @@ public class Vehicle implements VisualizationVehicleEntity {
     private boolean isStreetBidirectional;
     private DirectedEdge edge;
     private int idxLane = -1;
+    private int cell = -1;
 
+    private final boolean lazy;
+    private volatile boolean dirty;
 
 
     /**
-     * Constructs a new Vehicle with the given color.
+     * Constructs a new Vehicle with the given color, computing its position lazily.
      *
      * @param color the {@code Color} of this vehicle.
      */
     public Vehicle(Color color) {
+        this(color, true);
+    }
+
+    /**
+     * Constructs a new Vehicle with the given color.
+     *
+     * @param color the {@code Color} of this vehicle.
+     * @param lazy  if {@code true}, {@link #updatePosition()} only records the current edge, lane and cell of this
+     *              vehicle and the position is computed when it is requested, otherwise the position is computed
+     *              in {@link #updatePosition()} directly.
+     */
+    public Vehicle(Color color, boolean lazy) {
         this.entity   = null;
         this.position = new Coordinate(0, 0);
         this.color    = color;
+        this.lazy     = lazy;
+        this.dirty    = false;
 
         target = new Coordinate(1, 1);
     }
@@ -66,30 +83,51 @@ public class Vehicle implements VisualizationVehicleEntity {
 
     @Override
     public void updatePosition() {
-        DirectedEdge edge = entity.getLogic().getLane().getEdge();
-        Street       geom = edge.getEntity().getGeometry();
-        layer = geom.layer;
+        DirectedEdge.Lane lane = entity.getLogic().getLane();
+        DirectedEdge      edge = lane.getEdge();
+
+        isStreetBidirectional = edge.getEntity().getForwardEdge() != null && edge.getEntity().getBackwardEdge() != null;
+        this.edge = edge;
+        idxLane = lane.getIndex();
+        cell = entity.getLogic().getCellPosition();
+
+        if (lazy)
+            dirty = true;
+        else
+            computePosition(edge, cell);
+    }
 
-        double pos = (entity.getLogic().getCellPosition() + 0.5f) * (geom.length / edge.getLength());
+    /**
+     * Computes the position of this vehicle if it has changed since the last computation.
+     */
+    private void validate() {
+        if (!dirty) return;
+        dirty = false;
+
+        DirectedEdge edge = this.edge;
+        int          cell = this.cell;
+        if (edge != null)
+            computePosition(edge, cell);
+    }
+
+    private void computePosition(DirectedEdge edge, int cell) {
+        Street   geom    = edge.getEntity().getGeometry();
+        double[] offsets = geom.getOffsets();
+        double   total   = offsets[offsets.length - 1];
+
+        double pos = (cell + 0.5f) * (geom.length / edge.getLength());
 
         Coordinate a;
         Coordinate b;
         Coordinate c;
 
-        double dSegment   = 0;
-        double dToSegment = 0;
+        double dSegment;
+        double pSegment;
 
         if (edge == edge.getEntity().getForwardEdge()) {
-            int segment = 0;
-            for (int i = 0; i < geom.distances.length; i++) {
-                segment  = i;
-                dSegment = geom.distances[i];
-
-                double nd = dToSegment + dSegment;
-                if (nd > pos) break;
-
-                dToSegment = nd;
-            }
+            int segment = geom.getSegment(pos);
+            dSegment = geom.distances[segment];
+            pSegment = pos - offsets[segment];
 
             a = geom.coordinates[segment];
             b = geom.coordinates[segment + 1];
@@ -99,16 +137,9 @@ public class Vehicle implements VisualizationVehicleEntity {
                 c = b;
 
         } else {
-            int segment = geom.distances.length - 1;
-            for (int i = geom.distances.length - 1; i >= 0; i--) {
-                segment  = i;
-                dSegment = geom.distances[i];
-
-                double nd = dToSegment + dSegment;
-                if (nd > pos) break;
-
-                dToSegment = nd;
-            }
+            int segment = geom.getSegment(total - pos);
+            dSegment = geom.distances[segment];
+            pSegment = pos - (total - offsets[segment + 1]);
 
             a = geom.coordinates[segment + 1];
             b = geom.coordinates[segment];
@@ -118,8 +149,7 @@ public class Vehicle implements VisualizationVehicleEntity {
                 c = b;
         }
 
-        double pSegment = pos - dToSegment;
-
+        Coordinate target = new Coordinate(0, 0);
         if (dSegment - pSegment < MIN_TARGET_DISTANCE) {
             target.lat = c.lat;
             target.lon = c.lon;
@@ -129,12 +159,14 @@ public class Vehicle implements VisualizationVehicleEntity {
         }
 
         pSegment /= dSegment;
-        position.lat = a.lat + (b.lat - a.lat) * pSegment;
-        position.lon = a.lon + (b.lon - a.lon) * pSegment;
-
-        isStreetBidirectional = edge.getEntity().getForwardEdge() != null && edge.getEntity().getBackwardEdge() != null;
-        this.edge = edge;
-        idxLane = entity.getLogic().getLane().getIndex();
+        Coordinate position = new Coordinate(
+                a.lat + (b.lat - a.lat) * pSegment,
+                a.lon + (b.lon - a.lon) * pSegment
+        );
+
+        this.layer    = geom.layer;
+        this.target   = target;
+        this.position = position;
     }
 
 
@@ -144,6 +176,7 @@ public class Vehicle implements VisualizationVehicleEntity {
      * @return the position of this vehicle.
      */
     public Coordinate getPosition() {
+        validate();
         return position;
     }
 
@@ -153,6 +186,7 @@ public class Vehicle implements VisualizationVehicleEntity {
      * @return the layer on which this vehicle resides.
      */
     public double getLayer() {
+        validate();
         return layer;
     }
 
@@ -162,6 +196,7 @@ public class Vehicle implements VisualizationVehicleEntity {
      * @return the target of this vehicle.
      */
     public Coordinate getTarget() {
+        validate();
         return target;
     }
 
@@ -0,0 +1,405 @@
+package microtrafficsim.core.vis.simulation;
+
+import microtrafficsim.core.entities.vehicle.LogicVehicleEntity;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.map.tiles.TilingScheme;
+import microtrafficsim.core.simulation.core.Simulation;
+import microtrafficsim.core.simulation.core.StepListener;
+import microtrafficsim.core.simulation.scenarios.Scenario;
+import microtrafficsim.core.vis.map.projections.Projection;
+import microtrafficsim.core.vis.utils.LaneOffset;
+import microtrafficsim.math.Rect2d;
+import microtrafficsim.math.Vec2d;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+
+/**
+ * Triple-buffered snapshots of the (projected) vehicle state, written by the simulation thread after each step and
+ * read by the render thread. The render thread thus never accesses the live vehicle state and does not have to
+ * project the vehicle positions itself.
+ * <p>
+ * The simulation thread writes into a back-buffer, which is then exchanged with the latest complete snapshot. The
+ * render thread exchanges its current snapshot with the latest complete snapshot if a new one is available. Neither
+ * side blocks the other.
+ * </p>
+ * <p>
+ * Each snapshot contains a spatial index, sorting the vehicles into the tiles of the given tiling-scheme, so that
+ * the render thread only has to visit the vehicles in visible tiles.
+ * </p>
+ * <p>
+ * Each snapshot records the scenario and simulation age it has been taken of. {@link #acquire(Simulation)} uses
+ * these to never return vehicles of another scenario and to take a new snapshot if the simulation is paused but has
+ * changed since the last one (e.g. after a new scenario has been set or the snapshots have been disabled).
+ * </p>
+ *
+ * @author agent
+ */
+public class VehicleSnapshotBuffer implements StepListener {
+
+    /** The (maximum) zoom-level of the tiles used for the spatial index. */
+    public static final int INDEX_LEVEL     = 15;
+
+    /** The maximum number of tiles used for the spatial index. */
+    public static final int INDEX_MAX_TILES = 1 << 16;
+
+    private final Projection   projection;
+    private final TilingScheme scheme;
+    private volatile boolean drivingOnTheRight;
+    private volatile boolean enabled;
+
+    private static final Snapshot EMPTY = new Snapshot();
+
+    private Snapshot back;
+    private Snapshot front;
+    private final AtomicReference<Snapshot> latest;
+
+
+    /**
+     * Creates a new {@code VehicleSnapshotBuffer} using a {@link QuadTreeTilingScheme} for the spatial index.
+     *
+     * @param projection the projection used to project the vehicle positions.
+     */
+    public VehicleSnapshotBuffer(Projection projection) {
+        this(projection, new QuadTreeTilingScheme(projection));
+    }
+
+    /**
+     * Creates a new {@code VehicleSnapshotBuffer}.
+     *
+     * @param projection the projection used to project the vehicle positions.
+     * @param scheme     the tiling-scheme used for the spatial index.
+     */
+    public VehicleSnapshotBuffer(Projection projection, TilingScheme scheme) {
+        this.projection        = projection;
+        this.scheme            = scheme;
+        this.drivingOnTheRight = true;
+        this.enabled           = true;
+
+        this.back   = new Snapshot();
+        this.front  = new Snapshot();
+        this.latest = new AtomicReference<>(new Snapshot());
+    }
+
+
+    /**
+     * Sets whether vehicles are driving on the right side of the street, used to calculate the lane offsets.
+     *
+     * @param drivingOnTheRight {@code true} if vehicles are driving on the right side of the street.
+     */
+    public void setDrivingOnTheRight(boolean drivingOnTheRight) {
+        this.drivingOnTheRight = drivingOnTheRight;
+    }
+
+    /**
+     * Enables or disables the creation of snapshots.
+     *
+     * @param enabled set to {@code true} to create snapshots after each simulation step.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    @Override
+    public void didOneStep(Simulation simulation) {
+        if (!enabled) return;
+        update(simulation);
+    }
+
+    /**
+     * Writes a new snapshot of the spawned vehicles of the current scenario of the given simulation and publishes it.
+     *
+     * @param simulation the simulation to write the snapshot for.
+     */
+    public void update(Simulation simulation) {
+        Scenario scenario = simulation.getScenario();
+        if (scenario == null) return;
+
+        update(scenario, simulation.getAge(), snapshot -> {
+            for (LogicVehicleEntity logic : scenario.getVehicleContainer().getSpawnedVehicles()) {
+                Vehicle v = (Vehicle) logic.getEntity().getVisualization();
+                if (v == null) continue;
+
+                DirectedEdge edge = v.getCurrentEdge();
+                if (edge == null) continue;
+
+                Vec2d pos = projection.project(v.getPosition());
+                Vec2d dir = projection.project(v.getTarget()).sub(pos).normalize();
+
+                double offset = LaneOffset.getLaneOffset(1.0, edge, v.getIndexOfCurrentLane(), drivingOnTheRight);
+
+                snapshot.add(pos.x, pos.y, dir.x, dir.y, offset, v.getLayer(), v.getBaseColor().toIntABGR());
+            }
+        });
+    }
+
+    /**
+     * Writes a new snapshot and publishes it. The given writer adds the (projected) vehicles to the empty snapshot
+     * via {@link Snapshot#add(double, double, double, double, double, double, int)}, the spatial index is created
+     * afterwards. Writers are synchronized, readers never block.
+     *
+     * @param scenario the scenario the snapshot is taken of.
+     * @param age      the age of the simulation the snapshot is taken at.
+     * @param writer   the writer adding the vehicles to the snapshot.
+     */
+    public synchronized void update(Scenario scenario, int age, Consumer<Snapshot> writer) {
+        Snapshot snapshot = back;
+        snapshot.count    = 0;
+        snapshot.scenario = scenario;
+        snapshot.age      = age;
+
+        writer.accept(snapshot);
+        snapshot.index(scheme);
+
+        snapshot.fresh = true;
+        back = latest.getAndSet(snapshot);
+    }
+
+    /**
+     * Returns the latest complete snapshot. The returned snapshot stays valid (i.e. is not modified) until the next
+     * call to this method. This method must only be called from one thread at a time.
+     *
+     * @return the latest complete snapshot.
+     */
+    public Snapshot acquire() {
+        if (latest.get().fresh) {
+            front = latest.getAndSet(front);
+            front.fresh = false;
+        }
+
+        return front;
+    }
+
+    /**
+     * Returns the latest complete snapshot of the current scenario of the given simulation. If the simulation is
+     * paused and has changed since the latest snapshot, a new snapshot is taken first. If the simulation is running,
+     * the latest snapshot may lag behind, but snapshots of another scenario are never returned. The returned
+     * snapshot stays valid (i.e. is not modified) until the next call to this method. This method must only be
+     * called from one thread at a time.
+     *
+     * @param simulation the simulation for which the snapshot should be returned.
+     * @return the latest complete snapshot of the given simulation, which is empty if there is none.
+     */
+    public Snapshot acquire(Simulation simulation) {
+        Scenario scenario = simulation.getScenario();
+        Snapshot snapshot = acquire();
+
+        if (snapshot.scenario == scenario && snapshot.age == simulation.getAge())
+            return snapshot;
+
+        if (scenario != null && simulation.isPaused()) {
+            update(simulation);
+            snapshot = acquire();
+        }
+
+        return snapshot.scenario == scenario ? snapshot : EMPTY;
+    }
+
+
+    /**
+     * Snapshot of the vehicle state, stored in primitive arrays. Positions are stored in double precision to avoid
+     * loss of precision on large maps, everything else is stored in single precision.
+     * <p>
+     * Vehicles can be queried by tile via {@link #getTiles(Rect2d)}, {@link #getTileBegin(int, int)},
+     * {@link #getTileEnd(int, int)} and {@link #order}.
+     * </p>
+     */
+    public static class Snapshot {
+        private volatile boolean fresh = false;
+
+        private Scenario scenario = null;
+        private int      age      = -1;
+
+        private TilingScheme scheme = null;
+        private TileRect     tiles  = null;
+        private int[]        tileOffsets = new int[0];
+        private int[]        tileOf      = new int[0];
+        private float        maxOffset   = 0.0f;
+
+        /** The number of vehicles in this snapshot. */
+        public int count = 0;
+
+        /** The projected positions, two values per vehicle. */
+        public double[] position = new double[0];
+
+        /** The normalized direction, two values per vehicle. */
+        public float[] direction = new float[0];
+
+        /** The lane offset for a lane-width of one, one value per vehicle. */
+        public float[] offset = new float[0];
+
+        /** The layer, one value per vehicle. */
+        public float[] layer = new float[0];
+
+        /** The color as ABGR integer, one value per vehicle. */
+        public int[] color = new int[0];
+
+        /** The vehicle indices, sorted by tile. */
+        public int[] order = new int[0];
+
+
+        /**
+         * Returns the maximum absolute lane-offset for a lane-width of one over all vehicles in this snapshot.
+         *
+         * @return the maximum absolute lane-offset.
+         */
+        public float getMaxOffset() {
+            return maxOffset;
+        }
+
+        /**
+         * Returns the tiles of the spatial index intersecting the given (projected) rectangle.
+         *
+         * @param bounds the rectangle for which the tiles should be returned.
+         * @return the tiles intersecting the given bounds or {@code null} if there are none.
+         */
+        public TileRect getTiles(Rect2d bounds) {
+            if (tiles == null) return null;
+
+            TileRect rect = TileRect.intersect(scheme.getTiles(bounds, tiles.zoom), tiles);
+            if (rect == null || rect.xmin > rect.xmax || rect.ymin > rect.ymax)
+                return null;
+
+            return rect;
+        }
+
+        /**
+         * Returns the index (in {@link #order}) of the first vehicle in the given tile.
+         *
+         * @param x the x-coordinate of the tile, as returned by {@link #getTiles(Rect2d)}.
+         * @param y the y-coordinate of the tile, as returned by {@link #getTiles(Rect2d)}.
+         * @return the index of the first vehicle in the given tile.
+         */
+        public int getTileBegin(int x, int y) {
+            return tileOffsets[(y - tiles.ymin) * (tiles.xmax - tiles.xmin + 1) + (x - tiles.xmin)];
+        }
+
+        /**
+         * Returns the index (in {@link #order}) after the last vehicle in the given tile.
+         *
+         * @param x the x-coordinate of the tile, as returned by {@link #getTiles(Rect2d)}.
+         * @param y the y-coordinate of the tile, as returned by {@link #getTiles(Rect2d)}.
+         * @return the index after the last vehicle in the given tile.
+         */
+        public int getTileEnd(int x, int y) {
+            return tileOffsets[(y - tiles.ymin) * (tiles.xmax - tiles.xmin + 1) + (x - tiles.xmin) + 1];
+        }
+
+        /**
+         * Sorts the vehicles of this snapshot into the tiles of the given tiling-scheme (counting-sort).
+         *
+         * @param scheme the tiling-scheme to use.
+         */
+        private void index(TilingScheme scheme) {
+            this.scheme = scheme;
+
+            if (count == 0) {
+                tiles = null;
+                return;
+            }
+
+            // get bounds
+            double xmin = Double.POSITIVE_INFINITY, ymin = Double.POSITIVE_INFINITY;
+            double xmax = Double.NEGATIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+            float maxOffset = 0.0f;
+            for (int i = 0; i < count; i++) {
+                xmin = Math.min(xmin, position[i * 2]);
+                xmax = Math.max(xmax, position[i * 2]);
+                ymin = Math.min(ymin, position[i * 2 + 1]);
+                ymax = Math.max(ymax, position[i * 2 + 1]);
+                maxOffset = Math.max(maxOffset, Math.abs(offset[i]));
+            }
+            this.maxOffset = maxOffset;
+
+            // select tiles, reduce level until the number of tiles is acceptable
+            Rect2d bounds = new Rect2d(xmin, ymin, xmax, ymax);
+            TileRect tiles = scheme.getTiles(bounds, INDEX_LEVEL);
+            while (tiles.zoom > 0 && (long) (tiles.xmax - tiles.xmin + 1) * (tiles.ymax - tiles.ymin + 1)
+                    > INDEX_MAX_TILES)
+            {
+                tiles = scheme.getTiles(bounds, tiles.zoom - 1);
+            }
+            this.tiles = tiles;
+
+            int w = tiles.xmax - tiles.xmin + 1;
+            int h = tiles.ymax - tiles.ymin + 1;
+            Rect2d tb = scheme.getBounds(tiles);
+
+            if (tileOffsets.length < w * h + 1)
+                tileOffsets = new int[w * h + 1];
+            else
+                Arrays.fill(tileOffsets, 0, w * h + 1, 0);
+
+            if (tileOf.length < count)
+                tileOf = new int[position.length / 2];
+            if (order.length < count)
+                order = new int[position.length / 2];
+
+            // count, tile y-coordinates are increasing downwards
+            for (int i = 0; i < count; i++) {
+                int tx = (int) ((position[i * 2] - tb.xmin) / (tb.xmax - tb.xmin) * w);
+                int ty = (int) ((tb.ymax - position[i * 2 + 1]) / (tb.ymax - tb.ymin) * h);
+                tx = Math.max(0, Math.min(w - 1, tx));
+                ty = Math.max(0, Math.min(h - 1, ty));
+
+                int tile = ty * w + tx;
+                tileOf[i] = tile;
+                tileOffsets[tile + 1]++;
+            }
+
+            // prefix-sum
+            for (int i = 0; i < w * h; i++)
+                tileOffsets[i + 1] += tileOffsets[i];
+
+            // sort, using the end-offset of each tile as cursor
+            for (int i = count - 1; i >= 0; i--)
+                order[--tileOffsets[tileOf[i] + 1]] = i;
+
+            // cursors now contain the begin-offset of each tile, shift them to their place
+            System.arraycopy(tileOffsets, 1, tileOffsets, 0, w * h);
+            tileOffsets[w * h] = count;
+        }
+
+
+        /**
+         * Adds a vehicle to this snapshot. Must only be called by the writer given to
+         * {@link VehicleSnapshotBuffer#update(Scenario, int, Consumer)}.
+         *
+         * @param x      the projected x-coordinate of the vehicle position.
+         * @param y      the projected y-coordinate of the vehicle position.
+         * @param dx     the x-coordinate of the normalized (projected) direction.
+         * @param dy     the y-coordinate of the normalized (projected) direction.
+         * @param offset the lane offset for a lane-width of one.
+         * @param layer  the layer of the vehicle.
+         * @param color  the color of the vehicle as ABGR integer.
+         */
+        public void add(double x, double y, double dx, double dy, double offset, double layer, int color) {
+            if (count == this.color.length) {
+                int capacity = Math.max(64, count * 2);
+                this.position  = Arrays.copyOf(this.position, capacity * 2);
+                this.direction = Arrays.copyOf(this.direction, capacity * 2);
+                this.offset    = Arrays.copyOf(this.offset, capacity);
+                this.layer     = Arrays.copyOf(this.layer, capacity);
+                this.color     = Arrays.copyOf(this.color, capacity);
+            }
+
+            this.position[count * 2]      = x;
+            this.position[count * 2 + 1]  = y;
+            this.direction[count * 2]     = (float) dx;
+            this.direction[count * 2 + 1] = (float) dy;
+            this.offset[count]            = (float) offset;
+            this.layer[count]             = (float) layer;
+            this.color[count]             = color;
+            count++;
+        }
+    }
+}
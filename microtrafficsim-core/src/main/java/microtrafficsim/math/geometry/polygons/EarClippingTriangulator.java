@@ -0,0 +1,756 @@
+package microtrafficsim.math.geometry.polygons;
+
+import microtrafficsim.math.Vec2d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Polygon triangulator based on ear-clipping, accelerated by a z-order curve for ear tests on larger polygons
+ * (following the approach of the <a href="https://github.com/mapbox/earcut">earcut</a> library).
+ *
+ * <p>
+ * Holes are merged into the outline by bridging them to the outline before clipping ears. Degenerate and slightly
+ * self-intersecting input is handled by filtering duplicate and collinear points, curing local intersections and, as
+ * last resort, splitting the polygon along a valid diagonal. The algorithm works on primitive coordinate arrays and
+ * does not allocate objects per vertex. All generated triangles are oriented counter-clockwise.
+ * </p>
+ *
+ * @author agent
+ */
+public final class EarClippingTriangulator implements Triangulator {
+
+    /** The number of vertices above which ear-tests use the z-order curve. */
+    private static final int HASH_THRESHOLD = 80;
+
+
+    /**
+     * Triangulates the given polygon, including its islands as holes.
+     *
+     * @param polygon the polygon to triangulate.
+     * @return the triangulated polygon as {@code Result}. This method will never return {@code null}. If the polygon
+     * takes up no space, the indices of the result will be empty.
+     */
+    @Override
+    public Result triangulate(Polygon polygon) {
+        int n = polygon.outline.length;
+        for (Vec2d[] island : polygon.islands)
+            n += island.length;
+
+        double[] coords = new double[n * 2];
+        int[]    holes  = new int[polygon.islands.length];
+
+        int i = put(coords, 0, polygon.outline);
+        for (int h = 0; h < polygon.islands.length; h++) {
+            holes[h] = i / 2;
+            i = put(coords, i, polygon.islands[h]);
+        }
+
+        int[] triangles = triangulate(coords, holes);
+
+        ArrayList<Vec2d> vertices = new ArrayList<>(n);
+        for (int v = 0; v < n; v++)
+            vertices.add(new Vec2d(coords[v * 2], coords[v * 2 + 1]));
+
+        ArrayList<Integer> indices = new ArrayList<>(triangles.length);
+        for (int index : triangles)
+            indices.add(index);
+
+        return new Result(vertices, indices);
+    }
+
+    /**
+     * Triangulates the polygon given by the specified coordinates. The orientation of the outline and holes does not
+     * matter, and the outline and holes must not repeat their first vertex at the end.
+     *
+     * @param coords the interleaved x- and y-coordinates of the vertices, first the outline, followed by all holes.
+     * @param holes  the index of the first vertex of each hole (i.e. half the index into {@code coords}), in
+     *               ascending order.
+     * @return the triangles as index-triples referring to the vertices in {@code coords}.
+     */
+    public int[] triangulate(double[] coords, int[] holes) {
+        return new Clipper(coords, holes).run();
+    }
+
+    private static int put(double[] coords, int i, Vec2d[] loop) {
+        for (Vec2d v : loop) {
+            coords[i++] = v.x;
+            coords[i++] = v.y;
+        }
+        return i;
+    }
+
+
+    /**
+     * State of a single triangulation. Vertices are stored as nodes of a doubly linked list (and a second, z-order
+     * sorted list) in parallel arrays, {@code -1} denotes the absence of a node.
+     */
+    private static final class Clipper {
+        private final double[] coords;
+        private final int[]    holes;
+
+        // nodes
+        private int[]     vertex;
+        private double[]  x;
+        private double[]  y;
+        private int[]     z;
+        private int[]     prev;
+        private int[]     next;
+        private int[]     prevZ;
+        private int[]     nextZ;
+        private boolean[] steiner;
+        private int       nodes;
+
+        // output
+        private int[] triangles;
+        private int   size;
+
+        // z-order parameters
+        private double minX;
+        private double minY;
+        private double invSize;
+
+
+        Clipper(double[] coords, int[] holes) {
+            this.coords = coords;
+            this.holes  = holes;
+
+            // each hole and each split adds two additional nodes
+            int capacity = coords.length / 2 + holes.length * 2 + 8;
+            this.vertex  = new int[capacity];
+            this.x       = new double[capacity];
+            this.y       = new double[capacity];
+            this.z       = new int[capacity];
+            this.prev    = new int[capacity];
+            this.next    = new int[capacity];
+            this.prevZ   = new int[capacity];
+            this.nextZ   = new int[capacity];
+            this.steiner = new boolean[capacity];
+            this.nodes   = 0;
+
+            this.triangles = new int[Math.max(0, coords.length / 2 - 2) * 3 + holes.length * 6];
+            this.size      = 0;
+        }
+
+        int[] run() {
+            int n     = coords.length / 2;
+            int outer = holes.length > 0 ? holes[0] : n;
+
+            int start = linkedList(0, outer, true);
+            if (start == -1 || next[start] == prev[start])
+                return new int[0];
+
+            if (holes.length > 0)
+                start = eliminateHoles(start, n);
+
+            // use z-order curve hashing for larger polygons
+            invSize = 0.0;
+            if (n > HASH_THRESHOLD) {
+                minX = Double.POSITIVE_INFINITY;
+                minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+
+                for (int i = 0; i < outer; i++) {
+                    double px = coords[i * 2];
+                    double py = coords[i * 2 + 1];
+                    if (px < minX) minX = px;
+                    if (py < minY) minY = py;
+                    if (px > maxX) maxX = px;
+                    if (py > maxY) maxY = py;
+                }
+
+                invSize = Math.max(maxX - minX, maxY - minY);
+                invSize = invSize != 0.0 ? 32767.0 / invSize : 0.0;
+            }
+
+            earcut(start, 0);
+            return Arrays.copyOf(triangles, size);
+        }
+
+
+        /* -- linked list ------------------------------------------------------------------------------------------ */
+
+        private int linkedList(int start, int end, boolean ccw) {
+            int last = -1;
+
+            // outline counter-clockwise, holes clockwise
+            if (ccw == (signedArea(start, end) > 0.0)) {
+                for (int i = start; i < end; i++)
+                    last = insert(i, last);
+            } else {
+                for (int i = end - 1; i >= start; i--)
+                    last = insert(i, last);
+            }
+
+            if (last != -1 && equals(last, next[last])) {
+                remove(last);
+                last = next[last];
+            }
+
+            return last;
+        }
+
+        /**
+         * Returns the doubled signed area of the given loop, positive if the loop is oriented counter-clockwise.
+         */
+        private double signedArea(int start, int end) {
+            double sum = 0.0;
+            for (int i = start, j = end - 1; i < end; j = i++)
+                sum += (coords[j * 2] - coords[i * 2]) * (coords[i * 2 + 1] + coords[j * 2 + 1]);
+            return sum;
+        }
+
+        private int node(int v, double px, double py) {
+            if (nodes == vertex.length) {
+                int capacity = vertex.length * 2;
+                vertex  = Arrays.copyOf(vertex, capacity);
+                x       = Arrays.copyOf(x, capacity);
+                y       = Arrays.copyOf(y, capacity);
+                z       = Arrays.copyOf(z, capacity);
+                prev    = Arrays.copyOf(prev, capacity);
+                next    = Arrays.copyOf(next, capacity);
+                prevZ   = Arrays.copyOf(prevZ, capacity);
+                nextZ   = Arrays.copyOf(nextZ, capacity);
+                steiner = Arrays.copyOf(steiner, capacity);
+            }
+
+            int p = nodes++;
+            vertex[p]  = v;
+            x[p]       = px;
+            y[p]       = py;
+            z[p]       = 0;
+            prev[p]    = -1;
+            next[p]    = -1;
+            prevZ[p]   = -1;
+            nextZ[p]   = -1;
+            steiner[p] = false;
+            return p;
+        }
+
+        private int insert(int v, int last) {
+            int p = node(v, coords[v * 2], coords[v * 2 + 1]);
+
+            if (last == -1) {
+                prev[p] = p;
+                next[p] = p;
+            } else {
+                next[p] = next[last];
+                prev[p] = last;
+                prev[next[last]] = p;
+                next[last] = p;
+            }
+
+            return p;
+        }
+
+        private void remove(int p) {
+            next[prev[p]] = next[p];
+            prev[next[p]] = prev[p];
+
+            if (prevZ[p] != -1) nextZ[prevZ[p]] = nextZ[p];
+            if (nextZ[p] != -1) prevZ[nextZ[p]] = prevZ[p];
+        }
+
+        /**
+         * Links {@code a} and {@code b} with a bridge, splitting the polygon into two. The bridge is duplicated, so
+         * that each resulting polygon keeps its own nodes.
+         */
+        private int split(int a, int b) {
+            int a2 = node(vertex[a], x[a], y[a]);
+            int b2 = node(vertex[b], x[b], y[b]);
+            int an = next[a];
+            int bp = prev[b];
+
+            next[a] = b;
+            prev[b] = a;
+
+            next[a2] = an;
+            prev[an] = a2;
+
+            next[b2] = a2;
+            prev[a2] = b2;
+
+            next[bp] = b2;
+            prev[b2] = bp;
+
+            return b2;
+        }
+
+        /**
+         * Removes duplicate and collinear points between {@code start} and {@code end}.
+         */
+        private int filter(int start, int end) {
+            if (start == -1) return start;
+            if (end == -1) end = start;
+
+            int p = start;
+            boolean again;
+            do {
+                again = false;
+
+                if (!steiner[p] && (equals(p, next[p]) || area(prev[p], p, next[p]) == 0.0)) {
+                    remove(p);
+                    p = end = prev[p];
+                    if (p == next[p]) break;
+                    again = true;
+                } else {
+                    p = next[p];
+                }
+            } while (again || p != end);
+
+            return end;
+        }
+
+
+        /* -- ear clipping ----------------------------------------------------------------------------------------- */
+
+        private void earcut(int ear, int pass) {
+            if (ear == -1) return;
+
+            if (pass == 0 && invSize != 0.0)
+                index(ear);
+
+            int stop = ear;
+            while (prev[ear] != next[ear]) {
+                int a = prev[ear];
+                int c = next[ear];
+
+                if (invSize != 0.0 ? isEarHashed(ear) : isEar(ear)) {
+                    emit(vertex[a], vertex[ear], vertex[c]);
+                    remove(ear);
+
+                    // skipping the next vertex leads to less sliver triangles
+                    ear  = next[c];
+                    stop = next[c];
+                    continue;
+                }
+
+                ear = c;
+
+                // no more ears found in this pass, try to recover
+                if (ear == stop) {
+                    if (pass == 0) {
+                        earcut(filter(ear, -1), 1);
+                    } else if (pass == 1) {
+                        earcut(cureLocalIntersections(filter(ear, -1)), 2);
+                    } else {
+                        splitEarcut(ear);
+                    }
+                    break;
+                }
+            }
+        }
+
+        private boolean isEar(int ear) {
+            int a = prev[ear];
+            int b = ear;
+            int c = next[ear];
+
+            if (area(a, b, c) >= 0.0) return false;    // reflex
+
+            double x0 = Math.min(x[a], Math.min(x[b], x[c]));
+            double y0 = Math.min(y[a], Math.min(y[b], y[c]));
+            double x1 = Math.max(x[a], Math.max(x[b], x[c]));
+            double y1 = Math.max(y[a], Math.max(y[b], y[c]));
+
+            int p = next[c];
+            while (p != a) {
+                if (x[p] >= x0 && x[p] <= x1 && y[p] >= y0 && y[p] <= y1
+                        && inTriangle(x[a], y[a], x[b], y[b], x[c], y[c], x[p], y[p])
+                        && area(prev[p], p, next[p]) >= 0.0)
+                    return false;
+                p = next[p];
+            }
+
+            return true;
+        }
+
+        private boolean isEarHashed(int ear) {
+            int a = prev[ear];
+            int b = ear;
+            int c = next[ear];
+
+            if (area(a, b, c) >= 0.0) return false;    // reflex
+
+            double x0 = Math.min(x[a], Math.min(x[b], x[c]));
+            double y0 = Math.min(y[a], Math.min(y[b], y[c]));
+            double x1 = Math.max(x[a], Math.max(x[b], x[c]));
+            double y1 = Math.max(y[a], Math.max(y[b], y[c]));
+
+            int minZ = zOrder(x0, y0);
+            int maxZ = zOrder(x1, y1);
+
+            // look for points inside the triangle in both directions of the z-order curve
+            int p = prevZ[ear];
+            int n = nextZ[ear];
+
+            while (p != -1 && z[p] >= minZ && n != -1 && z[n] <= maxZ) {
+                if (blocks(p, a, b, c, x0, y0, x1, y1)) return false;
+                p = prevZ[p];
+
+                if (blocks(n, a, b, c, x0, y0, x1, y1)) return false;
+                n = nextZ[n];
+            }
+
+            while (p != -1 && z[p] >= minZ) {
+                if (blocks(p, a, b, c, x0, y0, x1, y1)) return false;
+                p = prevZ[p];
+            }
+
+            while (n != -1 && z[n] <= maxZ) {
+                if (blocks(n, a, b, c, x0, y0, x1, y1)) return false;
+                n = nextZ[n];
+            }
+
+            return true;
+        }
+
+        private boolean blocks(int p, int a, int b, int c, double x0, double y0, double x1, double y1) {
+            return x[p] >= x0 && x[p] <= x1 && y[p] >= y0 && y[p] <= y1 && p != a && p != c
+                    && inTriangle(x[a], y[a], x[b], y[b], x[c], y[c], x[p], y[p])
+                    && area(prev[p], p, next[p]) >= 0.0;
+        }
+
+        private int cureLocalIntersections(int start) {
+            int p = start;
+            do {
+                int a = prev[p];
+                int b = next[next[p]];
+
+                if (!equals(a, b) && intersects(a, p, next[p], b) && locallyInside(a, b) && locallyInside(b, a)) {
+                    emit(vertex[a], vertex[p], vertex[b]);
+
+                    remove(p);
+                    remove(next[p]);
+
+                    p = start = b;
+                }
+                p = next[p];
+            } while (p != start);
+
+            return filter(p, -1);
+        }
+
+        private void splitEarcut(int start) {
+            int a = start;
+            do {
+                int b = next[next[a]];
+                while (b != prev[a]) {
+                    if (vertex[a] != vertex[b] && isValidDiagonal(a, b)) {
+                        int c = split(a, b);
+
+                        a = filter(a, next[a]);
+                        c = filter(c, next[c]);
+
+                        earcut(a, 0);
+                        earcut(c, 0);
+                        return;
+                    }
+                    b = next[b];
+                }
+                a = next[a];
+            } while (a != start);
+        }
+
+        private void emit(int a, int b, int c) {
+            if (size + 3 > triangles.length)
+                triangles = Arrays.copyOf(triangles, Math.max(triangles.length * 2, size + 3));
+
+            triangles[size++] = a;
+            triangles[size++] = b;
+            triangles[size++] = c;
+        }
+
+
+        /* -- holes ------------------------------------------------------------------------------------------------ */
+
+        private int eliminateHoles(int outer, int n) {
+            int[] queue = new int[holes.length];
+            int   count = 0;
+
+            for (int h = 0; h < holes.length; h++) {
+                int start = holes[h];
+                int end   = h < holes.length - 1 ? holes[h + 1] : n;
+
+                int list = linkedList(start, end, false);
+                if (list == -1) continue;
+                if (list == next[list]) steiner[list] = true;
+
+                queue[count++] = leftmost(list);
+            }
+
+            // process holes from left to right, insertion sort is fine for the usual small number of holes
+            for (int i = 1; i < count; i++) {
+                int q = queue[i];
+                int j = i - 1;
+                while (j >= 0 && x[queue[j]] > x[q]) {
+                    queue[j + 1] = queue[j];
+                    j--;
+                }
+                queue[j + 1] = q;
+            }
+
+            for (int i = 0; i < count; i++)
+                outer = eliminateHole(queue[i], outer);
+
+            return outer;
+        }
+
+        private int eliminateHole(int hole, int outer) {
+            int bridge = findHoleBridge(hole, outer);
+            if (bridge == -1) return outer;
+
+            int reverse = split(bridge, hole);
+            filter(reverse, next[reverse]);
+            return filter(bridge, next[bridge]);
+        }
+
+        /**
+         * Finds a vertex of the outline that can be connected to the given (left-most) hole vertex without
+         * intersecting any edge (David Eberly's algorithm).
+         */
+        private int findHoleBridge(int hole, int outer) {
+            double hx = x[hole];
+            double hy = y[hole];
+            double qx = Double.NEGATIVE_INFINITY;
+            int    m  = -1;
+
+            // find a segment intersected by a ray from the hole's leftmost point to the left
+            int p = outer;
+            do {
+                int pn = next[p];
+                if (hy <= y[p] && hy >= y[pn] && y[pn] != y[p]) {
+                    double px = x[p] + (hy - y[p]) * (x[pn] - x[p]) / (y[pn] - y[p]);
+                    if (px <= hx && px > qx) {
+                        qx = px;
+                        m  = x[p] < x[pn] ? p : pn;
+                        if (px == hx) return m;    // hole touches outline
+                    }
+                }
+                p = pn;
+            } while (p != outer);
+
+            if (m == -1) return -1;
+
+            /* look for points inside the triangle of hole point, segment intersection and endpoint; if there are
+             * none, m is the bridge, otherwise use the point with the minimum angle to the ray */
+            int    stop   = m;
+            double mx     = x[m];
+            double my     = y[m];
+            double tanMin = Double.POSITIVE_INFINITY;
+
+            p = m;
+            do {
+                if (hx >= x[p] && x[p] >= mx && hx != x[p]
+                        && inTriangle(hy < my ? hx : qx, hy, mx, my, hy < my ? qx : hx, hy, x[p], y[p])) {
+
+                    double tan = Math.abs(hy - y[p]) / (hx - x[p]);
+
+                    if (locallyInside(p, hole) && (tan < tanMin || (tan == tanMin
+                            && (x[p] > x[m] || (x[p] == x[m] && sectorContainsSector(m, p)))))) {
+                        m      = p;
+                        tanMin = tan;
+                    }
+                }
+                p = next[p];
+            } while (p != stop);
+
+            return m;
+        }
+
+        private boolean sectorContainsSector(int m, int p) {
+            return area(prev[m], m, prev[p]) < 0.0 && area(next[p], m, next[m]) < 0.0;
+        }
+
+        private int leftmost(int start) {
+            int p = start;
+            int l = start;
+            do {
+                if (x[p] < x[l] || (x[p] == x[l] && y[p] < y[l])) l = p;
+                p = next[p];
+            } while (p != start);
+
+            return l;
+        }
+
+
+        /* -- z-order curve ---------------------------------------------------------------------------------------- */
+
+        private void index(int start) {
+            int p = start;
+            do {
+                if (z[p] == 0) z[p] = zOrder(x[p], y[p]);
+                prevZ[p] = prev[p];
+                nextZ[p] = next[p];
+                p = next[p];
+            } while (p != start);
+
+            nextZ[prevZ[p]] = -1;
+            prevZ[p] = -1;
+
+            sortZ(p);
+        }
+
+        /**
+         * Sorts the z-linked list starting at the given node by z-order, using Simon Tatham's linked-list merge-sort.
+         */
+        private void sortZ(int list) {
+            int inSize = 1;
+            int merges;
+
+            do {
+                int p    = list;
+                int tail = -1;
+                list   = -1;
+                merges = 0;
+
+                while (p != -1) {
+                    merges++;
+
+                    int q     = p;
+                    int pSize = 0;
+                    for (int i = 0; i < inSize; i++) {
+                        pSize++;
+                        q = nextZ[q];
+                        if (q == -1) break;
+                    }
+
+                    int qSize = inSize;
+                    while (pSize > 0 || (qSize > 0 && q != -1)) {
+                        int e;
+                        if (pSize != 0 && (qSize == 0 || q == -1 || z[p] <= z[q])) {
+                            e = p;
+                            p = nextZ[p];
+                            pSize--;
+                        } else {
+                            e = q;
+                            q = nextZ[q];
+                            qSize--;
+                        }
+
+                        if (tail != -1) nextZ[tail] = e;
+                        else list = e;
+
+                        prevZ[e] = tail;
+                        tail = e;
+                    }
+
+                    p = q;
+                }
+
+                nextZ[tail] = -1;
+                inSize *= 2;
+            } while (merges > 1);
+        }
+
+        private int zOrder(double px, double py) {
+            int zx = (int) ((px - minX) * invSize);
+            int zy = (int) ((py - minY) * invSize);
+
+            zx = (zx | (zx << 8)) & 0x00FF00FF;
+            zx = (zx | (zx << 4)) & 0x0F0F0F0F;
+            zx = (zx | (zx << 2)) & 0x33333333;
+            zx = (zx | (zx << 1)) & 0x55555555;
+
+            zy = (zy | (zy << 8)) & 0x00FF00FF;
+            zy = (zy | (zy << 4)) & 0x0F0F0F0F;
+            zy = (zy | (zy << 2)) & 0x33333333;
+            zy = (zy | (zy << 1)) & 0x55555555;
+
+            return zx | (zy << 1);
+        }
+
+
+        /* -- geometric predicates --------------------------------------------------------------------------------- */
+
+        /**
+         * Returns the negated doubled signed area of the triangle {@code (p, q, r)}, i.e. a negative value if the
+         * triangle is oriented counter-clockwise.
+         */
+        private double area(int p, int q, int r) {
+            return (y[q] - y[p]) * (x[r] - x[q]) - (x[q] - x[p]) * (y[r] - y[q]);
+        }
+
+        private boolean equals(int a, int b) {
+            return x[a] == x[b] && y[a] == y[b];
+        }
+
+        private static boolean inTriangle(double ax, double ay, double bx, double by, double cx, double cy,
+                                          double px, double py) {
+            return (cx - px) * (ay - py) >= (ax - px) * (cy - py)
+                    && (ax - px) * (by - py) >= (bx - px) * (ay - py)
+                    && (bx - px) * (cy - py) >= (cx - px) * (by - py);
+        }
+
+        private boolean intersects(int p1, int q1, int p2, int q2) {
+            int o1 = sign(area(p1, q1, p2));
+            int o2 = sign(area(p1, q1, q2));
+            int o3 = sign(area(p2, q2, p1));
+            int o4 = sign(area(p2, q2, q1));
+
+            if (o1 != o2 && o3 != o4) return true;
+
+            // collinear cases
+            if (o1 == 0 && onSegment(p1, p2, q1)) return true;
+            if (o2 == 0 && onSegment(p1, q2, q1)) return true;
+            if (o3 == 0 && onSegment(p2, p1, q2)) return true;
+            if (o4 == 0 && onSegment(p2, q1, q2)) return true;
+
+            return false;
+        }
+
+        private boolean onSegment(int p, int q, int r) {
+            return x[q] <= Math.max(x[p], x[r]) && x[q] >= Math.min(x[p], x[r])
+                    && y[q] <= Math.max(y[p], y[r]) && y[q] >= Math.min(y[p], y[r]);
+        }
+
+        private static int sign(double v) {
+            return v > 0.0 ? 1 : v < 0.0 ? -1 : 0;
+        }
+
+        private boolean intersectsPolygon(int a, int b) {
+            int p = a;
+            do {
+                int pn = next[p];
+                if (vertex[p] != vertex[a] && vertex[pn] != vertex[a] && vertex[p] != vertex[b]
+                        && vertex[pn] != vertex[b] && intersects(p, pn, a, b))
+                    return true;
+                p = pn;
+            } while (p != a);
+
+            return false;
+        }
+
+        private boolean locallyInside(int a, int b) {
+            return area(prev[a], a, next[a]) < 0.0
+                    ? area(a, b, next[a]) >= 0.0 && area(a, prev[a], b) >= 0.0
+                    : area(a, b, prev[a]) < 0.0 || area(a, next[a], b) < 0.0;
+        }
+
+        private boolean middleInside(int a, int b) {
+            double px = (x[a] + x[b]) / 2.0;
+            double py = (y[a] + y[b]) / 2.0;
+
+            boolean inside = false;
+            int p = a;
+            do {
+                int pn = next[p];
+                if (((y[p] > py) != (y[pn] > py)) && y[pn] != y[p]
+                        && (px < (x[pn] - x[p]) * (py - y[p]) / (y[pn] - y[p]) + x[p]))
+                    inside = !inside;
+                p = pn;
+            } while (p != a);
+
+            return inside;
+        }
+
+        private boolean isValidDiagonal(int a, int b) {
+            return vertex[next[a]] != vertex[b] && vertex[prev[a]] != vertex[b] && !intersectsPolygon(a, b)
+                    && (locallyInside(a, b) && locallyInside(b, a) && middleInside(a, b)
+                            && (area(prev[a], a, prev[b]) != 0.0 || area(a, prev[b], b) != 0.0)
+                        || equals(a, b) && area(prev[a], a, next[a]) > 0.0 && area(prev[b], b, next[b]) > 0.0);
+        }
+    }
+}
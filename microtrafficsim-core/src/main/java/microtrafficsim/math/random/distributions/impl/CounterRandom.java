@@ -0,0 +1,199 @@
+package microtrafficsim.math.random.distributions.impl;
+
+import microtrafficsim.math.random.distributions.RandomGenerator;
+
+/**
+ * <p>
+ * Counter-based random generator. Every number is computed by a SplitMix64 mixing function from a key and a counter,
+ * so there is no shared state between generators and a generator does not allocate any memory when drawing numbers.
+ *
+ * <p>
+ * The key is derived from the seed only, so independent generators per entity are created using
+ * {@link #hash(long, long) hash(seed, id)} as seed. Calling {@link #seek(long, long)} positions the generator at the start of the stream for a given step and purpose,
+ * so the numbers drawn by an entity in one simulation step do not depend on how many numbers it has drawn before, nor
+ * on the order in which the entities are processed.
+ *
+ * @author agent
+ */
+public class CounterRandom implements RandomGenerator {
+
+    /** Weyl-sequence increment of SplitMix64 (the golden ratio as 64 bit fraction) */
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long seed;
+    private long key;
+    private long block;
+    private long counter;
+
+
+    public CounterRandom() {
+        this(Random.createSeed());
+    }
+
+    public CounterRandom(long seed) {
+        setSeed(seed);
+    }
+
+
+    /*
+    |===============|
+    | counter-based |
+    |===============|
+    */
+    /**
+     * The SplitMix64 finalizer: a bijective function with good avalanche behaviour.
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return a well-mixed combination of the given seed and value, e.g. to derive the seed of an entity from a
+     * global seed and the entity's id
+     */
+    public static long hash(long seed, long value) {
+        return mix(mix(seed + GAMMA) + value * GAMMA);
+    }
+
+    /**
+     * @return a well-mixed combination of the given seed and values
+     */
+    public static long hash(long seed, long a, long b) {
+        return hash(hash(seed, a), b);
+    }
+
+    /**
+     * @return a well-mixed combination of the given seed and values
+     */
+    public static long hash(long seed, long a, long b, long c) {
+        return hash(hash(hash(seed, a), b), c);
+    }
+
+    /**
+     * @return a float in {@code [0, 1)} taken from the upper 24 bits of the given random bits
+     */
+    public static float toFloat(long bits) {
+        return (bits >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * @return an integer in {@code [0, bound)} taken from the given random bits (using the multiply-shift method)
+     */
+    public static int toInt(long bits, int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive");
+        return (int) (((bits >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Positions this generator at the start of the stream identified by the given step and purpose. Numbers drawn
+     * after this call only depend on the key of this generator, the given values and the number of draws since this
+     * call.
+     *
+     * @param step    e.g. the current simulation step
+     * @param purpose an arbitrary constant distinguishing between different uses in the same step
+     */
+    public void seek(long step, long purpose) {
+        block   = hash(key, step, purpose);
+        counter = 0;
+    }
+
+    /**
+     * @return the start of the current stream; together with {@link #getCounter()}, it describes the position of this
+     * generator
+     */
+    public long getBlock() {
+        return block;
+    }
+
+    /**
+     * @return the number of draws since the start of the current stream
+     */
+    public long getCounter() {
+        return counter;
+    }
+
+    /**
+     * Positions this generator as described by the given values, e.g. to restore a position returned by
+     * {@link #getBlock()} and {@link #getCounter()}.
+     */
+    public void setPosition(long block, long counter) {
+        this.block   = block;
+        this.counter = counter;
+    }
+
+
+    /*
+    |=====================|
+    | (i) RandomGenerator |
+    |=====================|
+    */
+    /**
+     * Implementation: Positions this generator at the start of its initial stream.
+     */
+    @Override
+    public void reset() {
+        block   = key;
+        counter = 0;
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.key  = mix(seed);
+        reset();
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    @Override
+    public byte nextByte() {
+        return (byte) (nextLong() >>> 56);
+    }
+
+    @Override
+    public byte[] nextByte(int count) {
+        byte[] b = new byte[count];
+        nextByte(b);
+        return b;
+    }
+
+    @Override
+    public void nextByte(byte[] b) {
+        for (int i = 0; i < b.length; ) {
+            long bits = nextLong();
+            for (int n = Math.min(b.length - i, Long.BYTES); n-- > 0; bits >>>= Byte.SIZE)
+                b[i++] = (byte) bits;
+        }
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return toInt(nextLong(), bound);
+    }
+
+    @Override
+    public long nextLong() {
+        return mix(block + GAMMA * ++counter);
+    }
+
+    @Override
+    public float nextFloat() {
+        return toFloat(nextLong());
+    }
+}
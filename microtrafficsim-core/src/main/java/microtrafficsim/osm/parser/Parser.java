@@ -1,5 +1,6 @@
 package microtrafficsim.osm.parser;
 
+import microtrafficsim.osm.parser.base.ChangeSet;
 import microtrafficsim.osm.parser.base.DataSet;
 import microtrafficsim.osm.parser.base.MultiPassParserBaseEventHandler;
 import microtrafficsim.osm.parser.base.ParserBase;
@@ -109,8 +110,24 @@ public class Parser {
      * @throws Exception          if any other exception occurred during processing.
      */
     public void parse(File file) throws Exception {
+        parse(file, null);
+    }
+
+    /**
+     * Parse the specified OpenStreetMap XML file in multiple passes while
+     * applying the given set of changes and execute the parsers {@code
+     * Processor}. The result is equal to parsing a copy of the given file
+     * patched with the given changes.
+     *
+     * @param file    the file to be parsed.
+     * @param changes the changes to apply while parsing, may be {@code null}.
+     * @throws XMLStreamException if the XML-file is malformed.
+     * @throws IOException        if the specified file cannot be read.
+     * @throws Exception          if any other exception occurred during processing.
+     */
+    public void parse(File file, ChangeSet changes) throws Exception {
         logger.info("start parsing '" + file.getPath() + "'");
-        DataSet datastore = extract(file);
+        DataSet datastore = extract(file, changes);
 
         logger.debug("finished parsing:");
         logger.debug("\tNodes: " + datastore.nodes.size());
@@ -132,20 +149,22 @@ public class Parser {
      * are required and which are not. This method runs multiple passes over
      * the given file to extract transitive dependencies.
      *
-     * @param file the file to be parsed.
+     * @param file    the file to be parsed.
+     * @param changes the changes to apply while parsing, may be {@code null}.
      * @return a {@code DataSet} object containing all required and parsed
      * elements.
      * @throws XMLStreamException if the XML-file is malformed.
      * @throws IOException        if the specified file cannot be read.
      */
-    private DataSet extract(File file) throws XMLStreamException, IOException, InterruptedException {
+    private DataSet extract(File file, ChangeSet changes)
+            throws XMLStreamException, IOException, InterruptedException {
         DataSet datastore = new DataSet();
 
         // initialize the ParserBase
         MultiPassParserBaseEventHandler handler
                 = new MultiPassParserBaseEventHandler(datastore, features, nodeManager, wayManager, relations);
 
-        ParserBase base = new ParserBase(handler);
+        ParserBase base = new ParserBase(changes != null ? changes.apply(handler) : handler);
 
         // pass 1: parse all directly specified features
         logger.info("parsing: pass 1");
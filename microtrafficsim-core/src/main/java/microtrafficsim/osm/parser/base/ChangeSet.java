@@ -0,0 +1,336 @@
+package microtrafficsim.osm.parser.base;
+
+import microtrafficsim.core.map.Bounds;
+import microtrafficsim.osm.primitives.Node;
+import microtrafficsim.osm.primitives.Primitive;
+import microtrafficsim.osm.primitives.Relation;
+import microtrafficsim.osm.primitives.Way;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * A set of changes parsed from one or more OpenStreetMap change files ({@code .osc}). Changes are accumulated in
+ * order, i.e. later changes to the same primitive override earlier ones. Created and modified primitives are stored
+ * as their final state, deleted primitives only by their id.
+ * <p>
+ * A {@code ChangeSet} can be applied while parsing an OpenStreetMap file by wrapping the used handler via
+ * {@link #apply(ParserBaseEventHandler)}, thus no patched copy of the original file needs to be written.
+ *
+ * @author agent
+ */
+public class ChangeSet {
+
+    /**
+     * The action of a change block.
+     */
+    public enum Action { CREATE, MODIFY, DELETE }
+
+    private HashMap<Long, Node>     nodes;
+    private HashMap<Long, Way>      ways;
+    private HashMap<Long, Relation> relations;
+
+    private HashSet<Long> deletedNodes;
+    private HashSet<Long> deletedWays;
+    private HashSet<Long> deletedRelations;
+
+    private Bounds bounds;
+
+
+    /**
+     * Constructs a new, empty {@code ChangeSet}.
+     */
+    public ChangeSet() {
+        this.nodes     = new HashMap<>();
+        this.ways      = new HashMap<>();
+        this.relations = new HashMap<>();
+
+        this.deletedNodes     = new HashSet<>();
+        this.deletedWays      = new HashSet<>();
+        this.deletedRelations = new HashSet<>();
+
+        this.bounds = null;
+    }
+
+
+    /**
+     * Parses the given OpenStreetMap change files in the given order and accumulates their changes in a single
+     * {@code ChangeSet}.
+     *
+     * @param files the files to parse.
+     * @return the parsed {@code ChangeSet}.
+     * @throws XMLStreamException   if any of the given files is malformed.
+     * @throws IOException          if any of the given files cannot be read.
+     * @throws InterruptedException if the parsing thread has been interrupted.
+     */
+    public static ChangeSet load(File... files) throws XMLStreamException, IOException, InterruptedException {
+        ChangeSet changes = new ChangeSet();
+
+        for (File file : files) {
+            try (FileInputStream in = new FileInputStream(file)) {
+                changes.read(in);
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Parses the given OpenStreetMap change stream and adds its changes to this {@code ChangeSet}.
+     *
+     * @param in the stream to parse.
+     * @return this {@code ChangeSet}.
+     * @throws XMLStreamException   if the given stream is malformed.
+     * @throws InterruptedException if the parsing thread has been interrupted.
+     */
+    public ChangeSet read(InputStream in) throws XMLStreamException, InterruptedException {
+        new ParserBase(new Reader()).parse(in);
+        return this;
+    }
+
+
+    /**
+     * Returns a handler applying the changes of this set to all primitives passed to the given handler. Deleted
+     * primitives are dropped, modified primitives are replaced by their new state and created primitives are passed
+     * to the given handler at the end of each pass.
+     *
+     * @param handler the handler to which the patched primitives should be passed.
+     * @return a handler applying this change-set on the fly.
+     */
+    public ParserBaseEventHandler apply(ParserBaseEventHandler handler) {
+        return new Applicator(handler);
+    }
+
+
+    /**
+     * Returns all created or modified nodes, mapped by their id.
+     *
+     * @return all created or modified nodes.
+     */
+    public Map<Long, Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns all created or modified ways, mapped by their id.
+     *
+     * @return all created or modified ways.
+     */
+    public Map<Long, Way> getWays() {
+        return ways;
+    }
+
+    /**
+     * Returns all created or modified relations, mapped by their id.
+     *
+     * @return all created or modified relations.
+     */
+    public Map<Long, Relation> getRelations() {
+        return relations;
+    }
+
+    /**
+     * Returns the ids of all deleted nodes.
+     *
+     * @return the ids of all deleted nodes.
+     */
+    public Set<Long> getDeletedNodes() {
+        return deletedNodes;
+    }
+
+    /**
+     * Returns the ids of all deleted ways.
+     *
+     * @return the ids of all deleted ways.
+     */
+    public Set<Long> getDeletedWays() {
+        return deletedWays;
+    }
+
+    /**
+     * Returns the ids of all deleted relations.
+     *
+     * @return the ids of all deleted relations.
+     */
+    public Set<Long> getDeletedRelations() {
+        return deletedRelations;
+    }
+
+    /**
+     * Returns the bounds enclosing all nodes of this change-set for which coordinates are known (this includes
+     * deleted nodes if the change-file specifies their last position).
+     *
+     * @return the bounds enclosing all changed nodes or {@code null} if no coordinates are known.
+     */
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Checks if this change-set is empty.
+     *
+     * @return {@code true} if this change-set does not contain any changes.
+     */
+    public boolean isEmpty() {
+        return nodes.isEmpty() && ways.isEmpty() && relations.isEmpty()
+                && deletedNodes.isEmpty() && deletedWays.isEmpty() && deletedRelations.isEmpty();
+    }
+
+
+    private void add(Action action, Node n) {
+        if (!Double.isNaN(n.lat) && !Double.isNaN(n.lon)) {
+            Bounds b = new Bounds(n.lat, n.lon, n.lat, n.lon);
+            bounds = bounds == null ? b : bounds.join(b);
+        }
+
+        if (action == Action.DELETE) {
+            nodes.remove(n.id);
+            deletedNodes.add(n.id);
+        } else {
+            deletedNodes.remove(n.id);
+            nodes.put(n.id, n);
+        }
+    }
+
+    private void add(Action action, Way w) {
+        if (action == Action.DELETE) {
+            ways.remove(w.id);
+            deletedWays.add(w.id);
+        } else {
+            deletedWays.remove(w.id);
+            ways.put(w.id, w);
+        }
+    }
+
+    private void add(Action action, Relation r) {
+        if (action == Action.DELETE) {
+            relations.remove(r.id);
+            deletedRelations.add(r.id);
+        } else {
+            deletedRelations.remove(r.id);
+            relations.put(r.id, r);
+        }
+    }
+
+
+    /**
+     * Handler reading change-files into this set.
+     */
+    private class Reader implements ParserBaseEventHandler {
+        private Action action = null;
+
+        @Override
+        public void onStart() {}
+
+        @Override
+        public void onEnd() {}
+
+        @Override
+        public void onChangeBegin(Action action) {
+            this.action = action;
+        }
+
+        @Override
+        public void onChangeEnd() {
+            this.action = null;
+        }
+
+        @Override
+        public void onPrimitiveParsed(Bounds b) {}
+
+        @Override
+        public void onPrimitiveParsed(Node n) {
+            if (action != null) add(action, n);
+        }
+
+        @Override
+        public void onPrimitiveParsed(Way w) {
+            if (action != null) add(action, w);
+        }
+
+        @Override
+        public void onPrimitiveParsed(Relation r) {
+            if (action != null) add(action, r);
+        }
+    }
+
+    /**
+     * Handler applying the changes of this set to the primitives parsed from a base file.
+     */
+    private class Applicator implements ParserBaseEventHandler {
+        private ParserBaseEventHandler handler;
+
+        private HashSet<Long> seenNodes;
+        private HashSet<Long> seenWays;
+        private HashSet<Long> seenRelations;
+
+        Applicator(ParserBaseEventHandler handler) {
+            this.handler       = handler;
+            this.seenNodes     = new HashSet<>();
+            this.seenWays      = new HashSet<>();
+            this.seenRelations = new HashSet<>();
+        }
+
+        @Override
+        public void onStart() {
+            seenNodes.clear();
+            seenWays.clear();
+            seenRelations.clear();
+            handler.onStart();
+        }
+
+        @Override
+        public void onEnd() {
+            // pass created primitives (and modified ones not contained in the base file) in dependency order
+            for (Node n : nodes.values())
+                if (!seenNodes.contains(n.id)) handler.onPrimitiveParsed(n);
+
+            for (Way w : ways.values())
+                if (!seenWays.contains(w.id)) handler.onPrimitiveParsed(w);
+
+            for (Relation r : relations.values())
+                if (!seenRelations.contains(r.id)) handler.onPrimitiveParsed(r);
+
+            handler.onEnd();
+        }
+
+        @Override
+        public void onPrimitiveParsed(Bounds b) {
+            handler.onPrimitiveParsed(b);
+        }
+
+        @Override
+        public void onPrimitiveParsed(Node n) {
+            if (deletedNodes.contains(n.id)) return;
+            seenNodes.add(n.id);
+            handler.onPrimitiveParsed(replace(nodes, n));
+        }
+
+        @Override
+        public void onPrimitiveParsed(Way w) {
+            if (deletedWays.contains(w.id)) return;
+            seenWays.add(w.id);
+            handler.onPrimitiveParsed(replace(ways, w));
+        }
+
+        @Override
+        public void onPrimitiveParsed(Relation r) {
+            if (deletedRelations.contains(r.id)) return;
+            seenRelations.add(r.id);
+            handler.onPrimitiveParsed(replace(relations, r));
+        }
+
+        private <T extends Primitive> T replace(Map<Long, T> changed, T primitive) {
+            T replacement = changed.get(primitive.id);
+            return replacement != null ? replacement : primitive;
+        }
+    }
+}
@@ -55,6 +55,17 @@ public class ParserBase {
                 case "node":     parseNode(reader);     break;
                 case "way":      parseWay(reader);      break;
                 case "relation": parseRelation(reader); break;
+                case "create":   handler.onChangeBegin(ChangeSet.Action.CREATE); break;
+                case "modify":   handler.onChangeBegin(ChangeSet.Action.MODIFY); break;
+                case "delete":   handler.onChangeBegin(ChangeSet.Action.DELETE); break;
+                }
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                switch (reader.getLocalName()) {
+                case "create":
+                case "modify":
+                case "delete":
+                    handler.onChangeEnd();
+                    break;
                 }
             }
 
@@ -100,8 +111,8 @@ public class ParserBase {
      */
     private void parseNode(XMLStreamReader reader) throws XMLStreamException {
         long    id      = Long.parseLong(reader.getAttributeValue(null, "id"));
-        double  lat     = Double.parseDouble(reader.getAttributeValue(null, "lat"));
-        double  lon     = Double.parseDouble(reader.getAttributeValue(null, "lon"));
+        double  lat     = parseOptionalDouble(reader.getAttributeValue(null, "lat"), Double.NaN);
+        double  lon     = parseOptionalDouble(reader.getAttributeValue(null, "lon"), Double.NaN);
         boolean visible = parseOptionalBoolean(reader.getAttributeValue(null, "visible"), true);
 
         HashMap<String, String> tags = new HashMap<>();
@@ -248,4 +259,21 @@ public class ParserBase {
         else
             return Boolean.parseBoolean(s);
     }
+
+    /**
+     * Parse an optional double from the given {@code String}. Coordinates
+     * may be omitted for deleted nodes in OpenStreetMap change files.
+     *
+     * @param s   the {@code String} to parse.
+     * @param def the default value used when the given {@code String} is
+     *            empty.
+     * @return the parsed double or the default value if {@code s} is {@code
+     * null}.
+     */
+    private double parseOptionalDouble(String s, double def) {
+        if (s == null)
+            return def;
+        else
+            return Double.parseDouble(s);
+    }
 }
@@ -55,4 +55,24 @@ public interface ParserBaseEventHandler {
      * @param r the {@code Relation} object which has been parsed.
      */
     void onPrimitiveParsed(Relation r);
+
+
+    /**
+     * A callback-function which is called when a {@code create}, {@code
+     * modify} or {@code delete} block of an OpenStreetMap change file
+     * ({@code .osc}) has been entered. All primitives parsed until the next
+     * call to {@link #onChangeEnd()} belong to this block. Plain OpenStreetMap
+     * files do not contain such blocks, thus this method is ignored by
+     * default.
+     *
+     * @param action the action described by the block.
+     */
+    default void onChangeBegin(ChangeSet.Action action) {}
+
+    /**
+     * A callback-function which is called when a {@code create}, {@code
+     * modify} or {@code delete} block of an OpenStreetMap change file has been
+     * left.
+     */
+    default void onChangeEnd() {}
 }
@@ -0,0 +1,208 @@
+package microtrafficsim.utils.collections;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+
+/**
+ * Thread-safe, size-bounded cache evicting the least recently used entries first. The size of each entry is
+ * determined by a weight-function, the cache evicts entries until the sum of all weights is below its capacity.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ * @author agent
+ */
+public class LRUCache<K, V> {
+
+    private final LinkedHashMap<K, V> entries;
+    private final ToLongFunction<V>   weigher;
+    private long capacity;
+    private long size;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+
+    /**
+     * Creates a new {@code LRUCache} with the given capacity, weighting each entry with one.
+     *
+     * @param capacity the maximum number of entries in this cache.
+     */
+    public LRUCache(long capacity) {
+        this(capacity, v -> 1);
+    }
+
+    /**
+     * Creates a new {@code LRUCache} with the given capacity and weight-function.
+     *
+     * @param capacity the maximum total weight of all entries in this cache.
+     * @param weigher  the function used to determine the weight of an entry.
+     */
+    public LRUCache(long capacity, ToLongFunction<V> weigher) {
+        this.entries  = new LinkedHashMap<>(16, 0.75f, true);
+        this.weigher  = weigher;
+        this.capacity = capacity;
+        this.size     = 0;
+    }
+
+
+    /**
+     * Returns the value associated with the given key and marks it as most recently used.
+     *
+     * @param key the key for which the value should be returned.
+     * @return the value associated with the given key or {@code null} if there is none.
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+
+        if (value != null)
+            hits++;
+        else
+            misses++;
+
+        return value;
+    }
+
+    /**
+     * Associates the given key with the given value and evicts the least recently used entries if the capacity of
+     * this cache is exceeded. Values heavier than the capacity of this cache are not stored.
+     *
+     * @param key   the key.
+     * @param value the value.
+     * @return the value previously associated with the given key or {@code null} if there was none.
+     */
+    public synchronized V put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > capacity)
+            return remove(key);
+
+        V old = entries.put(key, value);
+        if (old != null)
+            size -= weigher.applyAsLong(old);
+
+        size += weight;
+        evict();
+
+        return old;
+    }
+
+    /**
+     * Removes the value associated with the given key.
+     *
+     * @param key the key for which the value should be removed.
+     * @return the removed value or {@code null} if there was none.
+     */
+    public synchronized V remove(K key) {
+        V old = entries.remove(key);
+        if (old != null)
+            size -= weigher.applyAsLong(old);
+
+        return old;
+    }
+
+    /**
+     * Removes all entries from this cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Sets the capacity of this cache, evicting entries if necessary.
+     *
+     * @param capacity the new capacity of this cache.
+     */
+    public synchronized void setCapacity(long capacity) {
+        this.capacity = capacity;
+        evict();
+    }
+
+    public synchronized long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the sum of the weights of all entries in this cache.
+     *
+     * @return the sum of the weights of all entries in this cache.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this cache.
+     *
+     * @return the statistics of this cache.
+     */
+    public synchronized Statistics getStatistics() {
+        return new Statistics(hits, misses, evictions, entries.size(), size, capacity);
+    }
+
+    /**
+     * Resets the hit-, miss- and eviction-counters of this cache.
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+
+    private void evict() {
+        Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+
+        while (size > capacity && it.hasNext()) {
+            size -= weigher.applyAsLong(it.next().getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+
+    /**
+     * Statistics of a {@code LRUCache}.
+     */
+    public static class Statistics {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long entries;
+        public final long size;
+        public final long capacity;
+
+        public Statistics(long hits, long misses, long evictions, long entries, long size, long capacity) {
+            this.hits      = hits;
+            this.misses    = misses;
+            this.evictions = evictions;
+            this.entries   = entries;
+            this.size      = size;
+            this.capacity  = capacity;
+        }
+
+        /**
+         * Returns the ratio of hits to lookups.
+         *
+         * @return the ratio of hits to lookups, or zero if there have not been any lookups.
+         */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups > 0 ? (double) hits / lookups : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + " {"
+                    + "hits: " + hits
+                    + ", misses: " + misses
+                    + ", evictions: " + evictions
+                    + ", entries: " + entries
+                    + ", size: " + size + "/" + capacity
+                    + "}";
+        }
+    }
+}
@@ -84,4 +84,12 @@ public class StaticThreadDelegator implements ThreadDelegator {
             throw e;                            // propagate the interrupt
         }
     }
+
+    /**
+     * Shuts down the thread pool of this delegator after all submitted tasks have finished. Afterwards, this delegator
+     * must not be used anymore.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
 }
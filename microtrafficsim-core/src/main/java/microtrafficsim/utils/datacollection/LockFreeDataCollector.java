@@ -0,0 +1,258 @@
+package microtrafficsim.utils.datacollection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * <p>
+ * Implementation of {@link DataCollector} for many concurrently writing threads without any locks. Tags are stored in
+ * a {@link ConcurrentHashMap}. Tags can be registered in advance via {@link #register(String)} or
+ * {@link #registerBundle(String)}; the returned handles can be used in {@link #put(Tag, Object)} and
+ * {@link #size(Tag)} to skip the lookup of the tag.
+ *
+ * <p>
+ * Every thread appends to its own buffer of a bundle, so putting data into the same bundle does not need any
+ * synchronization between the writing threads. The buffers are merged when reading the bundle, hence the data of a
+ * bundle is ordered per thread, but not across threads. Reading via {@link #iterator()} is weakly consistent, i.e. it
+ * returns all data put before its creation and may or may not return data put afterwards.
+ *
+ * @author agent
+ */
+public class LockFreeDataCollector implements DataCollector<Object> {
+
+    private final ConcurrentHashMap<String, Entry> dataMap;
+
+    public LockFreeDataCollector() {
+        dataMap = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Registers the given tag for single data, if it does not exist yet.
+     *
+     * @return the handle of the given tag, which may be a bundle if it has already been registered as such
+     */
+    public Tag register(String tag) {
+        return dataMap.computeIfAbsent(tag, label -> new Value(this, label));
+    }
+
+    /**
+     * Registers the given tag as bundle, if it does not exist yet.
+     *
+     * @return the handle of the given tag, which may be single data if it has already been registered as such
+     */
+    public Tag registerBundle(String tag) {
+        return dataMap.computeIfAbsent(tag, label -> new BundleEntry(this, label));
+    }
+
+    /**
+     * Same as {@link #put(String, Object)}, but without looking up the tag.
+     *
+     * @param tag handle returned by {@link #register(String)} or {@link #registerBundle(String)} of this collector
+     */
+    public void put(Tag tag, Object obj) {
+        entry(tag).put(obj);
+    }
+
+    /**
+     * Same as {@link #size(String)}, but without looking up the tag.
+     *
+     * @param tag handle returned by {@link #register(String)} or {@link #registerBundle(String)} of this collector
+     */
+    public int size(Tag tag) {
+        return entry(tag).size();
+    }
+
+    private Entry entry(Tag tag) {
+        if (!(tag instanceof Entry) || ((Entry) tag).collector != this)
+            throw new IllegalArgumentException("The given tag has not been registered in this collector.");
+        return (Entry) tag;
+    }
+
+
+    /*
+    |===============|
+    | DataCollector |
+    |===============|
+    */
+    @Override
+    public int size(String tag) {
+        Entry entry = dataMap.get(tag);
+        return entry == null ? 0 : entry.size();
+    }
+
+    /**
+     * @return true if the bundle has been added; false if the tag has already existed
+     */
+    @Override
+    public boolean addBundle(String tag) {
+        BundleEntry bundle = new BundleEntry(this, tag);
+        return dataMap.putIfAbsent(tag, bundle) == null;
+    }
+
+    @Override
+    public void put(String tag, Object obj) {
+        Entry entry = dataMap.get(tag);
+        if (entry == null)
+            entry = dataMap.computeIfAbsent(tag, label -> new Value(this, label));
+        entry.put(obj);
+    }
+
+    /**
+     * Returns the {@link Data} of all tags for single data, and the {@link Tag} followed by its {@code Data} for all
+     * bundles.
+     */
+    @Override
+    public Iterator<Object> iterator() {
+        return new Iterator<Object>() {
+
+            private Iterator<Entry> tags   = dataMap.values().iterator();
+            private Iterator<Data>  bundle = Collections.emptyIterator();
+            private Object          next   = advance();
+
+            private Object advance() {
+                if (bundle.hasNext())
+                    return bundle.next();
+
+                while (tags.hasNext()) {
+                    Entry entry = tags.next();
+                    if (entry instanceof BundleEntry) {
+                        bundle = ((BundleEntry) entry).snapshot().iterator();
+                        return entry;
+                    }
+
+                    // registered tags without data are skipped
+                    Data data = ((Value) entry).data;
+                    if (data != null)
+                        return data;
+                }
+
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Object next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+
+                Object current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+
+    /*
+    |=========|
+    | entries |
+    |=========|
+    */
+    private static abstract class Entry extends Tag {
+        private final LockFreeDataCollector collector;
+
+        Entry(LockFreeDataCollector collector, String label) {
+            super(label);
+            this.collector = collector;
+        }
+
+        abstract void put(Object obj);
+
+        abstract int size();
+    }
+
+    private static class Value extends Entry {
+        private volatile Data data;
+
+        Value(LockFreeDataCollector collector, String label) {
+            super(collector, label);
+        }
+
+        @Override
+        void put(Object obj) {
+            data = new Data(obj);
+        }
+
+        @Override
+        int size() {
+            return data == null ? 0 : 1;
+        }
+    }
+
+    private static class BundleEntry extends Entry {
+        private final CopyOnWriteArrayList<Buffer> buffers;
+        private final ThreadLocal<Buffer> local;
+
+        BundleEntry(LockFreeDataCollector collector, String label) {
+            super(collector, label);
+
+            buffers = new CopyOnWriteArrayList<>();
+            local   = ThreadLocal.withInitial(() -> {
+                Buffer buffer = new Buffer();
+                buffers.add(buffer);
+                return buffer;
+            });
+        }
+
+        @Override
+        void put(Object obj) {
+            local.get().append(obj instanceof Data ? (Data) obj : new Data(obj));
+        }
+
+        @Override
+        int size() {
+            int size = 0;
+            for (Buffer buffer : buffers)
+                size += buffer.size;
+            return size;
+        }
+
+        List<Data> snapshot() {
+            ArrayList<Data> merged = new ArrayList<>();
+            for (Buffer buffer : buffers)
+                buffer.copyInto(merged);
+            return merged;
+        }
+    }
+
+    /**
+     * Append-only buffer with a single writing thread. The size is published after the element has been written, so
+     * readers see all elements up to the size they have read.
+     */
+    private static class Buffer {
+        private volatile Data[] items = new Data[16];
+        private volatile int size     = 0;
+
+        void append(Data data) {
+            Data[] items = this.items;
+            int size = this.size;
+
+            if (size == items.length) {
+                Data[] grown = new Data[size * 2];
+                System.arraycopy(items, 0, grown, 0, size);
+                this.items = items = grown;
+            }
+
+            items[size] = data;
+            this.size = size + 1;
+        }
+
+        void copyInto(List<Data> list) {
+            int size = this.size;
+            Data[] items = this.items;
+            for (int i = 0; i < size; i++)
+                list.add(items[i]);
+        }
+    }
+}
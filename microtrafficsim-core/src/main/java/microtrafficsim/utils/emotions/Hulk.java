@@ -13,6 +13,14 @@ public interface Hulk {
      */
     void becomeMoreAngry();
 
+    /**
+     * Has the same effect as calling {@link #becomeMoreAngry()} the given number of times.
+     */
+    default void becomeMoreAngry(int times) {
+        for (int i = 0; i < times; i++)
+            becomeMoreAngry();
+    }
+
     /**
      * This method decreases the current anger of the object.
      */
@@ -2,28 +2,48 @@ package microtrafficsim.utils.id;
 
 
 import microtrafficsim.math.random.Seeded;
+import microtrafficsim.math.random.distributions.impl.CounterRandom;
 import microtrafficsim.math.random.distributions.impl.Random;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Concurrent implementation of {@link LongGenerator} using an object of {@link Random} to create seeds for every
- * call of {@link #next()}.
+ * Concurrent, lock-free implementation of {@link LongGenerator}. The seeds are hashes of the seed, a stream constant
+ * and an index (see {@link CounterRandom#hash(long, long, long)}). {@link #get(long)} and {@link #next()} use
+ * different stream constants, so the seeds derived by index and the seeds drawn sequentially are independent of each
+ * other, e.g. {@code next()} does not repeat the seed of an entity derived by {@code get(id)}.
  *
  * @author Dominic Parga Cacheiro
  */
 public class ConcurrentSeedGenerator implements LongGenerator, Seeded {
 
-    private Random seeds;
+    /* stream constants separating the seeds of get(index) and next() */
+    private static final long STREAM_INDEXED    = 1;
+    private static final long STREAM_SEQUENTIAL = 2;
+
+    private volatile long seed;
+    private final AtomicLong counter;
 
     public ConcurrentSeedGenerator() {
-        seeds = new Random();
+        this(Random.createSeed());
     }
 
     /**
-     * @param seed This seed is used to initialize the instance of {@link Random}, which generates seeds for every call
-     *             of {@link #next()}.
+     * @param seed This seed is used to derive the seeds returned by {@link #next()} and {@link #get(long)}.
      */
     public ConcurrentSeedGenerator(long seed) {
-        seeds = new Random(seed);
+        this.seed    = seed;
+        this.counter = new AtomicLong(0);
+    }
+
+    /**
+     * In contrast to {@link #next()}, this method does not depend on the number or order of previous calls. Hence it
+     * should be preferred for deriving seeds in a concurrent context, e.g. using an entity id as index.
+     *
+     * @return the seed for the given index
+     */
+    public long get(long index) {
+        return CounterRandom.hash(seed, STREAM_INDEXED, index);
     }
 
     /*
@@ -32,13 +52,14 @@ public class ConcurrentSeedGenerator implements LongGenerator, Seeded {
     |============|
     */
     @Override
-    public synchronized void setSeed(long seed) {
-        seeds.setSeed(seed);
+    public void setSeed(long seed) {
+        this.seed = seed;
+        counter.set(0);
     }
 
     @Override
-    public synchronized long getSeed() {
-        return seeds.getSeed();
+    public long getSeed() {
+        return seed;
     }
 
     /*
@@ -47,16 +68,16 @@ public class ConcurrentSeedGenerator implements LongGenerator, Seeded {
     |===================|
     */
     /**
-     * @return seeds.nextLong(), where seeds is an object of {@link Random} initialized in the constructor
-     * of this class
+     * @return the seed for the index given by the number of previous calls since the last reset; this sequence is
+     * independent of the seeds returned by {@link #get(long)}
      */
     @Override
-    public synchronized long next() {
-        return seeds.nextLong();
+    public long next() {
+        return CounterRandom.hash(seed, STREAM_SEQUENTIAL, counter.getAndIncrement());
     }
 
     @Override
-    public synchronized void reset() {
-        seeds.reset();
+    public void reset() {
+        counter.set(0);
     }
 }
@@ -0,0 +1,65 @@
+package logic.crossinglogic;
+
+import microtrafficsim.core.convenience.parser.DefaultParserConfig;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.map.MapProperties;
+import microtrafficsim.core.parser.OSMParser;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.osm.parser.base.ChangeSet;
+import microtrafficsim.utils.resources.PackagedResource;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Serves the small maps of the crossing logic validation (see {@link UIValidation}), which are packaged with the
+ * tests, as test fixtures.
+ *
+ * @author agent
+ */
+public final class ValidationMaps {
+    public static final String ROUNDABOUT     = "roundabout.osm";
+    public static final String PLUS_CROSSROAD = "plus_crossroad.osm";
+
+    /** Changes of {@link #PLUS_CROSSROAD}, creating, modifying and deleting nodes and ways */
+    public static final String PLUS_CROSSROAD_CHANGES = "plus_crossroad.osc";
+
+
+    private ValidationMaps() {}
+
+
+    /**
+     * @param filename one of the map constants of this class, e.g. {@link #ROUNDABOUT}
+     * @return a temporary copy of the given map
+     */
+    public static File getFile(String filename) throws IOException {
+        return new PackagedResource(UIValidation.class, "/logic/validation/" + filename).asTemporaryFile();
+    }
+
+    /**
+     * Parses the given map using the {@link DefaultParserConfig} of the given config.
+     *
+     * @param filename one of the map constants of this class, e.g. {@link #ROUNDABOUT}
+     */
+    public static OSMParser.Result parse(String filename, SimulationConfig config) throws Exception {
+        return parse(filename, null, config);
+    }
+
+    /**
+     * Same as {@link #parse(String, SimulationConfig)}, but applies the given changes while parsing.
+     *
+     * @param changes may be {@code null}
+     */
+    public static OSMParser.Result parse(String filename, ChangeSet changes, SimulationConfig config)
+            throws Exception {
+        OSMParser parser = DefaultParserConfig.get(config).build();
+        return parser.parse(getFile(filename), changes, new MapProperties(config.crossingLogic.drivingOnTheRight));
+    }
+
+    /**
+     * Same as {@link #parse(String, SimulationConfig)}, but returns the street graph only.
+     */
+    public static Graph parseGraph(String filename, SimulationConfig config) throws Exception {
+        return parse(filename, config).streetgraph;
+    }
+}
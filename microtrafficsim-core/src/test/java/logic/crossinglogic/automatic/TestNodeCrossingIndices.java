@@ -7,6 +7,7 @@ import microtrafficsim.core.convenience.parser.DefaultParserConfig;
 import microtrafficsim.core.logic.Direction;
 import microtrafficsim.core.logic.nodes.Node;
 import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streetgraph.GraphState;
 import microtrafficsim.core.logic.streetgraph.StreetGraph;
 import microtrafficsim.core.logic.streets.DirectedEdge;
 import microtrafficsim.core.logic.streets.information.Orientation;
@@ -84,7 +85,8 @@ public class TestNodeCrossingIndices {
                     vehicles[i++] = vehicle;
 
                 /* check only if both are registered in mid */
-                if (!scenario.mid.isRegistered(vehicles[0]) || !scenario.mid.isRegistered(vehicles[1]))
+                GraphState state = scenario.getGraphState();
+                if (!scenario.mid.isRegistered(state, vehicles[0]) || !scenario.mid.isRegistered(state, vehicles[1]))
                     continue;
 
                 /* get vehicles' position relative to each other */
@@ -101,8 +103,8 @@ public class TestNodeCrossingIndices {
                 }
 
                 /* assert correct priority-to-the-right */
-                boolean permissionToV0 = scenario.mid.permissionToCross(vehicles[0]);
-                boolean permissionToV1 = scenario.mid.permissionToCross(vehicles[1]);
+                boolean permissionToV0 = scenario.mid.permissionToCross(state, vehicles[0]);
+                boolean permissionToV1 = scenario.mid.permissionToCross(state, vehicles[1]);
                 boolean anyPermission = permissionToV0 || permissionToV1;
                 hasCheckAnything |= anyPermission;
                 assertEquals("Incorrect permission to cross the mid node",
@@ -11,6 +11,7 @@ import microtrafficsim.core.simulation.builder.impl.VehicleScenarioBuilder;
 import microtrafficsim.core.simulation.configs.SimulationConfig;
 import microtrafficsim.core.simulation.core.Simulation;
 import microtrafficsim.core.simulation.core.VehicleSimulation;
+import microtrafficsim.core.simulation.core.snapshot.SimulationSnapshot;
 import microtrafficsim.core.simulation.scenarios.Scenario;
 import microtrafficsim.math.MathUtils;
 import microtrafficsim.math.random.distributions.impl.Random;
@@ -305,6 +306,46 @@ public abstract class AbstractDeterminismTest {
         }
     }
 
+    /**
+     * Runs the simulation a second time up to the middle of the reference run and writes a snapshot. Then, the
+     * scenario is prepared again, the snapshot is restored and the remaining states are compared to the reference run.
+     *
+     * @see AbstractDeterminismTest
+     * @see SimulationSnapshot
+     */
+    @Test
+    public void testDeterministicSnapshot() throws Exception {
+        setupNewTest();
+        executeAndRememberFirstRun();
+
+        int snapshotAge = getMaxStep() / 2;
+        logger.info("Write snapshot after " + snapshotAge + " steps (= age).");
+        setupNewSimulationRun();
+        simulate(snapshotAge);
+        File file = File.createTempFile("simulation", ".snapshot");
+        file.deleteOnExit();
+        SimulationSnapshot.write(simulation, file);
+
+        logger.info("Restore snapshot and check remaining states.");
+        setupNewSimulationRun();
+        SimulationSnapshot.restore(simulation, file);
+        expectedAge = snapshotAge;
+        assertAge();
+
+        Iterator<Integer> simulationAges = MathUtils.createSigmoidSequence(1, getMaxStep(), getChecks() - 2);
+        int lastSimulationAge = snapshotAge;
+        while (simulationAges.hasNext()) {
+            int simulationAge = simulationAges.next();
+            if (simulationAge <= snapshotAge)
+                continue;
+
+            simulate(simulationAge - lastSimulationAge);
+            lastSimulationAge = simulationAge;
+            compareStates(simulationAge);
+        }
+        assertEquals("No state has been checked after restoring", getMaxStep(), lastSimulationAge);
+    }
+
     /*
     |=======|
     | utils |
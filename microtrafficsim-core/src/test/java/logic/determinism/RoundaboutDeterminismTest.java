@@ -0,0 +1,69 @@
+package logic.determinism;
+
+import logic.crossinglogic.ValidationMaps;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.simulation.scenarios.Scenario;
+import microtrafficsim.core.simulation.scenarios.impl.AreaScenario;
+import microtrafficsim.core.simulation.scenarios.impl.RandomRouteScenario;
+
+/**
+ * <p>
+ * Tests {@link RandomRouteScenario} on the small roundabout map of the crossing logic validation, which is packaged
+ * with the tests. For detailed information about the test itself, see superclass.
+ *
+ * <p>
+ * &bull; {@code Number of runs = } {@value simulationRuns}<br>
+ * &bull; {@code Number of steps = } {@value maxStep}<br>
+ * &bull; {@code Number of checks = } {@value checks}
+ *
+ * @author agent
+ */
+public class RoundaboutDeterminismTest extends AbstractDeterminismTest {
+
+    /* testing parameters */
+    private static final int checks = 10;
+    private static final int maxStep = 300;
+    private static final int simulationRuns = 2;
+
+
+    @Override
+    protected int getChecks() {
+        return checks;
+    }
+
+    @Override
+    protected int getMaxStep() {
+        return maxStep;
+    }
+
+    @Override
+    protected int getSimulationRuns() {
+        return simulationRuns;
+    }
+
+    @Override
+    protected SimulationConfig createConfig() {
+        SimulationConfig config = super.createConfig();
+        config.maxVehicleCount = 200;
+        config.multiThreading.nThreads = 4;
+        return config;
+    }
+
+    @Override
+    protected Graph createGraph(SimulationConfig config) {
+        try {
+            return ValidationMaps.parseGraph(ValidationMaps.ROUNDABOUT, config);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    protected Scenario createScenario(SimulationConfig config, Graph graph) {
+        AreaScenario scenario = new RandomRouteScenario(config.seed, config, graph);
+        scenario.redefineMetaRoutes();
+        return scenario;
+    }
+}
@@ -0,0 +1,146 @@
+package logic.simulation;
+
+import logic.crossinglogic.ValidationMaps;
+import microtrafficsim.core.logic.routes.MetaRoute;
+import microtrafficsim.core.logic.routes.Route;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.vehicles.machines.Vehicle;
+import microtrafficsim.core.simulation.builder.impl.VehicleScenarioBuilder;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.simulation.scenarios.impl.AreaScenario;
+import microtrafficsim.core.simulation.scenarios.impl.RandomRouteScenario;
+import microtrafficsim.core.simulation.utils.RouteTable;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the parallel definition of routes into a {@link RouteTable}.
+ *
+ * @author agent
+ */
+public class RouteTableTest {
+    private static final int ROUTES = 5000;
+
+    private static Graph graph;
+
+
+    @BeforeClass
+    public static void setupGraph() throws Exception {
+        graph = ValidationMaps.parseGraph(ValidationMaps.ROUNDABOUT, createConfig(1));
+    }
+
+
+    @Test
+    public void testRandomRoutesIndependentOfThreadCount() {
+        testIndependentOfThreadCount((seed, config) -> new RandomRouteScenario(seed, config, graph));
+    }
+
+    @Test
+    public void testRedefinition() {
+        AreaScenario scenario = new RandomRouteScenario(42L, createConfig(4), graph);
+        scenario.redefineMetaRoutes();
+        List<String> first = describe(scenario);
+        scenario.redefineMetaRoutes();
+        assertEquals(first, describe(scenario));
+    }
+
+    @Test
+    public void testViews() {
+        AreaScenario scenario = new RandomRouteScenario(42L, createConfig(1), graph);
+        scenario.redefineMetaRoutes();
+        assertTrue(scenario.getRoutes() instanceof RouteTable);
+        RouteTable table = (RouteTable) scenario.getRoutes();
+
+        Route route = table.get(7);
+        route.setSpawnDelay(13);
+        route.setMonitored(true);
+        assertEquals(13, table.getSpawnDelay(7));
+        assertTrue(table.isMonitored(7));
+
+        MetaRoute clone = (MetaRoute) route.clone();
+        assertEquals(table.getOrigin(7), clone.getOrigin());
+        assertEquals(table.getDestination(7), clone.getDestination());
+        assertEquals(13, clone.getSpawnDelay());
+        assertTrue(clone.isMonitored());
+
+        table.add(new MetaRoute(table.getOrigin(0), table.getDestination(1), 5));
+        assertEquals(ROUTES + 1, table.size());
+        assertEquals(table.getOrigin(0), table.get(ROUTES).getOrigin());
+        assertEquals(5, table.get(ROUTES).getSpawnDelay());
+
+        // routes of any kind can be added after clearing
+        scenario.resetAndClearRoutes();
+        assertTrue(scenario.getRoutes().isEmpty());
+        assertFalse(scenario.getRoutes() instanceof RouteTable);
+    }
+
+
+    @Test
+    public void testAddAllOfScenario() throws InterruptedException {
+        SimulationConfig config = createConfig(1);
+        AreaScenario scenario = new RandomRouteScenario(42L, config, graph);
+        scenario.redefineMetaRoutes();
+        ((RouteTable) scenario.getRoutes()).get(3).setMonitored(true);
+        new VehicleScenarioBuilder(42L).prepare(scenario);
+
+        List<String> expected = new ArrayList<>();
+        for (Vehicle vehicle : scenario.getVehicleContainer()) {
+            Route route = vehicle.getDriver().getRoute();
+            if (!route.isEmpty())
+                expected.add(describe(route));
+        }
+        assertFalse(expected.isEmpty());
+
+        RouteTable table = new RouteTable(graph);
+        table.addAll(scenario);
+        List<String> actual = new ArrayList<>();
+        for (Route route : table)
+            actual.add(describe(route));
+
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
+
+
+    private static void testIndependentOfThreadCount(BiFunction<Long, SimulationConfig, AreaScenario> factory) {
+        AreaScenario single = factory.apply(42L, createConfig(1));
+        AreaScenario multi  = factory.apply(42L, createConfig(8));
+        single.redefineMetaRoutes();
+        multi.redefineMetaRoutes();
+
+        assertEquals(ROUTES, single.getRoutes().size());
+        assertEquals(describe(single), describe(multi));
+
+        AreaScenario other = factory.apply(43L, createConfig(8));
+        other.redefineMetaRoutes();
+        assertNotEquals(describe(single), describe(other));
+    }
+
+    private static SimulationConfig createConfig(int nThreads) {
+        SimulationConfig config = new SimulationConfig();
+        config.maxVehicleCount = ROUTES;
+        config.multiThreading.nThreads = nThreads;
+        return config;
+    }
+
+    private static List<String> describe(AreaScenario scenario) {
+        List<String> routes = new ArrayList<>();
+        for (Route route : scenario.getRoutes())
+            routes.add(describe(route));
+        return routes;
+    }
+
+    private static String describe(Route route) {
+        return route.getOrigin().getId() + " -> " + route.getDestination().getId()
+                + ", spawn delay = " + route.getSpawnDelay()
+                + (route.isMonitored() ? " (monitored)" : "");
+    }
+}
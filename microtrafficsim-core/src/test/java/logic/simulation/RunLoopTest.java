@@ -0,0 +1,122 @@
+package logic.simulation;
+
+import logic.crossinglogic.ValidationMaps;
+import logic.crossinglogic.scenarios.pluscrossroad.AbstractPlusCrossroadScenario;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.simulation.builder.impl.VehicleScenarioBuilder;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.simulation.core.Pacing;
+import microtrafficsim.core.simulation.core.Simulation;
+import microtrafficsim.core.simulation.core.VehicleSimulation;
+import microtrafficsim.core.simulation.scenarios.impl.AreaScenario;
+import microtrafficsim.core.simulation.scenarios.impl.RandomRouteScenario;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the run modes of {@link VehicleSimulation}, i.e. {@link Simulation#runSteps(int, Pacing)} and
+ * {@link Simulation#run(Pacing)} including their cancellation.
+ *
+ * @author agent
+ */
+public class RunLoopTest {
+
+    private static Graph graph;
+
+
+    @BeforeClass
+    public static void setupGraph() throws Exception {
+        SimulationConfig config = new SimulationConfig();
+        AbstractPlusCrossroadScenario.setupConfig(config);
+
+        graph = ValidationMaps.parseGraph(ValidationMaps.PLUS_CROSSROAD, config);
+    }
+
+
+    @Test
+    public void testRunSteps() throws InterruptedException {
+        Simulation sim = createSimulation();
+        int age = sim.getAge();
+
+        assertEquals(50, sim.runSteps(50));
+        assertEquals(age + 50, sim.getAge());
+        assertTrue(sim.isPaused());
+
+        assertEquals(0, sim.runSteps(0));
+        assertEquals(age + 50, sim.getAge());
+    }
+
+    @Test
+    public void testCancelDuringRunSteps() throws InterruptedException {
+        Simulation sim = createSimulation();
+        int age = sim.getAge();
+
+        sim.addStepListener(simulation -> {
+            if (simulation.getAge() == age + 10)
+                simulation.cancel();
+        });
+
+        assertEquals(10, sim.runSteps(100));
+        assertEquals(age + 10, sim.getAge());
+        assertTrue(sim.isPaused());
+    }
+
+    @Test
+    public void testRunOnDedicatedThread() throws InterruptedException {
+        Simulation sim = createSimulation();
+        int age = sim.getAge();
+
+        CountDownLatch latch = new CountDownLatch(20);
+        sim.addStepListener(simulation -> latch.countDown());
+
+        sim.run(Pacing.UNTHROTTLED);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        sim.cancel();
+        assertTrue(sim.isPaused());
+
+        // no step is executed after cancel() has returned
+        int cancelled = sim.getAge();
+        assertTrue(cancelled >= age + 20);
+        Thread.sleep(50);
+        assertEquals(cancelled, sim.getAge());
+
+        // the runner can be restarted after cancellation
+        assertEquals(5, sim.runSteps(5));
+        assertEquals(cancelled + 5, sim.getAge());
+    }
+
+    @Test
+    public void testPacing() throws InterruptedException {
+        Simulation sim = createSimulation();
+
+        long start = System.nanoTime();
+        assertEquals(10, sim.runSteps(10, Pacing.stepsPerSecond(200)));
+        long elapsed = System.nanoTime() - start;
+
+        // the first step starts immediately, so at least 9 periods of 5ms
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(45));
+    }
+
+
+    private static Simulation createSimulation() throws InterruptedException {
+        SimulationConfig config = new SimulationConfig();
+        AbstractPlusCrossroadScenario.setupConfig(config);
+
+        config.maxVehicleCount = 20;
+
+        // not a queue scenario, which restarts the simulation on its own if it is empty
+        AreaScenario scenario = new RandomRouteScenario(config.seed, config, graph);
+        scenario.redefineMetaRoutes();
+        new VehicleScenarioBuilder(config.seed).prepare(scenario);
+
+        Simulation sim = new VehicleSimulation();
+        sim.setAndInitPreparedScenario(scenario);
+        return sim;
+    }
+}
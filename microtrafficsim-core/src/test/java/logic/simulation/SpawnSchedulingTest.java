@@ -0,0 +1,186 @@
+package logic.simulation;
+
+import logic.crossinglogic.ValidationMaps;
+import microtrafficsim.core.logic.routes.Route;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streetgraph.GraphState;
+import microtrafficsim.core.logic.vehicles.machines.Vehicle;
+import microtrafficsim.core.simulation.builder.impl.VehicleScenarioBuilder;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.simulation.core.MonitoringVehicleSimulation;
+import microtrafficsim.core.simulation.core.Simulation;
+import microtrafficsim.core.simulation.core.VehicleSimulation;
+import microtrafficsim.core.simulation.scenarios.containers.VehicleContainer;
+import microtrafficsim.core.simulation.scenarios.containers.impl.ConcurrentVehicleContainer;
+import microtrafficsim.core.simulation.scenarios.containers.impl.SpawnSchedulingVehicleContainer;
+import microtrafficsim.core.simulation.scenarios.impl.AreaScenario;
+import microtrafficsim.core.simulation.scenarios.impl.RandomRouteScenario;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link SpawnSchedulingVehicleContainer} against the {@link ConcurrentVehicleContainer}, which lets all
+ * not spawned vehicles try to spawn in every step.
+ *
+ * @author agent
+ */
+public class SpawnSchedulingTest {
+    private static final int VEHICLES = 600;
+    private static final int STEPS    = 400;
+    private static final int CHECKS   = 8;
+
+    private static Graph graph;
+
+
+    @BeforeClass
+    public static void setupGraph() throws Exception {
+        graph = ValidationMaps.parseGraph(ValidationMaps.ROUNDABOUT, createConfig());
+    }
+
+
+    @Test
+    public void testEqualToSpawningAll() throws InterruptedException {
+        CountingContainer scheduling = new CountingContainer();
+        Simulation expected = createSimulation(new ConcurrentVehicleContainer());
+        Simulation actual   = createSimulation(scheduling);
+
+        int notSpawned = 0;
+        for (int check = 0; check < CHECKS; check++) {
+            for (int step = 0; step < STEPS / CHECKS; step++) {
+                notSpawned += expected.getScenario().getVehicleContainer().getNotSpawnedCount();
+                expected.runOneStep();
+                actual.runOneStep();
+            }
+
+            assertEquals(describe(expected), describe(actual));
+        }
+
+        assertTrue("No vehicle has arrived", actual.getScenario().getVehicleContainer().getVehicleCount() < VEHICLES);
+        assertTrue("Scheduling did not reduce the spawn attempts: " + scheduling.candidates + " of " + notSpawned,
+                scheduling.candidates < notSpawned / 2);
+    }
+
+
+    @Test
+    public void testMonitoringEqualToSpawningAll() throws InterruptedException {
+        CountingContainer scheduling = new CountingContainer();
+        MonitoringVehicleSimulation expected = new MonitoringVehicleSimulation();
+        MonitoringVehicleSimulation actual   = new MonitoringVehicleSimulation();
+        init(expected, new ConcurrentVehicleContainer(), 10);
+        init(actual, scheduling, 10);
+        assertFalse("No vehicle is monitored", scheduling.getMonitoredVehicles().isEmpty());
+
+        int notSpawned = 0;
+        for (int check = 0; check < CHECKS; check++) {
+            scheduling.fullIterations = 0;
+            for (int step = 0; step < STEPS / CHECKS; step++) {
+                notSpawned += expected.getScenario().getVehicleContainer().getNotSpawnedCount();
+                expected.runOneStep();
+                actual.runOneStep();
+            }
+            assertEquals("Monitoring iterated over all vehicles", 0, scheduling.fullIterations);
+
+            assertEquals(describe(expected), describe(actual));
+        }
+
+        assertTrue("Scheduling did not reduce the spawn attempts: " + scheduling.candidates + " of " + notSpawned,
+                scheduling.candidates < notSpawned / 2);
+
+        for (MonitoringVehicleSimulation.CSVType type : MonitoringVehicleSimulation.CSVType.values()) {
+            List<String> expectedLines = new ArrayList<>();
+            List<String> actualLines   = new ArrayList<>();
+            expected.getCSVIterator(type).forEachRemaining(expectedLines::add);
+            actual.getCSVIterator(type).forEachRemaining(actualLines::add);
+            assertTrue("Nothing has been recorded", expectedLines.size() > 1);
+            assertEquals(expectedLines, actualLines);
+        }
+
+        expected.dispose();
+        actual.dispose();
+    }
+
+
+    private static SimulationConfig createConfig() {
+        SimulationConfig config = new SimulationConfig();
+        config.speedup = Integer.MAX_VALUE;
+        config.seed    = 42;
+        config.maxVehicleCount = VEHICLES;
+        config.multiThreading.nThreads = 1;
+        return config;
+    }
+
+    private static Simulation createSimulation(VehicleContainer container) throws InterruptedException {
+        Simulation simulation = new VehicleSimulation();
+        init(simulation, container, 0);
+        return simulation;
+    }
+
+    /**
+     * @param monitoringPeriod every route with an index divisible by this period is monitored; 0 for none
+     */
+    private static void init(Simulation simulation, VehicleContainer container, int monitoringPeriod)
+            throws InterruptedException {
+        SimulationConfig config = createConfig();
+
+        AreaScenario scenario = new RandomRouteScenario(config.seed, config, graph, container);
+        scenario.redefineMetaRoutes();
+        int i = 0;
+        for (Route route : scenario.getRoutes()) {
+            route.setSpawnDelay((i * 7) % 200);
+            if (monitoringPeriod > 0 && i % monitoringPeriod == 0)
+                route.setMonitored(true);
+            i++;
+        }
+        new VehicleScenarioBuilder(config.seed).prepare(scenario);
+
+        simulation.setAndInitPreparedScenario(scenario);
+    }
+
+    private static List<String> describe(Simulation simulation) {
+        List<String> description = new ArrayList<>();
+        for (Vehicle vehicle : simulation.getScenario().getVehicleContainer())
+            description.add(vehicle.getId() + ": " + vehicle.getState()
+                    + ", lane = " + vehicle.getLane()
+                    + ", cell = " + vehicle.getCellPosition()
+                    + ", v = " + vehicle.getVelocity()
+                    + ", last v zero = " + vehicle.isLastVelocityZero()
+                    + ", travelling time = " + vehicle.getDriver().getTravellingTime()
+                    + ", anger = " + vehicle.getDriver().getAnger()
+                    + ", total anger = " + vehicle.getDriver().getTotalAnger());
+        return description;
+    }
+
+
+    private static class CountingContainer extends SpawnSchedulingVehicleContainer {
+        private int candidates     = 0;
+        private int fullIterations = 0;
+
+        @Override
+        public synchronized Set<Vehicle> getVehicles() {
+            fullIterations++;
+            return super.getVehicles();
+        }
+
+        @Override
+        public synchronized Set<Vehicle> getNotSpawnedVehicles() {
+            fullIterations++;
+            return super.getNotSpawnedVehicles();
+        }
+
+        @Override
+        public synchronized Collection<Vehicle> getSpawnCandidates(GraphState state) {
+            Collection<Vehicle> vehicles = super.getSpawnCandidates(state);
+            candidates += vehicles.size();
+            return vehicles;
+        }
+    }
+}
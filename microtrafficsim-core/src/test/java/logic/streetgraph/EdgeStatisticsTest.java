@@ -0,0 +1,130 @@
+package logic.streetgraph;
+
+import logic.crossinglogic.ValidationMaps;
+import logic.crossinglogic.scenarios.pluscrossroad.AbstractPlusCrossroadScenario;
+import logic.crossinglogic.scenarios.pluscrossroad.FullPlusCrossroadScenario;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.simulation.core.Simulation;
+import microtrafficsim.core.simulation.core.VehicleSimulation;
+import microtrafficsim.core.simulation.core.monitoring.EdgeStatistics;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the aggregation of {@link EdgeStatistics}.
+ *
+ * @author agent
+ */
+public class EdgeStatisticsTest {
+    private static final int STEPS  = 100;
+    private static final int WINDOW = 10;
+
+    private static Graph graph;
+
+
+    @BeforeClass
+    public static void setupGraph() throws Exception {
+        SimulationConfig config = new SimulationConfig();
+        AbstractPlusCrossroadScenario.setupConfig(config);
+
+        graph = ValidationMaps.parseGraph(ValidationMaps.PLUS_CROSSROAD, config);
+    }
+
+
+    @Test
+    public void testWindows() {
+        List<EdgeStatistics.Window> windows = simulate(1);
+        assertEquals(STEPS / WINDOW, windows.size());
+
+        int totalFlow = 0;
+        for (EdgeStatistics.Window window : windows) {
+            assertTrue(window.firstStep > 0);
+            assertEquals(WINDOW, window.steps);
+
+            for (DirectedEdge edge : graph.getEdges()) {
+                int i = edge.getIndex();
+                assertTrue(window.density[i] >= 0 && window.density[i] <= 1);
+
+                if (window.density[i] == 0) {
+                    assertTrue(Float.isNaN(window.meanSpeed[i]));
+                    assertEquals(0, window.flow[i]);
+                } else {
+                    assertTrue(window.meanSpeed[i] >= 0 && window.meanSpeed[i] <= edge.getMaxVelocity());
+                }
+                totalFlow += window.flow[i];
+            }
+        }
+
+        assertTrue("No vehicle has left any edge", totalFlow > 0);
+    }
+
+    @Test
+    public void testIndependentOfThreadCount() {
+        List<EdgeStatistics.Window> single = simulate(1);
+        List<EdgeStatistics.Window> multi  = simulate(4);
+
+        assertEquals(single.size(), multi.size());
+        for (int w = 0; w < single.size(); w++) {
+            assertArrayEquals(single.get(w).flow, multi.get(w).flow);
+            assertArrayEquals(single.get(w).density, multi.get(w).density, 0f);
+            assertArrayEquals(single.get(w).meanSpeed, multi.get(w).meanSpeed, 0f);
+        }
+    }
+
+
+    @Test
+    public void testTerminatedThreads() throws InterruptedException {
+        SimulationConfig config = new SimulationConfig();
+        AbstractPlusCrossroadScenario.setupConfig(config);
+
+        Simulation sim = new VehicleSimulation();
+        sim.setAndInitPreparedScenario(new FullPlusCrossroadScenario(config, graph, null));
+
+        ArrayList<EdgeStatistics.Window> windows = new ArrayList<>();
+        EdgeStatistics statistics = new EdgeStatistics(graph, 1, windows::add);
+        DirectedEdge edge = graph.getEdges().iterator().next();
+
+        // each step is recorded by new threads, the counters of the previous ones are dropped after merging them
+        for (int step = 0; step < 3; step++) {
+            Thread[] threads = new Thread[16];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> statistics.record(edge, 1, true));
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+
+            statistics.didOneStep(sim);
+
+            assertEquals(step + 1, windows.size());
+            assertEquals(threads.length, windows.get(step).flow[edge.getIndex()]);
+            assertEquals(1f, windows.get(step).meanSpeed[edge.getIndex()], 0f);
+        }
+    }
+
+    private static List<EdgeStatistics.Window> simulate(int nThreads) {
+        SimulationConfig config = new SimulationConfig();
+        AbstractPlusCrossroadScenario.setupConfig(config);
+        config.multiThreading.nThreads = nThreads;
+
+        Simulation sim = new VehicleSimulation();
+        sim.setAndInitPreparedScenario(new FullPlusCrossroadScenario(config, graph, null));
+
+        ArrayList<EdgeStatistics.Window> windows = new ArrayList<>();
+        new EdgeStatistics(graph, WINDOW, windows::add).attach(sim);
+
+        for (int step = 0; step < STEPS; step++)
+            sim.runOneStep();
+
+        return windows;
+    }
+}
@@ -0,0 +1,113 @@
+package logic.streetgraph;
+
+import logic.crossinglogic.ValidationMaps;
+import logic.crossinglogic.scenarios.pluscrossroad.AbstractPlusCrossroadScenario;
+import logic.crossinglogic.scenarios.pluscrossroad.FullPlusCrossroadScenario;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streetgraph.GraphState;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.logic.vehicles.machines.Vehicle;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.simulation.core.Simulation;
+import microtrafficsim.core.simulation.core.VehicleSimulation;
+import microtrafficsim.core.simulation.scenarios.Scenario;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests running multiple scenarios on one shared graph, each using its own {@link GraphState}.
+ *
+ * @author agent
+ */
+public class GraphStateTest {
+    private static final int STEPS = 100;
+
+    private static SimulationConfig config;
+    private static Graph graph;
+
+
+    @BeforeClass
+    public static void setupGraph() throws Exception {
+        config = new SimulationConfig();
+        AbstractPlusCrossroadScenario.setupConfig(config);
+
+        graph = ValidationMaps.parseGraph(ValidationMaps.PLUS_CROSSROAD, config);
+    }
+
+
+    @Test
+    public void testScenariosOnSharedGraphAreIsolated() {
+        Scenario first  = new FullPlusCrossroadScenario(config, graph, null);
+        Scenario second = new FullPlusCrossroadScenario(config, graph, null);
+        assertNotSame(first.getGraphState(), second.getGraphState());
+
+        Simulation sim1 = new VehicleSimulation();
+        Simulation sim2 = new VehicleSimulation();
+        sim1.setAndInitPreparedScenario(first);
+        sim2.setAndInitPreparedScenario(second);
+
+        boolean anySpawned = false;
+        for (int step = 0; step < STEPS; step++) {
+            sim1.runOneStep();
+            sim2.runOneStep();
+
+            // same seed => same behaviour, as long as the scenarios don't see each other's vehicles
+            assertEquals("Step " + step, stamps(first), stamps(second));
+
+            assertEquals(first.getVehicleContainer().getSpawnedCount(), countVehiclesOnLanes(first.getGraphState()));
+            assertEquals(second.getVehicleContainer().getSpawnedCount(), countVehiclesOnLanes(second.getGraphState()));
+            anySpawned |= first.getVehicleContainer().getSpawnedCount() > 0;
+        }
+
+        assertTrue("No vehicle has been spawned", anySpawned);
+    }
+
+    @Test
+    public void testResetClearsState() {
+        Scenario scenario = new FullPlusCrossroadScenario(config, graph, null);
+
+        Simulation sim = new VehicleSimulation();
+        sim.setAndInitPreparedScenario(scenario);
+        for (int step = 0; step < STEPS / 4; step++)
+            sim.runOneStep();
+
+        GraphState state = scenario.getGraphState();
+        assertTrue(!state.getActiveNodes().isEmpty());
+
+        state.reset();
+        assertTrue(state.getActiveNodes().isEmpty());
+        assertEquals(0, countVehiclesOnLanes(state));
+    }
+
+
+    private static int countVehiclesOnLanes(GraphState state) {
+        int count = 0;
+        for (DirectedEdge edge : graph.getEdges())
+            count += edge.getVehicleCount(state);
+        return count;
+    }
+
+    private static List<String> stamps(Scenario scenario) {
+        ArrayList<String> stamps = new ArrayList<>();
+        for (Vehicle vehicle : scenario.getVehicleContainer()) {
+            StringBuilder stamp = new StringBuilder()
+                    .append(vehicle.getId()).append(' ')
+                    .append(vehicle.getState()).append(' ')
+                    .append(vehicle.getCellPosition()).append(' ')
+                    .append(vehicle.getVelocity());
+            if (vehicle.getLane() != null)
+                stamp.append(' ').append(vehicle.getLane().getEdge().getId())
+                        .append('/').append(vehicle.getLane().getIndex());
+            stamps.add(stamp.toString());
+        }
+        stamps.sort(String::compareTo);
+        return stamps;
+    }
+}
@@ -0,0 +1,129 @@
+package logic.streetgraph;
+
+import logic.crossinglogic.ValidationMaps;
+import logic.crossinglogic.scenarios.pluscrossroad.AbstractPlusCrossroadScenario;
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streetgraph.StreetGraphUpdater;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.osm.parser.base.ChangeSet;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link StreetGraphUpdater} by applying changes to a parsed graph and comparing the result to the graph
+ * parsed from scratch with the same changes.
+ *
+ * @author agent
+ */
+public class StreetGraphUpdaterTest {
+
+    private static SimulationConfig config;
+    private static ChangeSet changes;
+
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        config = new SimulationConfig();
+        AbstractPlusCrossroadScenario.setupConfig(config);
+
+        changes = ChangeSet.load(ValidationMaps.getFile(ValidationMaps.PLUS_CROSSROAD_CHANGES));
+    }
+
+
+    @Test
+    public void testUpdateEqualsParsedFromScratch() throws Exception {
+        Graph live     = ValidationMaps.parseGraph(ValidationMaps.PLUS_CROSSROAD, config);
+        Graph updated  = ValidationMaps.parse(ValidationMaps.PLUS_CROSSROAD, changes, config).streetgraph;
+        Graph expected = ValidationMaps.parse(ValidationMaps.PLUS_CROSSROAD, changes, config).streetgraph;
+
+        List<Node>         nodes = new ArrayList<>(live.getNodes());
+        List<DirectedEdge> edges = new ArrayList<>(live.getEdges());
+        assertNotEquals(describe(expected), describe(live));
+
+        StreetGraphUpdater.Result result = new StreetGraphUpdater(config).update(live, updated);
+        assertTrue(result.hasChanges());
+
+        assertEquals(describe(expected), describe(live));
+        assertEquals(expected.getGUID(), live.getGUID());
+
+        // untouched nodes and edges are kept
+        for (Node node : nodes)
+            if (!result.getRemovedNodes().contains(node))
+                assertSame(node, live.getNodeMap().get(node.key()));
+
+        for (DirectedEdge edge : edges)
+            if (!result.getRemovedEdges().contains(edge))
+                assertSame(edge, live.getEdgeMap().get(edge.key()));
+
+        // both directions of the deleted street, the modified street and the street of the moved node are replaced,
+        // the created street is a one-way street
+        assertEquals(6, result.getRemovedEdges().size());
+        assertEquals(5, result.getAddedEdges().size());
+        assertEquals(2, result.getRemovedNodes().size());
+        assertEquals(2, result.getAddedNodes().size());
+    }
+
+    @Test
+    public void testUpdateWithoutChanges() throws Exception {
+        Graph live    = ValidationMaps.parseGraph(ValidationMaps.PLUS_CROSSROAD, config);
+        Graph updated = ValidationMaps.parseGraph(ValidationMaps.PLUS_CROSSROAD, config);
+        String before = describe(live);
+
+        StreetGraphUpdater.Result result = new StreetGraphUpdater(config).update(live, updated);
+
+        assertFalse(result.hasChanges());
+        assertNull(result.getBounds());
+        assertEquals(before, describe(live));
+    }
+
+
+    /**
+     * Describes nodes, edges and connectors of the given graph by their keys, so the descriptions of structurally
+     * equal graphs are equal.
+     */
+    private static String describe(Graph graph) {
+        StringBuilder builder = new StringBuilder();
+
+        for (Node node : graph.getNodes()) {
+            builder.append(node).append('\n');
+            for (DirectedEdge edge : node.getLeavingEdges())
+                builder.append("  leaving ").append(edge.key()).append('\n');
+            for (DirectedEdge edge : node.getIncomingEdges())
+                builder.append("  incoming ").append(edge.key()).append('\n');
+
+            for (Map.Entry<DirectedEdge.Lane, TreeMap<DirectedEdge, DirectedEdge.Lane>> connector
+                    : node.getConnectors().entrySet())
+                for (DirectedEdge.Lane to : connector.getValue().values())
+                    builder.append("  connector ").append(describe(connector.getKey()))
+                            .append(" -> ").append(describe(to)).append('\n');
+        }
+
+        for (DirectedEdge edge : graph.getEdges())
+            builder.append(edge.key())
+                    .append(": ").append(edge.getOrigin().getId())
+                    .append(" -> ").append(edge.getDestination().getId())
+                    .append(", indexed = ").append(edge.getIndex() >= 0)
+                    .append(", lanes = ").append(edge.getNumberOfLanes())
+                    .append(", length = ").append(edge.getLengthInMeter())
+                    .append(", v = ").append(edge.getRawMaxVelocity())
+                    .append(", type = ").append(edge.getStreetType())
+                    .append(", entity = ").append(edge.getEntity() != null)
+                    .append('\n');
+
+        return builder.toString();
+    }
+
+    private static String describe(DirectedEdge.Lane lane) {
+        return lane.getEdge().key() + "[" + lane.getIndex() + "]";
+    }
+}
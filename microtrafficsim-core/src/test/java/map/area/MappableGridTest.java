@@ -0,0 +1,144 @@
+package map.area;
+
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streetgraph.StreetGraph;
+import microtrafficsim.core.map.Bounds;
+import microtrafficsim.core.map.Coordinate;
+import microtrafficsim.core.map.area.MappableGrid;
+import microtrafficsim.core.map.area.polygons.TypedPolygonArea;
+import microtrafficsim.core.simulation.configs.CrossingLogicConfig;
+import microtrafficsim.core.simulation.scenarios.impl.AreaScenario.AreaNodeContainer;
+import microtrafficsim.core.simulation.scenarios.impl.AreaScenario.MonitoredNode;
+import microtrafficsim.core.vis.scenario.areas.Area;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link MappableGrid} and the incremental node assignment of the {@link AreaNodeContainer} against a
+ * brute-force point-in-polygon test over all nodes.
+ *
+ * @author agent
+ */
+public class MappableGridTest {
+    private static final Bounds BOUNDS = new Bounds(48.70, 9.10, 48.80, 9.20);
+    private static final int NODE_COUNT = 10000;
+
+    private Random random;
+    private StreetGraph graph;
+
+
+    @Before
+    public void init() {
+        random = new Random(42);
+        graph = new StreetGraph(BOUNDS);
+
+        CrossingLogicConfig config = new CrossingLogicConfig();
+        for (int i = 0; i < NODE_COUNT; i++)
+            graph.addNode(new Node(i, randomCoordinate(), config));
+    }
+
+
+    @Test
+    public void testQuery() {
+        MappableGrid<Node> grid = new MappableGrid<>(graph.getNodes());
+        assertEquals(NODE_COUNT, grid.size());
+
+        for (int k = 0; k < 50; k++) {
+            TypedPolygonArea area = randomArea(Area.Type.ORIGIN, false);
+
+            List<Node> result = grid.query(area, area.getBounds());
+            assertEquals(bruteForce(area), new HashSet<>(result));
+            assertEquals(result.size(), new HashSet<>(result).size());
+        }
+
+        // bounds only
+        Bounds query = new Bounds(48.72, 9.12, 48.75, 9.19);
+        HashSet<Node> expected = new HashSet<>();
+        for (Node node : graph.getNodes()) {
+            Coordinate c = node.getCoordinate();
+            if (c.lat >= query.minlat && c.lat <= query.maxlat && c.lon >= query.minlon && c.lon <= query.maxlon)
+                expected.add(node);
+        }
+        assertEquals(expected, new HashSet<>(grid.query(query)));
+    }
+
+    @Test
+    public void testIncrementalAssignment() {
+        AreaNodeContainer container = new AreaNodeContainer(42);
+        ArrayList<TypedPolygonArea> areas = new ArrayList<>();
+
+        for (int round = 0; round < 10; round++) {
+            // add some areas, remove some others
+            for (int k = 0; k < 3; k++) {
+                TypedPolygonArea area = randomArea(random.nextBoolean() ? Area.Type.ORIGIN : Area.Type.DESTINATION,
+                        random.nextBoolean());
+                container.addArea(area);
+                areas.add(area);
+            }
+            if (round % 2 == 1) {
+                TypedPolygonArea removed = areas.remove(random.nextInt(areas.size()));
+                container.removeArea(removed);
+            }
+
+            container.refillNodeLists(graph);
+
+            for (TypedPolygonArea area : container.getAreas()) {
+                List<MonitoredNode> nodes = container.getNodes(area);
+                HashSet<Node> actual = nodes.stream()
+                        .map(MonitoredNode::getNode)
+                        .collect(Collectors.toCollection(HashSet::new));
+                assertEquals(bruteForce(area), actual);
+
+                for (MonitoredNode node : nodes) {
+                    boolean monitored = container.getAreas().stream()
+                            .anyMatch(a -> a.isMonitored() && a.contains(node.getNode()));
+                    assertEquals(monitored, node.isMonitored());
+                }
+            }
+        }
+
+        assertTrue(container.getRdmOriginNode(false) != null);
+        assertTrue(container.getRdmDestNode(false) != null);
+    }
+
+
+    private HashSet<Node> bruteForce(TypedPolygonArea area) {
+        HashSet<Node> expected = new HashSet<>();
+        for (Node node : graph.getNodes())
+            if (area.contains(node))
+                expected.add(node);
+        return expected;
+    }
+
+    private Coordinate randomCoordinate() {
+        return new Coordinate(
+                BOUNDS.minlat + random.nextDouble() * (BOUNDS.maxlat - BOUNDS.minlat),
+                BOUNDS.minlon + random.nextDouble() * (BOUNDS.maxlon - BOUNDS.minlon));
+    }
+
+    /**
+     * @return a random star-shaped polygon
+     */
+    private TypedPolygonArea randomArea(Area.Type type, boolean monitored) {
+        Coordinate center = randomCoordinate();
+        int n = 3 + random.nextInt(20);
+
+        Coordinate[] outline = new Coordinate[n];
+        for (int i = 0; i < n; i++) {
+            double phi = 2 * Math.PI * i / n;
+            double r = 0.002 + random.nextDouble() * 0.03;
+            outline[i] = new Coordinate(center.lat + r * Math.sin(phi), center.lon + r * Math.cos(phi));
+        }
+
+        return new TypedPolygonArea(outline, type, monitored);
+    }
+}
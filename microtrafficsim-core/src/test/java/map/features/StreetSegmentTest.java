@@ -0,0 +1,42 @@
+package map.features;
+
+import microtrafficsim.core.map.Coordinate;
+import microtrafficsim.core.map.features.Street;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests the segment lookup of {@link Street}.
+ *
+ * @author agent
+ */
+public class StreetSegmentTest {
+
+    @Test
+    public void testSegmentMatchesLinearScan() {
+        double[] distances = {3.0, 0.5, 7.25, 1.0, 4.0};
+        Coordinate[] coords = new Coordinate[distances.length + 1];
+        for (int i = 0; i < coords.length; i++)
+            coords[i] = new Coordinate(i, i);
+
+        Street street = new Street(0, coords, 0.0, 15.75, distances, 1, 1);
+
+        for (double pos = -1.0; pos < 17.0; pos += 0.125)
+            assertEquals("position " + pos, linear(distances, pos), street.getSegment(pos));
+
+        double[] offsets = street.getOffsets();
+        assertEquals(0.0, offsets[0], 0.0);
+        assertEquals(15.75, offsets[offsets.length - 1], 1e-12);
+    }
+
+    private static int linear(double[] distances, double pos) {
+        double d = 0.0;
+        for (int i = 0; i < distances.length; i++) {
+            d += distances[i];
+            if (d > pos) return i;
+        }
+        return distances.length - 1;
+    }
+}
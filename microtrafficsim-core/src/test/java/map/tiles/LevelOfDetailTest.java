@@ -0,0 +1,159 @@
+package map.tiles;
+
+import microtrafficsim.core.map.Bounds;
+import microtrafficsim.core.map.Coordinate;
+import microtrafficsim.core.map.Feature;
+import microtrafficsim.core.map.MapProperties;
+import microtrafficsim.core.map.MapSegment;
+import microtrafficsim.core.map.TileFeature;
+import microtrafficsim.core.map.features.Polygon;
+import microtrafficsim.core.map.features.Street;
+import microtrafficsim.core.map.tiles.LevelOfDetail;
+import microtrafficsim.core.map.tiles.QuadTreeTiledMapSegment;
+import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
+import microtrafficsim.core.map.tiles.TileId;
+import microtrafficsim.core.vis.map.projections.MercatorProjection;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the zoom-dependent geometry simplification of {@link LevelOfDetail}.
+ *
+ * @author agent
+ */
+public class LevelOfDetailTest {
+
+    private static final int GRID_LEVEL = 12;
+
+
+    /**
+     * Tests that the Douglas-Peucker simplification keeps the end-points and stays within the given tolerance.
+     */
+    @Test
+    public void testSimplify() {
+        Random random = new Random(42);
+
+        int n = 1000;
+        double[] xy = new double[n * 2];
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            xy[2 * i] = i;
+            xy[2 * i + 1] = Math.sin(i * 0.01) * 100.0 + random.nextDouble();
+            indices[i] = i;
+        }
+
+        double tolerance = 2.0;
+        int[] simplified = LevelOfDetail.simplify(xy, indices, tolerance);
+
+        assertTrue(simplified.length < n / 10);
+        assertEquals(0, simplified[0]);
+        assertEquals(n - 1, simplified[simplified.length - 1]);
+
+        // each removed point lies within the tolerance of its replacing segment
+        for (int k = 0; k < simplified.length - 1; k++) {
+            int a = simplified[k];
+            int b = simplified[k + 1];
+
+            double dx = xy[2 * b] - xy[2 * a];
+            double dy = xy[2 * b + 1] - xy[2 * a + 1];
+            double len = Math.sqrt(dx * dx + dy * dy);
+
+            for (int i = a + 1; i < b; i++) {
+                double d = Math.abs(dx * (xy[2 * a + 1] - xy[2 * i + 1]) - dy * (xy[2 * a] - xy[2 * i])) / len;
+                assertTrue(d <= tolerance);
+            }
+        }
+
+        // nothing to simplify
+        assertSame(indices, LevelOfDetail.simplify(xy, indices, 0.0));
+    }
+
+    /**
+     * Tests that tiles are served from the matching zoom band.
+     */
+    @Test
+    public void testBands() throws InterruptedException {
+        Bounds bounds = new Bounds(48.70, 9.10, 48.80, 9.20);
+
+        // a wiggly street across the segment
+        int n = 2000;
+        Coordinate[] coords = new Coordinate[n];
+        double[] distances = new double[n - 1];
+        for (int i = 0; i < n; i++) {
+            double lon = bounds.minlon + (bounds.maxlon - bounds.minlon) * i / (n - 1);
+            double lat = 48.75 + Math.sin(i * 0.05) * 0.0005;
+            coords[i] = new Coordinate(lat, lon);
+            if (i > 0) distances[i - 1] = 1.0 + i % 3;
+        }
+        double length = 0.0;
+        for (double d : distances)
+            length += d;
+
+        Street street = new Street(1, coords, 0.0, length, distances, 1, 1);
+
+        // a tiny building
+        Polygon building = new Polygon(2, new Coordinate[] {
+                new Coordinate(48.7500, 9.1500), new Coordinate(48.7500, 9.1501),
+                new Coordinate(48.7501, 9.1501), new Coordinate(48.7501, 9.1500),
+                new Coordinate(48.7500, 9.1500),
+        });
+
+        HashMap<String, Feature<?>> features = new HashMap<>();
+        features.put("streets", new Feature<>("streets", Street.class, new Street[] { street }));
+        features.put("buildings", new Feature<>("buildings", Polygon.class, new Polygon[] { building }));
+        MapSegment segment = new MapSegment(new MapProperties(true), bounds, features);
+
+        QuadTreeTilingScheme scheme = new QuadTreeTilingScheme(new MercatorProjection());
+        QuadTreeTiledMapSegment tiled = new QuadTreeTiledMapSegment.Generator().generate(segment, scheme, GRID_LEVEL);
+        assertEquals(GRID_LEVEL / 2, tiled.getLevelOfDetail().getBandCount());
+
+        // full detail at the leaf level
+        TileId leaf = scheme.getTile(street.coordinates[n / 2], GRID_LEVEL);
+        TileFeature<Street> full = tiled.require("streets", leaf);
+        assertEquals(1, full.getData().length);
+        assertSame(street, full.getData()[0]);
+
+        // simplified below the leaf level
+        int previous = n;
+        for (int zoom = GRID_LEVEL - 1; zoom >= 8; zoom--) {
+            TileId tile = scheme.getTile(street.coordinates[n / 2], zoom);
+
+            TileFeature<Street> streets = tiled.require("streets", tile);
+            assertEquals(1, streets.getData().length);
+
+            Street simplified = streets.getData()[0];
+            assertTrue(simplified.coordinates.length <= previous);
+            assertSame(street.coordinates[0], simplified.coordinates[0]);
+            assertSame(street.coordinates[n - 1], simplified.coordinates[simplified.coordinates.length - 1]);
+            assertEquals(simplified.coordinates.length - 1, simplified.distances.length);
+            assertEquals(street.length, simplified.length, 0.0);
+
+            double sum = 0.0;
+            for (double d : simplified.distances)
+                sum += d;
+            assertEquals(street.length, sum, 1e-9);
+
+            previous = simplified.coordinates.length;
+        }
+        assertTrue(previous < n);
+
+        // small features are dropped
+        assertEquals(1, tiled.require("buildings", scheme.getTile(building.outline[0], GRID_LEVEL)).getData().length);
+        assertEquals(0, tiled.require("buildings", scheme.getTile(building.outline[0], 8)).getData().length);
+
+        // disabled simplification
+        QuadTreeTiledMapSegment.Generator generator = new QuadTreeTiledMapSegment.Generator();
+        generator.setLevelOfDetail(null);
+        QuadTreeTiledMapSegment plain = generator.generate(segment, scheme, GRID_LEVEL);
+        assertNull(plain.getLevelOfDetail());
+        assertSame(street, plain.require("streets", scheme.getTile(street.coordinates[n / 2], 8)).getData()[0]);
+    }
+}
@@ -0,0 +1,146 @@
+package map.tiles;
+
+import microtrafficsim.core.map.Bounds;
+import microtrafficsim.core.map.Coordinate;
+import microtrafficsim.core.map.Feature;
+import microtrafficsim.core.map.MapProperties;
+import microtrafficsim.core.map.MapSegment;
+import microtrafficsim.core.map.features.MultiLine;
+import microtrafficsim.core.map.tiles.*;
+import microtrafficsim.core.vis.map.projections.MercatorProjection;
+import microtrafficsim.utils.collections.Grid;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+
+/**
+ * Test for the (parallel) {@code QuadTreeTiledMapSegment.Generator}.
+ *
+ * @author agent
+ */
+public class QuadTreeTiledMapSegmentGeneratorTest {
+
+    private static final int GRID_LEVEL = 14;
+    private static final int NUM_LINES  = 10000;
+
+
+    /**
+     * Tests the generated leaf tiles against a brute-force intersection of all features with each tile.
+     */
+    @Test
+    public void testGenerateMatchesBruteForce() throws InterruptedException {
+        Bounds bounds = new Bounds(48.70, 9.10, 48.80, 9.20);
+        MultiLine[] lines = generateLines(bounds, new Random(42), 0, NUM_LINES);
+
+        QuadTreeTilingScheme scheme = new QuadTreeTilingScheme(new MercatorProjection());
+        QuadTreeTiledMapSegment tiled = new QuadTreeTiledMapSegment.Generator()
+                .generate(segment(bounds, lines), scheme, GRID_LEVEL);
+
+        assertMatchesBruteForce(tiled, scheme, lines);
+    }
+
+    /**
+     * Tests the incrementally updated leaf tiles against a brute-force intersection of all features with each tile.
+     */
+    @Test
+    public void testUpdateMatchesBruteForce() throws InterruptedException {
+        Bounds bounds = new Bounds(48.70, 9.10, 48.80, 9.20);
+        Random random = new Random(42);
+        MultiLine[] lines = generateLines(bounds, random, 0, NUM_LINES);
+
+        QuadTreeTilingScheme scheme = new QuadTreeTilingScheme(new MercatorProjection());
+        QuadTreeTiledMapSegment.Generator generator = new QuadTreeTiledMapSegment.Generator();
+        QuadTreeTiledMapSegment tiled = generator.generate(segment(bounds, lines), scheme, GRID_LEVEL);
+
+        // remove the first 100 lines, replace the next 100 lines, add 100 new lines
+        MultiLine[] replaced = generateLines(bounds, random, NUM_LINES, 200);
+        MultiLine[] updated = new MultiLine[NUM_LINES];
+        System.arraycopy(replaced, 0, updated, 0, 200);
+        System.arraycopy(lines, 200, updated, 200, NUM_LINES - 200);
+
+        QuadTreeTiledMapSegment result = generator.update(tiled, segment(bounds, updated));
+        assertMatchesBruteForce(result, scheme, updated);
+    }
+
+
+    /**
+     * Tests an update changing only a few tiles, i.e. the tiles not affected by the update have to be remapped onto
+     * the updated feature array.
+     */
+    @Test
+    public void testSmallUpdateMatchesBruteForce() throws InterruptedException {
+        Bounds bounds = new Bounds(48.70, 9.10, 48.80, 9.20);
+        Random random = new Random(42);
+        MultiLine[] lines = generateLines(bounds, random, 0, 500);
+
+        QuadTreeTilingScheme scheme = new QuadTreeTilingScheme(new MercatorProjection());
+        QuadTreeTiledMapSegment.Generator generator = new QuadTreeTiledMapSegment.Generator();
+        QuadTreeTiledMapSegment tiled = generator.generate(segment(bounds, lines), scheme, GRID_LEVEL + 2);
+
+        // remove the first line, shifting the indices of all other lines, and replace the last one
+        MultiLine[] updated = new MultiLine[lines.length - 1];
+        System.arraycopy(lines, 1, updated, 0, lines.length - 2);
+        updated[updated.length - 1] = generateLines(bounds, random, lines.length, 1)[0];
+
+        QuadTreeTiledMapSegment result = generator.update(tiled, segment(bounds, updated));
+        assertMatchesBruteForce(result, scheme, updated);
+    }
+
+    private static MultiLine[] generateLines(Bounds bounds, Random random, long offset, int n) {
+        MultiLine[] lines = new MultiLine[n];
+        for (int i = 0; i < lines.length; i++) {
+            double lat = bounds.minlat + random.nextDouble() * (bounds.maxlat - bounds.minlat);
+            double lon = bounds.minlon + random.nextDouble() * (bounds.maxlon - bounds.minlon);
+
+            Coordinate[] coords = new Coordinate[2 + random.nextInt(3)];
+            for (int j = 0; j < coords.length; j++) {
+                coords[j] = new Coordinate(lat, lon);
+                lat = Math.min(bounds.maxlat, Math.max(bounds.minlat, lat + (random.nextDouble() - 0.5) * 0.01));
+                lon = Math.min(bounds.maxlon, Math.max(bounds.minlon, lon + (random.nextDouble() - 0.5) * 0.01));
+            }
+
+            lines[i] = new MultiLine(offset + i, coords);
+        }
+
+        return lines;
+    }
+
+    private static MapSegment segment(Bounds bounds, MultiLine[] lines) {
+        HashMap<String, Feature<?>> features = new HashMap<>();
+        features.put("lines", new Feature<>("lines", MultiLine.class, lines));
+        return new MapSegment(new MapProperties(true), bounds, features);
+    }
+
+    private static void assertMatchesBruteForce(QuadTreeTiledMapSegment tiled, QuadTreeTilingScheme scheme,
+                                                MultiLine[] lines) {
+        TileRect leafs = tiled.getLeafTiles();
+        Grid<? extends List<?>> grid = tiled.getFeatureSet().get("lines").getData();
+
+        assertEquals(leafs.xmax - leafs.xmin + 1, grid.getSizeX());
+        assertEquals(leafs.ymax - leafs.ymin + 1, grid.getSizeY());
+
+        // all tiles index the same feature array
+        Object[] features = ((FeatureIndexList<?>) grid.get(0, 0)).getFeatures();
+
+        for (int y = 0; y < grid.getSizeY(); y++) {
+            for (int x = 0; x < grid.getSizeX(); x++) {
+                ArrayList<MultiLine> expected = new ArrayList<>();
+                for (MultiLine line : lines) {
+                    if (TileIntersectors.intersect(line,
+                            scheme.getBounds(leafs.xmin + x, leafs.ymin + y, leafs.zoom), scheme.getProjection()))
+                        expected.add(line);
+                }
+
+                assertSame(features, ((FeatureIndexList<?>) grid.get(x, y)).getFeatures());
+                assertEquals(expected, grid.get(x, y));
+            }
+        }
+    }
+}
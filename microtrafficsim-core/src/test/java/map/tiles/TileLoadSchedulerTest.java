@@ -0,0 +1,233 @@
+package map.tiles;
+
+import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
+import microtrafficsim.core.map.tiles.TileId;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.map.tiles.TilingScheme;
+import microtrafficsim.core.vis.map.projections.MercatorProjection;
+import microtrafficsim.core.vis.map.tiles.TileLoadScheduler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests ordering, de-duplication (also across zoom-levels), retention and bounded concurrency of the
+ * {@link TileLoadScheduler}.
+ *
+ * @author agent
+ */
+public class TileLoadSchedulerTest {
+
+    private static final TilingScheme SCHEME = new QuadTreeTilingScheme(new MercatorProjection());
+
+    private ExecutorService executor;
+
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+
+    @Test
+    public void testPriority() throws Exception {
+        TileLoadScheduler<TileId> scheduler = new TileLoadScheduler<>(executor, 1);
+        scheduler.setFocus(SCHEME, new TileRect(4, 4, 4, 4, 3));
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        List<TileId> order = Collections.synchronizedList(new ArrayList<>());
+
+        // occupy the single slot so that all following requests are queued
+        scheduler.request(new TileId(0, 0, 0), () -> {
+            blocker.await();
+            return null;
+        });
+
+        // the coarse tile does not overlap the other tiles, so it does not supersede them
+        TileId[] tiles = {
+                new TileId(7, 7, 3),
+                new TileId(5, 4, 3),
+                new TileId(4, 4, 3),
+                new TileId(1, 1, 2),
+                new TileId(6, 4, 3),
+        };
+
+        ArrayList<Future<TileId>> futures = new ArrayList<>();
+        for (TileId id : tiles)
+            futures.add(scheduler.request(id, () -> {
+                order.add(id);
+                return id;
+            }));
+
+        assertEquals(tiles.length, scheduler.getStatistics().getQueueDepth());
+
+        blocker.countDown();
+        for (Future<TileId> future : futures)
+            future.get(10, TimeUnit.SECONDS);
+
+        // coarse tiles first, then by distance to the focus
+        assertEquals(new TileId(1, 1, 2), order.get(0));
+        assertEquals(new TileId(4, 4, 3), order.get(1));
+        assertEquals(new TileId(5, 4, 3), order.get(2));
+        assertEquals(new TileId(6, 4, 3), order.get(3));
+        assertEquals(new TileId(7, 7, 3), order.get(4));
+    }
+
+    @Test
+    public void testDeduplication() throws Exception {
+        TileLoadScheduler<TileId> scheduler = new TileLoadScheduler<>(executor, 1);
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger(0);
+        TileId id = new TileId(1, 1, 1);
+
+        Future<TileId> a = scheduler.request(id, () -> {
+            loads.incrementAndGet();
+            blocker.await();
+            return id;
+        });
+        Future<TileId> b = scheduler.request(id, () -> {
+            loads.incrementAndGet();
+            return id;
+        });
+
+        assertSame(a, b);
+        blocker.countDown();
+        assertEquals(id, a.get(10, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(1, scheduler.getStatistics().getCoalesced());
+    }
+
+    @Test
+    public void testSupersede() throws Exception {
+        TileLoadScheduler<TileId> scheduler = new TileLoadScheduler<>(executor, 1);
+        scheduler.setFocus(SCHEME, new TileRect(4, 4, 4, 4, 3));
+
+        // running requests are not superseded
+        CountDownLatch blocker = new CountDownLatch(1);
+        scheduler.request(new TileId(0, 0, 0), () -> {
+            blocker.await();
+            return null;
+        });
+
+        TileId c1 = new TileId(4, 4, 3);
+        TileId c2 = new TileId(5, 5, 3);
+        TileId other = new TileId(0, 0, 3);
+        Future<TileId> a = scheduler.request(c1, () -> c1);
+        scheduler.request(c2, () -> c2);
+        scheduler.request(other, () -> other);
+
+        // requesting the parent supersedes its queued children
+        TileId parent = new TileId(2, 2, 2);
+        Future<TileId> p = scheduler.request(parent, () -> parent);
+
+        TileLoadScheduler.Statistics stats = scheduler.getStatistics();
+        assertEquals(2, stats.getSuperseded());
+        assertEquals(2, stats.getQueueDepth());
+        assertEquals(2, stats.getRetained());
+
+        // requesting a child again re-uses the retained request and supersedes the parent
+        assertSame(a, scheduler.request(c1, () -> c1));
+
+        stats = scheduler.getStatistics();
+        assertEquals(3, stats.getSuperseded());
+        assertEquals(2, stats.getQueueDepth());
+        assertEquals(2, stats.getRetained());
+
+        blocker.countDown();
+        assertEquals(c1, a.get(10, TimeUnit.SECONDS));
+        assertFalse(p.isDone());
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+        int retention = 3;
+        TileLoadScheduler<TileId> scheduler = new TileLoadScheduler<>(executor, 1, retention);
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        scheduler.request(new TileId(0, 0, 0), () -> {
+            blocker.await();
+            return null;
+        });
+
+        // discarded requests are re-used if requested again in time
+        TileId id = new TileId(1, 1, 1);
+        Future<TileId> a = scheduler.request(id, () -> id);
+        scheduler.discard(a);
+        assertEquals(0, scheduler.getStatistics().getQueueDepth());
+        assertEquals(1, scheduler.getStatistics().getRetained());
+
+        scheduler.setFocus(SCHEME, null);
+        assertSame(a, scheduler.request(id, () -> id));
+        assertEquals(1, scheduler.getStatistics().getQueueDepth());
+
+        // otherwise they are cancelled and can be collected
+        scheduler.discard(a);
+        for (int i = 0; i <= retention; i++)
+            scheduler.setFocus(SCHEME, null);
+
+        ArrayList<Future<TileId>> collected = new ArrayList<>();
+        assertEquals(1, scheduler.collect(collected));
+        assertSame(a, collected.get(0));
+        assertTrue(a.isCancelled());
+
+        blocker.countDown();
+    }
+
+    @Test
+    public void testBoundedConcurrency() throws Exception {
+        int limit = 2;
+        TileLoadScheduler<TileId> scheduler = new TileLoadScheduler<>(executor, limit);
+
+        AtomicInteger current = new AtomicInteger(0);
+        AtomicInteger max = new AtomicInteger(0);
+
+        ArrayList<Future<TileId>> futures = new ArrayList<>();
+        for (int x = 0; x < 16; x++) {
+            TileId id = new TileId(x, 0, 4);
+            futures.add(scheduler.request(id, () -> {
+                max.accumulateAndGet(current.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                current.decrementAndGet();
+                return id;
+            }));
+        }
+
+        for (Future<TileId> future : futures)
+            future.get(10, TimeUnit.SECONDS);
+
+        // wait for the bookkeeping of the last requests
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(max.get() <= limit);
+
+        TileLoadScheduler.Statistics stats = scheduler.getStatistics();
+        assertEquals(16, stats.getSubmitted());
+        assertEquals(16, stats.getCompleted());
+        assertEquals(0, stats.getQueueDepth());
+        assertTrue(stats.getMaxLatency() >= stats.getMeanLatency());
+    }
+}
@@ -0,0 +1,131 @@
+package map.tiles;
+
+import logic.crossinglogic.ValidationMaps;
+import microtrafficsim.core.map.TileFeatureProvider;
+import microtrafficsim.core.map.features.Street;
+import microtrafficsim.core.map.layers.LayerDefinition;
+import microtrafficsim.core.map.style.StyleSheet;
+import microtrafficsim.core.map.style.impl.LightStyleSheet;
+import microtrafficsim.core.map.tiles.QuadTreeTiledMapSegment;
+import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
+import microtrafficsim.core.map.tiles.TileId;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.map.tiles.TilingScheme;
+import microtrafficsim.core.parser.OSMParser;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.vis.map.projections.MercatorProjection;
+import microtrafficsim.core.vis.map.tiles.layers.FeatureTileLayerGenerator;
+import microtrafficsim.core.vis.map.tiles.layers.FeatureTileLayerSource;
+import microtrafficsim.core.vis.map.tiles.mesh.FeatureMeshGenerator;
+import microtrafficsim.core.vis.map.tiles.mesh.PolygonMeshGenerator;
+import microtrafficsim.core.vis.map.tiles.mesh.StreetMeshGenerator;
+import microtrafficsim.core.vis.map.tiles.mesh.TileMeshBaker;
+import microtrafficsim.core.vis.map.tiles.mesh.TileMeshData;
+import microtrafficsim.core.vis.map.tiles.mesh.TileMeshStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests baking tile meshes into a {@link TileMeshStore} and loading them back.
+ *
+ * @author agent
+ */
+public class TileMeshStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testBakeAndLoad() throws Exception {
+        StyleSheet style = new LightStyleSheet();
+        SimulationConfig config = new SimulationConfig();
+        config.visualization.style = style;
+
+        TilingScheme scheme = new QuadTreeTilingScheme(new MercatorProjection());
+
+        OSMParser.Result result = ValidationMaps.parse(ValidationMaps.ROUNDABOUT, config);
+        TileFeatureProvider provider = new QuadTreeTiledMapSegment.Generator().generate(result.segment, scheme, 12);
+
+        File directory = TileMeshStore.getDirectory(folder.getRoot(), result.streetgraph.getGUID(), style, true);
+
+        int count;
+        try (TileMeshStore store = new TileMeshStore(directory)) {
+            count = new TileMeshBaker().bake(store, provider, style.getLayers(), 10, 16);
+        }
+        assertTrue(count > 0);
+
+        // re-open and compare against freshly generated meshes
+        int compared = 0;
+        try (TileMeshStore store = new TileMeshStore(directory)) {
+            assertEquals(0, TileMeshBaker.verify(store, style.getLayers()));
+
+            for (LayerDefinition layer : style.getLayers()) {
+                if (!(layer.getSource() instanceof FeatureTileLayerSource)) continue;
+
+                FeatureTileLayerSource def = (FeatureTileLayerSource) layer.getSource();
+                FeatureTileLayerSource src = new FeatureTileLayerSource(def.getFeatureName(), def.getStyle(), provider);
+                if (!src.isAvailable()) continue;
+
+                FeatureMeshGenerator generator = src.getFeatureType() == Street.class
+                        ? new StreetMeshGenerator() : new PolygonMeshGenerator();
+
+                for (TileRect rect : store.getTiles(layer.getName())) {
+                    TileMeshData stored = store.get(layer.getName(), rect);
+                    assertNotNull(stored);
+
+                    // meshes of multi-tile rectangles depend on the requested tile, only compare single tiles
+                    if (rect.xmin != rect.xmax || rect.ymin != rect.ymax) continue;
+
+                    TileMeshData fresh = generator.generateData(null, src, new TileId(rect.xmin, rect.ymin,
+                            rect.zoom), FeatureTileLayerGenerator.MESH_TARGET);
+
+                    assertEquals(fresh.getType(), stored.getType());
+                    assertEquals(fresh.getRestartIndex(), stored.getRestartIndex());
+                    assertArrayEquals(fresh.getLayers(), stored.getLayers(), 0.0f);
+                    assertArrayEquals(fresh.getCounts(), stored.getCounts());
+                    assertArrayEquals(toArray(fresh.getVertices()), toArray(stored.getVertices()), 0.0f);
+                    assertArrayEquals(toArray(fresh.getIndices()), toArray(stored.getIndices()));
+                    compared++;
+                }
+            }
+
+            assertNull(store.get("does-not-exist", new TileRect(0, 0, 0, 0, 0)));
+        }
+
+        assertTrue(compared > 0);
+    }
+
+    @Test
+    public void testStyleHash() {
+        assertEquals(TileMeshStore.getStyleHash(new LightStyleSheet(), true),
+                TileMeshStore.getStyleHash(new LightStyleSheet(), true));
+        assertNotEquals(TileMeshStore.getStyleHash(new LightStyleSheet(), true),
+                TileMeshStore.getStyleHash(new LightStyleSheet(), false));
+    }
+
+
+    private static float[] toArray(FloatBuffer buffer) {
+        float[] array = new float[buffer.remaining()];
+        buffer.get(array);
+        return array;
+    }
+
+    private static int[] toArray(IntBuffer buffer) {
+        int[] array = new int[buffer.remaining()];
+        buffer.get(array);
+        return array;
+    }
+}
@@ -0,0 +1,158 @@
+package math.geometry;
+
+import microtrafficsim.math.Vec2d;
+import microtrafficsim.math.geometry.polygons.EarClippingTriangulator;
+import microtrafficsim.math.geometry.polygons.Polygon;
+import microtrafficsim.math.geometry.polygons.SweepLineTriangulator;
+import microtrafficsim.math.geometry.polygons.Triangulator;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link EarClippingTriangulator}.
+ *
+ * @author agent
+ */
+public class EarClippingTriangulatorTest {
+    private static final double EPSILON = 1e-9;
+
+    private final EarClippingTriangulator triangulator = new EarClippingTriangulator();
+
+
+    @Test
+    public void testSquare() {
+        Vec2d[] square = square(0.0, 0.0, 1.0);
+
+        assertTriangulation(new Polygon(square), 1.0, 2);
+        assertTriangulation(new Polygon(reversed(square)), 1.0, 2);
+    }
+
+    @Test
+    public void testHoles() {
+        Polygon polygon = new Polygon(square(0.0, 0.0, 10.0), new Vec2d[][] {
+                square(1.0, 1.0, 2.0),
+                reversed(square(5.0, 5.0, 3.0)),
+        });
+
+        assertTriangulation(polygon, 100.0 - 4.0 - 9.0, -1);
+    }
+
+    @Test
+    public void testDegenerate() {
+        Vec2d[] line = {new Vec2d(0.0, 0.0), new Vec2d(1.0, 1.0), new Vec2d(2.0, 2.0)};
+        assertEquals(0, triangulator.triangulate(new Polygon(line)).indices.size());
+
+        Vec2d[] duplicates = {
+                new Vec2d(0.0, 0.0), new Vec2d(0.0, 0.0), new Vec2d(1.0, 0.0), new Vec2d(1.0, 0.0),
+                new Vec2d(1.0, 1.0), new Vec2d(0.5, 1.0), new Vec2d(0.0, 1.0),
+        };
+        assertTriangulation(new Polygon(duplicates), 1.0, 2);
+    }
+
+    @Test
+    public void testRandomStarPolygons() {
+        Random random = new Random(42);
+
+        // sizes above the hashing threshold use z-order accelerated ear tests
+        for (int n : new int[] {5, 16, 79, 81, 500, 5000}) {
+            for (int k = 0; k < 10; k++) {
+                Vec2d[] outline = star(random, n, 0.0, 0.0, 10.0, 100.0);
+                Polygon polygon = new Polygon(outline);
+
+                assertTriangulation(polygon, Polygon.area(outline), n - 2);
+
+                // compare against sweep-line triangulation
+                Triangulator.Result reference = new SweepLineTriangulator().triangulate(new Polygon(outline).normalize());
+                assertEquals(area(reference), Polygon.area(outline), 1e-6 * Polygon.area(outline));
+            }
+        }
+    }
+
+    @Test
+    public void testPrimitiveCoordinates() {
+        double[] coords = {
+                0.0, 0.0, 4.0, 0.0, 4.0, 4.0, 0.0, 4.0,    // outline
+                1.0, 1.0, 3.0, 1.0, 3.0, 3.0, 1.0, 3.0,    // hole
+        };
+
+        int[] triangles = triangulator.triangulate(coords, new int[] {4});
+        assertEquals(0, triangles.length % 3);
+
+        double area = 0.0;
+        for (int i = 0; i < triangles.length; i += 3) {
+            double a = cross(coords, triangles[i], triangles[i + 1], triangles[i + 2]);
+            assertTrue(a >= 0.0);
+            area += a / 2.0;
+        }
+
+        assertEquals(16.0 - 4.0, area, EPSILON);
+    }
+
+
+    private void assertTriangulation(Polygon polygon, double area, int triangles) {
+        Triangulator.Result result = triangulator.triangulate(polygon);
+
+        assertEquals(0, result.indices.size() % 3);
+        if (triangles >= 0)
+            assertEquals(triangles, result.indices.size() / 3);
+
+        // all triangles must be oriented counter-clockwise
+        for (int i = 0; i < result.indices.size(); i += 3) {
+            Vec2d a = result.vertices.get(result.indices.get(i));
+            Vec2d b = result.vertices.get(result.indices.get(i + 1));
+            Vec2d c = result.vertices.get(result.indices.get(i + 2));
+            assertTrue(cross(a, b, c) >= 0.0);
+        }
+
+        assertEquals(area, area(result), 1e-6 * Math.max(area, 1.0));
+    }
+
+    private static double area(Triangulator.Result result) {
+        double area = 0.0;
+        for (int i = 0; i < result.indices.size(); i += 3) {
+            Vec2d a = result.vertices.get(result.indices.get(i));
+            Vec2d b = result.vertices.get(result.indices.get(i + 1));
+            Vec2d c = result.vertices.get(result.indices.get(i + 2));
+            area += Math.abs(cross(a, b, c)) / 2.0;
+        }
+        return area;
+    }
+
+    private static double cross(Vec2d a, Vec2d b, Vec2d c) {
+        return (b.x - a.x) * (c.y - a.y) - (b.y - a.y) * (c.x - a.x);
+    }
+
+    private static double cross(double[] coords, int a, int b, int c) {
+        return cross(new Vec2d(coords[a * 2], coords[a * 2 + 1]),
+                new Vec2d(coords[b * 2], coords[b * 2 + 1]),
+                new Vec2d(coords[c * 2], coords[c * 2 + 1]));
+    }
+
+    private static Vec2d[] square(double x, double y, double size) {
+        return new Vec2d[] {
+                new Vec2d(x, y), new Vec2d(x + size, y), new Vec2d(x + size, y + size), new Vec2d(x, y + size),
+        };
+    }
+
+    private static Vec2d[] reversed(Vec2d[] loop) {
+        Vec2d[] result = new Vec2d[loop.length];
+        for (int i = 0; i < loop.length; i++)
+            result[i] = loop[loop.length - 1 - i];
+        return result;
+    }
+
+    private static Vec2d[] star(Random random, int n, double cx, double cy, double rmin, double rmax) {
+        Vec2d[] outline = new Vec2d[n];
+        for (int i = 0; i < n; i++) {
+            double phi = 2.0 * Math.PI * i / n;
+            double r   = rmin + random.nextDouble() * (rmax - rmin);
+            outline[i] = new Vec2d(cx + r * Math.cos(phi), cy + r * Math.sin(phi));
+        }
+        return outline;
+    }
+}
@@ -0,0 +1,128 @@
+package math.random.distributions;
+
+import microtrafficsim.math.random.distributions.impl.CounterRandom;
+import microtrafficsim.utils.id.ConcurrentSeedGenerator;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests {@link CounterRandom} and the derived seeds of {@link ConcurrentSeedGenerator}
+ *
+ * @author agent
+ */
+public class CounterRandomTest {
+    private static final long SEED = 42;
+
+
+    @Test
+    public void testReset() {
+        CounterRandom random = new CounterRandom(SEED);
+        long[] first = draw(random, 100);
+
+        random.reset();
+        assertArrayEquals(first, draw(random, 100));
+
+        random.setSeed(SEED + 1);
+        assertNotEquals(first[0], random.nextLong());
+    }
+
+    @Test
+    public void testSeekIsIndependentOfHistory() {
+        CounterRandom a = new CounterRandom(SEED);
+        CounterRandom b = new CounterRandom(SEED);
+
+        // different number of previous draws
+        draw(a, 17);
+
+        for (int step = 0; step < 100; step++) {
+            a.seek(step, 1);
+            b.seek(step, 1);
+            assertEquals(a.nextFloat(), b.nextFloat(), 0f);
+
+            // purposes are independent streams
+            a.seek(step, 2);
+            long other = a.nextLong();
+            b.seek(step, 1);
+            assertNotEquals(other, b.nextLong());
+        }
+    }
+
+    @Test
+    public void testRanges() {
+        CounterRandom random = new CounterRandom(SEED);
+        int n = 100000;
+        int bound = 10;
+
+        int[] histogram = new int[bound];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            float f = random.nextFloat();
+            assertTrue(0f <= f && f < 1f);
+            sum += f;
+
+            int k = random.nextInt(bound);
+            assertTrue(0 <= k && k < bound);
+            histogram[k]++;
+        }
+
+        assertEquals(0.5, sum / n, 0.01);
+        for (int count : histogram)
+            assertEquals((double) n / bound, count, 0.05 * n / bound);
+
+        byte[] bytes = random.nextByte(13);
+        assertEquals(13, bytes.length);
+    }
+
+    @Test
+    public void testConcurrentSeedGenerator() {
+        ConcurrentSeedGenerator generator = new ConcurrentSeedGenerator(SEED);
+
+        long[] sequential = new long[1000];
+        for (int i = 0; i < sequential.length; i++)
+            sequential[i] = generator.next();
+
+        // the same sequence after a reset
+        generator.reset();
+        for (long seed : sequential)
+            assertEquals(seed, generator.next());
+
+        // concurrently drawn seeds are the same set
+        generator.reset();
+        long[] concurrent = LongStream.range(0, sequential.length).parallel().map(i -> generator.next()).toArray();
+        Arrays.sort(concurrent);
+        long[] sorted = sequential.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, concurrent);
+    }
+
+    @Test
+    public void testConcurrentSeedGeneratorStreamsDoNotOverlap() {
+        ConcurrentSeedGenerator generator = new ConcurrentSeedGenerator(SEED);
+        int n = 100000;
+
+        HashSet<Long> indexed = new HashSet<>();
+        for (int i = 0; i < n; i++)
+            indexed.add(generator.get(i));
+        assertEquals(n, indexed.size());
+
+        for (int i = 0; i < n; i++)
+            assertFalse(indexed.contains(generator.next()));
+    }
+
+
+    private static long[] draw(CounterRandom random, int count) {
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++)
+            result[i] = random.nextLong();
+        return result;
+    }
+}
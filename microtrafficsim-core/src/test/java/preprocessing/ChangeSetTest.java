@@ -0,0 +1,88 @@
+package preprocessing;
+
+import logic.crossinglogic.ValidationMaps;
+import microtrafficsim.core.map.Bounds;
+import microtrafficsim.osm.parser.base.ChangeSet;
+import microtrafficsim.osm.primitives.Node;
+import microtrafficsim.osm.primitives.Way;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests parsing OpenStreetMap change files into a {@link ChangeSet}.
+ *
+ * @author agent
+ */
+public class ChangeSetTest {
+
+    @Test
+    public void testCreateModifyDelete() throws Exception {
+        ChangeSet changes = ChangeSet.load(ValidationMaps.getFile(ValidationMaps.PLUS_CROSSROAD_CHANGES));
+        assertFalse(changes.isEmpty());
+
+        // created and modified
+        assertEquals(new HashSet<>(Arrays.asList(3080413323L, 4000000001L)), changes.getNodes().keySet());
+        assertEquals(new HashSet<>(Arrays.asList(292931265L, 4000000002L)), changes.getWays().keySet());
+        assertTrue(changes.getRelations().isEmpty());
+
+        Node moved = changes.getNodes().get(3080413323L);
+        assertEquals(48.7703791, moved.lat, 0.0);
+        assertEquals(9.1789409, moved.lon, 0.0);
+
+        Way modified = changes.getWays().get(292931265L);
+        assertEquals(Arrays.asList(96535138L, 92311691L), modified.nodes);
+        assertEquals("50", modified.tags.get("maxspeed"));
+
+        Way created = changes.getWays().get(4000000002L);
+        assertEquals(Arrays.asList(92311691L, 4000000001L), created.nodes);
+        assertEquals("yes", created.tags.get("oneway"));
+
+        // deleted
+        assertEquals(Collections.singleton(92311692L), changes.getDeletedNodes());
+        assertEquals(Collections.singleton(303639202L), changes.getDeletedWays());
+        assertTrue(changes.getDeletedRelations().isEmpty());
+
+        // bounds of all nodes with known coordinates, including the deleted one
+        Bounds bounds = changes.getBounds();
+        assertEquals(48.7694195, bounds.minlat, 0.0);
+        assertEquals(48.7703791, bounds.maxlat, 0.0);
+        assertEquals(9.1789409, bounds.minlon, 0.0);
+        assertEquals(9.1800723, bounds.maxlon, 0.0);
+    }
+
+    @Test
+    public void testLaterChangesOverride() throws Exception {
+        ChangeSet changes = new ChangeSet();
+        changes.read(stream("<osmChange><create><node id=\"1\" lat=\"1.0\" lon=\"1.0\"/></create></osmChange>"));
+        changes.read(stream("<osmChange><delete><node id=\"1\"/></delete></osmChange>"));
+
+        assertTrue(changes.getNodes().isEmpty());
+        assertEquals(Collections.singleton(1L), changes.getDeletedNodes());
+
+        changes.read(stream("<osmChange><modify><node id=\"1\" lat=\"2.0\" lon=\"2.0\"/></modify></osmChange>"));
+
+        assertTrue(changes.getDeletedNodes().isEmpty());
+        assertEquals(2.0, changes.getNodes().get(1L).lat, 0.0);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ChangeSet changes = new ChangeSet().read(stream("<osmChange version=\"0.6\"></osmChange>"));
+
+        assertTrue(changes.isEmpty());
+        assertNull(changes.getBounds());
+    }
+
+
+    private static ByteArrayInputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,168 @@
+package serialization.binary;
+
+import logic.crossinglogic.ValidationMaps;
+import microtrafficsim.core.convenience.exfmt.ExfmtStorage;
+import microtrafficsim.core.convenience.mapviewer.TileBasedMapViewer;
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streets.DirectedEdge;
+import microtrafficsim.core.map.FeaturePrimitive;
+import microtrafficsim.core.map.MapProvider;
+import microtrafficsim.core.map.SegmentFeatureProvider;
+import microtrafficsim.core.map.TileFeature;
+import microtrafficsim.core.map.features.Street;
+import microtrafficsim.core.map.tiles.QuadTreeTiledMapSegment;
+import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.serialization.binary.MappedTiledMapSegment;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.vis.map.projections.MercatorProjection;
+import microtrafficsim.utils.collections.Tuple;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Round-trip test for the memory-mapped binary map format.
+ *
+ * @author agent
+ */
+public class BinaryMapFormatTest {
+
+    @Test
+    public void testRoundTrip() throws IOException, InterruptedException {
+        SimulationConfig config = new SimulationConfig();
+        config.seed = 42;
+
+        ExfmtStorage storage = new ExfmtStorage(
+                config,
+                new QuadTreeTilingScheme(new MercatorProjection()),
+                TileBasedMapViewer.DEFAULT_TILEGRID_LEVEL);
+
+        File osm = ValidationMaps.getFile(ValidationMaps.ROUNDABOUT);
+        Tuple<Graph, MapProvider> original = storage.loadMap(osm, true);
+
+        File bin = File.createTempFile("map", ".mtsbmap");
+        bin.deleteOnExit();
+        assertTrue(storage.saveMap(bin, original));
+
+        Tuple<Graph, MapProvider> loaded = storage.loadMap(bin, true);
+        assertNotNull(loaded);
+
+        // graph
+        assertEquals(original.obj0.getGUID(), loaded.obj0.getGUID());
+        assertEquals(original.obj0.getNodes().size(), loaded.obj0.getNodes().size());
+        assertEquals(original.obj0.getEdges().size(), loaded.obj0.getEdges().size());
+
+        Iterator<Node> a = original.obj0.getNodes().iterator();
+        Iterator<Node> b = loaded.obj0.getNodes().iterator();
+        while (a.hasNext()) {
+            Node na = a.next();
+            Node nb = b.next();
+
+            assertEquals(na.getId(), nb.getId());
+            assertEquals(na.getCoordinate(), nb.getCoordinate());
+            assertEquals(na.getLeavingEdges().size(), nb.getLeavingEdges().size());
+            assertEquals(na.getIncomingEdges().size(), nb.getIncomingEdges().size());
+            assertEquals(na.getConnectors().size(), nb.getConnectors().size());
+        }
+
+        for (DirectedEdge edge : loaded.obj0.getEdges()) {
+            assertNotNull(edge.getEntity());
+            assertNotNull(edge.getEntity().getGeometry());
+            assertSame(edge.getEntity(), edge.getEntity().getGeometry().getEntity());
+        }
+
+        // tiles
+        QuadTreeTiledMapSegment segment = new QuadTreeTiledMapSegment.Generator().generate(
+                (SegmentFeatureProvider) original.obj1,
+                new QuadTreeTilingScheme(new MercatorProjection()),
+                TileBasedMapViewer.DEFAULT_TILEGRID_LEVEL);
+        MappedTiledMapSegment mapped = (MappedTiledMapSegment) loaded.obj1;
+
+        assertEquals(segment.getBounds(), mapped.getBounds());
+        assertEquals(segment.getLeafTiles(), mapped.getLeafTiles());
+        assertEquals(segment.getAvailableFeatures(), mapped.getAvailableFeatures());
+
+        TileRect leafs = segment.getLeafTiles();
+        for (String name : segment.getAvailableFeatures()) {
+            assertEquals(segment.getFeatureType(name), mapped.getFeatureType(name));
+
+            for (int y = leafs.ymin; y <= leafs.ymax; y++) {
+                for (int x = leafs.xmin; x <= leafs.xmax; x++) {
+                    TileRect tile = new TileRect(x, y, x, y, leafs.zoom);
+                    TileFeature<FeaturePrimitive> fa = segment.require(name, tile);
+                    TileFeature<FeaturePrimitive> fb = mapped.require(name, tile);
+
+                    assertEquals(fa.getBounds(), fb.getBounds());
+                    assertEquals(fa.getData().length, fb.getData().length);
+
+                    for (FeaturePrimitive p : fb.getData()) {
+                        if (p instanceof Street)
+                            assertNotNull(((Street) p).getEntity());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSaveAsExchangeFormat() throws IOException, InterruptedException {
+        SimulationConfig config = new SimulationConfig();
+        config.seed = 42;
+
+        ExfmtStorage storage = new ExfmtStorage(
+                config,
+                new QuadTreeTilingScheme(new MercatorProjection()),
+                TileBasedMapViewer.DEFAULT_TILEGRID_LEVEL);
+
+        File osm = ValidationMaps.getFile(ValidationMaps.ROUNDABOUT);
+        Tuple<Graph, MapProvider> original = storage.loadMap(osm, true);
+
+        File bin = File.createTempFile("map", ".mtsbmap");
+        bin.deleteOnExit();
+        assertTrue(storage.saveMap(bin, original));
+
+        Tuple<Graph, MapProvider> mapped = storage.loadMap(bin, true);
+        assertNotNull(mapped);
+
+        File exfmt = File.createTempFile("map", ".mtsmap");
+        exfmt.deleteOnExit();
+        assertTrue(storage.saveMap(exfmt, mapped));
+
+        Tuple<Graph, MapProvider> loaded = storage.loadMap(exfmt, true);
+        assertNotNull(loaded);
+
+        // graph
+        assertEquals(original.obj0.getGUID(), loaded.obj0.getGUID());
+
+        // tiles
+        MappedTiledMapSegment a = (MappedTiledMapSegment) mapped.obj1;
+        QuadTreeTiledMapSegment b = (QuadTreeTiledMapSegment) loaded.obj1;
+
+        assertEquals(a.getBounds(), b.getBounds());
+        assertEquals(a.getLeafTiles(), b.getLeafTiles());
+        assertEquals(a.getAvailableFeatures(), b.getAvailableFeatures());
+
+        TileRect leafs = a.getLeafTiles();
+        for (String name : a.getAvailableFeatures()) {
+            assertEquals(a.getFeatureType(name), b.getFeatureType(name));
+
+            for (int y = leafs.ymin; y <= leafs.ymax; y++) {
+                for (int x = leafs.xmin; x <= leafs.xmax; x++) {
+                    TileRect tile = new TileRect(x, y, x, y, leafs.zoom);
+                    TileFeature<FeaturePrimitive> fa = a.require(name, tile);
+                    TileFeature<FeaturePrimitive> fb = b.require(name, tile);
+
+                    assertEquals(fa.getBounds(), fb.getBounds());
+                    assertEquals(fa.getData().length, fb.getData().length);
+                }
+            }
+        }
+    }
+}
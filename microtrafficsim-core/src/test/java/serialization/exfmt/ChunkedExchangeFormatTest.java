@@ -0,0 +1,151 @@
+package serialization.exfmt;
+
+import logic.crossinglogic.ValidationMaps;
+import microtrafficsim.core.exfmt.Container;
+import microtrafficsim.core.exfmt.ExchangeFormat;
+import microtrafficsim.core.exfmt.base.GeometryEntitySet;
+import microtrafficsim.core.exfmt.base.StreetGraphStream;
+import microtrafficsim.core.exfmt.extractor.streetgraph.StreetGraphExtractor;
+import microtrafficsim.core.exfmt.injector.streetgraph.GraphInjector;
+import microtrafficsim.core.logic.streetgraph.StreetGraph;
+import microtrafficsim.core.parser.OSMParser;
+import microtrafficsim.core.serialization.ExchangeFormatSerializer;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the chunked (and compressed) mode of the {@code ExchangeFormatSerializer}.
+ *
+ * @author agent
+ */
+public class ChunkedExchangeFormatTest {
+
+    @Test
+    public void testChunkedRoundTrip() throws Exception {
+        SimulationConfig config = new SimulationConfig();
+        config.seed = 42;
+
+        OSMParser.Result result = ValidationMaps.parse(ValidationMaps.ROUNDABOUT, config);
+
+        ExchangeFormat fmt = ExchangeFormat.getDefault();
+        fmt.getConfig().set(new StreetGraphExtractor.Config(config));
+
+        Container container = fmt.manipulator()
+                .inject(result.segment)
+                .inject(result.streetgraph)
+                .getContainer();
+
+        // plain
+        ExchangeFormatSerializer plain = ExchangeFormatSerializer.create();
+        ByteArrayOutputStream plainBytes = new ByteArrayOutputStream();
+        plain.write(plainBytes, container);
+
+        // chunked, small chunks to force multiple chunks per entity type
+        ExchangeFormatSerializer chunked = ExchangeFormatSerializer.create();
+        chunked.setChunked(true);
+        chunked.setChunkSize(16);
+        ByteArrayOutputStream chunkedBytes = new ByteArrayOutputStream();
+        chunked.write(chunkedBytes, container);
+
+        assertTrue(chunkedBytes.size() < plainBytes.size());
+
+        // both streams must be readable by the same serializer
+        Container a = chunked.read(new ByteArrayInputStream(plainBytes.toByteArray()));
+        Container b = chunked.read(new ByteArrayInputStream(chunkedBytes.toByteArray()));
+
+        GeometryEntitySet ea = a.get(GeometryEntitySet.class);
+        GeometryEntitySet eb = b.get(GeometryEntitySet.class);
+        assertEquals(ea.getPoints().keySet(), eb.getPoints().keySet());
+        assertEquals(ea.getLines().keySet(), eb.getLines().keySet());
+        assertEquals(ea.getPolygons().keySet(), eb.getPolygons().keySet());
+
+        StreetGraph ga = fmt.manipulator(a).extract(StreetGraph.class);
+        StreetGraph gb = fmt.manipulator(b).extract(StreetGraph.class);
+        assertEquals(result.streetgraph.getGUID(), ga.getGUID());
+        assertEquals(ga.getGUID(), gb.getGUID());
+        assertEquals(ga.getEdges().size(), gb.getEdges().size());
+    }
+
+    @Test
+    public void testChunkedGraphStream() throws Exception {
+        SimulationConfig config = new SimulationConfig();
+        config.seed = 42;
+
+        OSMParser.Result result = ValidationMaps.parse(ValidationMaps.ROUNDABOUT, config);
+
+        ExchangeFormat fmt = ExchangeFormat.getDefault();
+        fmt.getConfig().set(new StreetGraphExtractor.Config(config));
+        fmt.getConfig().set(new GraphInjector.Config(true));
+
+        Container container = fmt.manipulator()
+                .inject(result.segment)
+                .inject(result.streetgraph)
+                .getContainer();
+
+        ExchangeFormatSerializer plain = ExchangeFormatSerializer.create();
+        ByteArrayOutputStream plainBytes = new ByteArrayOutputStream();
+        plain.write(plainBytes, container);
+
+        ExchangeFormatSerializer chunked = ExchangeFormatSerializer.create();
+        chunked.setChunked(true);
+        chunked.setChunkSize(4);
+        ByteArrayOutputStream chunkedBytes = new ByteArrayOutputStream();
+        chunked.write(chunkedBytes, container);
+
+        StreetGraphStream sa = chunked.read(new ByteArrayInputStream(plainBytes.toByteArray()))
+                .get(StreetGraphStream.class);
+        Container b = chunked.read(new ByteArrayInputStream(chunkedBytes.toByteArray()));
+        StreetGraphStream sb = b.get(StreetGraphStream.class);
+
+        // the graph records are split into chunks like the entities
+        GeometryEntitySet ecs = container.get(GeometryEntitySet.class);
+        int expected = 1
+                + chunks(ecs.getPoints().size(), 4)
+                + chunks(ecs.getLines().size(), 4)
+                + chunks(ecs.getPolygons().size(), 4)
+                + chunks(result.streetgraph.getNodes().size(), 4)
+                + chunks(result.streetgraph.getEdges().size(), 4)
+                + chunks(sa.connectors.count, 4);
+        assertEquals(expected, getChunkCount(chunkedBytes));
+
+        // the columns must be restored in order
+        assertEquals(sa.nodes.count, sb.nodes.count);
+        assertEquals(sa.edges.count, sb.edges.count);
+        assertEquals(sa.connectors.count, sb.connectors.count);
+        assertArrayEquals(
+                Arrays.copyOf(sa.nodes.id, sa.nodes.count),
+                Arrays.copyOf(sb.nodes.id, sb.nodes.count));
+        assertArrayEquals(
+                Arrays.copyOf(sa.edges.id, sa.edges.count),
+                Arrays.copyOf(sb.edges.id, sb.edges.count));
+        assertArrayEquals(
+                Arrays.copyOf(sa.connectors.toLane, sa.connectors.count),
+                Arrays.copyOf(sb.connectors.toLane, sb.connectors.count));
+
+        StreetGraph graph = fmt.manipulator(b).extract(StreetGraph.class);
+        assertEquals(result.streetgraph.getGUID(), graph.getGUID());
+    }
+
+
+    private static int chunks(int records, int size) {
+        return (records + size - 1) / size;
+    }
+
+    private static int getChunkCount(ByteArrayOutputStream bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        in.readInt();           // magic
+        in.readInt();           // version
+        return in.readInt();
+    }
+}
@@ -0,0 +1,81 @@
+package serialization.exfmt;
+
+import logic.crossinglogic.ValidationMaps;
+import microtrafficsim.core.exfmt.Container;
+import microtrafficsim.core.exfmt.ExchangeFormat;
+import microtrafficsim.core.exfmt.base.StreetGraphStream;
+import microtrafficsim.core.exfmt.extractor.streetgraph.StreetGraphExtractor;
+import microtrafficsim.core.exfmt.injector.streetgraph.GraphInjector;
+import microtrafficsim.core.logic.nodes.Node;
+import microtrafficsim.core.logic.streetgraph.StreetGraph;
+import microtrafficsim.core.parser.OSMParser;
+import microtrafficsim.core.serialization.ExchangeFormatSerializer;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+
+/**
+ * Tests streaming of street-graphs via {@link StreetGraphStream}.
+ *
+ * @author agent
+ */
+public class StreetGraphStreamTest {
+
+    @Test
+    public void testStreamingMatchesEntities() throws Exception {
+        SimulationConfig config = new SimulationConfig();
+        config.seed = 42;
+
+        OSMParser.Result result = ValidationMaps.parse(ValidationMaps.ROUNDABOUT, config);
+
+        StreetGraph entities = roundTrip(result, config, false);
+        StreetGraph streamed = roundTrip(result, config, true);
+
+        assertEquals(result.streetgraph.getGUID(), streamed.getGUID());
+        assertEquals(entities.getGUID(), streamed.getGUID());
+        assertEquals(entities.getNodes().size(), streamed.getNodes().size());
+        assertEquals(entities.getEdges().size(), streamed.getEdges().size());
+        assertEquals(countConnectors(entities), countConnectors(streamed));
+
+        streamed.getEdges().forEach(e -> assertNotNull(e.getEntity().getGeometry()));
+    }
+
+    private static StreetGraph roundTrip(OSMParser.Result result, SimulationConfig config, boolean streaming)
+            throws Exception
+    {
+        ExchangeFormat fmt = ExchangeFormat.getDefault();
+        fmt.getConfig().set(new StreetGraphExtractor.Config(config));
+        fmt.getConfig().set(new GraphInjector.Config(streaming));
+
+        Container container = fmt.manipulator()
+                .inject(result.segment)
+                .inject(result.streetgraph)
+                .getContainer();
+
+        assertEquals(streaming, container.get(StreetGraphStream.class) != null);
+
+        ExchangeFormatSerializer serializer = ExchangeFormatSerializer.create();
+        serializer.setChunked(true);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        serializer.write(bytes, container);
+        container = serializer.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        return fmt.manipulator(container).extract(StreetGraph.class);
+    }
+
+    private static int countConnectors(StreetGraph graph) {
+        int count = 0;
+        for (Node node : graph.getNodes())
+            for (TreeMap<?, ?> to : node.getConnectors().values())
+                count += to.size();
+        return count;
+    }
+}
@@ -0,0 +1,120 @@
+package serialization.monitoring;
+
+import microtrafficsim.core.simulation.core.MonitoringVehicleSimulation.CSVType;
+import microtrafficsim.core.simulation.core.monitoring.VehicleRecordReader;
+import microtrafficsim.core.simulation.core.monitoring.VehicleRecorder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests writing and reading the binary vehicle record format.
+ *
+ * @author agent
+ */
+public class VehicleRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @Test
+    public void testRoundTripOverMultipleChunks() throws IOException {
+        File file = folder.newFile("vehicles.rec");
+
+        // small chunks to force multiple (recycled) chunks
+        int n = 1000;
+        try (VehicleRecorder recorder = new VehicleRecorder(file, false, 7, 2)) {
+            for (int i = 0; i < n; i++)
+                record(recorder, i);
+            assertEquals(n, recorder.getRowCount());
+        }
+
+        try (VehicleRecordReader reader = new VehicleRecordReader(file)) {
+            for (int i = 0; i < n; i++) {
+                assertTrue(reader.next());
+                assertRow(reader, i);
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void testAppend() throws IOException {
+        File file = folder.newFile("vehicles.rec");
+
+        try (VehicleRecorder recorder = new VehicleRecorder(file, false, 16, 2)) {
+            for (int i = 0; i < 10; i++)
+                record(recorder, i);
+        }
+        try (VehicleRecorder recorder = new VehicleRecorder(file, true, 16, 2)) {
+            for (int i = 10; i < 30; i++)
+                record(recorder, i);
+        }
+
+        int count = 0;
+        try (VehicleRecordReader reader = new VehicleRecordReader(file)) {
+            while (reader.next())
+                assertRow(reader, count++);
+        }
+        assertEquals(30, count);
+    }
+
+    @Test
+    public void testCsvExport() throws IOException {
+        File file = folder.newFile("vehicles.rec");
+
+        try (VehicleRecorder recorder = new VehicleRecorder(file)) {
+            recorder.record(1, 2, 3, 4);
+            recorder.record(5, 6, 7, 8, 9, 10, 2, 11);
+        }
+
+        StringWriter velocity = new StringWriter();
+        CSVType.VELOCITY.export(file, velocity);
+        String sep = System.lineSeparator();
+        assertEquals(CSVType.VELOCITY.getLegend() + sep + "1 4" + sep + "5 8", velocity.toString());
+
+        // rows without edge are skipped
+        StringWriter edges = new StringWriter();
+        CSVType.EDGE_VEHICLE_COUNT.export(file, edges);
+        assertEquals(CSVType.EDGE_VEHICLE_COUNT.getLegend() + sep + "5 9 11", edges.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFile() throws IOException {
+        File file = folder.newFile("invalid.rec");
+        Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13});
+        new VehicleRecordReader(file).close();
+    }
+
+
+    private static void record(VehicleRecorder recorder, int i) {
+        if (i % 3 == 0)
+            recorder.record(i, i / 2, 1000L + i, i % 5);
+        else
+            recorder.record(i, i / 2, 1000L + i, i % 5, Long.MAX_VALUE - i, 10 + i, 1 + i % 3, i % 4);
+    }
+
+    private static void assertRow(VehicleRecordReader reader, int i) {
+        assertEquals(i, reader.getStep());
+        assertEquals(i / 2, reader.getSpawnedCount());
+        assertEquals(1000L + i, reader.getVehicleId());
+        assertEquals(i % 5, reader.getVelocity());
+        assertEquals(i % 3 != 0, reader.hasEdge());
+        if (reader.hasEdge()) {
+            assertEquals(Long.MAX_VALUE - i, reader.getEdgeId());
+            assertEquals(10 + i, reader.getEdgeLength());
+            assertEquals(1 + i % 3, reader.getEdgeLaneCount());
+            assertEquals(i % 4, reader.getEdgeVehicleCount());
+        }
+    }
+}
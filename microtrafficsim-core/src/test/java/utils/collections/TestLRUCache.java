@@ -0,0 +1,58 @@
+package utils.collections;
+
+import microtrafficsim.utils.collections.LRUCache;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests {@link LRUCache}.
+ *
+ * @author agent
+ */
+public class TestLRUCache {
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        LRUCache<Integer, String> cache = new LRUCache<>(3);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.put(3, "c");
+
+        assertEquals("a", cache.get(1));    // 2 is now least recently used
+        cache.put(4, "d");
+
+        assertNull(cache.get(2));
+        assertEquals("a", cache.get(1));
+        assertEquals("c", cache.get(3));
+        assertEquals("d", cache.get(4));
+
+        LRUCache.Statistics stats = cache.getStatistics();
+        assertEquals(4, stats.hits);
+        assertEquals(1, stats.misses);
+        assertEquals(1, stats.evictions);
+        assertEquals(3, stats.entries);
+    }
+
+    @Test
+    public void testWeightedCapacity() {
+        LRUCache<String, String> cache = new LRUCache<>(10, s -> (long) s.length());
+        cache.put("a", "12345");
+        cache.put("b", "1234");
+        assertEquals(9, cache.getSize());
+
+        cache.put("c", "123");
+        assertNull(cache.get("a"));
+        assertEquals(7, cache.getSize());
+
+        // values heavier than the capacity are not stored
+        cache.put("d", "12345678901");
+        assertNull(cache.get("d"));
+        assertEquals(7, cache.getSize());
+
+        cache.setCapacity(3);
+        assertEquals(3, cache.getSize());
+        assertEquals("123", cache.get("c"));
+    }
+}
@@ -0,0 +1,89 @@
+package utils.datacollection;
+
+import microtrafficsim.utils.datacollection.LockFreeDataCollector;
+import microtrafficsim.utils.datacollection.Tag;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link LockFreeDataCollector}.
+ *
+ * @author agent
+ */
+public class TestLockFreeDataCollector {
+
+    @Test
+    public void testConcurrentBundlePuts() throws InterruptedException {
+        int nThreads = 8;
+        int perThread = 10000;
+
+        LockFreeDataCollector collector = new LockFreeDataCollector();
+        Tag tag = collector.registerBundle("bundle");
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < nThreads; t++) {
+            int offset = t * perThread;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++)
+                    collector.put(tag, offset + i);
+            }));
+        }
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(nThreads * perThread, collector.size(tag));
+        assertEquals(nThreads * perThread, collector.size("bundle"));
+
+        Iterator<Object> iter = collector.iterator();
+        assertEquals(tag, iter.next());
+
+        HashSet<Integer> values = new HashSet<>();
+        while (iter.hasNext())
+            assertTrue(values.add(iter.next().hashCode()));  // hash code of Data is the one of its object
+        assertEquals(nThreads * perThread, values.size());
+    }
+
+    @Test
+    public void testSingleData() {
+        LockFreeDataCollector collector = new LockFreeDataCollector();
+        Tag tag = collector.register("value");
+        assertEquals(0, collector.size(tag));
+        assertFalse(collector.iterator().hasNext());
+
+        collector.put(tag, 1);
+        collector.put("value", 2);
+        collector.put("other", 3);
+        assertEquals(1, collector.size("value"));
+        assertEquals(1, collector.size("other"));
+        assertEquals(0, collector.size("unknown"));
+
+        HashSet<Object> data = new HashSet<>();
+        for (Object obj : collector)
+            data.add(obj.toString());
+        assertEquals(2, data.size());
+        assertTrue(data.contains("2"));
+        assertTrue(data.contains("3"));
+    }
+
+    @Test
+    public void testAddBundle() {
+        LockFreeDataCollector collector = new LockFreeDataCollector();
+        assertTrue(collector.addBundle("bundle"));
+        assertFalse(collector.addBundle("bundle"));
+        assertEquals(collector.registerBundle("bundle"), collector.register("bundle"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForeignTag() {
+        Tag tag = new LockFreeDataCollector().register("value");
+        new LockFreeDataCollector().put(tag, 1);
+    }
+}
@@ -0,0 +1,47 @@
+package vis;
+
+import microtrafficsim.core.vis.mesh.utils.FloatVertexSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests the de-duplication and indexing of {@link FloatVertexSet}.
+ *
+ * @author agent
+ */
+public class TestFloatVertexSet {
+
+    @Test
+    public void testDeduplication() {
+        FloatVertexSet set = new FloatVertexSet(3, 1);
+
+        assertEquals(0, set.add(new float[] {1.0f, 2.0f, 3.0f}));
+        assertEquals(1, set.add(new float[] {3.0f, 2.0f, 1.0f}));
+        assertEquals(0, set.add(new float[] {1.0f, 2.0f, 3.0f}));
+        assertEquals(2, set.add(new float[] {0.0f, 0.0f, 0.0f}));
+        assertEquals(2, set.add(new float[] {-0.0f, 0.0f, -0.0f}));
+
+        assertEquals(3, set.size());
+        assertEquals(9, set.getVertices().size());
+    }
+
+    @Test
+    public void testRehash() {
+        FloatVertexSet set = new FloatVertexSet(2, 1);
+        int n = 10000;
+
+        for (int i = 0; i < n; i++)
+            assertEquals(i, set.add(new float[] {i, -i}));
+
+        for (int i = 0; i < n; i++)
+            assertEquals(i, set.add(new float[] {i, -i}));
+
+        assertEquals(n, set.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, set.getVertices().get(i * 2), 0.0f);
+            assertEquals(-i, set.getVertices().get(i * 2 + 1), 0.0f);
+        }
+    }
+}
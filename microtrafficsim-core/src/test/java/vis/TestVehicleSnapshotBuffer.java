@@ -0,0 +1,265 @@
+package vis;
+
+import logic.crossinglogic.ValidationMaps;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.map.tiles.TilingScheme;
+import microtrafficsim.core.simulation.builder.impl.VehicleScenarioBuilder;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.simulation.core.Simulation;
+import microtrafficsim.core.simulation.core.VehicleSimulation;
+import microtrafficsim.core.simulation.scenarios.Scenario;
+import microtrafficsim.core.simulation.scenarios.impl.AreaScenario;
+import microtrafficsim.core.simulation.scenarios.impl.RandomRouteScenario;
+import microtrafficsim.core.vis.map.projections.MercatorProjection;
+import microtrafficsim.core.vis.map.projections.Projection;
+import microtrafficsim.core.vis.opengl.utils.Color;
+import microtrafficsim.core.vis.simulation.Vehicle;
+import microtrafficsim.core.vis.simulation.VehicleSnapshotBuffer;
+import microtrafficsim.math.Rect2d;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the spatial index of the {@link VehicleSnapshotBuffer.Snapshot}s, i.e. the tile membership of the vehicles,
+ * the order permutation and the tile query for view rectangles, and that the snapshots acquired for a simulation
+ * follow its scenario.
+ *
+ * @author agent
+ */
+public class TestVehicleSnapshotBuffer {
+
+    private TilingScheme          scheme;
+    private VehicleSnapshotBuffer buffer;
+
+
+    @Before
+    public void setup() {
+        Projection projection = new MercatorProjection();
+        scheme = new QuadTreeTilingScheme(projection);
+        buffer = new VehicleSnapshotBuffer(projection, scheme);
+    }
+
+
+    @Test
+    public void testEmpty() {
+        VehicleSnapshotBuffer.Snapshot snapshot = update(new ArrayList<>());
+
+        assertEquals(0, snapshot.count);
+        assertNull(snapshot.getTiles(scheme.getProjection().getProjectedMaximumBounds()));
+    }
+
+    @Test
+    public void testTileMembership() {
+        List<double[]> positions = createPositions(1000, 10, 10);
+        VehicleSnapshotBuffer.Snapshot snapshot = update(positions);
+
+        assertEquals(positions.size(), snapshot.count);
+
+        TileRect tiles = snapshot.getTiles(scheme.getProjection().getProjectedMaximumBounds());
+        assertNotNull(tiles);
+        assertEquals(VehicleSnapshotBuffer.INDEX_LEVEL, tiles.zoom);
+
+        // every vehicle is contained exactly once in a tile containing its position
+        Set<Integer> visited = new HashSet<>();
+        for (int ty = tiles.ymin; ty <= tiles.ymax; ty++) {
+            for (int tx = tiles.xmin; tx <= tiles.xmax; tx++) {
+                Rect2d bounds = scheme.getBounds(tx, ty, tiles.zoom);
+
+                assertTrue(snapshot.getTileBegin(tx, ty) <= snapshot.getTileEnd(tx, ty));
+                for (int k = snapshot.getTileBegin(tx, ty); k < snapshot.getTileEnd(tx, ty); k++) {
+                    int i = snapshot.order[k];
+                    assertTrue("Vehicle " + i + " is contained twice", visited.add(i));
+                    assertTrue("Vehicle " + i + " is not contained in its tile", contains(bounds, snapshot, i));
+                }
+            }
+        }
+
+        assertEquals(snapshot.count, visited.size());
+        assertEquals(0, snapshot.getTileBegin(tiles.xmin, tiles.ymin));
+        assertEquals(snapshot.count, snapshot.getTileEnd(tiles.xmax, tiles.ymax));
+    }
+
+    @Test
+    public void testViewRectQuery() {
+        List<double[]> positions = createPositions(1000, 10, 10);
+        VehicleSnapshotBuffer.Snapshot snapshot = update(positions);
+
+        Random random = new Random(42);
+        Rect2d area = getArea(10, 10);
+        List<Rect2d> queries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            double x = area.xmin + random.nextDouble() * (area.xmax - area.xmin);
+            double y = area.ymin + random.nextDouble() * (area.ymax - area.ymin);
+            double w = random.nextDouble() * (area.xmax - area.xmin) / 4;
+            double h = random.nextDouble() * (area.ymax - area.ymin) / 4;
+            queries.add(new Rect2d(x, y, x + w, y + h));
+        }
+
+        // degenerate queries exactly on the vehicles, including the ones on tile borders
+        for (double[] pos : positions)
+            queries.add(new Rect2d(pos[0], pos[1], pos[0], pos[1]));
+
+        for (Rect2d query : queries) {
+            Set<Integer> found = new HashSet<>();
+            TileRect tiles = snapshot.getTiles(query);
+            if (tiles != null)
+                for (int ty = tiles.ymin; ty <= tiles.ymax; ty++)
+                    for (int tx = tiles.xmin; tx <= tiles.xmax; tx++)
+                        for (int k = snapshot.getTileBegin(tx, ty); k < snapshot.getTileEnd(tx, ty); k++)
+                            found.add(snapshot.order[k]);
+
+            for (int i = 0; i < snapshot.count; i++)
+                if (contains(query, snapshot, i))
+                    assertTrue("Vehicle " + i + " is not found for " + query, found.contains(i));
+        }
+
+        // queries outside of all vehicles
+        assertNull(snapshot.getTiles(new Rect2d(area.xmax + 1.0, area.ymax + 1.0, area.xmax + 2.0, area.ymax + 2.0)));
+    }
+
+    @Test
+    public void testLevelReduction() {
+        Rect2d max = scheme.getProjection().getProjectedMaximumBounds();
+        List<double[]> positions = new ArrayList<>();
+        positions.add(new double[] {max.xmin + 1e-6, max.ymin + 1e-6});
+        positions.add(new double[] {max.xmax - 1e-6, max.ymax - 1e-6});
+        positions.add(new double[] {0.0, 0.0});
+        VehicleSnapshotBuffer.Snapshot snapshot = update(positions);
+
+        TileRect tiles = snapshot.getTiles(max);
+        assertNotNull(tiles);
+        assertTrue(tiles.zoom < VehicleSnapshotBuffer.INDEX_LEVEL);
+        assertTrue((long) tiles.getTilesX() * tiles.getTilesY() <= VehicleSnapshotBuffer.INDEX_MAX_TILES);
+
+        Set<Integer> visited = new HashSet<>();
+        for (int ty = tiles.ymin; ty <= tiles.ymax; ty++)
+            for (int tx = tiles.xmin; tx <= tiles.xmax; tx++)
+                for (int k = snapshot.getTileBegin(tx, ty); k < snapshot.getTileEnd(tx, ty); k++)
+                    assertTrue(visited.add(snapshot.order[k]));
+        assertEquals(positions.size(), visited.size());
+    }
+
+    @Test
+    public void testReuse() {
+        update(createPositions(1000, 10, 10));
+        update(createPositions(10, 2, 2));
+
+        // the buffers of the first snapshot are reused, the index must not contain any old vehicle
+        List<double[]> positions = createPositions(5, 1, 1);
+        VehicleSnapshotBuffer.Snapshot snapshot = update(positions);
+        assertEquals(positions.size(), snapshot.count);
+
+        TileRect tiles = snapshot.getTiles(scheme.getProjection().getProjectedMaximumBounds());
+        assertEquals(0, snapshot.getTileBegin(tiles.xmin, tiles.ymin));
+        assertEquals(positions.size(), snapshot.getTileEnd(tiles.xmax, tiles.ymax));
+    }
+
+
+    @Test
+    public void testAcquireFollowsSimulation() throws Exception {
+        SimulationConfig config = new SimulationConfig();
+        config.seed = 42;
+        config.maxVehicleCount = 50;
+        config.multiThreading.nThreads = 1;
+        Graph graph = ValidationMaps.parseGraph(ValidationMaps.ROUNDABOUT, config);
+
+        Simulation simulation = new VehicleSimulation();
+        simulation.addStepListener(buffer);
+        simulation.setAndInitPreparedScenario(createScenario(config, graph));
+        for (int step = 0; step < 30; step++)
+            simulation.runOneStep();
+
+        int spawned = simulation.getScenario().getVehicleContainer().getSpawnedCount();
+        assertTrue("No vehicle has spawned", spawned > 0);
+        assertEquals(spawned, buffer.acquire(simulation).count);
+
+        // new scenario => vehicles of the old one must not be returned anymore
+        simulation.setAndInitPreparedScenario(createScenario(config, graph));
+        assertEquals(0, simulation.getScenario().getVehicleContainer().getSpawnedCount());
+        assertEquals(0, buffer.acquire(simulation).count);
+
+        // steps while disabled => a new snapshot is taken when acquiring it while paused
+        buffer.setEnabled(false);
+        for (int step = 0; step < 30; step++)
+            simulation.runOneStep();
+        buffer.setEnabled(true);
+
+        spawned = simulation.getScenario().getVehicleContainer().getSpawnedCount();
+        assertTrue("No vehicle has spawned", spawned > 0);
+        assertEquals(spawned, buffer.acquire(simulation).count);
+
+        // no scenario
+        simulation.removeCurrentScenario();
+        assertEquals(0, buffer.acquire(simulation).count);
+    }
+
+
+    private static Scenario createScenario(SimulationConfig config, Graph graph) throws InterruptedException {
+        AreaScenario scenario = new RandomRouteScenario(config.seed, config, graph);
+        scenario.redefineMetaRoutes();
+        new VehicleScenarioBuilder(config.seed, () -> new Vehicle(new Color(1.f, 0.f, 0.f))).prepare(scenario);
+        return scenario;
+    }
+
+    /**
+     * Creates random positions in the area of the given number of tiles (of the index level) and positions on the
+     * corners and edges of these tiles.
+     */
+    private List<double[]> createPositions(int n, int tilesX, int tilesY) {
+        Random random = new Random(42);
+        Rect2d area = getArea(tilesX, tilesY);
+
+        List<double[]> positions = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            positions.add(new double[] {
+                    area.xmin + random.nextDouble() * (area.xmax - area.xmin),
+                    area.ymin + random.nextDouble() * (area.ymax - area.ymin)
+            });
+
+        TileRect tiles = scheme.getTiles(area, VehicleSnapshotBuffer.INDEX_LEVEL);
+        for (int ty = tiles.ymin; ty < tiles.ymax; ty++) {
+            for (int tx = tiles.xmin; tx < tiles.xmax; tx++) {
+                Rect2d bounds = scheme.getBounds(tx, ty, tiles.zoom);
+                positions.add(new double[] {bounds.xmax, bounds.ymin});
+                positions.add(new double[] {bounds.xmax, (bounds.ymin + bounds.ymax) / 2});
+                positions.add(new double[] {(bounds.xmin + bounds.xmax) / 2, bounds.ymin});
+            }
+        }
+
+        return positions;
+    }
+
+    /**
+     * Returns the bounds of the given number of tiles (of the index level) near the center of the map.
+     */
+    private Rect2d getArea(int tilesX, int tilesY) {
+        int center = 1 << (VehicleSnapshotBuffer.INDEX_LEVEL - 1);
+        return scheme.getBounds(new TileRect(center + 3, center + 5, center + 3 + tilesX - 1,
+                center + 5 + tilesY - 1, VehicleSnapshotBuffer.INDEX_LEVEL));
+    }
+
+    private VehicleSnapshotBuffer.Snapshot update(List<double[]> positions) {
+        buffer.update(null, 0, snapshot -> {
+            for (double[] pos : positions)
+                snapshot.add(pos[0], pos[1], 1.0, 0.0, 0.5, 0.0, 0);
+        });
+        return buffer.acquire();
+    }
+
+    private static boolean contains(Rect2d rect, VehicleSnapshotBuffer.Snapshot snapshot, int i) {
+        double x = snapshot.position[i * 2];
+        double y = snapshot.position[i * 2 + 1];
+        return rect.xmin <= x && x <= rect.xmax && rect.ymin <= y && y <= rect.ymax;
+    }
+}
@@ -41,6 +41,7 @@ import microtrafficsim.core.simulation.utils.RouteContainer;
 import microtrafficsim.core.simulation.utils.SortedRouteContainer;
 import microtrafficsim.core.vis.UnsupportedFeatureException;
 import microtrafficsim.core.vis.input.KeyCommand;
+import microtrafficsim.core.vis.map.tiles.mesh.TileMeshStore;
 import microtrafficsim.core.vis.scenario.areas.Area;
 import microtrafficsim.core.vis.scenario.areas.ScenarioAreaOverlay;
 import microtrafficsim.core.vis.simulation.VehicleOverlay;
@@ -702,7 +703,8 @@ public class SimulationController implements GUIController {
         Procedure setNewFrameTitle = () -> updateFrameTitle(cachedTitle);
         if (MTSFileChooser.Filters.MAP_OSM_XML.accept(file)) {
             updateFrameTitle(FrameTitle.PARSING, file);
-        } else if (MTSFileChooser.Filters.MAP_EXFMT.accept(file)) {
+        } else if (MTSFileChooser.Filters.MAP_EXFMT.accept(file)
+                || MTSFileChooser.Filters.MAP_BINARY.accept(file)) {
             updateFrameTitle(FrameTitle.LOADING, file);
         }
 
@@ -761,6 +763,10 @@ public class SimulationController implements GUIController {
         Tuple<Graph, MapProvider> result = exfmtStorage.loadMap(file, priorityToTheRight);
         if (result != null) {
             if (result.obj0 != null) {
+                /* use pre-baked tile meshes, if available */
+                mapviewer.setTileMeshStore(TileMeshStore.getDefaultRoot(file), result.obj0.getGUID(),
+                        result.obj1.getProperties().drivingOnTheRight);
+
                 mapviewer.setMap(result.obj1);
                 vehicleOverlay.setMapProperties(result.obj1.getProperties());
                 streetgraph = result.obj0;
@@ -0,0 +1,356 @@
+package microtrafficsim.tools.batchrun;
+
+import microtrafficsim.core.convenience.exfmt.ExfmtStorage;
+import microtrafficsim.core.logic.streetgraph.StreetGraph;
+import microtrafficsim.core.logic.vehicles.machines.Vehicle;
+import microtrafficsim.core.map.UnprojectedAreas;
+import microtrafficsim.core.simulation.builder.LogicVehicleFactory;
+import microtrafficsim.core.simulation.builder.impl.VehicleScenarioBuilder;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.simulation.core.MonitoringVehicleSimulation;
+import microtrafficsim.core.simulation.core.MonitoringVehicleSimulation.CSVType;
+import microtrafficsim.core.simulation.scenarios.impl.AreaScenario;
+import microtrafficsim.core.simulation.utils.RouteContainer;
+import microtrafficsim.core.vis.scenario.areas.Area;
+import microtrafficsim.utils.collections.Tuple;
+import org.apache.commons.cli.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * <p>
+ * Headless runner for parameter sweeps. The map (and routes) are loaded once, then every run of the given
+ * {@link SweepSpec} is simulated in a thread pool, each run with its own scenario and simulation. Runs with the same
+ * graph topology share their street-graph, see {@link SharedMap#getGraph(SimulationConfig)}.
+ * Runs are stepped synchronously without any timer, so the speedup of the config has no effect.
+ *
+ * <p>
+ * The output of each run is written to {@code <OUT_DIR>/run-<index>}: the step-wise vehicle counts are streamed to
+ * {@code steps.csv} and the monitored vehicles are recorded to {@code vehicles.rec} while simulating, the csv files of
+ * the {@link MonitoringVehicleSimulation} are exported from the record after the run. Additionally, a line per
+ * finished run is appended to {@code <OUT_DIR>/summary.csv}.
+ *
+ * @author agent
+ */
+public class BatchRunner {
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+
+    public static final int DEFAULT_MAX_AGE = 3000;
+    public static final String SUMMARY_FILENAME = "summary.csv";
+    public static final String STEPS_FILENAME = "steps.csv";
+    public static final String RECORD_FILENAME = "vehicles.rec";
+
+
+    private final SharedMap map;
+    private final SimulationConfig base;
+    private final SweepSpec spec;
+    private final File output;
+
+    private Writer summary;
+
+
+    /**
+     * @param map    the map shared by all runs
+     * @param base   the config each run starts with, before the parameters of the run are applied
+     * @param spec   the runs
+     * @param output the output directory
+     */
+    public BatchRunner(SharedMap map, SimulationConfig base, SweepSpec spec, File output) {
+        this.map    = map;
+        this.base   = base;
+        this.spec   = spec;
+        this.output = output;
+
+        spec.validate(new SimulationConfig(base));
+    }
+
+
+    /**
+     * Executes all runs and waits for them to finish.
+     *
+     * @param nThreads the number of runs executed concurrently
+     * @return the number of failed runs
+     */
+    public int run(int nThreads) throws IOException, InterruptedException {
+        if (!output.isDirectory() && !output.mkdirs())
+            throw new IOException("Couldn't create output directory " + output);
+
+        logger.info("Executing " + spec.size() + " runs using " + nThreads + " threads");
+
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        try (Writer writer = writer(new File(output, SUMMARY_FILENAME))) {
+            summary = writer;
+            summary.write(summaryLegend());
+            summary.flush();
+
+            List<Future<?>> futures = new ArrayList<>(spec.size());
+            for (SweepSpec.Run run : spec)
+                futures.add(pool.submit(() -> {
+                    execute(run);
+                    return null;
+                }));
+
+            int failed = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    logger.error("Run " + i + " failed", e.getCause());
+                    failed++;
+                }
+            }
+
+            return failed;
+        } finally {
+            pool.shutdownNow();
+            summary = null;
+        }
+    }
+
+    private void execute(SweepSpec.Run run) throws Exception {
+        long start = System.nanoTime();
+
+        /* config */
+        SimulationConfig config = new SimulationConfig(base);
+        config.multiThreading.nThreads = 1;     // the runs themselves are executed in parallel
+        run.apply(config);
+
+        int maxAge = Integer.parseInt(run.get(SweepSpec.MAX_AGE, Integer.toString(DEFAULT_MAX_AGE)));
+        String dawdleFactor = run.get(SweepSpec.DAWDLE_FACTOR, null);
+        String laneChangeFactor = run.get(SweepSpec.LANE_CHANGE_FACTOR, null);
+
+        /* scenario */
+        StreetGraph graph = map.getGraph(config);
+        AreaScenario scenario = new AreaScenario(config.seed, config, graph);
+
+        Tuple<RouteContainer, UnprojectedAreas> routes = map.createRoutes(graph);
+        if (routes != null) {
+            scenario.getAreaNodeContainer().addAreas(routes.obj1);
+            scenario.addRoutes(routes.obj0);
+            scenario.fillRdmWithRoutes(routes.obj0);
+        } else {
+            scenario.getAreaNodeContainer().addArea(graph.total(Area.Type.ORIGIN));
+            scenario.getAreaNodeContainer().addArea(graph.total(Area.Type.DESTINATION));
+            scenario.redefineMetaRoutes();
+        }
+
+        LogicVehicleFactory factory = (id, seed, sc, route) -> {
+            Vehicle vehicle = LogicVehicleFactory.defaultCreation(id, seed, sc, route);
+            if (dawdleFactor != null)
+                vehicle.getDriver().setDawdleFactor(Float.parseFloat(dawdleFactor));
+            if (laneChangeFactor != null)
+                vehicle.getDriver().setLaneChangeFactor(Float.parseFloat(laneChangeFactor));
+            return vehicle;
+        };
+        new VehicleScenarioBuilder(config.seed, factory).prepare(scenario);
+
+        /* simulate */
+        File directory = new File(output, "run-" + run.getIndex());
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Couldn't create output directory " + directory);
+
+        MonitoringVehicleSimulation simulation
+                = new MonitoringVehicleSimulation(new File(directory, RECORD_FILENAME));
+        simulation.setAndInitPreparedScenario(scenario);
+
+        try (Writer steps = writer(new File(directory, STEPS_FILENAME))) {
+            steps.write("step;vehicles;spawned\n");
+
+            while (simulation.getAge() < maxAge && !scenario.getVehicleContainer().isEmpty()) {
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+
+                simulation.runOneStep();
+
+                steps.write(simulation.getAge() + ";"
+                        + scenario.getVehicleContainer().getVehicleCount() + ";"
+                        + scenario.getVehicleContainer().getSpawnedCount() + "\n");
+            }
+        }
+
+        simulation.closeRecording();
+        for (CSVType type : CSVType.values()) {
+            try (Writer writer = writer(new File(directory, type.getFilename()))) {
+                type.export(simulation.getRecordFile(), writer);
+            }
+        }
+
+        /* summary */
+        int remaining = scenario.getVehicleContainer().getVehicleCount();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        writeSummary(run, simulation.getAge(), remaining, millis);
+
+        logger.info("Finished run " + run.getIndex() + " after " + simulation.getAge() + " steps ("
+                + remaining + " vehicles remaining, " + millis + " ms)");
+    }
+
+
+    private String summaryLegend() {
+        StringBuilder legend = new StringBuilder("run");
+        for (String key : spec.getKeys())
+            legend.append(';').append(key);
+        return legend.append(";steps;remaining;millis\n").toString();
+    }
+
+    private void writeSummary(SweepSpec.Run run, int steps, int remaining, long millis) throws IOException {
+        StringBuilder line = new StringBuilder().append(run.getIndex());
+        for (String key : spec.getKeys())
+            line.append(';').append(run.getParams().get(key));
+        line.append(';').append(steps).append(';').append(remaining).append(';').append(millis).append('\n');
+
+        synchronized (this) {
+            summary.write(line.toString());
+            summary.flush();
+        }
+    }
+
+    private static Writer writer(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        File mapfile = null;
+        File cfgfile = null;
+        File routefile = null;
+        File specfile = null;
+        File out = new File("batch");
+        int nThreads = Runtime.getRuntime().availableProcessors();
+
+        Options options = new Options();
+        options.addOption(Option
+                .builder("h")
+                .longOpt("help")
+                .desc("Print this message")
+                .build());
+
+        options.addOption(Option
+                .builder("m")
+                .longOpt("map")
+                .hasArg()
+                .argName("MAP_FILE")
+                .desc("Map file (exchange-format or binary)")
+                .build());
+
+        options.addOption(Option
+                .builder("c")
+                .longOpt("config")
+                .hasArg()
+                .argName("CONFIG_FILE")
+                .desc("Base config file (optional)")
+                .build());
+
+        options.addOption(Option
+                .builder("r")
+                .longOpt("routes")
+                .hasArg()
+                .argName("ROUTE_FILE")
+                .desc("Route file (optional, random routes over the whole map are used otherwise)")
+                .build());
+
+        options.addOption(Option
+                .builder("s")
+                .longOpt("sweep")
+                .hasArg()
+                .argName("SPEC_FILE")
+                .desc("Sweep spec, either as csv or properties file")
+                .build());
+
+        options.addOption(Option
+                .builder("o")
+                .longOpt("output")
+                .hasArg()
+                .argName("OUT_DIR")
+                .desc("Output directory (defaults to 'batch')")
+                .build());
+
+        options.addOption(Option
+                .builder("t")
+                .longOpt("nthreads")
+                .hasArg()
+                .argName("INTEGER_VALUE")
+                .desc("Number of concurrent runs (defaults to the number of available processors)")
+                .build());
+
+        try {
+            CommandLine line = new DefaultParser().parse(options, args);
+
+            if (line.hasOption("help")) {
+                HelpFormatter formatter = new HelpFormatter();
+                formatter.printHelp("batchrun", options);
+                System.exit(0);
+            }
+
+            if (line.hasOption("map")) {
+                mapfile = new File(line.getOptionValue("map"));
+            } else {
+                throw new Exception("Map file is missing.");
+            }
+
+            if (line.hasOption("sweep")) {
+                specfile = new File(line.getOptionValue("sweep"));
+            } else {
+                throw new Exception("Sweep spec is missing.");
+            }
+
+            if (line.hasOption("config")) {
+                cfgfile = new File(line.getOptionValue("config"));
+            }
+
+            if (line.hasOption("routes")) {
+                routefile = new File(line.getOptionValue("routes"));
+            }
+
+            if (line.hasOption("output")) {
+                out = new File(line.getOptionValue("output"));
+            }
+
+            if (line.hasOption("nthreads")) {
+                nThreads = Integer.parseInt(line.getOptionValue("nthreads"));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.flush();
+            System.err.println("\nError:");
+            System.err.println("    " + e.getMessage());
+            System.exit(1);
+        }
+
+        int failed;
+        try {
+            SimulationConfig config = new SimulationConfig();
+            if (cfgfile != null) {
+                SimulationConfig loaded = new ExfmtStorage().loadConfig(cfgfile, config);
+                if (loaded == null)
+                    throw new IOException("Couldn't load config file " + cfgfile);
+                config.update(loaded);
+            }
+
+            SweepSpec spec = SweepSpec.load(specfile);
+            SharedMap map = new SharedMap(mapfile, routefile);
+
+            failed = new BatchRunner(map, config, spec, out).run(nThreads);
+        } catch (Exception e) {
+            System.err.flush();
+            System.err.println("\nError: Failed to execute batch:");
+            System.err.println("    " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        if (failed > 0) {
+            System.err.println("\nError: " + failed + " runs failed");
+            System.exit(1);
+        }
+    }
+}
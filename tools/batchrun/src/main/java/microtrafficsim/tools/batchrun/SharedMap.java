@@ -0,0 +1,132 @@
+package microtrafficsim.tools.batchrun;
+
+import microtrafficsim.core.convenience.filechoosing.MTSFileChooser;
+import microtrafficsim.core.exfmt.Container;
+import microtrafficsim.core.exfmt.ExchangeFormat;
+import microtrafficsim.core.exfmt.extractor.simulation.RouteContainerExtractor;
+import microtrafficsim.core.exfmt.extractor.streetgraph.StreetGraphExtractor;
+import microtrafficsim.core.exfmt.injector.streetgraph.GraphInjector;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.logic.streetgraph.StreetGraph;
+import microtrafficsim.core.map.UnprojectedAreas;
+import microtrafficsim.core.serialization.ExchangeFormatSerializer;
+import microtrafficsim.core.serialization.binary.MappedMap;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.simulation.utils.RouteContainer;
+import microtrafficsim.utils.collections.Tuple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+
+/**
+ * <p>
+ * A map (and optionally a route file) loaded once for all runs of a batch. The files are read and decoded only once
+ * on construction. Street-graphs only contain the topology, the simulation state is held by the scenario of each
+ * run, so runs whose configs result in the same topology share one graph. Routes are created for each run.
+ *
+ * <p>
+ * Creation is synchronized, as the extractors read their configuration from the shared exchange-format.
+ *
+ * @author agent
+ */
+public class SharedMap {
+    private static final Logger logger = LoggerFactory.getLogger(SharedMap.class);
+
+    private final ExchangeFormat exfmt;
+    private final Container map;
+    private final MappedMap mapped;
+    private final Container routes;
+
+    private final HashMap<String, StreetGraph> graphs;
+
+
+    /**
+     * @param mapfile   the map file, either in the exchange-format or the binary format
+     * @param routefile the route file, may be {@code null}
+     */
+    public SharedMap(File mapfile, File routefile) throws IOException {
+        ExchangeFormatSerializer serializer = ExchangeFormatSerializer.create();
+        serializer.setChunked(true);
+
+        exfmt = ExchangeFormat.getDefault();
+        exfmt.getConfig().set(new GraphInjector.Config(true));
+
+        logger.info("Loading map: " + mapfile.getName());
+        if (MTSFileChooser.Filters.MAP_EXFMT.accept(mapfile)) {
+            map    = serializer.read(mapfile);
+            mapped = null;
+        } else if (MTSFileChooser.Filters.MAP_BINARY.accept(mapfile)) {
+            map    = null;
+            mapped = MappedMap.open(mapfile);
+        } else {
+            throw new IllegalArgumentException("Unsupported map file (convert OSM files using exfmtconv): " + mapfile);
+        }
+
+        if (routefile != null) {
+            logger.info("Loading routes: " + routefile.getName());
+            routes = serializer.read(routefile);
+        } else {
+            routes = null;
+        }
+
+        graphs = new HashMap<>();
+    }
+
+
+    public boolean hasRoutes() {
+        return routes != null;
+    }
+
+    /**
+     * @return the street-graph for the given config, which is only created if no graph with the same topology has
+     * been created yet
+     */
+    public synchronized StreetGraph getGraph(SimulationConfig config) throws Exception {
+        // the topology depends on these attributes, the crossing-logic is chosen per scenario
+        String key = config.metersPerCell + ";" + config.streetPriorityLevel + ";"
+                + config.crossingLogic.drivingOnTheRight;
+
+        StreetGraph graph = graphs.get(key);
+        if (graph == null) {
+            graph = createGraph(config);
+            graphs.put(key, graph);
+        }
+
+        return graph;
+    }
+
+    private StreetGraph createGraph(SimulationConfig config) throws Exception {
+        StreetGraphExtractor.Config cfg = new StreetGraphExtractor.Config(config);
+
+        if (mapped != null)
+            return mapped.createStreetGraph(cfg);
+
+        exfmt.getConfig().set(cfg);
+        return exfmt.manipulator(map).extract(StreetGraph.class);
+    }
+
+    /**
+     * @return new routes and areas for the given graph, or {@code null} if no route file has been loaded
+     */
+    public synchronized Tuple<RouteContainer, UnprojectedAreas> createRoutes(Graph graph) throws Exception {
+        if (routes == null)
+            return null;
+
+        RouteContainerExtractor.Config cfg = new RouteContainerExtractor.Config();
+        cfg.setGraph(graph);
+        exfmt.getConfig().set(cfg);
+
+        ExchangeFormat.Manipulator manipulator = exfmt.manipulator(routes);
+        RouteContainer container = manipulator.extract(RouteContainer.class);
+        UnprojectedAreas areas = manipulator.extract(UnprojectedAreas.class);
+
+        if (!graph.getGUID().equals(cfg.getLoadedGraphGUID()))
+            logger.warn("The routes have been created for a different graph");
+
+        return new Tuple<>(container, areas);
+    }
+}
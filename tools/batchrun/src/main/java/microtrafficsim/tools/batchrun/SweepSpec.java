@@ -0,0 +1,305 @@
+package microtrafficsim.tools.batchrun;
+
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+
+/**
+ * <p>
+ * The parameter combinations of a batch run. Each run is a mapping from parameter keys to values, where a key is
+ * either the (dotted) path to a public field of the {@link SimulationConfig}, e.g. {@code seed} or
+ * {@code crossingLogic.priorityToTheRightEnabled}, or one of the runner keys {@link #MAX_AGE},
+ * {@link #DAWDLE_FACTOR} and {@link #LANE_CHANGE_FACTOR}.
+ *
+ * <p>
+ * A sweep spec can be given either as CSV file, where the first line contains the keys and every following line
+ * describes one run, or as properties file, where every key maps to a comma-separated list of values and the runs
+ * are given by the cartesian product of all lists. In both formats, lines starting with {@code #} are ignored.
+ *
+ * @author agent
+ */
+public class SweepSpec implements Iterable<SweepSpec.Run> {
+
+    public static final String MAX_AGE            = "maxAge";
+    public static final String DAWDLE_FACTOR      = "dawdleFactor";
+    public static final String LANE_CHANGE_FACTOR = "laneChangeFactor";
+
+    private static final Set<String> RUNNER_KEYS
+            = new HashSet<>(Arrays.asList(MAX_AGE, DAWDLE_FACTOR, LANE_CHANGE_FACTOR));
+
+
+    private final List<String> keys;
+    private final List<Run> runs;
+
+
+    public SweepSpec(List<String> keys) {
+        this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+        this.runs = new ArrayList<>();
+    }
+
+
+    /**
+     * Loads the sweep spec from the given file, which is read as properties file if its name ends with
+     * {@code .properties}, and as CSV file otherwise.
+     */
+    public static SweepSpec load(File file) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            if (file.getName().endsWith(".properties")) {
+                Properties properties = new Properties();
+                properties.load(reader);
+                return fromProperties(properties);
+            } else {
+                return fromCsv(new BufferedReader(reader));
+            }
+        }
+    }
+
+    public static SweepSpec fromCsv(BufferedReader reader) throws IOException {
+        SweepSpec spec = null;
+
+        String line;
+        int lineno = 0;
+        while ((line = reader.readLine()) != null) {
+            lineno++;
+
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            String[] values = split(line);
+            if (spec == null) {
+                spec = new SweepSpec(Arrays.asList(values));
+                continue;
+            }
+
+            if (values.length != spec.keys.size())
+                throw new IOException("Line " + lineno + ": expected " + spec.keys.size() + " values but got "
+                        + values.length);
+
+            spec.add(Arrays.asList(values));
+        }
+
+        if (spec == null)
+            throw new IOException("Sweep spec does not contain a header");
+
+        return spec;
+    }
+
+    public static SweepSpec fromProperties(Properties properties) {
+        ArrayList<String> keys = new ArrayList<>(properties.stringPropertyNames());
+        Collections.sort(keys);
+
+        ArrayList<String[]> values = new ArrayList<>();
+        for (String key : keys)
+            values.add(split(properties.getProperty(key)));
+
+        /* cartesian product, the last key varies fastest */
+        SweepSpec spec = new SweepSpec(keys);
+        int[] idx = new int[keys.size()];
+        while (true) {
+            ArrayList<String> run = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++)
+                run.add(values.get(i)[idx[i]]);
+            spec.add(run);
+
+            int i = keys.size() - 1;
+            while (i >= 0 && ++idx[i] == values.get(i).length)
+                idx[i--] = 0;
+
+            if (i < 0)
+                break;
+        }
+
+        return spec;
+    }
+
+    private static String[] split(String line) {
+        String[] values = line.split(",", -1);
+        for (int i = 0; i < values.length; i++)
+            values[i] = values[i].trim();
+        return values;
+    }
+
+
+    public void add(List<String> values) {
+        if (values.size() != keys.size())
+            throw new IllegalArgumentException("Expected " + keys.size() + " values but got " + values.size());
+
+        LinkedHashMap<String, String> params = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++)
+            params.put(keys.get(i), values.get(i));
+
+        runs.add(new Run(runs.size(), params));
+    }
+
+    /**
+     * Checks all keys against the given config without modifying it.
+     *
+     * @throws IllegalArgumentException if one of the keys is neither a runner key nor a settable field of the config
+     */
+    public void validate(SimulationConfig config) {
+        for (String key : keys)
+            if (!RUNNER_KEYS.contains(key))
+                resolve(config, key);
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public int size() {
+        return runs.size();
+    }
+
+    public Run get(int index) {
+        return runs.get(index);
+    }
+
+    @Override
+    public Iterator<Run> iterator() {
+        return Collections.unmodifiableList(runs).iterator();
+    }
+
+
+    /**
+     * A single parameter combination.
+     */
+    public static class Run {
+        private final int index;
+        private final Map<String, String> params;
+
+        private Run(int index, Map<String, String> params) {
+            this.index  = index;
+            this.params = Collections.unmodifiableMap(params);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Map<String, String> getParams() {
+            return params;
+        }
+
+        public String get(String key, String fallback) {
+            String value = params.get(key);
+            return value == null || value.isEmpty() ? fallback : value;
+        }
+
+        /**
+         * Sets all config parameters of this run in the given config. Runner keys and empty values are skipped.
+         */
+        public void apply(SimulationConfig config) {
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                if (RUNNER_KEYS.contains(param.getKey()) || param.getValue().isEmpty())
+                    continue;
+
+                set(config, param.getKey(), param.getValue());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "run " + index + " " + params;
+        }
+    }
+
+
+    /*
+    |========|
+    | fields |
+    |========|
+    */
+    private static void set(SimulationConfig config, String key, String value) {
+        Target target = resolve(config, key);
+        Class<?> type = target.field.getType();
+
+        try {
+            if (type == int.class) {
+                target.field.setInt(target.owner, Integer.parseInt(value));
+            } else if (type == long.class) {
+                target.field.setLong(target.owner, Long.parseLong(value));
+            } else if (type == float.class) {
+                target.field.setFloat(target.owner, Float.parseFloat(value));
+            } else if (type == double.class) {
+                target.field.setDouble(target.owner, Double.parseDouble(value));
+            } else if (type == boolean.class) {
+                target.field.setBoolean(target.owner, parseBoolean(value));
+            } else if (type == String.class) {
+                target.field.set(target.owner, value);
+            } else {
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                Object constant = Enum.valueOf((Class<? extends Enum>) type, value);
+                target.field.set(target.owner, constant);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Parameter '" + key + "' is not accessible", e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value '" + value + "' for parameter '" + key + "'", e);
+        }
+    }
+
+    private static Target resolve(SimulationConfig config, String key) {
+        Object owner = config;
+        String[] path = key.split("\\.");
+
+        for (int i = 0; i < path.length; i++) {
+            Field field;
+            try {
+                field = owner.getClass().getField(path[i]);
+            } catch (NoSuchFieldException e) {
+                throw new IllegalArgumentException("Unknown parameter '" + key + "'");
+            }
+
+            if (Modifier.isStatic(field.getModifiers()))
+                throw new IllegalArgumentException("Unknown parameter '" + key + "'");
+
+            if (i == path.length - 1) {
+                Class<?> type = field.getType();
+                boolean settable = type == int.class || type == long.class || type == float.class
+                        || type == double.class || type == boolean.class || type == String.class || type.isEnum();
+                if (!settable || Modifier.isFinal(field.getModifiers()))
+                    throw new IllegalArgumentException("Parameter '" + key + "' can not be set");
+
+                return new Target(owner, field);
+            }
+
+            try {
+                owner = field.get(owner);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Parameter '" + key + "' is not accessible", e);
+            }
+
+            if (owner == null)
+                throw new IllegalArgumentException("Unknown parameter '" + key + "'");
+        }
+
+        throw new IllegalArgumentException("Unknown parameter '" + key + "'");
+    }
+
+    private static boolean parseBoolean(String value) {
+        switch (value.toLowerCase()) {
+            case "true": case "t": case "yes": case "y": case "1":
+                return true;
+            case "false": case "f": case "no": case "n": case "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("Couldn't parse boolean '" + value + "'");
+        }
+    }
+
+    private static class Target {
+        private final Object owner;
+        private final Field field;
+
+        private Target(Object owner, Field field) {
+            this.owner = owner;
+            this.field = field;
+        }
+    }
+}
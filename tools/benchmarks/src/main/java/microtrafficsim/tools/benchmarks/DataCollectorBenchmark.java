@@ -0,0 +1,106 @@
+package microtrafficsim.tools.benchmarks;
+
+import microtrafficsim.utils.datacollection.ConcurrentHashDataCollector;
+import microtrafficsim.utils.datacollection.DataCollector;
+import microtrafficsim.utils.datacollection.LockFreeDataCollector;
+import microtrafficsim.utils.datacollection.Tag;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares the throughput of the {@link ConcurrentHashDataCollector} and the {@link LockFreeDataCollector} with
+ * multiple threads putting data into the same bundles and single data tags. The implementation is selected via the
+ * {@code collector} parameter, the number of threads via the JMH option {@code -t}. The lock-free collector is
+ * benchmarked with string tags as well as with pre-registered tag handles ({@code lockfree-handles}).
+ * <p>
+ * Both collectors keep all data put into bundles, so the collectors are recreated for every iteration and the
+ * iterations are kept short to bound the memory usage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 20, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class DataCollectorBenchmark {
+
+    private final static String[] BUNDLES = {"velocity", "edge", "spawned", "despawned"};
+    private final static String[] VALUES  = {"age", "vehicle count"};
+
+
+    @Param({"hash", "lockfree", "lockfree-handles"})
+    public String collector;
+
+    private DataCollector<Object> instance;
+    private LockFreeDataCollector lockfree;
+    private Tag[] bundleTags;
+    private Tag[] valueTags;
+
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        switch (collector) {
+            case "hash":
+                instance = new ConcurrentHashDataCollector();
+                break;
+            case "lockfree":
+            case "lockfree-handles":
+                lockfree = new LockFreeDataCollector();
+                instance = lockfree;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown collector: " + collector);
+        }
+
+        for (String bundle : BUNDLES)
+            instance.addBundle(bundle);
+
+        if (collector.equals("lockfree-handles")) {
+            bundleTags = new Tag[BUNDLES.length];
+            for (int i = 0; i < BUNDLES.length; i++)
+                bundleTags[i] = lockfree.registerBundle(BUNDLES[i]);
+
+            valueTags = new Tag[VALUES.length];
+            for (int i = 0; i < VALUES.length; i++)
+                valueTags[i] = lockfree.register(VALUES[i]);
+        }
+    }
+
+
+    @State(Scope.Thread)
+    public static class Counter {
+        int value;
+    }
+
+
+    @Benchmark
+    public void putBundle(Counter counter) {
+        int i = counter.value++;
+        int k = i & (BUNDLES.length - 1);
+
+        if (bundleTags != null)
+            lockfree.put(bundleTags[k], i);
+        else
+            instance.put(BUNDLES[k], i);
+    }
+
+    @Benchmark
+    public void putValue(Counter counter) {
+        int i = counter.value++;
+        int k = i & (VALUES.length - 1);
+
+        if (valueTags != null)
+            lockfree.put(valueTags[k], i);
+        else
+            instance.put(VALUES[k], i);
+    }
+
+    @Benchmark
+    public int size(Counter counter) {
+        int i = counter.value++;
+        return instance.size(VALUES[i & (VALUES.length - 1)]);
+    }
+}
@@ -0,0 +1,179 @@
+package microtrafficsim.tools.benchmarks;
+
+import microtrafficsim.core.convenience.exfmt.ExfmtStorage;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.map.Coordinate;
+import microtrafficsim.core.map.MapProvider;
+import microtrafficsim.core.map.SegmentFeatureProvider;
+import microtrafficsim.core.map.TileFeature;
+import microtrafficsim.core.map.TileFeatureProvider;
+import microtrafficsim.core.map.features.Polygon;
+import microtrafficsim.core.map.tiles.QuadTreeTiledMapSegment;
+import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
+import microtrafficsim.core.map.tiles.TileId;
+import microtrafficsim.core.map.tiles.TileRect;
+import microtrafficsim.core.map.tiles.TilingScheme;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.vis.map.projections.MercatorProjection;
+import microtrafficsim.core.vis.map.projections.Projection;
+import microtrafficsim.math.Rect2d;
+import microtrafficsim.math.Vec2d;
+import microtrafficsim.math.geometry.polygons.EarClippingTriangulator;
+import microtrafficsim.math.geometry.polygons.SweepLineTriangulator;
+import microtrafficsim.utils.collections.Tuple;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares the {@link SweepLineTriangulator} and the {@link EarClippingTriangulator} on the polygons of a map, as
+ * triangulated by the polygon mesh generator, i.e. clipped to the tiles of the default tile-grid and projected to
+ * tile-local coordinates. The map is specified via the {@code map} parameter. If it is empty, synthetic polygons are
+ * used instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TriangulationBenchmark {
+    private final static Logger logger = LoggerFactory.getLogger(TriangulationBenchmark.class);
+
+    public final static Projection PROJECTION = new MercatorProjection();
+    public final static TilingScheme TILING_SCHEME = new QuadTreeTilingScheme(PROJECTION);
+    public final static int TILE_GRID_LEVEL = 12;
+    public final static Rect2d TILE_TARGET = new Rect2d(-1.0, -1.0, 1.0, 1.0);
+
+    private final static int[] NO_HOLES = new int[0];
+
+
+    @Param({""})
+    public String map;
+
+    private ArrayList<Vec2d[]>  outlines;
+    private ArrayList<double[]> coords;
+
+    private SweepLineTriangulator   sweepline;
+    private EarClippingTriangulator earclipping;
+
+
+    @Setup
+    public void setup() throws Exception {
+        outlines = new ArrayList<>();
+
+        if (map.isEmpty()) {
+            logger.warn("No map specified, using synthetic polygons");
+            synthetic(new Random(42), 20000);
+        } else {
+            load(new File(map));
+        }
+
+        coords = new ArrayList<>(outlines.size());
+        for (Vec2d[] outline : outlines) {
+            double[] c = new double[outline.length * 2];
+            for (int i = 0; i < outline.length; i++) {
+                c[i * 2]     = outline[i].x;
+                c[i * 2 + 1] = outline[i].y;
+            }
+            coords.add(c);
+        }
+
+        sweepline   = new SweepLineTriangulator();
+        earclipping = new EarClippingTriangulator();
+
+        logger.info("Benchmarking " + outlines.size() + " polygons");
+    }
+
+
+    @Benchmark
+    public void sweepLine(Blackhole bh) {
+        for (Vec2d[] outline : outlines)
+            bh.consume(sweepline.triangulate(new microtrafficsim.math.geometry.polygons.Polygon(outline).normalize()));
+    }
+
+    @Benchmark
+    public void earClipping(Blackhole bh) {
+        for (double[] c : coords)
+            bh.consume(earclipping.triangulate(c, NO_HOLES));
+    }
+
+
+    private void load(File file) throws Exception {
+        SimulationConfig config = new SimulationConfig();
+        ExfmtStorage storage = new ExfmtStorage(config, TILING_SCHEME, TILE_GRID_LEVEL);
+
+        Tuple<Graph, MapProvider> result = storage.loadMap(file);
+        if (result == null || result.obj1 == null)
+            throw new IllegalArgumentException("Unsupported or invalid map file: " + file);
+
+        TileFeatureProvider provider;
+        if (result.obj1 instanceof TileFeatureProvider) {
+            provider = (TileFeatureProvider) result.obj1;
+        } else if (result.obj1 instanceof SegmentFeatureProvider) {
+            provider = new QuadTreeTiledMapSegment.Generator()
+                    .generate((SegmentFeatureProvider) result.obj1, TILING_SCHEME, TILE_GRID_LEVEL);
+        } else {
+            throw new IllegalArgumentException("Unsupported map provider in file: " + file);
+        }
+
+        TilingScheme scheme = provider.getTilingScheme();
+        TileRect tiles = scheme.getTiles(provider.getProjectedBounds(), TILE_GRID_LEVEL);
+
+        for (String name : provider.getAvailableFeatures()) {
+            if (provider.getFeatureType(name) != Polygon.class) continue;
+
+            for (int y = tiles.ymin; y <= tiles.ymax; y++) {
+                for (int x = tiles.xmin; x <= tiles.xmax; x++) {
+                    if (!provider.hasTile(x, y, TILE_GRID_LEVEL)) continue;
+
+                    TileFeature<Polygon> feature = provider.require(name, new TileId(x, y, TILE_GRID_LEVEL));
+                    if (feature == null) continue;
+
+                    Rect2d bounds = scheme.getBounds(feature.getBounds());
+                    for (Polygon polygon : feature.getData())
+                        outlines.add(project(scheme.getProjection(), bounds, polygon.outline));
+
+                    provider.release(feature);
+                }
+            }
+        }
+    }
+
+    private void synthetic(Random random, int count) {
+        for (int k = 0; k < count; k++) {
+            int n = 4 + random.nextInt(60);
+            double cx = random.nextDouble() * 2.0 - 1.0;
+            double cy = random.nextDouble() * 2.0 - 1.0;
+
+            Vec2d[] outline = new Vec2d[n];
+            for (int i = 0; i < n; i++) {
+                double phi = 2.0 * Math.PI * i / n;
+                double r = 0.01 + random.nextDouble() * 0.04;
+                outline[i] = new Vec2d(cx + r * Math.cos(phi), cy + r * Math.sin(phi));
+            }
+            outlines.add(outline);
+        }
+    }
+
+    private static Vec2d[] project(Projection projection, Rect2d from, Coordinate[] outline) {
+        // outline has start-node == end-node
+        Vec2d[] result = new Vec2d[outline.length - 1];
+
+        for (int i = 0; i < result.length; i++) {
+            Vec2d p = projection.project(outline[i]);
+            p.x = ((p.x - from.xmin) / (from.xmax - from.xmin)) * (TILE_TARGET.xmax - TILE_TARGET.xmin) + TILE_TARGET.xmin;
+            p.y = ((p.y - from.ymin) / (from.ymax - from.ymin)) * (TILE_TARGET.ymax - TILE_TARGET.ymin) + TILE_TARGET.ymin;
+            result[i] = p;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,119 @@
+package microtrafficsim.tools.recordcsv;
+
+import microtrafficsim.core.simulation.core.MonitoringVehicleSimulation.CSVType;
+import org.apache.commons.cli.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Exports a binary vehicle record file, as written by the {@code MonitoringVehicleSimulation}, to one csv file per
+ * {@link CSVType}.
+ *
+ * @author agent
+ */
+public class RecordCsvExporter {
+    private final static Logger logger = LoggerFactory.getLogger(RecordCsvExporter.class);
+
+
+    public static void export(File record, File directory, List<CSVType> types) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Couldn't create output directory " + directory);
+
+        for (CSVType type : types) {
+            File file = new File(directory, type.getFilename());
+            logger.info("Writing " + file);
+
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                type.export(record, writer);
+            }
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        File in = null;
+        File out = new File(".");
+        List<CSVType> types = Arrays.asList(CSVType.values());
+
+        Options options = new Options();
+        options.addOption(Option
+                .builder("h")
+                .longOpt("help")
+                .desc("Print this message")
+                .build());
+
+        options.addOption(Option
+                .builder("i")
+                .longOpt("input")
+                .hasArg()
+                .argName("RECORD_FILE")
+                .desc("Input record file")
+                .build());
+
+        options.addOption(Option
+                .builder("o")
+                .longOpt("output")
+                .hasArg()
+                .argName("OUT_DIR")
+                .desc("Output directory (defaults to the current directory)")
+                .build());
+
+        options.addOption(Option
+                .builder("t")
+                .longOpt("types")
+                .hasArg()
+                .argName("TYPES")
+                .desc("Comma-separated csv types to export, out of " + Arrays.toString(CSVType.values())
+                        + " (defaults to all)")
+                .build());
+
+        try {
+            CommandLine line = new DefaultParser().parse(options, args);
+
+            if (line.hasOption("help")) {
+                HelpFormatter formatter = new HelpFormatter();
+                formatter.printHelp("recordcsv", options);
+                System.exit(0);
+            }
+
+            if (line.hasOption("input")) {
+                in = new File(line.getOptionValue("input"));
+            } else {
+                throw new Exception("Record file is missing.");
+            }
+
+            if (line.hasOption("output")) {
+                out = new File(line.getOptionValue("output"));
+            }
+
+            if (line.hasOption("types")) {
+                types = new ArrayList<>();
+                for (String type : line.getOptionValue("types").split(","))
+                    types.add(CSVType.valueOf(type.trim().toUpperCase()));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.flush();
+            System.err.println("\nError:");
+            System.err.println("    " + e.getMessage());
+            System.exit(1);
+        }
+
+        try {
+            export(in, out, types);
+        } catch (Exception e) {
+            System.err.flush();
+            System.err.println("\nError: Failed to export record file:");
+            System.err.println("    " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
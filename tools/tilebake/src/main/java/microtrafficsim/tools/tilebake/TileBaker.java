@@ -0,0 +1,227 @@
+package microtrafficsim.tools.tilebake;
+
+import microtrafficsim.core.convenience.exfmt.ExfmtStorage;
+import microtrafficsim.core.logic.streetgraph.Graph;
+import microtrafficsim.core.map.MapProvider;
+import microtrafficsim.core.map.SegmentFeatureProvider;
+import microtrafficsim.core.map.TileFeatureProvider;
+import microtrafficsim.core.map.style.MapStyleSheet;
+import microtrafficsim.core.map.style.StyleSheet;
+import microtrafficsim.core.map.style.impl.DarkMonochromeStyleSheet;
+import microtrafficsim.core.map.tiles.QuadTreeTiledMapSegment;
+import microtrafficsim.core.map.tiles.QuadTreeTilingScheme;
+import microtrafficsim.core.map.tiles.TilingScheme;
+import microtrafficsim.core.simulation.configs.SimulationConfig;
+import microtrafficsim.core.vis.map.projections.MercatorProjection;
+import microtrafficsim.core.vis.map.projections.Projection;
+import microtrafficsim.core.vis.map.tiles.mesh.TileMeshBaker;
+import microtrafficsim.core.vis.map.tiles.mesh.TileMeshStore;
+import microtrafficsim.utils.collections.Tuple;
+import org.apache.commons.cli.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+
+public class TileBaker {
+    private final static Logger logger = LoggerFactory.getLogger(TileBaker.class);
+
+    public final static File DEFAULT_FILE_IN = new File("map.mtsmap");
+    public final static String DEFAULT_STYLE = DarkMonochromeStyleSheet.class.getName();
+    public final static int DEFAULT_MIN_ZOOM = 0;
+    public final static int DEFAULT_MAX_ZOOM = 19;
+
+    public final static Projection PROJECTION = new MercatorProjection();
+    public final static TilingScheme TILING_SCHEME = new QuadTreeTilingScheme(PROJECTION);
+    public final static int TILE_GRID_LEVEL = 12;
+
+
+    private static StyleSheet style(String name) throws ReflectiveOperationException {
+        Class<?> type;
+        try {
+            type = Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            type = Class.forName(DarkMonochromeStyleSheet.class.getPackage().getName() + "." + name);
+        }
+
+        return (StyleSheet) type.newInstance();
+    }
+
+    private static SimulationConfig config(StyleSheet style) {
+        SimulationConfig config = new SimulationConfig();
+        config.visualization.style = style;
+        return config;
+    }
+
+
+    private TilingScheme tilingScheme = TILING_SCHEME;
+    private int tileGridLevel = TILE_GRID_LEVEL;
+
+    private MapStyleSheet style;
+    private ExfmtStorage storage;
+
+
+    public TileBaker(StyleSheet style) {
+        this.style = style;
+        this.storage = new ExfmtStorage(config(style), tilingScheme, tileGridLevel);
+    }
+
+
+    public Tuple<Graph, TileFeatureProvider> load(File file) throws Exception {
+        logger.info("Loading map: " + file.getName());
+
+        Tuple<Graph, MapProvider> result = storage.loadMap(file);
+        if (result == null || result.obj0 == null)
+            throw new IllegalArgumentException("Unsupported or invalid map file: " + file);
+
+        TileFeatureProvider provider;
+        if (result.obj1 instanceof TileFeatureProvider) {
+            provider = (TileFeatureProvider) result.obj1;
+        } else if (result.obj1 instanceof SegmentFeatureProvider) {
+            provider = new QuadTreeTiledMapSegment.Generator()
+                    .generate((SegmentFeatureProvider) result.obj1, tilingScheme, tileGridLevel);
+        } else {
+            throw new IllegalArgumentException("Unsupported map provider in file: " + file);
+        }
+
+        return new Tuple<>(result.obj0, provider);
+    }
+
+    public File bake(File in, File root, int minzoom, int maxzoom, boolean verify) throws Exception {
+        Tuple<Graph, TileFeatureProvider> map = load(in);
+
+        boolean drivingOnTheRight = map.obj1.getProperties().drivingOnTheRight;
+        File directory = TileMeshStore.getDirectory(root, map.obj0.getGUID(), style, drivingOnTheRight);
+
+        logger.info("Baking tile meshes for zoom-levels " + minzoom + " to " + maxzoom + " into: " + directory);
+
+        try (TileMeshStore store = new TileMeshStore(directory)) {
+            int count = new TileMeshBaker().bake(store, map.obj1, style.getLayers(), minzoom, maxzoom);
+            logger.info("Baked " + count + " meshes");
+
+            if (verify) {
+                int corrupted = TileMeshBaker.verify(store, style.getLayers());
+                if (corrupted > 0)
+                    throw new IllegalStateException("Verification failed: " + corrupted + " corrupted meshes");
+
+                logger.info("Verification successful");
+            }
+        }
+
+        return directory;
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        File in = DEFAULT_FILE_IN;
+        File out = null;
+        String style = DEFAULT_STYLE;
+        int minzoom = DEFAULT_MIN_ZOOM;
+        int maxzoom = DEFAULT_MAX_ZOOM;
+        boolean verify = false;
+
+        Options options = new Options();
+        options.addOption(Option
+                .builder("h")
+                .longOpt("help")
+                .desc("Print this message")
+                .build());
+
+        options.addOption(Option
+                .builder("i")
+                .longOpt("input")
+                .hasArg()
+                .argName("IN_FILE")
+                .desc("Input map file")
+                .build());
+
+        options.addOption(Option
+                .builder("o")
+                .longOpt("output")
+                .hasArg()
+                .argName("OUT_DIR")
+                .desc("Output root directory (defaults to '<IN_FILE>.meshes')")
+                .build());
+
+        options.addOption(Option
+                .builder("s")
+                .longOpt("style")
+                .hasArg()
+                .argName("STYLE")
+                .desc("Style-sheet class, either fully qualified or from the default style package (defaults to "
+                        + DarkMonochromeStyleSheet.class.getSimpleName() + ")")
+                .build());
+
+        options.addOption(Option
+                .builder("z")
+                .longOpt("zoom")
+                .hasArg()
+                .numberOfArgs(2)
+                .valueSeparator(';')
+                .argName("MIN;MAX")
+                .desc("Zoom-levels to bake (defaults to " + DEFAULT_MIN_ZOOM + ";" + DEFAULT_MAX_ZOOM + ")")
+                .build());
+
+        options.addOption(Option
+                .builder("v")
+                .longOpt("verify")
+                .desc("Verify the baked meshes after writing")
+                .build());
+
+        try {
+            CommandLine line = new DefaultParser().parse(options, args);
+
+            if (line.hasOption("help")) {
+                HelpFormatter formatter = new HelpFormatter();
+                formatter.printHelp("tilebake", options);
+                System.exit(0);
+            }
+
+            if (line.hasOption("input")) {
+                in = new File(line.getOptionValue("input"));
+            }
+
+            if (line.hasOption("output")) {
+                out = new File(line.getOptionValue("output"));
+            }
+
+            if (line.hasOption("style")) {
+                style = line.getOptionValue("style");
+            }
+
+            if (line.hasOption("zoom")) {
+                String[] zoom = line.getOptionValues("zoom");
+
+                try {
+                    minzoom = Integer.parseInt(zoom[0]);
+                    maxzoom = Integer.parseInt(zoom[1]);
+                } catch (NumberFormatException e) {
+                    System.err.println("\nError: Invalid argument for option '-z | --zoom'");
+                    System.exit(1);
+                }
+            }
+
+            verify = line.hasOption("verify");
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.flush();
+            System.err.println("\nError:");
+            System.err.println("    " + e.getMessage());
+            System.exit(1);
+        }
+
+        if (out == null)
+            out = TileMeshStore.getDefaultRoot(in);
+
+        try {
+            new TileBaker(style(style)).bake(in, out, minzoom, maxzoom, verify);
+        } catch (Exception e) {
+            System.err.flush();
+            System.err.println("\nError: Failed to bake tile meshes:");
+            System.err.println("    " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}